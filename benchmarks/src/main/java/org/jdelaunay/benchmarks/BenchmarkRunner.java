@@ -0,0 +1,72 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. It accepts the usual JMH command line
+ * options, and always adds the GC profiler, so that each run reports the
+ * allocation rate of the measured operation next to its throughput.<br/>
+ *
+ * For instance, to run the triangulation benchmark on the small inputs only :<br/>
+ * <code>java -jar target/benchmarks.jar Triangulation -p size=1000,10000</code><br/>
+ * The largest inputs need a big heap : use <code>-jvmArgs -Xmx16g</code>.
+ *
+ * @author alexis
+ */
+public final class BenchmarkRunner {
+
+        private BenchmarkRunner(){
+        }
+
+        /**
+         * Run the benchmarks.
+         * @param args
+         *      JMH command line options.
+         * @throws RunnerException
+         * @throws CommandLineOptionException
+         */
+        public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+                CommandLineOptions cmd = new CommandLineOptions(args);
+                Options opts = new OptionsBuilder()
+                        .parent(cmd)
+                        .addProfiler(GCProfiler.class)
+                        .build();
+                new Runner(opts).run();
+        }
+}
@@ -0,0 +1,90 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the triangulation of regular lattices. Each cell of a lattice is
+ * made of four cocircular points, so the sweep spends most of its time in the
+ * flip-flap algorithm : this benchmark is the one to watch when the handling
+ * of the bad edges queue changes. The UNIFORM input of the same size is kept
+ * as a reference.
+ *
+ * @author alexis
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DegenerateGridBenchmark {
+
+        @Param({"GRID", "UNIFORM"})
+        public SyntheticData.Kind input;
+
+        @Param({"10000", "100000", "1000000"})
+        public int size;
+
+        private SyntheticData data;
+        private ConstrainedMesh mesh;
+
+        @Setup(Level.Trial)
+        public void generate() {
+                data = SyntheticData.generate(input, size, 0);
+        }
+
+        @Setup(Level.Invocation)
+        public void prepare() throws DelaunayError {
+                mesh = data.buildMesh();
+        }
+
+        @Benchmark
+        public ConstrainedMesh processDelaunay() throws DelaunayError {
+                mesh.processDelaunay();
+                return mesh;
+        }
+}
@@ -0,0 +1,98 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures ConstrainedMesh.removeFlatTriangles on the inputs that produce flat
+ * triangles : the quantized LiDAR-like points and the contour lines. With
+ * incremental=true, the skeleton points are inserted in the computed mesh
+ * instead of triangulating all the points again.
+ *
+ * @author alexis
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FlatTrianglesBenchmark {
+
+        @Param({"CLUSTERED", "CONTOURS"})
+        public SyntheticData.Kind input;
+
+        @Param({"1000", "10000", "100000", "1000000", "10000000"})
+        public int size;
+
+        @Param({"42"})
+        public long seed;
+
+        @Param({"false", "true"})
+        public boolean incremental;
+
+        private SyntheticData data;
+        private ConstrainedMesh mesh;
+
+        @Setup(Level.Trial)
+        public void generate() {
+                data = SyntheticData.generate(input, size, seed);
+        }
+
+        @Setup(Level.Invocation)
+        public void prepare() throws DelaunayError {
+                mesh = data.buildMesh();
+                mesh.forceConstraintIntegrity();
+                mesh.processDelaunay();
+                mesh.setIncrementalFlatRemoval(incremental);
+        }
+
+        @Benchmark
+        public ConstrainedMesh removeFlatTriangles() throws DelaunayError {
+                mesh.removeFlatTriangles();
+                return mesh;
+        }
+}
@@ -0,0 +1,145 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the loading of the points in a ConstrainedMesh : setPoints with a
+ * list of DPoint instances, against setPoints with arrays of coordinates.
+ * The creation of the DPoint instances of the list is not measured. The
+ * loading of the same points from an ASCII XYZ file is measured too, with
+ * and without thinning.
+ *
+ * @author alexis
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PointLoadingBenchmark {
+
+        @Param({"UNIFORM", "CLUSTERED"})
+        public SyntheticData.Kind input;
+
+        @Param({"100000", "1000000", "10000000"})
+        public int size;
+
+        @Param({"42"})
+        public long seed;
+
+        private double[][] coords;
+        private List<DPoint> points;
+        private File file;
+        private double cellSize;
+
+        @Setup(Level.Trial)
+        public void generate() throws IOException {
+                coords = SyntheticData.generate(input, size, seed).copyCoordinates();
+                file = File.createTempFile("jdelaunay", ".xyz");
+                BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+                double minX = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY;
+                for(int i = 0; i < size; i++){
+                        bw.write(coords[0][i] + " " + coords[1][i] + " " + coords[2][i] + "\n");
+                        minX = Math.min(minX, coords[0][i]);
+                        maxX = Math.max(maxX, coords[0][i]);
+                }
+                bw.close();
+                //About one cell for ten points, on a square extent.
+                cellSize = (maxX - minX) / Math.sqrt(size / 10.0);
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() {
+                file.delete();
+        }
+
+        @Setup(Level.Invocation)
+        public void prepare() throws DelaunayError {
+                points = new ArrayList<DPoint>(size);
+                for(int i = 0; i < size; i++){
+                        points.add(new DPoint(coords[0][i], coords[1][i], coords[2][i]));
+                }
+        }
+
+        @Benchmark
+        public ConstrainedMesh setPointList() throws DelaunayError {
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                mesh.setPoints(points);
+                return mesh;
+        }
+
+        @Benchmark
+        public ConstrainedMesh setPointArrays() throws DelaunayError {
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                mesh.setPoints(coords[0], coords[1], coords[2]);
+                return mesh;
+        }
+
+        @Benchmark
+        public ConstrainedMesh loadXYZ() throws DelaunayError, IOException {
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                mesh.loadXYZ(file, 0);
+                return mesh;
+        }
+
+        @Benchmark
+        public ConstrainedMesh loadThinnedXYZ() throws DelaunayError, IOException {
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                mesh.loadXYZ(file, cellSize);
+                return mesh;
+        }
+}
@@ -0,0 +1,135 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.benchmarks;
+
+import com.vividsolutions.jts.geom.Envelope;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.PointLocator;
+import org.jdelaunay.delaunay.TriangleIndex;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+import org.jdelaunay.delaunay.geometries.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the location of points in a computed mesh with its PointLocator,
+ * for queries spread over the whole mesh and for queries that follow a path,
+ * and the same queries made with its TriangleIndex. The mesh can be sorted
+ * along a Hilbert curve first.
+ *
+ * @author alexis
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PointLocationBenchmark {
+
+        private static final int QUERIES = 1 << 16;
+
+        @Param({"UNIFORM", "CLUSTERED"})
+        public SyntheticData.Kind input;
+
+        @Param({"10000", "1000000", "10000000"})
+        public int size;
+
+        @Param({"42"})
+        public long seed;
+
+        @Param({"false", "true"})
+        public boolean hilbert;
+
+        private PointLocator locator;
+        private TriangleIndex index;
+        private DPoint[] spread;
+        private DPoint[] path;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void triangulate() throws DelaunayError {
+                ConstrainedMesh mesh = SyntheticData.generate(input, size, seed).buildMesh();
+                mesh.setHilbertOrdered(hilbert);
+                mesh.processDelaunay();
+                locator = mesh.getPointLocator();
+                index = mesh.getTriangleIndex();
+                Envelope env = mesh.getBoundingBox();
+                Random rand = new Random(seed);
+                spread = new DPoint[QUERIES];
+                path = new DPoint[QUERIES];
+                double step = env.getWidth() / QUERIES;
+                for(int i = 0; i < QUERIES; i++){
+                        spread[i] = new DPoint(env.getMinX() + rand.nextDouble() * env.getWidth(),
+                                env.getMinY() + rand.nextDouble() * env.getHeight(), 0);
+                        path[i] = new DPoint(env.getMinX() + i * step,
+                                env.getMinY() + (0.5 + 0.1 * Math.sin(i * step)) * env.getHeight(), 0);
+                }
+        }
+
+        @Benchmark
+        public Element locateSpread() throws DelaunayError {
+                next = (next + 1) & (QUERIES - 1);
+                return locator.locate(spread[next]);
+        }
+
+        @Benchmark
+        public Element locatePath() throws DelaunayError {
+                next = (next + 1) & (QUERIES - 1);
+                return locator.locate(path[next]);
+        }
+
+        @Benchmark
+        public DTriangle indexSpread() {
+                next = (next + 1) & (QUERIES - 1);
+                return index.getContainingTriangle(spread[next].getX(), spread[next].getY());
+        }
+
+        @Benchmark
+        public DPoint nearestVertexSpread() {
+                next = (next + 1) & (QUERIES - 1);
+                return index.getNearestVertex(spread[next].getX(), spread[next].getY());
+        }
+}
@@ -0,0 +1,128 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.SteinerPlacement;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.evaluator.SkinnyEvaluator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the refinement of an already computed mesh, with refineMesh and
+ * refineTriangles, driven by a SkinnyEvaluator. With more than one thread,
+ * the refinement is made by rounds of independent insertions, whose result
+ * does not depend on the number of threads : threads=2 to threads=32 measure
+ * its scalability, threads=1 the sequential refinement. placement compares
+ * the circumcenters to the off-centers and to the terminator, that insert
+ * fewer points, especially on the ROADS data, whose constraints meet at
+ * small angles.<br/>
+ *
+ * The scalability must be measured on a machine with at least 32 cores, one
+ * input and one placement at a time, for instance :<br/>
+ * <code>java -jar target/benchmarks.jar RefinementBenchmark.refineMesh
+ * -p input=ROADS -p size=1000000 -p placement=CIRCUMCENTER
+ * -p threads=1,2,4,8,16,32 -jvmArgs -Xmx16g</code><br/>
+ * As threads=1 runs the sequential refinement, which inserts its points in
+ * another order, the speedups are best read against threads=2.
+ *
+ * @author alexis
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RefinementBenchmark {
+
+        @Param({"UNIFORM", "CLUSTERED", "CONTOURS", "ROADS"})
+        public SyntheticData.Kind input;
+
+        @Param({"1000", "10000", "100000", "1000000", "10000000"})
+        public int size;
+
+        @Param({"42"})
+        public long seed;
+
+        @Param({"25"})
+        public double minAngle;
+
+        @Param({"0.1"})
+        public double minLength;
+
+        @Param({"1", "2", "4", "8", "16", "32"})
+        public int threads;
+
+        @Param({"CIRCUMCENTER", "OFF_CENTER", "TERMINATOR"})
+        public SteinerPlacement placement;
+
+        private SyntheticData data;
+        private ConstrainedMesh mesh;
+
+        @Setup(Level.Trial)
+        public void generate() {
+                data = SyntheticData.generate(input, size, seed);
+        }
+
+        @Setup(Level.Invocation)
+        public void prepare() throws DelaunayError {
+                mesh = data.buildMesh();
+                mesh.forceConstraintIntegrity();
+                mesh.processDelaunay();
+                mesh.setRefinementThreadCount(threads);
+                mesh.setSteinerPlacement(placement);
+        }
+
+        @Benchmark
+        public ConstrainedMesh refineMesh() throws DelaunayError {
+                mesh.refineMesh(minLength, new SkinnyEvaluator(minAngle));
+                return mesh;
+        }
+
+        @Benchmark
+        public ConstrainedMesh refineTriangles() throws DelaunayError {
+                mesh.refineTriangles(minLength, new SkinnyEvaluator(minAngle));
+                return mesh;
+        }
+}
@@ -0,0 +1,364 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * Seeded synthetic inputs used by the benchmarks. The coordinates are generated
+ * once, in primitive arrays, and a fresh ConstrainedMesh can be built from them
+ * as many times as needed : the triangulation modifies the points and edges it is
+ * given, so each measured operation must work on new objects.<br/>
+ *
+ * The point density is about one point per square unit, whatever the requested size.
+ *
+ * @author alexis
+ */
+public final class SyntheticData {
+
+        /**
+         * The kinds of input we are able to generate.
+         */
+        public enum Kind {
+                /**
+                 * Points uniformly distributed in a square.
+                 */
+                UNIFORM,
+                /**
+                 * LiDAR-like points : dense clusters over a sparse ground, with
+                 * z values quantized to produce flat areas.
+                 */
+                CLUSTERED,
+                /**
+                 * Contour lines of a set of overlapping hills. The lines are
+                 * used as constraints.
+                 */
+                CONTOURS,
+                /**
+                 * A dense network of crossing polylines, used as constraints.
+                 */
+                ROADS,
+                /**
+                 * Points on a regular square lattice. Each cell is made of four
+                 * cocircular points : the worst case for the flip-flap algorithm.
+                 */
+                GRID
+        }
+
+        private static final double Z_STEP = 0.25;
+        private static final int CONTOUR_LEVELS = 20;
+
+        private final Kind kind;
+        private final double[] x;
+        private final double[] y;
+        private final double[] z;
+        //Pairs of indices in x, y and z.
+        private final int[] segments;
+
+        private SyntheticData(Kind kind, double[] x, double[] y, double[] z, int[] segments){
+                this.kind = kind;
+                this.x = x;
+                this.y = y;
+                this.z = z;
+                this.segments = segments;
+        }
+
+        /**
+         * Generate a new set of data.
+         * @param kind
+         * @param size
+         *      The number of points to generate.
+         * @param seed
+         *      The seed of the random generator. Two calls with the same arguments
+         *      return the same data.
+         * @return
+         *      The generated data.
+         */
+        public static SyntheticData generate(Kind kind, int size, long seed) {
+                if(size < ConstrainedMesh.MIN_POINTS_NUMBER){
+                        throw new IllegalArgumentException("We need at least three points");
+                }
+                Random rand = new Random(seed);
+                switch(kind){
+                        case UNIFORM :
+                                return uniform(size, rand);
+                        case CLUSTERED :
+                                return clustered(size, rand);
+                        case CONTOURS :
+                                return contours(size, rand);
+                        case ROADS :
+                                return roads(size, rand);
+                        case GRID :
+                                return grid(size);
+                        default :
+                                throw new IllegalArgumentException("Unknown kind of input : "+kind);
+                }
+        }
+
+        /**
+         * Get the kind of these data.
+         * @return
+         *      The kind of input.
+         */
+        public Kind getKind() {
+                return kind;
+        }
+
+        /**
+         * Get the number of generated points.
+         * @return
+         *      The number of points.
+         */
+        public int getPointCount() {
+                return x.length;
+        }
+
+        /**
+         * Get the number of generated constraint segments.
+         * @return
+         *      The number of constraint segments.
+         */
+        public int getSegmentCount() {
+                return segments.length / 2;
+        }
+
+        /**
+         * Get a copy of the coordinates of the generated points.
+         * @return
+         *      The x, y and z arrays.
+         */
+        public double[][] copyCoordinates() {
+                return new double[][]{x.clone(), y.clone(), z.clone()};
+        }
+
+        /**
+         * Build a new mesh, ready to be triangulated, from these data. The
+         * constraints, if any, have not been processed with forceConstraintIntegrity.
+         * @return
+         *      A new ConstrainedMesh, filled with new points and edges.
+         * @throws DelaunayError
+         */
+        public ConstrainedMesh buildMesh() throws DelaunayError {
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                DPoint[] pts = new DPoint[x.length];
+                List<DPoint> ptList = new ArrayList<DPoint>(x.length);
+                for(int i = 0; i < x.length; i++){
+                        pts[i] = new DPoint(x[i], y[i], z[i]);
+                        ptList.add(pts[i]);
+                }
+                mesh.setPoints(ptList);
+                if(segments.length > 0){
+                        ArrayList<DEdge> constraints = new ArrayList<DEdge>(segments.length / 2);
+                        for(int i = 0; i < segments.length; i += 2){
+                                DEdge ed = new DEdge(pts[segments[i]], pts[segments[i+1]]);
+                                if(!ed.getStartPoint().equals2D(ed.getEndPoint())){
+                                        constraints.add(ed);
+                                }
+                        }
+                        //The constraints are inserted in a sorted list : giving them
+                        //already sorted avoids a quadratic setup.
+                        Collections.sort(constraints);
+                        mesh.setConstraintEdges(constraints);
+                }
+                return mesh;
+        }
+
+        /**
+         * A smooth synthetic terrain.
+         */
+        private static double terrain(double px, double py){
+                return 20 * Math.sin(px * 0.01) * Math.cos(py * 0.013) + 5 * Math.sin(px * 0.05 + py * 0.03);
+        }
+
+        private static SyntheticData uniform(int size, Random rand){
+                double side = Math.sqrt(size);
+                double[] x = new double[size];
+                double[] y = new double[size];
+                double[] z = new double[size];
+                for(int i = 0; i < size; i++){
+                        x[i] = rand.nextDouble() * side;
+                        y[i] = rand.nextDouble() * side;
+                        z[i] = terrain(x[i], y[i]) + rand.nextDouble() * 0.1;
+                }
+                return new SyntheticData(Kind.UNIFORM, x, y, z, new int[0]);
+        }
+
+        private static SyntheticData clustered(int size, Random rand){
+                double side = Math.sqrt(size);
+                int clusters = Math.max(4, size / 2000);
+                double sigma = side / Math.sqrt(clusters) / 3;
+                double[] cx = new double[clusters];
+                double[] cy = new double[clusters];
+                for(int i = 0; i < clusters; i++){
+                        cx[i] = rand.nextDouble() * side;
+                        cy[i] = rand.nextDouble() * side;
+                }
+                double[] x = new double[size];
+                double[] y = new double[size];
+                double[] z = new double[size];
+                for(int i = 0; i < size; i++){
+                        if(rand.nextInt(5) == 0){
+                                //sparse ground points
+                                x[i] = rand.nextDouble() * side;
+                                y[i] = rand.nextDouble() * side;
+                        } else {
+                                int c = rand.nextInt(clusters);
+                                x[i] = cx[c] + rand.nextGaussian() * sigma;
+                                y[i] = cy[c] + rand.nextGaussian() * sigma;
+                        }
+                        //Quantized elevations, as found in classified LiDAR data.
+                        z[i] = Math.floor(terrain(x[i], y[i]) / Z_STEP) * Z_STEP;
+                }
+                return new SyntheticData(Kind.CLUSTERED, x, y, z, new int[0]);
+        }
+
+        private static SyntheticData contours(int size, Random rand){
+                double side = Math.sqrt(size);
+                int hills = Math.max(1, size / 50000);
+                //The hills slightly overlap, so that some contour lines intersect.
+                double radius = 1.3 * side / (2 * Math.sqrt(hills));
+                //The total length of the lines, used to get the spacing of the vertices.
+                double total = hills * Math.PI * radius * (CONTOUR_LEVELS + 1);
+                double spacing = total / size;
+                double[] x = new double[size];
+                double[] y = new double[size];
+                double[] z = new double[size];
+                int[] segments = new int[2 * size];
+                int nbPts = 0;
+                int nbSeg = 0;
+                for(int h = 0; h < hills && nbPts < size; h++){
+                        double hx = rand.nextDouble() * side;
+                        double hy = rand.nextDouble() * side;
+                        double phase = rand.nextDouble() * 2 * Math.PI;
+                        for(int k = 1; k <= CONTOUR_LEVELS && nbPts < size; k++){
+                                double r = radius * k / CONTOUR_LEVELS;
+                                int nb = Math.max(8, (int) Math.round(2 * Math.PI * r / spacing));
+                                nb = Math.min(nb, size - nbPts);
+                                if(nb < 3){
+                                        break;
+                                }
+                                int first = nbPts;
+                                for(int i = 0; i < nb; i++){
+                                        double t = 2 * Math.PI * i / nb;
+                                        double rr = r * (1 + 0.1 * Math.sin(3 * t + phase));
+                                        x[nbPts] = hx + rr * Math.cos(t);
+                                        y[nbPts] = hy + rr * Math.sin(t);
+                                        z[nbPts] = CONTOUR_LEVELS - k;
+                                        segments[nbSeg++] = nbPts;
+                                        segments[nbSeg++] = i == nb - 1 ? first : nbPts + 1;
+                                        nbPts++;
+                                }
+                        }
+                }
+                return trim(Kind.CONTOURS, x, y, z, nbPts, segments, nbSeg);
+        }
+
+        private static SyntheticData roads(int size, Random rand){
+                double side = Math.sqrt(size);
+                int roads = Math.max(2, (int) Math.sqrt(size) / 4);
+                int perRoad = Math.max(2, size / roads);
+                double[] x = new double[size];
+                double[] y = new double[size];
+                double[] z = new double[size];
+                int[] segments = new int[2 * size];
+                int nbPts = 0;
+                int nbSeg = 0;
+                for(int r = 0; r < roads && nbPts < size; r++){
+                        //Roads go from one side of the square to the opposite one.
+                        double sx, sy, ex, ey;
+                        if(r % 2 == 0){
+                                sx = 0;
+                                sy = rand.nextDouble() * side;
+                                ex = side;
+                                ey = rand.nextDouble() * side;
+                        } else {
+                                sx = rand.nextDouble() * side;
+                                sy = 0;
+                                ex = rand.nextDouble() * side;
+                                ey = side;
+                        }
+                        double len = Math.sqrt((ex - sx) * (ex - sx) + (ey - sy) * (ey - sy));
+                        double nx = -(ey - sy) / len;
+                        double ny = (ex - sx) / len;
+                        double phase = rand.nextDouble() * 2 * Math.PI;
+                        int nb = Math.min(perRoad, size - nbPts);
+                        if(nb < 2){
+                                break;
+                        }
+                        for(int i = 0; i < nb; i++){
+                                double t = (double) i / (nb - 1);
+                                double wiggle = 0.02 * side * Math.sin(6 * Math.PI * t + phase);
+                                x[nbPts] = sx + t * (ex - sx) + wiggle * nx;
+                                y[nbPts] = sy + t * (ey - sy) + wiggle * ny;
+                                z[nbPts] = terrain(x[nbPts], y[nbPts]);
+                                if(i > 0){
+                                        segments[nbSeg++] = nbPts - 1;
+                                        segments[nbSeg++] = nbPts;
+                                }
+                                nbPts++;
+                        }
+                }
+                return trim(Kind.ROADS, x, y, z, nbPts, segments, nbSeg);
+        }
+
+        private static SyntheticData grid(int size){
+                int side = (int) Math.ceil(Math.sqrt(size));
+                double[] x = new double[size];
+                double[] y = new double[size];
+                double[] z = new double[size];
+                for(int i = 0; i < size; i++){
+                        x[i] = i % side;
+                        y[i] = i / side;
+                        z[i] = terrain(x[i], y[i]);
+                }
+                return new SyntheticData(Kind.GRID, x, y, z, new int[0]);
+        }
+
+        private static SyntheticData trim(Kind kind, double[] x, double[] y, double[] z, int nbPts,
+                        int[] segments, int nbSeg){
+                double[] tx = new double[nbPts];
+                double[] ty = new double[nbPts];
+                double[] tz = new double[nbPts];
+                System.arraycopy(x, 0, tx, 0, nbPts);
+                System.arraycopy(y, 0, ty, 0, nbPts);
+                System.arraycopy(z, 0, tz, 0, nbPts);
+                int[] ts = new int[nbSeg];
+                System.arraycopy(segments, 0, ts, 0, nbSeg);
+                return new SyntheticData(kind, tx, ty, tz, ts);
+        }
+}
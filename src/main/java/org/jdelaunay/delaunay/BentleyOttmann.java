@@ -0,0 +1,426 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.Element;
+import org.jdelaunay.delaunay.tools.Kernels;
+import org.jdelaunay.delaunay.tools.Tools;
+
+/**
+ * A Bentley-Ottmann sweep used to force the integrity of the constraints :
+ * the constraint edges are split where they cross each other, and where they
+ * pass through a point of the mesh.<p></p>
+ *
+ * The sweep status is a balanced tree of the edges that cross the sweep line,
+ * sorted with their ordinates at the abscissa of the current event. The event
+ * schedule merges the sorted points of the mesh with a tree of the intersection
+ * points found so far. An intersection is only searched between edges that
+ * become neighbours in the status, so that the whole operation runs in
+ * O((n+k) log n), where k is the number of intersections.<p></p>
+ *
+ * The edges that pass through an event are in fact the edges whose ordinate at
+ * the event abscissa is closer than Tools.EPSILON to the event. They are
+ * sorted by slope, and vertical edges are considered as the steepest ones : it
+ * is what we would see with a sweep line tilted by an infinitesimal angle.<p></p>
+ *
+ * As in the sweep made with VerticalList, the intersections are computed with
+ * DEdge.getIntersection(ed, weights) : the z of an intersection point comes
+ * from the edge with the greatest weight.
+ *
+ * @author alexis
+ */
+final class BentleyOttmann {
+
+	private final List<DPoint> points;
+	private final List<DEdge> constraints;
+	private final Map<Integer, Integer> weights;
+	private final StatusComparator comp = new StatusComparator();
+	private final NavigableSet<DEdge> status = new TreeSet<DEdge>(comp);
+	//The intersection points that have not been processed yet.
+	private final NavigableSet<DPoint> pending = new TreeSet<DPoint>();
+	//The weight used to compute the z of each new intersection point.
+	private final Map<DPoint, Integer> pointWeights = new IdentityHashMap<DPoint, Integer>();
+	//The points where each edge must be split, in the order of the sweep.
+	private final Map<DEdge, List<DPoint>> splits = new IdentityHashMap<DEdge, List<DPoint>>();
+	private final List<DPoint> newPoints = new ArrayList<DPoint>();
+	private final DEdge lowProbe;
+	private final DEdge highProbe;
+
+	/**
+	 * Prepare the sweep.
+	 * @param points
+	 *      The points of the mesh, sorted and without duplicates.
+	 * @param constraints
+	 *      The constraint edges, sorted with their left point. Their extremities
+	 *      must be in points.
+	 * @param weights
+	 *      The weights of the properties of the edges.
+	 * @throws DelaunayError
+	 */
+	BentleyOttmann(List<DPoint> points, List<DEdge> constraints, Map<Integer, Integer> weights)
+			throws DelaunayError {
+		this.points = points;
+		this.constraints = constraints;
+		this.weights = weights;
+		lowProbe = new DEdge();
+		highProbe = new DEdge();
+	}
+
+	/**
+	 * Get the intersection points that have been added by the sweep. They are
+	 * not in the list of points given to the constructor.
+	 * @return
+	 *      The new points, sorted.
+	 */
+	List<DPoint> getNewPoints() {
+		return newPoints;
+	}
+
+	/**
+	 * Run the sweep.
+	 * @return
+	 *      The constraint edges, split at the intersection points, sorted with
+	 *      their left point and without duplicates. The edges that are not split
+	 *      are returned as is. When several edges overlap, their common parts
+	 *      are merged and receive the properties of all of them.
+	 * @throws DelaunayError
+	 */
+	List<DEdge> compute() throws DelaunayError {
+		int pointPos = 0;
+		int edgePos = 0;
+		int sequence = 0;
+		while (pointPos < points.size() || !pending.isEmpty()) {
+			DPoint event;
+			boolean created = false;
+			if (pending.isEmpty()) {
+				event = points.get(pointPos++);
+			} else if (pointPos >= points.size()) {
+				event = pending.pollFirst();
+				created = true;
+			} else {
+				int c = points.get(pointPos).compareTo2D(pending.first());
+				if (c < 0) {
+					event = points.get(pointPos++);
+				} else if (c > 0) {
+					event = pending.pollFirst();
+					created = true;
+				} else {
+					pending.pollFirst();
+					event = points.get(pointPos++);
+				}
+			}
+			//The edges that pass through the event are removed from the status,
+			//as they are going to be reordered.
+			comp.setEvent(event, false);
+			NavigableSet<DEdge> through = status.subSet(lowProbe, true, highProbe, true);
+			List<DEdge> reinsert = new ArrayList<DEdge>(through.size());
+			for (DEdge ed : through) {
+				if (ed.getPointRight().compareTo2D(event) > 0) {
+					if (ed.getPointLeft().compareTo2D(event) != 0) {
+						addSplit(ed, event);
+					}
+					reinsert.add(ed);
+				}
+			}
+			through.clear();
+			//An intersection point is only kept if an edge has actually been
+			//split there.
+			if (created && hasSplitAt(reinsert, event)) {
+				newPoints.add(event);
+			}
+			//The edges that begin at the event are added to the status.
+			while (edgePos < constraints.size()
+					&& constraints.get(edgePos).getPointLeft().compareTo2D(event) <= 0) {
+				DEdge ed = constraints.get(edgePos++);
+				comp.register(ed, sequence++);
+				reinsert.add(ed);
+			}
+			comp.setEvent(event, true);
+			status.addAll(reinsert);
+			if (reinsert.isEmpty()) {
+				checkIntersection(status.lower(lowProbe), status.higher(highProbe), event);
+			} else {
+				DEdge first = status.ceiling(lowProbe);
+				DEdge last = status.floor(highProbe);
+				checkIntersection(status.lower(first), first, event);
+				checkIntersection(last, status.higher(last), event);
+			}
+		}
+		return buildEdges();
+	}
+
+	/**
+	 * Check if the point has been registered as a split point of one of the
+	 * given edges.
+	 */
+	private boolean hasSplitAt(List<DEdge> eds, DPoint pt) {
+		for (DEdge ed : eds) {
+			List<DPoint> l = splits.get(ed);
+			if (l != null && l.get(l.size() - 1) == pt) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Register pt as a point where ed must be split.
+	 */
+	private void addSplit(DEdge ed, DPoint pt) {
+		List<DPoint> l = splits.get(ed);
+		if (l == null) {
+			l = new ArrayList<DPoint>();
+			splits.put(ed, l);
+		}
+		l.add(pt);
+	}
+
+	/**
+	 * Search the intersection of two neighbours of the status. If they cross
+	 * after the current event, the intersection point is scheduled.
+	 * @param lower
+	 * @param upper
+	 * @param event
+	 * @throws DelaunayError
+	 */
+	private void checkIntersection(DEdge lower, DEdge upper, DPoint event) throws DelaunayError {
+		if (lower == null || upper == null) {
+			return;
+		}
+		Element inter = lower.getIntersection(upper, weights);
+		if (!(inter instanceof DPoint)) {
+			//The edges that overlap are split at the extremities of each
+			//other, that are events too.
+			return;
+		}
+		DPoint pt = (DPoint) inter;
+		if (pt.compareTo2D(event) <= 0 || lower.isExtremity(pt) && upper.isExtremity(pt)) {
+			return;
+		}
+		int index = Collections.binarySearch(points, pt);
+		if (index >= 0) {
+			//This point will be processed, as it is in the mesh.
+			return;
+		}
+		int weight = weights.isEmpty() ? -1 : Math.max(lower.getMaxWeight(weights), upper.getMaxWeight(weights));
+		DPoint known = pending.ceiling(pt);
+		if (known == null || known.compareTo2D(pt) != 0) {
+			known = pending.floor(pt);
+		}
+		if (known != null && known.compareTo2D(pt) == 0) {
+			if (weight > pointWeights.get(known)) {
+				known.setZ(pt.getZ());
+				pointWeights.put(known, weight);
+			}
+		} else {
+			pending.add(pt);
+			pointWeights.put(pt, weight);
+		}
+	}
+
+	/**
+	 * Split the edges at the points registered during the sweep, and merge
+	 * the duplicated parts.
+	 * @return
+	 * @throws DelaunayError
+	 */
+	private List<DEdge> buildEdges() throws DelaunayError {
+		return buildEdges(constraints, splits);
+	}
+
+	/**
+	 * Split the edges at the given points, and merge the duplicated parts.
+	 * @param constraints
+	 *      The edges to split.
+	 * @param splits
+	 *      For each edge that must be split, the split points sorted from its
+	 *      left point to its right point. They must not contain the extremities
+	 *      of the edge.
+	 * @return
+	 *      The parts of the edges, sorted and without duplicates. The edges that
+	 *      are not split are returned as is.
+	 * @throws DelaunayError
+	 */
+	static List<DEdge> buildEdges(List<DEdge> constraints, Map<DEdge, List<DPoint>> splits)
+			throws DelaunayError {
+		List<DEdge> ret = new ArrayList<DEdge>(constraints.size() + 2 * splits.size());
+		for (DEdge ed : constraints) {
+			List<DPoint> l = splits.get(ed);
+			if (l == null) {
+				ret.add(ed);
+			} else {
+				DPoint start = ed.getPointLeft();
+				for (DPoint pt : l) {
+					addPart(ret, ed, start, pt);
+					start = pt;
+				}
+				addPart(ret, ed, start, ed.getPointRight());
+			}
+		}
+		Collections.sort(ret);
+		List<DEdge> merged = new ArrayList<DEdge>(ret.size());
+		DEdge previous = null;
+		for (DEdge ed : ret) {
+			if (previous != null && previous.compareTo(ed) == 0) {
+				previous.addProperty(ed.getProperty());
+			} else {
+				merged.add(ed);
+				previous = ed;
+			}
+		}
+		return merged;
+	}
+
+	/**
+	 * Add the part [start end] of ed to the list.
+	 */
+	private static void addPart(List<DEdge> list, DEdge ed, DPoint start, DPoint end) throws DelaunayError {
+		if (start.compareTo2D(end) == 0) {
+			return;
+		}
+		DEdge part = new DEdge(start, end);
+		part.setProperty(ed.getProperty());
+		part.setLocked(ed.isLocked());
+		list.add(part);
+	}
+
+	/**
+	 * The comparator of the status. It compares the ordinates of the edges at
+	 * the abscissa of the current event. The edges that pass through the event
+	 * are sorted with their slope, as they are just before the event when
+	 * removing them, or just after when inserting them.
+	 */
+	private final class StatusComparator implements Comparator<DEdge> {
+
+		private DPoint event;
+		private boolean after;
+		//Used to sort the edges that overlap.
+		private final Map<DEdge, Integer> order = new IdentityHashMap<DEdge, Integer>();
+
+		void setEvent(DPoint pt, boolean afterEvent) {
+			event = pt;
+			after = afterEvent;
+		}
+
+		void register(DEdge ed, int rank) {
+			order.put(ed, rank);
+		}
+
+		@Override
+		public int compare(DEdge e1, DEdge e2) {
+			if (e1 == e2) {
+				return 0;
+			} else if (isProbe(e1) && isProbe(e2)) {
+				return e1 == lowProbe ? -1 : 1;
+			} else if (isProbe(e2)) {
+				return compareToProbe(e1, e2);
+			} else if (isProbe(e1)) {
+				return -compareToProbe(e2, e1);
+			}
+			double ey = event.getY();
+			double y1 = ordinate(e1);
+			double y2 = ordinate(e2);
+			boolean at1 = Math.abs(y1 - ey) < Tools.EPSILON;
+			boolean at2 = Math.abs(y2 - ey) < Tools.EPSILON;
+			int c;
+			if (at1 && at2) {
+				c = compareSlopes(e1, e2, after);
+			} else if (at1 || at2 || y1 != y2) {
+				c = y1 < y2 ? -1 : 1;
+			} else {
+				//The edges cross on the sweep line, at an event that has
+				//already been processed if it is under the current one.
+				c = compareSlopes(e1, e2, y1 < ey);
+			}
+			return c != 0 ? c : order.get(e1).compareTo(order.get(e2));
+		}
+
+		private boolean isProbe(DEdge ed) {
+			return ed == lowProbe || ed == highProbe;
+		}
+
+		/**
+		 * Compare ed to one of the probes, that are just under and just over
+		 * the edges that pass through the event.
+		 */
+		private int compareToProbe(DEdge ed, DEdge probe) {
+			double ey = event.getY();
+			double y = ordinate(ed);
+			if (Math.abs(y - ey) < Tools.EPSILON) {
+				return probe == lowProbe ? 1 : -1;
+			}
+			return y < ey ? -1 : 1;
+		}
+
+		/**
+		 * The ordinate of ed on the sweep line. For a vertical edge, it is
+		 * the ordinate of the event, if it is between the extremities.
+		 */
+		private double ordinate(DEdge ed) {
+			DPoint left = ed.getPointLeft();
+			DPoint right = ed.getPointRight();
+			if (left.getX() == right.getX()) {
+				return Math.max(left.getY(), Math.min(right.getY(), event.getY()));
+			}
+			return Kernels.yFromX(left.getX(), left.getY(), right.getX(), right.getY(), event.getX());
+		}
+
+		/**
+		 * Order of two edges that share a point of the sweep line : after this
+		 * point, the lowest is the one with the smallest slope. Before, it is
+		 * the one with the greatest slope.
+		 */
+		private int compareSlopes(DEdge e1, DEdge e2, boolean afterPoint) {
+			int c = Double.compare(slope(e1), slope(e2));
+			return afterPoint ? c : -c;
+		}
+
+		private double slope(DEdge ed) {
+			DPoint left = ed.getPointLeft();
+			DPoint right = ed.getPointRight();
+			if (left.getX() == right.getX()) {
+				return Double.POSITIVE_INFINITY;
+			}
+			return (right.getY() - left.getY()) / (right.getX() - left.getX());
+		}
+	}
+}
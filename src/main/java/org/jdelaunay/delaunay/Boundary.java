@@ -54,6 +54,8 @@ final class Boundary {
 	private List<DEdge> badEdges;
 	//The edges added to the mesh during the last point insertion.
 	private List<DEdge> addedEdges;
+	//The indices of the parts used by the last point insertion.
+	private final List<Integer> eligible = new ArrayList<Integer>();
 
         Boundary(){
                 boundary = new ArrayList<BoundaryPart>();
@@ -127,15 +129,16 @@ final class Boundary {
 			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_CAN_NOT_CONNECT_POINT, 
                                 "the point and the constraint do not match.");
 		}
-		List<Integer> indices = getEligibleParts(pt);
+		List<Integer> indices = eligible;
+		indices.clear();
+		fillEligibleParts(pt, indices);
 		if(indices.isEmpty()){
 			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_CAN_NOT_CONNECT_POINT);
 		}
 		List<DTriangle> addedTri;
-		List<BoundaryPart> tmpBd ;
 		BoundaryPart bp;
 		BoundaryPart splitBp;
-		List<BoundaryPart> splitList = new ArrayList<BoundaryPart>();
+		List<BoundaryPart> splitList;
 		List<DEdge> bad;
 		List<DEdge> added;
 		List<DEdge> tmpAdded;
@@ -178,6 +181,7 @@ final class Boundary {
 			if(constraints != null && !constraints.isEmpty()){
 				//We must split bp into two or more boundary parts.
 				splitBp = bp.split(constraints.get(constraints.size()-1));
+				splitList = new ArrayList<BoundaryPart>(constraints.size());
 				for(int i = 0; i<constraints.size()-1; i++) {
 					splitList.add(new BoundaryPart(constraints.get(i)));
 				}
@@ -251,41 +255,50 @@ final class Boundary {
 					&& !ed0.equals(tmpLast.get(0)) && !ed0.equals(tmpLast.get(tmpLast.size()-1))){
 				//We check if bp.getBoundaryEdges.get(0) has an empty side, ie if it is linked to
 				//one triangle or less.
-				tmpLast.addAll(bp.getBoundaryEdges());
+				tmpLast = concat(tmpLast, bp.getBoundaryEdges());
 			} else {
-				tmpLast.addAll(bp.getBoundaryEdges().subList(1, bp.getBoundaryEdges().size()));
+				//bp is not part of the boundary anymore, we can alter its edges.
+				bp.getBoundaryEdges().remove(0);
+				tmpLast = concat(tmpLast, bp.getBoundaryEdges());
 			}
 			newBP.setBoundaryEdges(tmpLast);
 			setAddedEdges(added);
 			setBadEdges(bad);
 			//We must replace the eligible parts with the one we've just
-			//created.
+			//created. The boundary is updated in place.
+			int first = indices.get(0);
+			boundary.set(first, newBP);
+			boundary.subList(first+1, indices.get(indices.size()-1)+1).clear();
 			if(constraints != null && !constraints.isEmpty()){
 				splitBp = newBP.split(constraints.get(constraints.size()-1));
+				splitList = new ArrayList<BoundaryPart>(constraints.size());
 				for(int i = 0; i<constraints.size()-1; i++) {
 					splitList.add(new BoundaryPart(constraints.get(i)));
 				}
 				splitList.add(splitBp);
-				tmpBd = new ArrayList<BoundaryPart>();
-				tmpBd.addAll(boundary);
-				boundary = new ArrayList<BoundaryPart>();
-				boundary.addAll(tmpBd.subList(0, indices.get(0)));
-				//We must not forget newBP !
-				boundary.add(newBP);
-				boundary.addAll(splitList);
-				boundary.addAll(tmpBd.subList(indices.get(indices.size()-1)+1, tmpBd.size()));
-			} else {
-				boundary.set(indices.get(0), newBP);
-				tmpBd = new ArrayList<BoundaryPart>();
-				tmpBd.addAll(boundary);
-				boundary = new ArrayList<BoundaryPart>();
-				boundary.addAll(tmpBd.subList(0, indices.get(0)+1));
-				boundary.addAll(tmpBd.subList(indices.get(indices.size()-1)+1, tmpBd.size()));
+				boundary.addAll(first+1, splitList);
 			}
 		}
 		return addedTri;
         }
 
+	/**
+	 * Put the edges of tail after the ones of head. Only the shorter list is
+	 * copied : the returned list is head or tail.
+	 * @param head
+	 * @param tail
+	 * @return
+	 */
+	private static List<DEdge> concat(List<DEdge> head, List<DEdge> tail){
+		if(head.size() >= tail.size()){
+			head.addAll(tail);
+			return head;
+		} else {
+			tail.addAll(0, head);
+			return tail;
+		}
+	}
+
 	/**
 	 * Insert a point in the mesh, without any constraint linked to it.
 	 * @param point
@@ -304,8 +317,19 @@ final class Boundary {
 	 * @return
 	 */
 	List<Integer> getEligibleParts(final DPoint point){
+		List<Integer> ret = new ArrayList<Integer>();
+		fillEligibleParts(point, ret);
+		return ret;
+	}
+
+	/**
+	 * Add to ret the indices of the parts of the boundary that can be used
+	 * for the insertion of point.
+	 * @param point
+	 * @param ret
+	 */
+	private void fillEligibleParts(final DPoint point, final List<Integer> ret){
 		//we treat the cases where the list contains one or none element.
-		ArrayList<Integer> ret = new ArrayList<Integer>();
 		if(boundary.size() <= 1){
 			//There is only one boundary part, or boundary is empty.
 			if(boundary.get(0).getConstraint() != null && boundary.get(0).getConstraint().isRight(point) ){
@@ -315,7 +339,7 @@ final class Boundary {
 				//We can work with the boundary part that already exists.
 				ret.add(0);
 			}
-			return ret;
+			return;
 		}
 		int size = boundary.size();
 		//In some cases, the lowest BoundaryPart can contain a constraint DEdge.
@@ -323,33 +347,33 @@ final class Boundary {
 		if(boundary.get(0).getConstraint() != null && boundary.get(0).getConstraint().isRight(point)){
 			//we are going to add a new Boundary Part to the boundary.
 			ret.add(-1);
-			return ret;
+			return;
 
 		}
 		if(boundary.get(0).getConstraint() != null && boundary.get(0).isConstraintRightPoint(point)){
 			ret.add(0);
 			ret.addAll(getUpperSameRightPoint(0, boundary.get(0)));
-			return ret;
+			return;
 		}
 		//We first check the extremities.
 		if(boundary.get(1).isConstraintRightPoint(point)){
 			ret.add(0);
 			ret.add(1);
 			ret.addAll(getUpperSameRightPoint(1, boundary.get(1)));
-			return ret;
+			return;
 		}
 		if(boundary.get(1).pointIsLower(point)){
 			ret.add(0);
-			return ret;
+			return;
 		}
 		if(boundary.get(size -1).isConstraintRightPoint(point)){
 			ret.addAll(getLowerSameRightPoint(size-1, boundary.get(size-1)));
 			ret.add(size-1);
-			return ret;
+			return;
 		}
 		if(boundary.get(size-1).pointIsUpper(point)){
 			ret.add(size-1);
-			return ret;
+			return;
 		}
 
 		BoundaryPart bp;
@@ -366,12 +390,12 @@ final class Boundary {
 				if(bpo.pointIsLower(point)){
 					//We've found the two flanking boundary part for this point
 					ret.add(index);
-					return ret;
+					return;
 				} else if(bpo.isConstraintRightPoint(point)){
 					//We've got a positive match, let's use it.
 					ret.add(index);
 					ret.addAll(getUpperSameRightPoint(index, bpo));
-					return ret;
+					return;
 				} else {
 					delta = delta/2 > 0 ? delta/2 : 1;
 					index = index+delta;
@@ -385,26 +409,25 @@ final class Boundary {
 				//... and finally those that are upper. We'll travel through them
 				//in the right order, so.
 				ret.addAll(getUpperSameRightPoint(index, bp));
-				return ret;
+				return;
 			} else {
 				//...and finally lower.
 				bpo = boundary.get(index-1);
 				if(bpo.pointIsUpper(point)){
 					//We've found the two flanking boundary part for this point
 					ret.add(index - 1);
-					return ret;
+					return;
 				} else if(bpo.isConstraintRightPoint(point)){
 					//We've got a positive match, let's use it.
 					ret.addAll(getLowerSameRightPoint(index-1, bpo));
 					ret.add(index - 1);
-					return ret;
+					return;
 				} else {
 					delta = delta/2 > 0 ? delta/2 : 1;
 					index = index-delta;
 				}
 			}
 		}
-		return ret;
 	}
 
 	/**
@@ -31,7 +31,6 @@
 package org.jdelaunay.delaunay;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
@@ -60,12 +59,16 @@ final class BoundaryPart {
 	private List<DEdge> badEdges;
 	//The list of newly added Edges
 	private List<DEdge> addedEdges;
+	//The triangles built during the last connection. The three lists are
+	//cleared and refilled by each call to connectPoint.
+	private List<DTriangle> triList;
 
 	private DEdge splitMem;
 
 	private void init(){
-		badEdges = new LinkedList<DEdge>();
+		badEdges = new ArrayList<DEdge>();
 		addedEdges = new ArrayList<DEdge>();
+		triList = new ArrayList<DTriangle>();
 	}
 
 	/**
@@ -238,11 +241,11 @@ final class BoundaryPart {
 			this.setBoundaryEdges(new LinkedList<DEdge>());
 			return ret;
 		}
-		LinkedList<DEdge> futureBoundary = new LinkedList<DEdge>();
-		LinkedList<DEdge> otherBoundary = boundaryEdges;
 		LinkedList<DEdge> degen = new LinkedList();
-		ListIterator<DEdge> iter = otherBoundary.listIterator();
-		DEdge course;
+		ListIterator<DEdge> iter = boundaryEdges.listIterator();
+		DEdge course = null;
+		//The number of edges that will still be part of this BP's boundary edges.
+		int count = 0;
 		boolean success = false;
 		while(iter.hasNext()){
 			//Next step
@@ -252,30 +255,8 @@ final class BoundaryPart {
 				//if we end our course on one (the last, hopefully...) of them.
 				degen.add(course);
 			}
-			//The current edge will still be part of this BP's boundary edges...
-			futureBoundary.add(course);
-			//...so we can remove it of the boundary edges of the future BP.
-			//If it is a degen edge, it will be added back in the end.
-			iter.remove();
+			count++;
 			if(course.getEndPoint().equals(split)){
-				//We have ended our course on a degen DEdge. The degenerated
-				//edges that are part of this BP will be duplicated (or rather,
-				//their references will be duplicated).
-				if(course.isDegenerated()){
-					//We must reverse the order of the degen edges
-					//in the newly created BP
-					Collections.reverse(degen);
-					//the Edges in degen are not degenerated anymore,
-					//they are shared.
-					for(DEdge edge : degen){
-						edge.setDegenerated(false);
-						edge.setShared(true);
-					}
-					degen.addAll(otherBoundary);
-					otherBoundary = degen;
-					//We must remember what is the next constraint
-					splitMem = cstr;
-				}
 				success = true;
 				break;
 			}
@@ -284,18 +265,51 @@ final class BoundaryPart {
 			//we've failed at finding a boundary edge that own the right
 			//point of cstr.
 			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_CAN_NOT_SPLIT_BP);
+		}
+		//The edges are moved from a list to the other : we only move the
+		//ones of the shorter side.
+		LinkedList<DEdge> futureBoundary;
+		LinkedList<DEdge> otherBoundary;
+		if(2 * count <= boundaryEdges.size()){
+			futureBoundary = new LinkedList<DEdge>();
+			otherBoundary = boundaryEdges;
+			for(int i = 0; i < count; i++){
+				futureBoundary.add(otherBoundary.removeFirst());
+			}
 		} else {
-			//We replace this boundary edges by the shorter set computed here.
-			this.setBoundaryEdges(futureBoundary);
-			//We return the new BoundaryPart
-			return new BoundaryPart(otherBoundary, cstr);
+			futureBoundary = boundaryEdges;
+			otherBoundary = new LinkedList<DEdge>();
+			while(futureBoundary.size() > count){
+				otherBoundary.addFirst(futureBoundary.removeLast());
+			}
 		}
+		//We have ended our course on a degen DEdge. The degenerated
+		//edges that are part of this BP will be duplicated (or rather,
+		//their references will be duplicated).
+		if(course.isDegenerated()){
+			//the Edges in degen are not degenerated anymore,
+			//they are shared. They are put in the reverse order at the
+			//beginning of the newly created BP.
+			for(DEdge edge : degen){
+				edge.setDegenerated(false);
+				edge.setShared(true);
+				otherBoundary.addFirst(edge);
+			}
+			//We must remember what is the next constraint
+			splitMem = cstr;
+		}
+		//We replace this boundary edges by the shorter set computed here.
+		this.setBoundaryEdges(futureBoundary);
+		//We return the new BoundaryPart
+		return new BoundaryPart(otherBoundary, cstr);
 	}
 
         /**
          * Connect a single point to this boundary part. Travels through the boundary
          * edges and try to build triangles from it. The boundary is, of course,
-         * updated.
+         * updated.<br/>
+	 * The returned list, like the bad and added edges, belongs to this part :
+	 * it is emptied by the next call to connectPoint.
 	 * @param point
 	 * @param nextCstr
 	 * @return
@@ -305,8 +319,9 @@ final class BoundaryPart {
 		if(boundaryEdges==null || (boundaryEdges.isEmpty() && constraint==null)){
 			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_CAN_NOT_CONNECT_POINT);
 		}
-		badEdges = new ArrayList<DEdge>();
-		addedEdges = new ArrayList<DEdge>();
+		badEdges.clear();
+		addedEdges.clear();
+		triList.clear();
 		//This boolean will be used to travel through the degenerated edges in
 		//the right way, when processing an BP that shares some degen edges
 		//with another BP
@@ -327,7 +342,6 @@ final class BoundaryPart {
 		if(boundaryEdges.isEmpty()){
 			return buildFirstDegen(point, nextCstr);
 		}
-		List<DTriangle> triList = new ArrayList<DTriangle>();
 		DTriangle temp = null;
 		while(iter.hasNext()){
 			current = iter.next();
@@ -339,7 +353,8 @@ final class BoundaryPart {
 				if(mem != null && mem.isDegenerated()){
 					//if we've built an DEdge that is degenerated, we can stop here
 					//and return an empty list of triangles.
-					return new ArrayList<DTriangle>();
+					triList.clear();
+					return triList;
 				}
 			} else if(current.isShared()){
 				mem = connectToShared(iter, current, point, triList, mem, nextCstr);
@@ -815,7 +830,7 @@ final class BoundaryPart {
 		}
 		addedEdges.add(mem);
 		boundaryEdges.add(mem);
-		return new ArrayList<DTriangle>();
+		return triList;
 	}
 
 	/**
@@ -33,27 +33,40 @@ package org.jdelaunay.delaunay;
 import com.vividsolutions.jts.geom.Envelope;
 import java.awt.Color;
 import java.awt.Graphics;
+import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.RandomAccess;
 import java.util.Map;
 import java.util.Set;
 import org.apache.log4j.Logger;
 import org.jdelaunay.delaunay.evaluator.InsertionEvaluator;
+import org.jdelaunay.delaunay.evaluator.MaxAreaEvaluator;
+import org.jdelaunay.delaunay.evaluator.QualitySizeEvaluator;
+import org.jdelaunay.delaunay.evaluator.SizingField;
+import org.jdelaunay.delaunay.evaluator.SkinnyEvaluator;
 import org.jdelaunay.delaunay.error.DelaunayError;
 import org.jdelaunay.delaunay.geometries.ConstraintPolygon;
 import org.jdelaunay.delaunay.geometries.DEdge;
 import org.jdelaunay.delaunay.geometries.DPoint;
 import org.jdelaunay.delaunay.geometries.DTriangle;
 import org.jdelaunay.delaunay.geometries.Element;
+import org.jdelaunay.delaunay.tools.Predicates;
 import org.jdelaunay.delaunay.tools.Tools;
 
 /**
@@ -100,6 +113,15 @@ public class ConstrainedMesh implements Serializable {
 	//The bad edge queue list contains all the edges that coud be changed
 	//during a flip-flap operation
 	private transient List<DEdge> badEdgesQueueList;
+	//The work structures of the flip-flap algorithm. They are kept from a call
+	//to another, and left empty after each of them : the flip-flaps of a sweep
+	//are run after each inserted point.
+	private transient List<DEdge> flipQueue = new ArrayList<DEdge>();
+	private transient Set<DEdge> flipQueued = newEdgeSet();
+	private transient Set<DEdge> flipSeen = newEdgeSet();
+	private transient DEdge[] flipOthers = new DEdge[4];
+	//The edges to check after an incremental insertion.
+	private transient Deque<DEdge> insertedEdges = new ArrayDeque<DEdge>();
 	//Permits to know if the mesh has been computed or not
 	private boolean meshComputed;
 	//Is the debug level used ?
@@ -111,14 +133,51 @@ public class ConstrainedMesh implements Serializable {
 	//We need a hashmap to classify the weights of the edges, according to their
 	//properties.
 	private Map<Integer, Integer> weights;
-        //we need to store triangles in a map, temporarily. These maps are here, and are not 
-        //intended to accessed externally - Don't search for accessors !
-        private transient Map<Integer, DTriangle> processed = null;
-        private transient Map<Integer, DTriangle> remaining = null;
-        private transient Map<Integer, DTriangle> buffer = null;
+        //During a refinement, the triangles changed by the current insertion, that
+        //must be queued again if the insertion is kept.
+        private transient List<DTriangle> buffer = null;
+        //During a streaming triangulation, the triangles changed by processBadEdges.
+        private transient List<DTriangle> swappedTriangles = null;
+        //During an incremental insertion, the changes made to the mesh.
+        private transient MeshUpdate meshUpdate = null;
+        //The point location service, built on demand.
+        private transient PointLocator locator = null;
+	//If true, the mesh is sorted along a Hilbert curve by processDelaunay.
+	private boolean hilbertOrdered = false;
+	//If true, the spatial index of the triangles is built by processDelaunay.
+	private boolean triangleIndexed = false;
+	//The spatial index of the triangles, built on demand.
+	private transient TriangleIndex triangleIndex = null;
+	//If true, processDelaunay writes the triangulation in an IndexedMesh.
+	private boolean indexedOutput = false;
+	//A mesh computed in the indexed output mode, or read lazily from a
+	//MeshFile, is kept as an IndexedMesh, and its DTriangle and DEdge
+	//instances are only built when they are asked for.
+	private IndexedMesh indexedMesh = null;
+	//The number of threads used by processDelaunay, forceConstraintIntegrity
+	//with the GRID algorithm, and interpolateZ.
+	private int threadCount = 1;
+	//The number of threads used by refineMesh and refineTriangles.
+	private int refinementThreadCount = 1;
+	//True if the z of the points inserted during a refinement take the
+	//neighbours of their triangle into account.
+	private boolean softInterpolation = false;
+	//Where the refinement inserts the Steiner points.
+	private SteinerPlacement steinerPlacement = SteinerPlacement.CIRCUMCENTER;
+	//If true, removeFlatTriangles inserts the skeleton points in the computed mesh.
+	private boolean incrementalFlatRemoval = false;
+	//If true, the triangulation is computed in a frame centered on the points.
+	private boolean localFrame = false;
+	//The algorithm used by forceConstraintIntegrity.
+	private IntersectionAlgorithm intersectionAlgorithm = IntersectionAlgorithm.VERTICAL_LIST;
+	//The optional spatial index on the points. When it is set, the points are
+	//appended to the list, which is sorted only when needed.
+	private transient PointIndex pointIndex = null;
+	private boolean pointsSorted = true;
 	// constants
 	public static final int MIN_POINTS_NUMBER = 3;
 	public static final int MAXITER = 5;
+	//The flags used to choose the refinement made by refineMesh(double, int, double, SizingField).
 	public static final int REFINEMENT_MAX_AREA = 1;
 	public static final int REFINEMENT_MIN_ANGLE = 2;
 	public static final int REFINEMENT_SOFT_INTERPOLATE = 4;
@@ -186,29 +245,13 @@ public class ConstrainedMesh implements Serializable {
 			constraintEdges = new ArrayList<DEdge>();
 		}
 		fixConstraintDirection(e);
-		int index = Collections.binarySearch(points, e.getStartPoint());
-		if(index < 0 ){
-			updateExtensionPoints(e.getStartPoint());
-			points.add(-index -1, e.getStartPoint());
-			pointGID++;
-			e.getStartPoint().setGID(pointGID);
-		} else {
-			e.setStartPoint(points.get(index));
-		}
+		e.setStartPoint(registerPoint(e.getStartPoint()));
 		if(e.getStartPoint().equals(e.getEndPoint())){
 			return;
 		}
 		e.setLocked(true);
 		addEdgeToLeftSortedList(constraintEdges, e);
-		index = Collections.binarySearch(points, e.getEndPoint());
-		if(index < 0 ){
-			updateExtensionPoints(e.getEndPoint());
-			points.add(-index -1, e.getEndPoint());
-			pointGID++;
-			e.getEndPoint().setGID(pointGID);
-		} else {
-			e.setEndPoint(points.get(index));
-		}
+		e.setEndPoint(registerPoint(e.getEndPoint()));
 	}
 
 	/**
@@ -217,6 +260,7 @@ public class ConstrainedMesh implements Serializable {
          *      The edges of the mesh in a List.
 	 */
 	public final List<DEdge> getEdges() {
+		ensureObjectMesh();
 		return edges;
 	}
 
@@ -225,6 +269,7 @@ public class ConstrainedMesh implements Serializable {
 	 * @param inEdges
 	 */
 	public final void setEdges(List<DEdge> inEdges) throws DelaunayError {
+		ensureObjectMesh();
 		this.edges = new ArrayList<DEdge>();
 		for (DEdge e : inEdges) {
 			addPoint(e.getStartPoint());
@@ -239,6 +284,7 @@ public class ConstrainedMesh implements Serializable {
 	 *	the edge we want to add
 	 */
 	public final void addEdge(DEdge e) {
+		ensureObjectMesh();
 		if (edges == null) {
 			edges = new ArrayList<DEdge>();
 		}
@@ -257,6 +303,7 @@ public class ConstrainedMesh implements Serializable {
 	 * @param e
 	 */
 	public final void removeEdge(DEdge e) {
+		ensureObjectMesh();
 		//edges is a sorted list, using the left right sort. We are supposed
 		//to ensure unicity of objects in it, so we can use the binarysearch directly.
 		int index = Collections.binarySearch(edges, e);
@@ -303,6 +350,7 @@ public class ConstrainedMesh implements Serializable {
          *      it was in the list
 	 */
 	public final int searchEdge(DEdge edge) {
+		ensureObjectMesh();
 		return Collections.binarySearch(edges, edge);
 	}
 
@@ -345,6 +393,7 @@ public class ConstrainedMesh implements Serializable {
          *      The triancle packaged in a List.
 	 */
 	public final List<DTriangle> getTriangleList() {
+		ensureObjectMesh();
 		return triangleList;
 	}
 
@@ -353,9 +402,13 @@ public class ConstrainedMesh implements Serializable {
 	 * @param triangle
 	 */
 	public final void addTriangle(DTriangle triangle) {
+		ensureObjectMesh();
 		triangleList.add(triangle);
 		triangleGID++;
 		triangle.setGID(triangleGID);
+		if(meshUpdate != null){
+			meshUpdate.create(triangle);
+		}
 	}
 
 	/**
@@ -363,14 +416,15 @@ public class ConstrainedMesh implements Serializable {
          * <strong>BE EXTREMELY CAREFUL !</strong> : this method will be completely
          * inefficient, as the triangle's data structure is not kept sorted. To obtain
          * a data structure that can be queried efficiently, sort the triangle's data
-         * structure (as triangle are sortable, cf DTriangle), or put them in an
-         * external spatial index (RTree/R+Tree)</p><p>
+         * structure (as triangle are sortable, cf DTriangle), or use the spatial
+         * index given by getTriangleIndex()</p><p>
          * 
 	 * @param tri
 	 * @return
          *  true if the mesh contains the triangle tri.
 	 */
 	public final boolean containsTriangle(DTriangle tri) {
+		ensureObjectMesh();
 		return triangleList.contains(tri);
 	}
 
@@ -379,6 +433,7 @@ public class ConstrainedMesh implements Serializable {
 	 * @param tri
 	 */
 	public final void removeTriangle(DTriangle tri) {
+		ensureObjectMesh();
 //		//first we search it
 		triangleList.remove(tri);
 	}
@@ -389,6 +444,7 @@ public class ConstrainedMesh implements Serializable {
          *      The points of the mesh packaged in a List.
 	 */
 	public final List<DPoint> getPoints() {
+		sortPoints();
 		return points;
 	}
 
@@ -401,6 +457,9 @@ public class ConstrainedMesh implements Serializable {
          *      The corresponding DPoint instance, if it exists in the mesh, null otherwise.
 	 */
 	public final DPoint getPoint(double x, double y, double z) throws DelaunayError{
+		if(pointIndex != null){
+			return pointIndex.get(x, y);
+		}
 		DPoint pt = new DPoint(x,y,z);
 		int c = listContainsPoint(pt);
 		if(c<0){
@@ -410,6 +469,573 @@ public class ConstrainedMesh implements Serializable {
 		}
 	}
 
+	/**
+	 * Checks if processDelaunay writes the triangulation in an IndexedMesh.
+	 * @return
+         *      true if the indexed output mode is used.
+	 */
+	public final boolean isIndexedOutput() {
+		return indexedOutput;
+	}
+
+	/**
+	 * Choose how processDelaunay stores the triangulation. If indexed is true,
+	 * each triangle is written in the arrays of an IndexedMesh as soon as the
+	 * sweep can't change it anymore, that is once its circumcircle lies on the
+	 * left of the point being inserted, and the sweep forgets it. Only the
+	 * triangles of the sweep front exist as DTriangle instances at a given
+	 * time, so that the peak of memory is driven by the IndexedMesh rather
+	 * than by the DTriangle and DEdge instances.<br/>
+	 * The DTriangle and DEdge instances are built, lazily, the first time they
+	 * are asked for through getTriangleList, getEdges, or any operation that
+	 * needs them (refinement, flat triangles removal...). getIndexedMesh and
+	 * interpolateZ work on the arrays directly.<br/>
+	 * In this mode, the triangulation is always sequential.
+	 * @param indexed
+	 */
+	public final void setIndexedOutput(boolean indexed) {
+		indexedOutput = indexed;
+	}
+
+	/**
+	 * Checks if the triangulation is computed in a local frame.
+	 * @return
+	 *      true if the local frame is used.
+	 */
+	public final boolean isLocalFrame() {
+		return localFrame;
+	}
+
+	/**
+	 * Choose to compute the triangulation in a local frame. When it is used,
+	 * processDelaunay and forceConstraintIntegrity translate the points so that
+	 * the origin is in the middle of their bounding box, and translate them
+	 * back once done. With georeferenced coordinates, the circumcenters and the
+	 * intersection points are then computed with most of the mantissa,
+	 * instead of losing it in the magnitude of the coordinates.<br/>
+	 * The translation is chosen so that it is exact : the input points get back
+	 * their original coordinates. An axis is not translated if the bounding box
+	 * is close to the origin on this axis, as there would be nothing to gain.
+	 * The other operations (refinement, incremental insertion...) are made in
+	 * the world frame.
+	 * @param local
+	 */
+	public final void setLocalFrame(boolean local) {
+		localFrame = local;
+	}
+
+	/**
+	 * Get the algorithm used to find the intersections between the constraints.
+	 * @return
+	 *      The algorithm used by forceConstraintIntegrity.
+	 */
+	public final IntersectionAlgorithm getIntersectionAlgorithm() {
+		return intersectionAlgorithm;
+	}
+
+	/**
+	 * Set the algorithm used by forceConstraintIntegrity to find the
+	 * intersections between the constraints. VERTICAL_LIST is used by default.
+	 * BENTLEY_OTTMANN gives the same constraints and points in 2D, but runs in
+	 * O((n+k) log n) instead of being close to quadratic with many constraints.
+	 * The z of a point found on several intersections can differ, as the
+	 * vertical list interpolates it on edges that have already been split.
+	 * GRID gives the same result as BENTLEY_OTTMANN, and searches the
+	 * intersections with getThreadCount() threads.
+	 * The edges that are not split are kept in both cases, the parts of the
+	 * split edges are new instances.
+	 * @param algorithm
+	 * @throws IllegalArgumentException if <code>algorithm</code> is null
+	 */
+	public final void setIntersectionAlgorithm(IntersectionAlgorithm algorithm) {
+		if(algorithm == null){
+			throw new IllegalArgumentException("The intersection algorithm can't be null");
+		}
+		intersectionAlgorithm = algorithm;
+	}
+
+	/**
+	 * Get the placement of the points inserted by the refinement.
+	 * @return
+	 *      The placement used by refineMesh and refineTriangles.
+	 */
+	public final SteinerPlacement getSteinerPlacement() {
+		return steinerPlacement;
+	}
+
+	/**
+	 * Set where refineMesh and refineTriangles insert their points.
+	 * CIRCUMCENTER is used by default. OFF_CENTER and TERMINATOR insert
+	 * fewer points to reach the same minimum angle, when the evaluator is a
+	 * SkinnyEvaluator or a QualitySizeEvaluator. TERMINATOR also stops the
+	 * refinement near the small angles between the constraints, where the
+	 * other placements could split the segments again and again, until
+	 * minLength is reached. A few skinny triangles are kept there.
+	 * @param placement
+	 * @throws IllegalArgumentException if <code>placement</code> is null
+	 */
+	public final void setSteinerPlacement(SteinerPlacement placement) {
+		if(placement == null){
+			throw new IllegalArgumentException("The Steiner placement can't be null");
+		}
+		steinerPlacement = placement;
+	}
+
+	/**
+	 * Checks if removeFlatTriangles inserts its points in the computed mesh.
+	 * @return
+	 *      true if the flat triangles are removed incrementally.
+	 */
+	public final boolean isIncrementalFlatRemoval() {
+		return incrementalFlatRemoval;
+	}
+
+	/**
+	 * Set if removeFlatTriangles inserts the points of the skeletons of the flat
+	 * areas in the computed mesh, as insertPoints does, rather than computing
+	 * the whole triangulation again. Only the triangles around the flat areas
+	 * are changed, and the constrained Delaunay triangulation is the same, but
+	 * for the choices made between cocircular points. The new points are
+	 * appended to the points of the mesh, and the GIDs of the old elements are
+	 * kept.
+	 * @param incremental
+	 */
+	public final void setIncrementalFlatRemoval(boolean incremental) {
+		incrementalFlatRemoval = incremental;
+	}
+
+	/**
+	 * Get the number of threads used by the operations listed in setThreadCount.
+	 * @return
+         *      The number of threads, 1 by default.
+	 */
+	public final int getThreadCount() {
+		return threadCount;
+	}
+
+	/**
+	 * Set the number of threads used by the mesh. It is the only threading
+	 * setting, and it is read by :<br/>
+	 *  * processDelaunay, to triangulate the points in slabs.<br/>
+	 *  * forceConstraintIntegrity, when the GRID intersection algorithm is
+	 * used. The other algorithms are sequential.<br/>
+	 *  * the interpolateZ methods, that share the rows of the grid or the
+	 * sampled points between the threads.<br/>
+	 * refineMesh and refineTriangles don't depend on this count : they have
+	 * their own, see setRefinementThreadCount. The other operations are
+	 * sequential.<br/>
+	 * When the count is greater than 1, processDelaunay cuts the points in
+	 * vertical slabs. The slabs are triangulated concurrently, with the
+	 * constraints that lie in them, then merged along their convex hulls. The
+	 * merged mesh is made Delaunay again with flip-flaps, and the constraints
+	 * that cross the cuts are forced in it. If the points can't be cut, or if
+	 * a point lies on a constraint that crosses a cut, a warning is logged and
+	 * the triangulation is sequential.<br/>
+	 * The result is the constrained Delaunay triangulation whatever the count,
+	 * triangle for triangle. The only difference can come from four points or
+	 * more that lie on a same circle : the diagonals chosen between them may
+	 * differ. The intersections and the interpolated z don't depend on the
+	 * count.
+	 * @param threads
+         * @throws IllegalArgumentException if <code>threads</code> is inferior to 1
+	 */
+	public final void setThreadCount(int threads) {
+		if(threads < 1){
+			throw new IllegalArgumentException("At least one thread is needed !");
+		}
+		threadCount = threads;
+	}
+
+	/**
+	 * Get the number of threads used by refineMesh and refineTriangles.
+	 * @return
+	 *      The number of threads used by the refinement, 1 by default.
+	 */
+	public final int getRefinementThreadCount() {
+		return refinementThreadCount;
+	}
+
+	/**
+	 * Set the number of threads used by refineMesh and refineTriangles. With
+	 * more than one thread, independent points are inserted concurrently,
+	 * round after round. The InsertionEvaluator is still called from the
+	 * calling thread only, one triangle after the other, so it does not need
+	 * to be thread safe. The result does not depend on the number of threads,
+	 * but differs from the one of the sequential refinement, that is used by
+	 * default.
+	 * @param threads
+	 * @throws IllegalArgumentException if <code>threads</code> is inferior to 1
+	 */
+	public final void setRefinementThreadCount(int threads) {
+		if(threads < 1){
+			throw new IllegalArgumentException("At least one thread is needed !");
+		}
+		refinementThreadCount = threads;
+	}
+
+	/**
+	 * Get the triangulation as an IndexedMesh. Vertex i of the result is
+	 * getPoints().get(i).<br/>
+	 * If the mesh has been computed in the indexed output mode, or read lazily
+	 * from a MeshFile, and if its triangles have not been asked for since, the
+	 * stored IndexedMesh is returned. Otherwise, it is built from the current
+	 * triangles. The list of points is not modified.
+	 * @return
+         *      The mesh, as an IndexedMesh.
+	 * @throws DelaunayError
+         *      If the mesh has not been computed yet.
+	 */
+	public final IndexedMesh getIndexedMesh() throws DelaunayError {
+		if(!meshComputed){
+			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_NOT_GENERATED);
+		}
+		if(triangleList == null){
+			return indexedMesh;
+		}
+		//The points inserted since processDelaunay are appended to the list :
+		//they are sorted in a copy, as getPoints will sort them.
+		List<DPoint> pts = points;
+		if(!pointsSorted){
+			pts = new ArrayList<DPoint>(points);
+			Collections.sort(pts);
+		}
+		return IndexedMesh.fromTriangles(pts, triangleList);
+	}
+
+	/**
+	 * Get the triangulation as an IndexedMesh, as getIndexedMesh() does. If
+	 * hilbertLayout is true, the vertices and the triangles of the result are
+	 * sorted along a Hilbert curve : vertex i of the result is then the point
+	 * whose GID is i+1 once sortAlongHilbertCurve has been called.
+	 * @param hilbertLayout
+	 * @return
+	 *      The mesh, as an IndexedMesh.
+	 * @throws DelaunayError
+	 *      If the mesh has not been computed yet.
+	 */
+	public final IndexedMesh getIndexedMesh(boolean hilbertLayout) throws DelaunayError {
+		IndexedMesh ret = getIndexedMesh();
+		return hilbertLayout ? ret.sortAlongHilbertCurve() : ret;
+	}
+
+	/**
+	 * Checks if the mesh is sorted along a Hilbert curve at the end of
+	 * processDelaunay.
+	 * @return
+	 *      true if the mesh is sorted by processDelaunay.
+	 */
+	public final boolean isHilbertOrdered() {
+		return hilbertOrdered;
+	}
+
+	/**
+	 * Choose if sortAlongHilbertCurve is called at the end of processDelaunay.
+	 * @param ordered
+	 */
+	public final void setHilbertOrdered(boolean ordered) {
+		hilbertOrdered = ordered;
+	}
+
+	/**
+	 * Renumber the elements of the computed mesh along a Hilbert curve. The
+	 * triangles and the edges are sorted with their centroids, and receive new
+	 * GIDs in this order. The points keep their order, as the list of points
+	 * must stay sorted, but receive GIDs in the order of the curve too.<br/>
+	 * The elements that are neighbours in the mesh are then close in the lists,
+	 * and the walks through the mesh, that visit them one after the other,
+	 * are faster. If the mesh is stored as an IndexedMesh, the triangles of
+	 * the IndexedMesh are sorted.
+	 * @throws DelaunayError
+	 *      If the mesh has not been computed yet.
+	 */
+	public final void sortAlongHilbertCurve() throws DelaunayError {
+		if(!meshComputed){
+			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_NOT_GENERATED);
+		}
+		DPoint[] pts = points.toArray(new DPoint[points.size()]);
+		double[] xs = new double[pts.length];
+		double[] ys = new double[pts.length];
+		for(int i = 0; i < pts.length; i++){
+			xs[i] = pts[i].getX();
+			ys[i] = pts[i].getY();
+		}
+		int[] order = HilbertCurve.getOrder(xs, ys);
+		for(int i = 0; i < order.length; i++){
+			pts[order[i]].setGID(i + 1);
+		}
+		pointGID = pts.length;
+		if(triangleList == null){
+			int[] identity = new int[pts.length];
+			for(int i = 0; i < identity.length; i++){
+				identity[i] = i;
+			}
+			indexedMesh = indexedMesh.permute(identity, indexedMesh.getHilbertTriangleOrder());
+			return;
+		}
+		DTriangle[] tris = triangleList.toArray(new DTriangle[triangleList.size()]);
+		xs = new double[tris.length];
+		ys = new double[tris.length];
+		for(int i = 0; i < tris.length; i++){
+			xs[i] = (tris[i].getPoint(0).getX() + tris[i].getPoint(1).getX() + tris[i].getPoint(2).getX()) / 3;
+			ys[i] = (tris[i].getPoint(0).getY() + tris[i].getPoint(1).getY() + tris[i].getPoint(2).getY()) / 3;
+		}
+		order = HilbertCurve.getOrder(xs, ys);
+		triangleList = new ArrayList<DTriangle>(tris.length);
+		for(int i = 0; i < order.length; i++){
+			tris[order[i]].setGID(i + 1);
+			triangleList.add(tris[order[i]]);
+		}
+		triangleGID = tris.length;
+		DEdge[] eds = edges.toArray(new DEdge[edges.size()]);
+		xs = new double[eds.length];
+		ys = new double[eds.length];
+		for(int i = 0; i < eds.length; i++){
+			xs[i] = (eds[i].getStartPoint().getX() + eds[i].getEndPoint().getX()) / 2;
+			ys[i] = (eds[i].getStartPoint().getY() + eds[i].getEndPoint().getY()) / 2;
+		}
+		order = HilbertCurve.getOrder(xs, ys);
+		edges = new ArrayList<DEdge>(eds.length);
+		for(int i = 0; i < order.length; i++){
+			eds[order[i]].setGID(i + 1);
+			edges.add(eds[order[i]]);
+		}
+		edgeGID = eds.length;
+		locator = null;
+	}
+
+	/**
+	 * Get the point location service of this mesh. It is built the first time
+	 * it is asked for, and must not be shared between threads.
+	 * @return
+	 *      A PointLocator on the triangles of this mesh.
+	 * @throws DelaunayError
+	 *      If the mesh has not been computed yet.
+	 */
+	public final PointLocator getPointLocator() throws DelaunayError {
+		if(!meshComputed){
+			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_NOT_GENERATED);
+		}
+		ensureObjectMesh();
+		if(locator == null){
+			locator = new PointLocator(triangleList);
+		}
+		return locator;
+	}
+
+	/**
+	 * Checks if the spatial index of the triangles is built at the end of
+	 * processDelaunay.
+	 * @return
+	 *      true if the index is built with the mesh.
+	 */
+	public final boolean isTriangleIndexed() {
+		return triangleIndexed;
+	}
+
+	/**
+	 * Choose if the spatial index of the triangles is built at the end of
+	 * processDelaunay. It is always built when getTriangleIndex is called, if
+	 * it does not exist yet. In the indexed output mode, or for a mesh read
+	 * lazily from a MeshFile, it is only built on demand, as it needs the
+	 * DTriangle instances.
+	 * @param indexed
+	 */
+	public final void setTriangleIndexed(boolean indexed) {
+		triangleIndexed = indexed;
+	}
+
+	/**
+	 * Get the spatial index of the triangles of this mesh. It is built again
+	 * after the mesh has been changed (refinement, insertion, flat triangles
+	 * removal...), the first time it is asked for.
+	 * @return
+	 *      A TriangleIndex on the triangles of this mesh.
+	 * @throws DelaunayError
+	 *      If the mesh has not been computed yet.
+	 */
+	public final TriangleIndex getTriangleIndex() throws DelaunayError {
+		if(!meshComputed){
+			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_NOT_GENERATED);
+		}
+		ensureObjectMesh();
+		if(triangleIndex == null){
+			triangleIndex = new TriangleIndex(triangleList);
+		}
+		return triangleIndex;
+	}
+
+	/**
+	 * Sample the z value of the mesh at the center of each cell of grid. The
+	 * triangles are rasterised one after the other, row by row, and the rows
+	 * are shared between getThreadCount() threads. The cells that are outside
+	 * the mesh receive noData.
+	 * @param grid
+	 * @param z
+	 *      The array that receives the values, row after row, from the north.
+	 * @param noData
+	 *      The value of the cells outside the mesh.
+	 * @throws DelaunayError
+	 *      If the mesh has not been computed yet.
+	 * @throws IllegalArgumentException if z is smaller than the grid.
+	 */
+	public final void interpolateZ(RasterGrid grid, double[] z, double noData) throws DelaunayError {
+		if(z.length < grid.getCellCount()){
+			throw new IllegalArgumentException("The array is smaller than the grid");
+		}
+		MeshSampler.rasterize(getIndexedMesh(), grid, new MeshSampler.ArrayTarget(z), noData, threadCount);
+	}
+
+	/**
+	 * Sample the z value of the mesh at the center of each cell of grid, as
+	 * interpolateZ(RasterGrid, double[], double) does. The values are written
+	 * from the position of z, that is not modified.
+	 * @param grid
+	 * @param z
+	 * @param noData
+	 * @throws DelaunayError
+	 *      If the mesh has not been computed yet.
+	 * @throws IllegalArgumentException if the remaining part of z is smaller
+	 *      than the grid.
+	 */
+	public final void interpolateZ(RasterGrid grid, FloatBuffer z, float noData) throws DelaunayError {
+		if(z.remaining() < grid.getCellCount()){
+			throw new IllegalArgumentException("The buffer is smaller than the grid");
+		}
+		MeshSampler.rasterize(getIndexedMesh(), grid, new MeshSampler.BufferTarget(z), noData, threadCount);
+	}
+
+	/**
+	 * Sample the z value of the mesh at the points (x[i], y[i]), and write it in
+	 * z[i]. The points are located with a PointLocator : the search is faster if
+	 * consecutive points are close to each other. With more than one thread,
+	 * each thread samples a range of the points, with its own locator. The
+	 * points that are outside the mesh receive noData.
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param noData
+	 * @throws DelaunayError
+	 *      If the mesh has not been computed yet.
+	 * @throws IllegalArgumentException if the arrays have different lengths.
+	 */
+	public final void interpolateZ(double[] x, double[] y, double[] z, double noData) throws DelaunayError {
+		if(x.length != y.length || x.length != z.length){
+			throw new IllegalArgumentException("The coordinate arrays must have the same length");
+		}
+		PointLocator loc = getPointLocator();
+		MeshSampler.sample(triangleList, loc, x, y, z, noData, threadCount);
+	}
+
+	/**
+	 * Build the DTriangle and DEdge instances of the mesh from the stored
+	 * IndexedMesh, if it has been computed in the indexed output mode or read
+	 * lazily from a MeshFile. The constraint edges are reused, not duplicated.
+	 */
+	private void ensureObjectMesh() {
+		if(triangleList != null || indexedMesh == null){
+			return;
+		}
+		int n = points.size();
+		Map<Long, DEdge> known = new HashMap<Long, DEdge>();
+		for(DEdge e : constraintEdges){
+			int a = listContainsPoint(e.getStartPoint());
+			int b = listContainsPoint(e.getEndPoint());
+			if(a >= 0 && b >= 0 && points.get(a) == e.getStartPoint() && points.get(b) == e.getEndPoint()){
+				known.put(IndexedMesh.getEdgeKey(a, b, n), e);
+			}
+		}
+		List<DTriangle> tris = new ArrayList<DTriangle>(indexedMesh.getTriangleCount());
+		List<DEdge> eds = new ArrayList<DEdge>(indexedMesh.getEdgeCount());
+		try {
+			indexedMesh.materialize(points, known, tris, eds);
+		} catch (DelaunayError d) {
+			throw new IllegalStateException("The indexed mesh can't be converted back to triangles", d);
+		}
+		for(DEdge e : eds){
+			if(e.getGID() < 0){
+				e.setGID(++edgeGID);
+			}
+		}
+		triangleList = tris;
+		edges = eds;
+		triangleGID = tris.size();
+		indexedMesh = null;
+		locator = null;
+		triangleIndex = null;
+	}
+
+	/**
+	 * Replace the content of this mesh with a triangulation that has already
+	 * been computed, given as an IndexedMesh whose vertex i is pts.get(i). The
+	 * points must be sorted, with GIDs going from 1 to their number. The
+	 * constraint edges are rebuilt from the edges marked as constraints in mesh.
+	 * If lazy is true, mesh is kept as it is until the triangles are asked for,
+	 * otherwise its triangles and edges are built at once.
+	 * @param pts
+	 * @param mesh
+	 * @param lazy
+	 * @throws DelaunayError
+	 */
+	final void setComputedMesh(List<DPoint> pts, IndexedMesh mesh, boolean lazy) throws DelaunayError {
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for(DPoint pt : pts){
+			minX = Math.min(minX, pt.getX());
+			minY = Math.min(minY, pt.getY());
+			maxY = Math.max(maxY, pt.getY());
+		}
+		if(pts.isEmpty()){
+			extMinX = null;
+			extMinY = null;
+			extMaxY = null;
+		} else {
+			extMinX = minX - 1;
+			extMinY = minY - 1;
+			extMaxY = maxY + 1;
+		}
+		points = pts;
+		pointsSorted = true;
+		pointGID = pts.size();
+		reindexPoints();
+		int n = pts.size();
+		Set<Long> known = new HashSet<Long>();
+		constraintEdges = new ArrayList<DEdge>();
+		polygons = new ArrayList<ConstraintPolygon>();
+		edgeGID = 0;
+		for(int t = 0; t < mesh.getTriangleCount(); t++){
+			for(int k = 0; k < 3; k++){
+				if(!mesh.isConstrained(t, k)){
+					continue;
+				}
+				int a = mesh.getVertex(t, (k + 1) % 3);
+				int b = mesh.getVertex(t, (k + 2) % 3);
+				if(known.add(IndexedMesh.getEdgeKey(a, b, n))){
+					DEdge e = new DEdge(pts.get(a), pts.get(b));
+					e.setLocked(true);
+					e.setProperty(mesh.getEdgeProperty(t, k));
+					fixConstraintDirection(e);
+					e.setGID(++edgeGID);
+					constraintEdges.add(e);
+				}
+			}
+		}
+		Collections.sort(constraintEdges);
+		badEdgesQueueList = new LinkedList<DEdge>();
+		indexedMesh = mesh;
+		triangleList = null;
+		edges = null;
+		locator = null;
+		triangleIndex = null;
+		meshComputed = true;
+		if(!lazy){
+			ensureObjectMesh();
+			if(triangleIndexed){
+				triangleIndex = new TriangleIndex(triangleList);
+			}
+		}
+	}
+
 	/**
 	 * Can be used to know if the mesh has been computed or not
 	 * @return
@@ -476,19 +1102,148 @@ public class ConstrainedMesh implements Serializable {
 			}
 			this.points = pts;
 			//We must be sure that we don't have duplicates in the list
-			ListIterator<DPoint> iter = points.listIterator();
-			if(iter.hasNext()){
-				DPoint e1 = iter.next();
-				DPoint e2;
-				while(iter.hasNext()){
-					e2=e1;
-					e1=iter.next();
-					if(e1.equals(e2)){
-						iter.remove();
+			if(pts instanceof RandomAccess){
+				//We compact the list in place, rather than removing the
+				//duplicates one by one.
+				int kept = 0;
+				DPoint prev = null;
+				for(int i = 0; i < pts.size(); i++){
+					DPoint pt = pts.get(i);
+					if(prev == null || !pt.equals(prev)){
+						pts.set(kept++, pt);
+					}
+					prev = pt;
+				}
+				pts.subList(kept, pts.size()).clear();
+			} else {
+				ListIterator<DPoint> iter = points.listIterator();
+				if(iter.hasNext()){
+					DPoint e1 = iter.next();
+					DPoint e2;
+					while(iter.hasNext()){
+						e2=e1;
+						e1=iter.next();
+						if(e1.equals(e2)){
+							iter.remove();
+						}
 					}
 				}
 			}
 		}
+		pointsSorted = true;
+		reindexPoints();
+	}
+
+	/**
+	 * Set the points to be used during the triangulation from arrays of
+	 * coordinates. All the existing points are removed. The points are
+	 * sorted with a radix sort, and the points that are equal in 2D to the
+	 * previous one are removed, in a single pass that also computes the
+	 * extension points.
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @throws DelaunayError
+	 * @throws IllegalArgumentException if the arrays don't have the same length.
+	 */
+	public final void setPoints(double[] x, double[] y, double[] z) throws DelaunayError {
+		if(x.length != y.length || x.length != z.length){
+			throw new IllegalArgumentException("The coordinate arrays must have the same length");
+		}
+		int[] order = PointSorter.sort(x, y);
+		List<DPoint> pts = new ArrayList<DPoint>(order.length);
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		int prev = -1;
+		for(int k : order){
+			if(prev >= 0 && PointSorter.compare(x, y, prev, k) == 0){
+				continue;
+			}
+			pts.add(new DPoint(x[k], y[k], z[k]));
+			minX = Math.min(minX, x[k]);
+			minY = Math.min(minY, y[k]);
+			maxY = Math.max(maxY, y[k]);
+			prev = k;
+		}
+		if(pts.isEmpty()){
+			extMinX = null;
+			extMinY = null;
+			extMaxY = null;
+		} else {
+			extMinX = minX - 1;
+			extMinY = minY - 1;
+			extMaxY = maxY + 1;
+		}
+		points = pts;
+		pointsSorted = true;
+		reindexPoints();
+	}
+
+	/**
+	 * Set the points to be used during the triangulation from a buffer of
+	 * interleaved coordinates x0, y0, z0, x1, y1, z1... All the remaining
+	 * values of the buffer are read, but its position is not changed.
+	 * @param xyz
+	 * @throws DelaunayError
+	 * @throws IllegalArgumentException if the number of remaining values
+	 * is not a multiple of 3.
+	 */
+	public final void loadPoints(DoubleBuffer xyz) throws DelaunayError {
+		int start = xyz.position();
+		int remaining = xyz.remaining();
+		if(remaining % 3 != 0){
+			throw new IllegalArgumentException("The buffer must contain three coordinates for each point");
+		}
+		int n = remaining / 3;
+		double[] x = new double[n];
+		double[] y = new double[n];
+		double[] z = new double[n];
+		for(int i = 0; i < n; i++){
+			int pos = start + 3 * i;
+			x[i] = xyz.get(pos);
+			y[i] = xyz.get(pos + 1);
+			z[i] = xyz.get(pos + 2);
+		}
+		setPoints(x, y, z);
+	}
+
+	/**
+	 * Set the points to be used during the triangulation from an ASCII file,
+	 * where each line gives the x, y and z coordinates of a point. The values
+	 * can be separated with spaces, tabs, commas or semicolons, the other columns
+	 * are ignored, as the lines that don't start with a number. The coordinates
+	 * are read in arrays and given to setPoints(double[], double[], double[]) :
+	 * no object is built before the points are sorted.<br/>
+	 * If cellSize is positive, the points are thinned while they are read : only
+	 * the first point of each cell of a grid of cellSize * cellSize is kept.
+	 * @param file
+	 * @param cellSize
+	 *      The size of the thinning cells, or 0 to keep all the points.
+	 * @throws IOException
+	 *      If the file can't be read, or if a line has less than three coordinates.
+	 * @throws DelaunayError
+	 */
+	public final void loadXYZ(File file, double cellSize) throws IOException, DelaunayError {
+		double[][] coords = PointFileReader.readXYZ(file, cellSize);
+		setPoints(coords[0], coords[1], coords[2]);
+	}
+
+	/**
+	 * Set the points to be used during the triangulation from the point records
+	 * of a LAS file, in version 1.0 to 1.4. The records are mapped in memory, and
+	 * only their coordinates are used. As with loadXYZ, the points can be thinned
+	 * on a grid of cellSize * cellSize.
+	 * @param file
+	 * @param cellSize
+	 *      The size of the thinning cells, or 0 to keep all the points.
+	 * @throws IOException
+	 *      If the file can't be read, or if it is not a LAS file.
+	 * @throws DelaunayError
+	 */
+	public final void loadLAS(File file, double cellSize) throws IOException, DelaunayError {
+		double[][] coords = PointFileReader.readLAS(file, cellSize);
+		setPoints(coords[0], coords[1], coords[2]);
 	}
 
 	/**
@@ -497,14 +1252,111 @@ public class ConstrainedMesh implements Serializable {
 	 * @param point
 	 */
 	public final void addPoint(DPoint point) throws DelaunayError {
+		ensureObjectMesh();
 		if (points == null) {
 			points = new ArrayList<DPoint>();
 		}
-		updateExtensionPoints(point);
-		boolean res = addToSortedList(point, points);
-		if(res){
-			pointGID++;
-			point.setGID(pointGID);
+		registerPoint(point);
+	}
+
+	/**
+	 * Get the spatial index used to retrieve the points of the mesh.
+	 * @return
+	 *      The index of the points, or null if the points are found with a
+	 *      binary search in their sorted list.
+	 */
+	public final PointIndex getPointIndex() {
+		return pointIndex;
+	}
+
+	/**
+	 * Set the spatial index used to retrieve the points of the mesh. The index
+	 * is cleared, then filled with the current points of the mesh. With an index,
+	 * addPoint, addConstraintEdge and getPoint run in constant time on average,
+	 * and the list of points is only sorted when it is needed (in getPoints,
+	 * forceConstraintIntegrity, processDelaunay...).
+	 * @param index
+	 *      The new index, or null to use a sorted list only.
+	 */
+	public final void setPointIndex(PointIndex index) {
+		sortPoints();
+		pointIndex = index;
+		reindexPoints();
+	}
+
+	/**
+	 * Add pt in the points of the mesh, if there isn't already a point equal
+	 * to it in 2D.
+	 * @param pt
+	 * @return
+	 *      The point of the mesh equal to pt, ie pt itself if it has been added.
+	 * @throws DelaunayError
+	 */
+	private DPoint registerPoint(DPoint pt) throws DelaunayError {
+		if(pointIndex != null){
+			DPoint found = pointIndex.get(pt.getX(), pt.getY());
+			if(found != null){
+				return found;
+			}
+			updateExtensionPoints(pt);
+			pointIndex.add(pt);
+			points.add(pt);
+			pointsSorted = false;
+		} else {
+			sortPoints();
+			int index = Collections.binarySearch(points, pt);
+			if(index >= 0){
+				return points.get(index);
+			}
+			updateExtensionPoints(pt);
+			points.add(-index -1, pt);
+		}
+		pointGID++;
+		pt.setGID(pointGID);
+		return pt;
+	}
+
+	/**
+	 * Add pt at the end of the list of points. Used when the mesh is refined :
+	 * the order of the points does not matter anymore.
+	 * @param pt
+	 */
+	private void appendPoint(DPoint pt) {
+		points.add(pt);
+		if(pointIndex != null){
+			pointIndex.add(pt);
+		}
+	}
+
+	/**
+	 * Remove the last point of the list of points.
+	 */
+	private void removeLastPoint() {
+		DPoint pt = points.remove(points.size()-1);
+		if(pointIndex != null){
+			pointIndex.remove(pt);
+		}
+	}
+
+	/**
+	 * Sort the list of points, if some points have been appended to it.
+	 */
+	private void sortPoints() {
+		if(!pointsSorted){
+			Collections.sort(points);
+			pointsSorted = true;
+		}
+	}
+
+	/**
+	 * Fill the point index, if any, with the points of the mesh.
+	 */
+	private void reindexPoints() {
+		if(pointIndex != null){
+			pointIndex.clear();
+			for(DPoint pt : points){
+				pointIndex.add(pt);
+			}
 		}
 	}
 
@@ -586,6 +1438,10 @@ public class ConstrainedMesh implements Serializable {
 	 * @return the index of p, -1 if it's not in the list
 	 */
 	public final int listContainsPoint(DPoint p) {
+		if(pointIndex != null && pointIndex.get(p.getX(), p.getY()) == null){
+			return -1;
+		}
+		sortPoints();
 		return sortedListContains(points, p);
 	}
 
@@ -648,11 +1504,177 @@ public class ConstrainedMesh implements Serializable {
          * This methos is supposed to be used just before a call to processDelaunay().
          * If you use it after, you will break the unicity of edges GID.
 	 */
-	public final void forceConstraintIntegrity() throws DelaunayError {
-                //We don't need to do anything if we don't have any constraint edge
-                if(constraintEdges.size()<1){
-                        return;
-                }
+	public final void forceConstraintIntegrity() throws DelaunayError {
+                //We don't need to do anything if we don't have any constraint edge
+                if(constraintEdges.size()<1){
+                        return;
+                }
+		sortPoints();
+		//The sweep line relies on the sorted insertion of the new points :
+		//the index is filled again once it is done.
+		PointIndex index = pointIndex;
+		pointIndex = null;
+		LocalFrame frame = toLocalFrame();
+		try {
+			if(intersectionAlgorithm == IntersectionAlgorithm.BENTLEY_OTTMANN){
+				BentleyOttmann bo = new BentleyOttmann(points, constraintEdges, weights);
+				setSweptConstraints(bo.compute(), bo.getNewPoints());
+			} else if(intersectionAlgorithm == IntersectionAlgorithm.GRID){
+				GridIntersection grid = new GridIntersection(points, constraintEdges, weights, threadCount);
+				setSweptConstraints(grid.compute(), grid.getNewPoints());
+			} else {
+				sweepConstraints();
+			}
+		} finally {
+			toWorldFrame(frame);
+			pointIndex = index;
+			reindexPoints();
+		}
+	}
+
+	/**
+	 * Replace the constraints by the ones computed by a sweep, and add the
+	 * intersection points to the points of the mesh.
+	 * @param constraints
+	 *      The new constraints, sorted and without duplicates.
+	 * @param newPoints
+	 *      The intersection points.
+	 * @throws DelaunayError
+	 */
+	private void setSweptConstraints(List<DEdge> constraints, List<DPoint> newPoints) throws DelaunayError {
+		edgeGID = 0;
+		for(DEdge e : constraints){
+			fixConstraintDirection(e);
+			e.setLocked(true);
+		}
+		constraintEdges = constraints;
+		if(!newPoints.isEmpty()){
+			for(DPoint pt : newPoints){
+				updateExtensionPoints(pt);
+				pt.setGID(++pointGID);
+			}
+			points.addAll(newPoints);
+			Collections.sort(points);
+		}
+	}
+
+	/**
+	 * If the local frame is used, translate the points of the mesh so that the
+	 * origin is in the middle of their bounding box. The point index, if any,
+	 * is put aside, as it works on the world coordinates.
+	 * @return
+	 *      The translation that has been applied, that must be given back to
+	 *      toWorldFrame. null if the points have not been moved.
+	 */
+	private LocalFrame toLocalFrame() {
+		if(!localFrame || points.isEmpty()){
+			return null;
+		}
+		Envelope env = getBoundingBox();
+		double dx = exactShift(env.getMinX(), env.getMaxX());
+		double dy = exactShift(env.getMinY(), env.getMaxY());
+		if(dx == 0 && dy == 0){
+			return null;
+		}
+		translate(-dx, -dy);
+		LocalFrame frame = new LocalFrame(dx, dy, points.size(), pointIndex);
+		pointIndex = null;
+		return frame;
+	}
+
+	/**
+	 * Cancel the translation made by toLocalFrame, and give the point index back.
+	 * @param frame
+	 *      The value returned by toLocalFrame.
+	 */
+	private void toWorldFrame(LocalFrame frame) {
+		if(frame == null){
+			return;
+		}
+		translate(frame.dx, frame.dy);
+		pointIndex = frame.index;
+		if(points.size() != frame.size){
+			reindexPoints();
+		}
+	}
+
+	/**
+	 * Get a translation that brings the interval [min, max] close to 0, and
+	 * that is exact for all the values of this interval : all of them, and
+	 * the translation, are multiples of the ulp of the smallest absolute value
+	 * of the interval, and their differences are smaller than it.
+	 * @param min
+	 * @param max
+	 * @return
+	 *      The value to subtract, or 0 if the interval is too close to 0 for
+	 *      a translation to be worth it.
+	 */
+	static double exactShift(double min, double max) {
+		double lowest;
+		if(min > 0){
+			lowest = min;
+		} else if(max < 0){
+			lowest = -max;
+		} else {
+			return 0;
+		}
+		if(max - min >= lowest){
+			return 0;
+		}
+		double ulp = Math.ulp(lowest);
+		return Math.rint((min + (max - min) / 2) / ulp) * ulp;
+	}
+
+	/**
+	 * Translate the points of the mesh, the circumcenters of its triangles
+	 * and its extension points by (dx, dy).
+	 * @param dx
+	 * @param dy
+	 */
+	private void translate(double dx, double dy) {
+		for(DPoint pt : points){
+			pt.setX(pt.getX() + dx);
+			pt.setY(pt.getY() + dy);
+		}
+		if(triangleList != null){
+			for(DTriangle tri : triangleList){
+				tri.translateCircumCenter(dx, dy);
+			}
+		}
+		if(extMinX != null){
+			extMinX += dx;
+		}
+		if(extMinY != null){
+			extMinY += dy;
+			extMaxY += dy;
+		}
+		locator = null;
+		triangleIndex = null;
+	}
+
+	/**
+	 * The translation made by toLocalFrame, and what must be restored with it.
+	 */
+	private static final class LocalFrame {
+
+		private final double dx;
+		private final double dy;
+		private final int size;
+		private final PointIndex index;
+
+		LocalFrame(double dx, double dy, int size, PointIndex index) {
+			this.dx = dx;
+			this.dy = dy;
+			this.size = size;
+			this.index = index;
+		}
+	}
+
+	/**
+	 * The sweep line algorithm used by forceConstraintIntegrity.
+	 * @throws DelaunayError
+	 */
+	private void sweepConstraints() throws DelaunayError {
                 //We will repopulate the list of constraint edges
                 edgeGID = 0;
 		//The event points are the extremities and intersections of the
@@ -1072,6 +2094,7 @@ public class ConstrainedMesh implements Serializable {
 	 * @throws DelaunayError
 	 */
 	public final boolean intersectsExistingEdges(DEdge edge) throws DelaunayError {
+		ensureObjectMesh();
 		int inter;
 		for (DEdge ed : edges) {
 			inter = ed.intersects(edge);
@@ -1114,11 +2137,14 @@ public class ConstrainedMesh implements Serializable {
 	 */
 	public final List<DEdge> getConstraintFromLPVertical(DPoint left){
 		List<DEdge> retList = getConstraintsFromLeftPoint(left);
+		if(retList.size() < 2){
+			return retList;
+		}
 		VerticalComparator vc = new VerticalComparator(left.getX());
 		Collections.sort(retList, vc);
 		//Vertical constraints are managed in a way that put the potential one
 		//linked to left at the beginning of the list. It shoule be the last one.
-		if(!retList.isEmpty() && retList.get(0).isVertical()){
+		if(retList.get(0).isVertical()){
 			DEdge tmp = retList.get(0);
 			retList.remove(0);
 			retList.add(tmp);
@@ -1140,6 +2166,7 @@ public class ConstrainedMesh implements Serializable {
 		} else if (points.size() < MIN_POINTS_NUMBER) {
 			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_NOT_ENOUGH_POINTS_FOUND);
 		} else {
+			sortPoints();
                         pointGID=0;
                         for(DPoint pt : points){
                                 pt.setGID(++pointGID);
@@ -1147,69 +2174,373 @@ public class ConstrainedMesh implements Serializable {
                         //We will repopulate the list of triangles. 
                         triangleGID=0;
 			// general data structures
+			indexedMesh = null;
+			locator = null;
+			triangleIndex = null;
 			badEdgesQueueList = new LinkedList<DEdge>();
 			edges = new ArrayList<DEdge>();
 			triangleList = new ArrayList<DTriangle>();
 
-			// sort points
+			IndexedMeshBuilder builder = null;
+			LocalFrame frame = toLocalFrame();
+			try {
+				if(indexedOutput){
+					builder = new IndexedMeshBuilder(points.size());
+					indexedSweep(builder);
+					edges = null;
+					triangleList = null;
+				} else if(threadCount < 2 || !processSlabs()){
+					sweep();
+				}
+			} finally {
+				toWorldFrame(frame);
+			}
+			if(builder != null){
+				indexedMesh = builder.build(points);
+			}
+
+			meshComputed = true;
+
+			// It's fine, we computed the mesh
 			if (verbose) {
-				LOG.trace("Getting points");
+				LOG.trace("End processing");
+				LOG.trace("Triangularization end phase : ");
+				LOG.trace("  Points : " + points.size());
+				if(builder == null){
+					LOG.trace("  Edges : " + edges.size());
+				}
+				LOG.trace("  Triangles : " + (builder == null ? triangleList.size() : builder.getTriangleCount()));
+			}
+			if(hilbertOrdered){
+				sortAlongHilbertCurve();
+			}
+			if(triangleIndexed && triangleList != null){
+				triangleIndex = new TriangleIndex(triangleList);
+			}
+		}
+	}
+
+	/**
+	 * Insert the sorted points one after the other in the mesh, using a single
+	 * Boundary.
+	 * @throws DelaunayError
+	 */
+	private void sweep() throws DelaunayError {
+		// sort points
+		if (verbose) {
+			LOG.trace("Getting points");
+		}
+		//A triangulation of n points has less than 2n triangles and 3n
+		//edges : the lists won't have to grow during the sweep.
+		triangleList = new ArrayList<DTriangle>(2 * points.size());
+		edges = new ArrayList<DEdge>(3 * points.size());
+		ListIterator<DPoint> iterPoint = points.listIterator();
+
+		DPoint p1 = iterPoint.next();
+		DPoint p2 = iterPoint.next();
+		DEdge e1 = new DEdge(p1, p2);
+		e1 = replaceByConstraint(e1);
+		List<DEdge> fromLeft = getConstraintFromLPVertical(p1);
+		//This operaton connects the two first points and their linked constraints.
+		Boundary bound = buildStartBoundary(p1, e1, fromLeft, getConstraintFromLPVertical(p2));
+		List<DEdge> added ;
+		List<DTriangle> tri;
+		//Without constraints, there is no need to search them for each point.
+		boolean constrained = !constraintEdges.isEmpty();
+		List<DEdge> noConstraint = Collections.emptyList();
+		while(iterPoint.hasNext()){
+			p2=iterPoint.next();
+			fromLeft = constrained ? getConstraintFromLPVertical(p2) : noConstraint;
+			//The insertion is performed here ! The lists we get from
+			//the boundary are reused by the next insertion.
+			tri = bound.insertPoint(p2, fromLeft);
+			for(int i = 0; i < tri.size(); i++){
+				DTriangle t = tri.get(i);
+				triangleGID++;
+				t.setGID(triangleGID);
+				triangleList.add(t);
+			}
+
+			//We retrieve the edges that have been added to the mesh.
+			added = bound.getAddedEdges();
+			for(int i = 0; i < added.size(); i++){
+				DEdge e = added.get(i);
+				edgeGID++;
+				e.setGID(edgeGID);
+				edges.add(e);
 			}
-			ListIterator<DPoint> iterPoint = points.listIterator();
-
-			DPoint p1 = iterPoint.next();
-			DPoint p2 = iterPoint.next();
-			DEdge e1 = new DEdge(p1, p2);
-			e1 = replaceByConstraint(e1);
-			List<DEdge> fromLeft = getConstraintFromLPVertical(p1);
-			//This operaton connects the two first points and their linked constraints.
-			Boundary bound = buildStartBoundary(p1, e1, fromLeft, getConstraintFromLPVertical(p2));
-			List<DEdge> added ;
-			List<DTriangle> tri;
+			//We retrieve the potential bad edges, and treat them.
+			badEdgesQueueList = bound.getBadEdges();
+			processBadEdges();
+		}
+	}
+
+	/**
+	 * Insert the sorted points one after the other, as sweep does, but give
+	 * each triangle to builder as soon as its circumcircle lies on the left
+	 * of the point being inserted. The constraints are processed as in sweep.
+	 * The released triangles are unlinked from their edges, so that neither
+	 * the mesh nor the sweep keep them.
+	 * @param builder
+	 * @throws DelaunayError
+	 */
+	private void indexedSweep(IndexedMeshBuilder builder) throws DelaunayError {
+		ListIterator<DPoint> iterPoint = points.listIterator();
+		DPoint p1 = iterPoint.next();
+		DPoint p2 = iterPoint.next();
+		DEdge e1 = replaceByConstraint(new DEdge(p1, p2));
+		Boundary bound = buildStartBoundary(p1, e1, getConstraintFromLPVertical(p1),
+			getConstraintFromLPVertical(p2));
+		StreamingFront front = new StreamingFront(builder);
+		boolean constrained = !constraintEdges.isEmpty();
+		List<DEdge> noConstraint = Collections.emptyList();
+		swappedTriangles = new ArrayList<DTriangle>();
+		try {
 			while(iterPoint.hasNext()){
-				p2=iterPoint.next();
-				fromLeft = getConstraintFromLPVertical(p2);
-				//The insertion is performed here !
-				tri = bound.insertPoint(p2, fromLeft);
+				p2 = iterPoint.next();
+				//The next points can't be on the left of p2.
+				front.flush(p2.getX() - Tools.EPSILON);
+				List<DTriangle> tri = bound.insertPoint(p2,
+					constrained ? getConstraintFromLPVertical(p2) : noConstraint);
+				badEdgesQueueList = bound.getBadEdges();
+				processBadEdges();
+				for(DTriangle t : tri){
+					front.update(t);
+				}
+				for(DTriangle t : swappedTriangles){
+					front.update(t);
+				}
+				swappedTriangles.clear();
+			}
+		} finally {
+			swappedTriangles = null;
+		}
+		front.flushAll();
+	}
+
+	/**
+	 * Compute the Delaunay triangulation of a set of points too large to be
+	 * kept in memory. The points are read from sortedPoints, that must give them
+	 * in the order defined by DPoint.compareTo2D - the duplicates are skipped.
+	 * Each triangle is given to sink as soon as its circumcircle lies on the left
+	 * of the point being inserted : it can't be changed anymore, and the mesh
+	 * forgets it. The memory needed is then driven by the width of the sweep
+	 * front, rather than by the size of the whole set of points.<br/>
+	 * The points and constraints of this mesh are not used, and no triangle or
+	 * edge is kept in it : it is only used as a workspace. Constraints are not
+	 * supported.
+	 * @param sortedPoints
+	 * @param sink
+	 * @throws DelaunayError
+	 *      if the mesh has already been computed, if it contains constraints,
+	 *      if the points are not sorted or if there are less than three of them.
+	 */
+	public final void processDelaunayStreaming(Iterator<DPoint> sortedPoints, TriangleSink sink)
+			throws DelaunayError {
+		if (isMeshComputed()) {
+			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_GENERATED);
+		} else if (!constraintEdges.isEmpty()) {
+			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_INVALID_CALL,
+				"The streaming triangulation can't process constraints");
+		}
+		pointGID = 0;
+		edgeGID = 0;
+		triangleGID = 0;
+		DPoint p1 = nextStreamedPoint(sortedPoints, null);
+		DPoint p2 = p1 == null ? null : nextStreamedPoint(sortedPoints, p1);
+		DPoint pt = p2 == null ? null : nextStreamedPoint(sortedPoints, p2);
+		if(pt == null){
+			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_NOT_ENOUGH_POINTS_FOUND);
+		}
+		StreamingFront front = new StreamingFront(sink);
+		List<DEdge> noConstraint = new ArrayList<DEdge>();
+		Boundary bound = buildStartBoundary(p1, new DEdge(p1, p2), noConstraint, noConstraint);
+		swappedTriangles = new ArrayList<DTriangle>();
+		try {
+			while(pt != null){
+				//The next points can't be on the left of pt.
+				front.flush(pt.getX() - Tools.EPSILON);
+				List<DTriangle> tri = bound.insertPoint(pt);
 				for(DTriangle t : tri){
 					triangleGID++;
 					t.setGID(triangleGID);
 				}
-				triangleList.addAll(tri);
-
-				//We retrieve the edges that have been added to the mesh.
-				added = bound.getAddedEdges();
-				for(DEdge e : added){
+				for(DEdge e : bound.getAddedEdges()){
 					edgeGID++;
 					e.setGID(edgeGID);
 				}
-				edges.addAll(added);
-				//We retrieve the potential bad edges, and treat them.
 				badEdgesQueueList = bound.getBadEdges();
 				processBadEdges();
+				//The new triangles are put in the front once they have
+				//been swapped, as their circumcircles are smaller then.
+				for(DTriangle t : tri){
+					front.update(t);
+				}
+				for(DTriangle t : swappedTriangles){
+					front.update(t);
+				}
+				swappedTriangles.clear();
+				pt = nextStreamedPoint(sortedPoints, pt);
 			}
+		} finally {
+			swappedTriangles = null;
+		}
+		front.flushAll();
+		if (verbose) {
+			LOG.trace("End of the streaming triangulation");
+			LOG.trace("  Points : " + pointGID);
+			LOG.trace("  Triangles : " + front.getReleasedCount());
+		}
+	}
 
-			meshComputed = true;
+	/**
+	 * Compute the Delaunay triangulation of the points given in a buffer of
+	 * interleaved coordinates x0, y0, z0, x1, y1, z1... that must be sorted as
+	 * defined by DPoint.compareTo2D. The buffer can be a view on a file
+	 * mapped in memory : the DPoint instances are built one after the other,
+	 * while the triangulation goes on. See processDelaunayStreaming(Iterator,
+	 * TriangleSink).
+	 * @param xyz
+	 * @param sink
+	 * @throws DelaunayError
+	 */
+	public final void processDelaunayStreaming(final DoubleBuffer xyz, TriangleSink sink)
+			throws DelaunayError {
+		if(xyz.remaining() % 3 != 0){
+			throw new IllegalArgumentException("The buffer must contain three coordinates for each point");
+		}
+		final DoubleBuffer src = xyz.duplicate();
+		processDelaunayStreaming(new Iterator<DPoint>() {
+			@Override
+			public boolean hasNext() {
+				return src.hasRemaining();
+			}
 
-			// It's fine, we computed the mesh
-			if (verbose) {
-				LOG.trace("End processing");
-				LOG.trace("Triangularization end phase : ");
-				LOG.trace("  Points : " + points.size());
-				LOG.trace("  Edges : " + edges.size());
-				LOG.trace("  Triangles : " + triangleList.size());
+			@Override
+			public DPoint next() {
+				try {
+					return new DPoint(src.get(), src.get(), src.get());
+				} catch (DelaunayError e) {
+					throw new IllegalStateException("Invalid coordinates in the buffer", e);
+				}
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		}, sink);
+	}
+
+	/**
+	 * Get the next point of a streamed triangulation, skipping the duplicates.
+	 * @param iter
+	 * @param last
+	 *      The last point that has been read, or null.
+	 * @return
+	 *      The next point, or null if there isn't any.
+	 * @throws DelaunayError
+	 *      If the points are not sorted.
+	 */
+	private DPoint nextStreamedPoint(Iterator<DPoint> iter, DPoint last) throws DelaunayError {
+		while(iter.hasNext()){
+			DPoint pt = iter.next();
+			int c = last == null ? 1 : pt.compareTo2D(last);
+			if(c > 0){
+				pointGID++;
+				pt.setGID(pointGID);
+				return pt;
+			} else if(c < 0){
+				throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_INVALID_CALL,
+					"The streamed points must be sorted");
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Triangulate the mesh with a ParallelSweep, using threadCount threads.
+	 * The flip-flaps needed to retrieve the Delaunay property along the seams
+	 * between the slabs are processed here, then the constraints that cross
+	 * the seams are forced in the mesh.
+	 * @return
+	 *      false if the parallel triangulation could not be done. In this case,
+	 *      the constraints are ready for a sequential sweep.
+	 * @throws DelaunayError
+	 */
+	private boolean processSlabs() throws DelaunayError {
+		ParallelSweep ps = new ParallelSweep(points, constraintEdges, threadCount);
+		boolean done = ps.compute();
+		if(done){
+			triangleList = ps.getTriangles();
+			edges = ps.getEdges();
+			legalizeEdges(ps.getSeamEdges());
+			if(!ps.getCrossingConstraints().isEmpty()){
+				PointLocator loc = new PointLocator(triangleList);
+				Set<DEdge> replaced = newEdgeSet();
+				for(DEdge ed : ps.getCrossingConstraints()){
+					if(!insertSeamConstraint(ed, loc, replaced)){
+						done = false;
+						break;
+					}
+				}
+				if(done){
+					List<DEdge> kept = new ArrayList<DEdge>(edges.size());
+					for(DEdge ed : edges){
+						if(!replaced.contains(ed)){
+							kept.add(ed);
+						}
+					}
+					kept.addAll(ps.getCrossingConstraints());
+					edges = kept;
+				}
+			}
+		}
+		if(!done){
+			//Small inputs are not cut : the fallback is only worth a warning
+			//when the slabs or their merge failed.
+			if(points.size() >= 2 * ParallelSweep.MIN_SLAB_SIZE){
+				LOG.warn("Parallel triangulation impossible, using a sequential sweep");
+			} else if (verbose) {
+				LOG.trace("Too few points for a parallel triangulation, using a sequential sweep");
 			}
+			for(DEdge e : constraintEdges){
+				e.setLeft(null);
+				e.setRight(null);
+				e.setShared(false);
+				e.setDegenerated(false);
+				fixConstraintDirection(e);
+			}
+			pointGID = 0;
+			for(DPoint pt : points){
+				pt.setGID(++pointGID);
+			}
+			return false;
+		}
+		pointGID = 0;
+		for(DPoint pt : points){
+			pt.setGID(++pointGID);
+		}
+		for(DTriangle tri : triangleList){
+			tri.setGID(++triangleGID);
+		}
+		for(DEdge ed : edges){
+			ed.setGID(++edgeGID);
 		}
+		return true;
 	}
 
 	/**
 	 * This operation remove the flat triangles by inserting new points in the mesh,
 	 * that come from the skeleton of the already computed mesh.
 	 * This method must be used after a previous call to processDelaunay().
-	 * This method will compute a triangulation again - the insertion is not incremental.
+	 * This method will compute a triangulation again, unless the incremental
+	 * flat removal is set : the points are then inserted one after the other,
+	 * each one searched from the flat triangle its skeleton comes from.
 	 * @throws DelaunayError
 	 */
 	public final void removeFlatTriangles() throws DelaunayError {
+		ensureObjectMesh();
 		//if the mesh has not been computed, we throw an exception.
 		if(!meshComputed){
 			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_GENERATED);
@@ -1220,6 +2551,9 @@ public class ConstrainedMesh implements Serializable {
 			}
 		}
 		List<DPoint> newPoints = new ArrayList<DPoint>();
+		//The triangles the skeletons come from, and the index of their first point.
+		List<DTriangle> origins = new ArrayList<DTriangle>();
+		List<Integer> firsts = new ArrayList<Integer>();
 		VoronoiGraph vg;
 		for(DTriangle tri : triangleList){
 			if(!tri.isSeenForFlatRemoval()){
@@ -1228,6 +2562,8 @@ public class ConstrainedMesh implements Serializable {
 					vg.fillUntilNotFlatFound();
 					vg.assignZValues();
 					if(vg.isUseful()){
+						origins.add(tri);
+						firsts.add(newPoints.size());
 						newPoints.addAll(vg.getSkeletonPoints());
 					}
 				} else {
@@ -1235,11 +2571,16 @@ public class ConstrainedMesh implements Serializable {
 				}
 			}
 		}
+		if(incrementalFlatRemoval){
+			insertSkeletons(newPoints, origins, firsts);
+			return;
+		}
 		for(DPoint pt : newPoints){
 			pt.setGID(++pointGID);
 		}
 		points.addAll(newPoints);
 		Collections.sort(points);
+		reindexPoints();
 		setMeshComputed(false);
 		triangleList = new ArrayList<DTriangle>();
 		for(DEdge e : constraintEdges){
@@ -1251,56 +2592,349 @@ public class ConstrainedMesh implements Serializable {
 	}
 
 	/**
-	 * Refine the mesh, using the Ruppert's algorithm.
+	 * Insert the skeleton points of the flat areas in the computed mesh. The
+	 * search of the points of a skeleton starts from the triangle it comes from,
+	 * then from the triangle of the previous point, so that the walks stay in
+	 * the flat area.
+	 * @param skeletons
+	 * @param origins
+	 * @param firsts
+	 *      The index in skeletons of the first point of each origin.
+	 * @throws DelaunayError
+	 */
+	private void insertSkeletons(List<DPoint> skeletons, List<DTriangle> origins, List<Integer> firsts)
+			throws DelaunayError {
+		//No MeshUpdate is recorded : nobody could read it.
+		getPointLocator();
+		try {
+			int next = 0;
+			for(int i = 0; i < skeletons.size(); i++){
+				//Several skeletons start at i if some of them are empty.
+				while(next < firsts.size() && firsts.get(next) == i){
+					locator.setHint(origins.get(next));
+					next++;
+				}
+				insertVertex(skeletons.get(i));
+			}
+		} finally {
+			triangleIndex = null;
+		}
+	}
+
+	/**
+	 * Refine the mesh, using the Ruppert's algorithm. If ev is a ScoredEvaluator,
+	 * the worst triangles are refined first. The triangles changed by an
+	 * insertion are evaluated again.<br/>
+	 * If the refinement thread count is greater than 1, and if no MeshUpdate
+	 * is recorded, independent points are inserted concurrently, round after
+	 * round. ev is still only called from the calling thread. The result does
+	 * not depend on the number of threads, but differs from the one of the
+	 * sequential refinement.
 	 * @param minLength
 	 *		The minimum length of an edge that could be inserted during the refinement.
 	 * @throws DelaunayError
          * @throws IllegalArgumentException if <code>minLength</code> is inferior or equal to 0
 	 */
 	public final void refineMesh(double minLength, InsertionEvaluator ev) throws DelaunayError {
+                ensureObjectMesh();
                 if(minLength <=0){
                         throw new IllegalArgumentException("The minimum length must be strictly positive !");
                 }
+                if(refinementThreadCount > 1 && meshUpdate == null){
+                        refineInParallel(minLength, ev, true);
+                        return;
+                }
 		edgeSplitting(minLength);
                 triangleRefinement(minLength, ev);
 	}
 
+	/**
+	 * Refine the mesh, using the Ruppert's algorithm, as refineMesh(double, InsertionEvaluator)
+	 * does. The triangles to refine are chosen with refinement, a combination of :<br/>
+	 *  * REFINEMENT_MIN_ANGLE : the triangles that have an angle smaller than minAngle.<br/>
+	 *  * REFINEMENT_MAX_AREA : the triangles larger than the equilateral triangle
+	 * whose edges have the length given by size at their barycenter.<br/>
+	 * The worst triangles are refined first. If REFINEMENT_SOFT_INTERPOLATE is set,
+	 * the z of the inserted circumcenters is interpolated with
+	 * DTriangle.softInterpolateZ, that takes the neighbours of their triangle
+	 * into account.<br/>
+	 * REFINEMENT_OBTUSE_ANGLE is not supported : inserting circumcenters does not
+	 * remove obtuse angles.
+	 * @param minLength
+	 *		The minimum length of an edge that could be inserted during the refinement.
+	 * @param refinement
+	 * @param minAngle
+	 *      The threshold angle, in degrees, used with REFINEMENT_MIN_ANGLE.
+	 * @param size
+	 *      The sizing field used with REFINEMENT_MAX_AREA. It can be null otherwise.
+	 * @throws DelaunayError
+	 * @throws IllegalArgumentException if REFINEMENT_OBTUSE_ANGLE is set, if none of
+	 * REFINEMENT_MIN_ANGLE and REFINEMENT_MAX_AREA is set, if size is null and
+	 * REFINEMENT_MAX_AREA is set, or if minLength or minAngle are not valid.
+	 */
+	public final void refineMesh(double minLength, int refinement, double minAngle, SizingField size)
+			throws DelaunayError {
+		if((refinement & REFINEMENT_OBTUSE_ANGLE) != 0){
+			throw new IllegalArgumentException("The refinement of obtuse angles is not supported");
+		}
+		boolean angle = (refinement & REFINEMENT_MIN_ANGLE) != 0;
+		boolean area = (refinement & REFINEMENT_MAX_AREA) != 0;
+		InsertionEvaluator ev;
+		if(area && size == null){
+			throw new IllegalArgumentException("A sizing field is needed to bound the area");
+		} else if(angle && area){
+			ev = new QualitySizeEvaluator(minAngle, new MaxAreaEvaluator(size));
+		} else if(angle){
+			ev = new SkinnyEvaluator(minAngle);
+		} else if(area){
+			ev = new MaxAreaEvaluator(size);
+		} else {
+			throw new IllegalArgumentException("The triangles to refine must be chosen with "
+				+ "REFINEMENT_MIN_ANGLE or REFINEMENT_MAX_AREA");
+		}
+		softInterpolation = (refinement & REFINEMENT_SOFT_INTERPOLATE) != 0;
+		try {
+			refineMesh(minLength, ev);
+		} finally {
+			softInterpolation = false;
+		}
+	}
+
 	/**
 	 * Refine the mesh, using a derivate of the Ruppert algorithm. We won't split any constraint
-         * edges here.
+         * edges here. The refinement is concurrent in the same conditions as in refineMesh.
 	 * @param minLength
 	 *		The minimum length of an edge that could be inserted during the refinement.
 	 * @throws DelaunayError
          * @throws IllegalArgumentException if <code>minLength</code> is inferior or equal to 0
 	 */
 	public final void refineTriangles(double minLength, InsertionEvaluator ev) throws DelaunayError {
+                ensureObjectMesh();
                 if(minLength <=0){
                         throw new IllegalArgumentException("The minimum length must be strictly positive !");
                 }
-                processed = new HashMap<Integer, DTriangle>(triangleList.size());
-                remaining = new HashMap<Integer, DTriangle>(triangleList.size());
-                fillRemainingFromTriangles();
-                Set<Map.Entry<Integer, DTriangle>> treatSet = remaining.entrySet();
-                while(!treatSet.isEmpty()) {
-                        Map.Entry<Integer, DTriangle> entry = treatSet.iterator().next();
-                        DTriangle dt = entry.getValue();
-                        if(ev.evaluate(dt)){
-                                buffer = new HashMap<Integer, DTriangle>();
-                                DEdge ret = insertTriangleCircumCenter(dt, true, minLength);
-                                putInProcessed(dt);
-                                if(ret == null){
-                                        fillRemainingFromTriangles();
-                                }
-                        }else {
-                                putInProcessed(dt);
+                if(refinementThreadCount > 1 && meshUpdate == null){
+                        refineInParallel(minLength, ev, false);
+                        return;
+                }
+                RefinementQueue queue = new RefinementQueue(ev, triangleList.size());
+                queue.addAll(triangleList);
+                buffer = new ArrayList<DTriangle>();
+                DTriangle dt;
+                while((dt = queue.poll()) != null) {
+                        buffer.clear();
+                        int pointCount = points.size();
+                        int triangleCount = triangleList.size();
+                        insertSteinerPoint(dt, getSteinerPoint(dt, ev), true, minLength);
+                        if(points.size() > pointCount){
+                                requeue(queue, triangleCount);
                         }
                 }
-                triangleList = new LinkedList<DTriangle>(processed.values());
-                processed = null;
-                remaining = null;
+                locator = null;
+                triangleIndex = null;
                 buffer = null;
 	}
         
+        /**
+         * Compute the z of a point inserted in container during a refinement.
+         * @param container
+         * @param pt
+         * @return 
+         */
+        final double interpolateSteinerZ(DTriangle container, DPoint pt) {
+                return softInterpolation ? container.softInterpolateZ(pt) : container.interpolateZ(pt);
+        }
+
+        /**
+         * Get the point that refines tri, according to the Steiner placement.
+         * The off-center is the point of the bisector of the shortest edge of tri
+         * that makes, with this edge, an isosceles triangle whose apex angle is
+         * the minimum angle of ev. It is used if it is closer to the edge than
+         * the circumcenter.
+         * @param tri
+         * @param ev
+         * @return
+         *      The point, whose z is 0.
+         * @throws DelaunayError 
+         */
+        final DPoint getSteinerPoint(DTriangle tri, InsertionEvaluator ev) throws DelaunayError {
+                double x = tri.getCircumCenterX();
+                double y = tri.getCircumCenterY();
+                double angle = getOffCenterAngle(ev);
+                if(steinerPlacement != SteinerPlacement.CIRCUMCENTER && angle > 0){
+                        DEdge shortest = getShortestEdge(tri);
+                        double mx = (shortest.getStartPoint().getX() + shortest.getEndPoint().getX()) / 2;
+                        double my = (shortest.getStartPoint().getY() + shortest.getEndPoint().getY()) / 2;
+                        double dist = Math.sqrt((x - mx) * (x - mx) + (y - my) * (y - my));
+                        double off = shortest.get2DLength() / (2 * Math.tan(Math.toRadians(angle) / 2));
+                        if(off < dist){
+                                x = mx + (x - mx) * off / dist;
+                                y = my + (y - my) * off / dist;
+                        }
+                }
+                return new DPoint(x, y, 0);
+        }
+
+        /**
+         * Get the angle used to compute the off-centers : the minimum angle of
+         * ev, or 0 if ev is not an angle evaluator.
+         * @param ev
+         * @return
+         */
+        private static double getOffCenterAngle(InsertionEvaluator ev) {
+                if(ev instanceof SkinnyEvaluator){
+                        return ((SkinnyEvaluator) ev).getMinAngle();
+                } else if(ev instanceof QualitySizeEvaluator){
+                        return ((QualitySizeEvaluator) ev).getMinAngle();
+                } else {
+                        return 0;
+                }
+        }
+
+        /**
+         * @param tri
+         * @return the shortest edge of tri.
+         */
+        private static DEdge getShortestEdge(DTriangle tri) {
+                DEdge ret = tri.getEdge(0);
+                for(int i = 1; i < DTriangle.PT_NB; i++){
+                        if(tri.getEdge(i).getSquared2DLength() < ret.getSquared2DLength()){
+                                ret = tri.getEdge(i);
+                        }
+                }
+                return ret;
+        }
+
+        /**
+         * Get the point where the encroached edge ed is split. It is its middle,
+         * but with the TERMINATOR placement, a constraint that makes a small angle
+         * with another constraint at one of its extremities is split at a power
+         * of two from this extremity, so that the parts of the two constraints
+         * get the same lengths. The middle is used if a part would be shorter
+         * than minLength.
+         * @param ed
+         * @param minLength
+         * @return
+         * @throws DelaunayError 
+         */
+        final DPoint getSplitPoint(DEdge ed, double minLength) throws DelaunayError {
+                if(steinerPlacement == SteinerPlacement.TERMINATOR && ed.isLocked()){
+                        boolean atStart = isClusterApex(ed, ed.getStartPoint());
+                        if(atStart != isClusterApex(ed, ed.getEndPoint())){
+                                double length = ed.get2DLength();
+                                double radius = Math.pow(2, Math.round(Math.log(length / 2) / Math.log(2)));
+                                double t = atStart ? radius / length : 1 - radius / length;
+                                if(Math.min(radius, length - radius) < minLength){
+                                        return ed.getMiddle();
+                                }
+                                DPoint s = ed.getStartPoint();
+                                DPoint e = ed.getEndPoint();
+                                return new DPoint(s.getX() + t * (e.getX() - s.getX()),
+                                        s.getY() + t * (e.getY() - s.getY()),
+                                        s.getZ() + t * (e.getZ() - s.getZ()));
+                        }
+                }
+                return ed.getMiddle();
+        }
+
+        /**
+         * Check if the constraint ed, encroached by the Steiner point of tri, must
+         * be kept by the TERMINATOR : it makes a small angle with another constraint,
+         * and its split would create an edge shorter than the shortest edge of tri.
+         * @param ed
+         * @param tri
+         * @param minLength
+         * @return
+         * @throws DelaunayError 
+         */
+        final boolean isSplitTerminated(DEdge ed, DTriangle tri, double minLength) throws DelaunayError {
+                if(steinerPlacement != SteinerPlacement.TERMINATOR || !ed.isLocked()){
+                        return false;
+                }
+                if(!isClusterApex(ed, ed.getStartPoint()) && !isClusterApex(ed, ed.getEndPoint())){
+                        return false;
+                }
+                DPoint split = getSplitPoint(ed, minLength);
+                double radius = Math.min(new DEdge(split, ed.getStartPoint()).getSquared2DLength(),
+                        new DEdge(split, ed.getEndPoint()).getSquared2DLength());
+                return radius < getShortestEdge(tri).getSquared2DLength();
+        }
+
+        /**
+         * Check if another constraint makes an angle smaller than 60 degrees
+         * with ed, at its extremity apex.
+         * @param ed
+         * @param apex
+         * @return
+         */
+        private static boolean isClusterApex(DEdge ed, DPoint apex) {
+                DTriangle tri = ed.getLeft() != null ? ed.getLeft() : ed.getRight();
+                if(tri == null){
+                        return false;
+                }
+                DPoint other = ed.getStartPoint() == apex ? ed.getEndPoint() : ed.getStartPoint();
+                double ux = other.getX() - apex.getX();
+                double uy = other.getY() - apex.getY();
+                double lu = Math.sqrt(ux * ux + uy * uy);
+                for(DTriangle t : trianglesAround(tri, apex)){
+                        for(int i = 0; i < DTriangle.PT_NB; i++){
+                                DEdge cand = t.getEdge(i);
+                                if(cand == ed || !cand.isLocked()
+                                        || (cand.getStartPoint() != apex && cand.getEndPoint() != apex)){
+                                        continue;
+                                }
+                                DPoint end = cand.getStartPoint() == apex ? cand.getEndPoint() : cand.getStartPoint();
+                                double vx = end.getX() - apex.getX();
+                                double vy = end.getY() - apex.getY();
+                                //cos(60) = 1/2
+                                if(ux * vx + uy * vy > lu * Math.sqrt(vx * vx + vy * vy) / 2){
+                                        return true;
+                                }
+                        }
+                }
+                return false;
+        }
+
+        /**
+         * Refine the mesh with a ParallelRefinement, using refinementThreadCount threads.
+         * @param minLength
+         * @param ev
+         * @param splitSegments
+         *      true to split the encroached constraints and boundary edges.
+         * @throws DelaunayError 
+         */
+        final void refineInParallel(double minLength, InsertionEvaluator ev, boolean splitSegments)
+                        throws DelaunayError {
+                new ParallelRefinement(this, minLength, ev, splitSegments, refinementThreadCount).refine();
+                locator = null;
+                triangleIndex = null;
+        }
+
+        /**
+         * Add to the mesh the elements built by the insertion of pt during a
+         * parallel refinement. They are given their GIDs here, so that they
+         * don't depend on the scheduling of the threads.
+         * @param pt
+         * @param newEdges
+         *      The new edges. The locked ones are new constraints.
+         * @param newTriangles
+         */
+        final void registerRefinement(DPoint pt, List<DEdge> newEdges, List<DTriangle> newTriangles) {
+                pt.setGID(++pointGID);
+                appendPoint(pt);
+                for(DEdge e : newEdges){
+                        e.setGID(++edgeGID);
+                        edges.add(e);
+                        if(e.isLocked()){
+                                constraintEdges.add(e);
+                        }
+                }
+                for(DTriangle t : newTriangles){
+                        t.setGID(++triangleGID);
+                        triangleList.add(t);
+                }
+        }
+
         /**
          * Edges are split if encroached.
 	 * @param minLength
@@ -1326,41 +2960,44 @@ public class ConstrainedMesh implements Serializable {
          * @throws DelaunayError 
          */
         final void triangleRefinement(double minLength, InsertionEvaluator ev) throws DelaunayError {
+                //The triangles are processed worst first if ev gives scores, in 
+                //the order they are queued otherwise. The triangles changed by an
+                //insertion are queued again.
+                RefinementQueue queue = new RefinementQueue(ev, triangleList.size());
+                queue.addAll(triangleList);
+                buffer = new ArrayList<DTriangle>();
                 DTriangle dt;
                 DEdge ret;
-                //We will use three maps to process our triangles efficietly. The first one 
-                //contains the triangles that are to be treated. The seconf one contains
-                //The triangles that have been treated. The last one is used to 
-                //retrieve in the treated triangles the one that need to be (potentially)
-                //processed again.
-                processed = new HashMap<Integer, DTriangle>(triangleList.size());
-                remaining = new HashMap<Integer, DTriangle>(triangleList.size());
-                fillRemainingFromTriangles();
-                //triangleList is still alive, but empty. Consequently, it can still be used
-                //in the following steps - in splitEncroachedEdge, for instance.
-                Set<Map.Entry<Integer, DTriangle>> treatSet = remaining.entrySet();
-                while(!treatSet.isEmpty()) {
-                        Map.Entry<Integer, DTriangle> entry = treatSet.iterator().next();
-                        dt = entry.getValue();
-                        if(ev.evaluate(dt)){
-                                buffer = new HashMap<Integer, DTriangle>();
-                                ret = insertTriangleCircumCenter(dt, true, minLength);
-                                if(ret != null && ret.get2DLength()>2*minLength){
-                                                splitEncroachedEdge(ret, minLength);
-                                                fillRemainingFromTriangles();
-                                        } else {
-                                                putInProcessed(dt);
-                                                fillRemainingFromTriangles();
-                                        }
-                        }else { 
-                                putInProcessed(dt);
+                while((dt = queue.poll()) != null) {
+                        buffer.clear();
+                        int pointCount = points.size();
+                        int triangleCount = triangleList.size();
+                        ret = insertSteinerPoint(dt, getSteinerPoint(dt, ev), true, minLength);
+                        if(ret != null && ret.get2DLength()>2*minLength && !isSplitTerminated(ret, dt, minLength)){
+                                //The insertion has been reverted.
+                                buffer.clear();
+                                splitEncroachedEdge(ret, minLength);
+                                requeue(queue, triangleCount);
+                                queue.add(dt);
+                        } else if(points.size() > pointCount){
+                                requeue(queue, triangleCount);
                         }
                 }
-                triangleList = new LinkedList<DTriangle>(processed.values());
-                processed = null;
-                remaining = null;
+                locator = null;
+                triangleIndex = null;
                 buffer = null;
         }
+
+        /**
+         * Queue the triangles changed by the last insertion, and the ones built
+         * since triangleList had triangleCount elements.
+         * @param queue
+         * @param triangleCount 
+         */
+        private void requeue(RefinementQueue queue, int triangleCount) {
+                queue.addAll(buffer);
+                queue.addAll(triangleList.subList(triangleCount, triangleList.size()));
+        }
         
 	/**
 	 * Split the edges that have benn found to be encroached.
@@ -1377,14 +3014,16 @@ public class ConstrainedMesh implements Serializable {
                 LinkedList<DEdge> li = new LinkedList<DEdge>();
 		DTriangle left = ed.getLeft();
 		DTriangle right = ed.getRight();
-		DPoint middle = ed.getMiddle();
-		//The newly generated edge.
-		DEdge secondHalf = new DEdge(middle, ed.getEndPoint());
-		if(secondHalf.getSquared2DLength() < minLength*minLength){
+		//We check the length of the halves before building anything.
+		if(ed.getSquared2DLength() / 4 < minLength*minLength){
 			return;
 		}
+		//The middle of ed, or a point on a concentric shell with the TERMINATOR.
+		DPoint middle = getSplitPoint(ed, minLength);
+		//The newly generated edge.
+		DEdge secondHalf = new DEdge(middle, ed.getEndPoint());
 		middle.setGID(++pointGID);
-		points.add(middle);
+		appendPoint(middle);
 		secondHalf.setGID(++edgeGID);
 		DEdge ed1 = null;
 		DEdge last1 = null;
@@ -1417,6 +3056,7 @@ public class ConstrainedMesh implements Serializable {
 			int indexExc = left.getEdgeIndex(startOp1);
 			left.setEdge(indexExc, ed1);
                         left.recomputeCenter();
+                        putInBuffer(left);
 			//We set the right and left triangles of each edge properly
 			ed1.setLeft(left);
 			ed1.setRight(other1);
@@ -1443,6 +3083,7 @@ public class ConstrainedMesh implements Serializable {
 			int indexExc = right.getEdgeIndex(startOp2);
 			right.setEdge(indexExc, ed2);
                         right.recomputeCenter();
+                        putInBuffer(right);
 			//We set the right and left triangles of each edge properly
 			ed2.setRight(right);
 			ed2.setLeft(other2);
@@ -1515,17 +3156,32 @@ public class ConstrainedMesh implements Serializable {
          * @throws DelaunayError 
          */
         public final DEdge insertTriangleCircumCenter(DTriangle tri, boolean revertible, double minLength) throws DelaunayError {
-                Element container = tri.getCircumCenterContainerSafe();
-                DPoint cc = new DPoint(tri.getCircumCenter());
+                return insertSteinerPoint(tri, new DPoint(tri.getCircumCenterX(), tri.getCircumCenterY(), 0),
+                        revertible, minLength);
+        }
+
+        /**
+         * Insert pt, the Steiner point that refines tri, as insertTriangleCircumCenter
+         * does with the circumcenter.
+         * @param tri
+         * @param pt
+         *      The point to insert. Its z is interpolated in its container.
+         * @param revertible
+         * @param minLength
+         * @return
+         *      The encroached edge created by this insertion, if any.
+         * @throws DelaunayError 
+         */
+        private DEdge insertSteinerPoint(DTriangle tri, DPoint pt, boolean revertible, double minLength)
+                        throws DelaunayError {
+                Element container = tri.getContainerSafe(pt.getX(), pt.getY());
                 if(container instanceof DEdge ){
                         return (DEdge) container;
                 } else if ( container == null){
                         return null;
                 }
-                //We must interpolate the z value of the circumcenter.
-                double z = ((DTriangle) container).interpolateZ(cc);
-                cc.setZ(z);
-                DPoint pt = new DPoint(cc);
+                //We must interpolate the z value of the point.
+                pt.setZ(interpolateSteinerZ((DTriangle) container, pt));
                 if(revertible){
                         return insertIfNotEncroached(pt,(DTriangle) container, minLength);
                 } else {
@@ -1702,35 +3358,126 @@ public class ConstrainedMesh implements Serializable {
 	
 	/**
 	 * Process the flip-flap algorithm on the list of triangles
+	 * @return
+         *      true if at least one flip-flap has been performed.
 	 */
-	private void processBadEdges() throws DelaunayError {
-                LinkedList<DEdge> alreadySeen = new LinkedList<DEdge>();
-                while (!badEdgesQueueList.isEmpty()) {
-                        DEdge anEdge = badEdgesQueueList.remove(0);
-                        boolean doIt = !anEdge.isLocked() && !alreadySeen.contains(anEdge);
-                        if (doIt) {
-                                alreadySeen.add(anEdge);
+	private boolean processBadEdges() throws DelaunayError {
+                boolean swapped = false;
+                // Edges are tracked by identity : a flip-flap keeps the same
+                // DEdge instance, so membership tests stay O(1).
+                initFlipQueue(badEdgesQueueList);
+                try {
+                        for(int i = 0; i < flipQueue.size(); i++){
+                                DEdge anEdge = flipQueue.get(i);
+                                flipQueued.remove(anEdge);
                                 // We cannot process marked edges
-                                // We check if the two triangles around the edge are ok
-                                if (swapTriangle(anEdge)) {
-                                        // Add the triangle's edges to the bad edges list
-                                        LinkedList<DEdge> others = new LinkedList<DEdge>();
-                                        DTriangle aTriangle1 = anEdge.getLeft();
-                                        DTriangle aTriangle2 = anEdge.getRight();
-                                        others.add(aTriangle1.getOppositeEdge(anEdge.getStartPoint()));
-                                        others.add(aTriangle1.getOppositeEdge(anEdge.getEndPoint()));
-                                        others.add(aTriangle2.getOppositeEdge(anEdge.getStartPoint()));
-                                        others.add(aTriangle2.getOppositeEdge(anEdge.getEndPoint()));
-                                        for(DEdge ed : others){
-                                                if(ed.getLeft() != null && ed.getRight() != null
-                                                        && !badEdgesQueueList.contains(ed)){
-                                                        badEdgesQueueList.add(ed);
+                                if (!anEdge.isLocked() && flipSeen.add(anEdge)) {
+                                        // We check if the two triangles around the edge are ok
+                                        if (swapTriangle(anEdge)) {
+                                                swapped = true;
+                                                if(swappedTriangles != null){
+                                                        swappedTriangles.add(anEdge.getLeft());
+                                                        swappedTriangles.add(anEdge.getRight());
+                                                }
+                                                // Add the triangle's edges to the bad edges list
+                                                fillOppositeEdges(anEdge, flipOthers);
+                                                for(DEdge ed : flipOthers){
+                                                        if(ed.getLeft() != null && ed.getRight() != null
+                                                                && flipQueued.add(ed)){
+                                                                flipQueue.add(ed);
+                                                        }
+                                                }
+                                        }
+                                }
+                        }
+                } finally {
+                        clearFlipQueue();
+                }
+                return swapped;
+	}
+
+        /**
+         * Restore the Delaunay property around the edges of badEdges, that are
+         * the only ones that can be illegal : the edges built or bordered by
+         * the seams of a ParallelSweep, by an incremental insertion, or swapped
+         * to force a constraint. Unlike processBadEdges, an edge is checked
+         * again each time one of its triangles is swapped, so that the
+         * flip-flaps can spread as far as needed. As swapTriangle is exact and
+         * never swaps cocircular points, this ends. badEdges is emptied.
+         * @param badEdges
+         * @throws DelaunayError
+         */
+        private void legalizeEdges(Collection<DEdge> badEdges) throws DelaunayError {
+                initFlipQueue(badEdges);
+                try {
+                        for(int i = 0; i < flipQueue.size(); i++){
+                                DEdge ed = flipQueue.get(i);
+                                flipQueued.remove(ed);
+                                if(!ed.isLocked() && swapTriangle(ed)){
+                                        fillOppositeEdges(ed, flipOthers);
+                                        for(DEdge other : flipOthers){
+                                                if(other.getLeft() != null && other.getRight() != null
+                                                        && flipQueued.add(other)){
+                                                        flipQueue.add(other);
                                                 }
                                         }
                                 }
                         }
+                } finally {
+                        clearFlipQueue();
                 }
-	}
+        }
+
+        /**
+         * Move the edges of badEdges in the flip queue, once each.
+         * @param badEdges
+         */
+        private void initFlipQueue(Collection<DEdge> badEdges) {
+                for(DEdge ed : badEdges){
+                        if(flipQueued.add(ed)){
+                                flipQueue.add(ed);
+                        }
+                }
+                badEdges.clear();
+        }
+
+        /**
+         * Empty the flip queue and its sets. The queue is never polled, so it
+         * still contains all the edges that have been put in the sets : they
+         * are removed one by one, as clearing an IdentityHashMap would cost the
+         * size of its largest use.
+         */
+        private void clearFlipQueue() {
+                for(int i = 0; i < flipQueue.size(); i++){
+                        DEdge ed = flipQueue.get(i);
+                        flipQueued.remove(ed);
+                        flipSeen.remove(ed);
+                }
+                flipQueue.clear();
+        }
+
+        /**
+         * Creates an empty set of edges, based on reference equality.
+         * @return
+         */
+        private static Set<DEdge> newEdgeSet() {
+                return Collections.newSetFromMap(new IdentityHashMap<DEdge, Boolean>());
+        }
+
+        /**
+         * Fills others with the four edges surrounding the two triangles that
+         * share ed.
+         * @param ed
+         * @param others
+         */
+        static void fillOppositeEdges(DEdge ed, DEdge[] others) {
+                DTriangle left = ed.getLeft();
+                DTriangle right = ed.getRight();
+                others[0] = left.getOppositeEdge(ed.getStartPoint());
+                others[1] = left.getOppositeEdge(ed.getEndPoint());
+                others[2] = right.getOppositeEdge(ed.getStartPoint());
+                others[3] = right.getOppositeEdge(ed.getEndPoint());
+        }
         
         /**
          * This implementation of the flip flap algorithm has two main differences 
@@ -1748,33 +3495,30 @@ public class ConstrainedMesh implements Serializable {
          */
         private DEdge revertibleSwapping(LinkedList<DEdge> badEdges, Deque<DEdge> swapMemory,
                                 DPoint pt, boolean revert) throws DelaunayError {
-                LinkedList<DEdge> alreadySeen = new LinkedList<DEdge>();
-                while(!badEdges.isEmpty()){
-                        DEdge ed = badEdges.removeFirst();
-                        boolean cont = !ed.isLocked() && !alreadySeen.contains(ed);
-                        if(cont){
-                                alreadySeen.add(ed);
-                                if(swapTriangle(ed)){
-                                        DTriangle left = ed.getLeft();
-                                        DTriangle right = ed.getRight();
-                                        swapMemory.addLast(ed);
-                                        putInBuffer(left);
-                                        putInBuffer(right);
-                                        LinkedList<DEdge> others = new LinkedList<DEdge>();
-                                        others.add(left.getOppositeEdge(ed.getStartPoint()));
-                                        others.add(left.getOppositeEdge(ed.getEndPoint()));
-                                        others.add(right.getOppositeEdge(ed.getStartPoint()));
-                                        others.add(right.getOppositeEdge(ed.getEndPoint()));
-                                        for(DEdge edge : others){
-                                                if(revert && edge.isEncroachedBy(pt)){
-                                                      return edge;  
-                                                }else if(edge.getLeft() != null && edge.getRight() != null
-                                                        && !badEdges.contains(edge)){
-                                                        badEdges.add(edge);
+                initFlipQueue(badEdges);
+                try {
+                        for(int i = 0; i < flipQueue.size(); i++){
+                                DEdge ed = flipQueue.get(i);
+                                flipQueued.remove(ed);
+                                if(!ed.isLocked() && flipSeen.add(ed)){
+                                        if(swapTriangle(ed)){
+                                                swapMemory.addLast(ed);
+                                                putInBuffer(ed.getLeft());
+                                                putInBuffer(ed.getRight());
+                                                fillOppositeEdges(ed, flipOthers);
+                                                for(DEdge edge : flipOthers){
+                                                        if(revert && edge.isEncroachedBy(pt)){
+                                                              return edge;  
+                                                        }else if(edge.getLeft() != null && edge.getRight() != null
+                                                                && flipQueued.add(edge)){
+                                                                flipQueue.add(edge);
+                                                        }
                                                 }
                                         }
                                 }
                         }
+                } finally {
+                        clearFlipQueue();
                 }
                 return null;
         }
@@ -1804,18 +3548,19 @@ public class ConstrainedMesh implements Serializable {
 			p1 = ed.getStartPoint();
 			p2 = ed.getEndPoint();
 
-			// Test for each triangle if the remaining point of the
-			// other triangle is inside or not
-			// DTriangle 1 is p1, p2, p3 or p2, p1, p3
+			// The remaining point of each triangle is in the circumcircle
+			// of the other one if and only if p4 is in the circle of
+			// (p1, p2, p3). The test is exact : cocircular points are
+			// never swapped, so the flip-flaps can't loop.
 			p3 = left.getAlterPoint(p1, p2);
-			if (p3 != null && right.inCircle(p3) == 1) {
-				exchange = true;
-			}
-
-			// DTriangle 2 is p2, p1, p4 or p1, p2, p4
 			p4 = right.getAlterPoint(p1, p2);
-			if (p4 != null && left.inCircle(p4) == 1) {
-				exchange = true;
+			if (p3 != null && p4 != null) {
+				double o = Predicates.orient2d(p1, p2, p3);
+				if (o > 0) {
+					exchange = Predicates.inCircle(p1, p2, p3, p4) > 0;
+				} else if (o < 0) {
+					exchange = Predicates.inCircle(p2, p1, p3, p4) > 0;
+				}
 			}
 			if (p3 != p4 && exchange ) {
                                 if( canSwap(ed)){
@@ -1829,55 +3574,12 @@ public class ConstrainedMesh implements Serializable {
 	}
         
         /**
-         * Put the given triangle in the buffer map. We use the processed attribute of the 
-         * triangle to know ig it is in the good strucutre, ie in processed. Keep
-         * it coherent, so...
+         * Put the given triangle in the buffer, if a refinement is running.
          * @param tri 
          */
         private void putInBuffer(DTriangle tri) {
-                if(buffer != null && tri.isProcessed()){
-                        //While refining the mesh, all the triangles
-                        //that change during the swap operations must be 
-                        //added to the buffer - If they are not in the 
-                        //processed map anymore.
-                        buffer.put(tri.getGID(), tri);
-                }
-        }
-        
-        /**
-         * Transfer all the entries that are present in buffer in remaining.
-         */
-        private void fromBufferToRemaining() {
-                Set<Map.Entry<Integer, DTriangle>> entries = buffer.entrySet();
-                Iterator<Map.Entry<Integer, DTriangle>> iter = entries.iterator();
-                while(iter.hasNext()){
-                        Map.Entry<Integer, DTriangle> ent = iter.next();
-                        ent.getValue().setProcessed(false);
-                        remaining.put(ent.getKey(), ent.getValue());
-                        processed.remove(ent.getKey());
-                }
-        }
-        
-        /**
-         * If tri is in remaining, remove it from this map and put it in processed.
-         * This method set the <code>processed</code> property of the triangle to true.
-         * @param tri 
-         */
-        private void putInProcessed(DTriangle tri) {
-                int gid = tri.getGID();
-                if(remaining.remove(gid) != null){
-                        processed.put(gid, tri);
-                        tri.setProcessed(true);
-                }
-        }
-        
-        /**
-         * Take (and remove) all the trinalges in triangleList to feed the Map remaining.
-         */
-        private void fillRemainingFromTriangles(){
-                while(!triangleList.isEmpty()){
-                        DTriangle tem = triangleList.remove(0);
-                        remaining.put(tem.getGID(), tem);
+                if(buffer != null){
+                        buffer.add(tri);
                 }
         }
         
@@ -1894,8 +3596,10 @@ public class ConstrainedMesh implements Serializable {
                 DPoint p4 = right.getAlterPoint(p1, p2);
                 final DEdge anEdge11 = left.getOppositeEdge(p2);
                 final DEdge anEdge22 = left.getOppositeEdge(p1);
-                boolean err1 = (anEdge11.isLeft(p4) && anEdge11.isLeft(p2)) || (anEdge11.isRight(p4) && anEdge11.isRight(p2));
-                boolean err2 = (anEdge22.isLeft(p4) && anEdge22.isLeft(p1)) || (anEdge22.isRight(p4) && anEdge22.isRight(p1));
+                int side4 = anEdge11.getSide(p4);
+                boolean err1 = side4 != 0 && side4 == anEdge11.getSide(p2);
+                side4 = anEdge22.getSide(p4);
+                boolean err2 = side4 != 0 && side4 == anEdge22.getSide(p1);
                 return err1 && err2;
         }
         
@@ -1918,6 +3622,10 @@ public class ConstrainedMesh implements Serializable {
                 if (anEdge11==null || anEdge12==null || anEdge21==null || anEdge22==null) {
                         throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_MISC, "Couldn't swap the triangles.");
                 } else {
+                        if(meshUpdate != null){
+                                meshUpdate.touch(left);
+                                meshUpdate.touch(right);
+                        }
                         ed.setStartPoint(p3);
                         ed.setEndPoint(p4);
                         left.setEdge(0, ed);
@@ -2221,7 +3929,7 @@ public class ConstrainedMesh implements Serializable {
                 }
                 dt.recomputeCenter();
                 //remove the point :
-                points.remove(points.size()-1);
+                removeLastPoint();
                 //remove the edges
                 edges.remove(edges.size()-1);
                 edges.remove(edges.size()-1);
@@ -2275,7 +3983,7 @@ public class ConstrainedMesh implements Serializable {
                         triangleList.remove(triangleList.size()-1);
                         forceCoherence(right);
                 }
-                points.remove(points.size()-1);
+                removeLastPoint();
         }
         
         /**
@@ -2410,13 +4118,15 @@ public class ConstrainedMesh implements Serializable {
                         container.setEdge(2, e3);
                 }
                 container.forceCoherenceWithEdges();
+                container.recomputeCenter();
+                putInBuffer(container);
                 addTriangle(tri2);
                 edges.add(e1);
                 edges.add(e2);
                 edges.add(e3);
                 pointGID++;
                 pt.setGID(pointGID);
-                points.add(pt);
+                appendPoint(pt);
                 //e1, e2 and e3 can't be encroached, as they are not locked, and they
                 //can't be on the boundary of the mesh.
                 //they can't be bad (yet) either.
@@ -2503,17 +4213,24 @@ public class ConstrainedMesh implements Serializable {
                 //Don't forget to add the new point..
                 pointGID++;
                 pt.setGID(pointGID);
-                points.add(pt);
-                //...and the other part of the input edge
+                appendPoint(pt);
+                //...and the other part of the input edge, that is a constraint
+                //if contEdge was.
                 edgeGID++;
                 otherPart.setGID(edgeGID);
+                otherPart.setProperty(contEdge.getProperty());
                 edges.add(otherPart);
+                if(contEdge.isLocked()){
+                        otherPart.setLocked(true);
+                        constraintEdges.add(otherPart);
+                }
                 //At this stage, left and right are not valid triangles anymore.
                 contEdge.setEndPoint(pt);
                 //We must still return the first encroached edge we find, if any.
                 //Analyze left first.
                 if(left != null){
                         left.recomputeCenter();
+                        putInBuffer(left);
                         if(l1.isEncroached()){
                                 return l1;
                         } else if(l2.isEncroached()){
@@ -2523,6 +4240,7 @@ public class ConstrainedMesh implements Serializable {
                 //Then analyze right.
                 if(right != null){
                         right.recomputeCenter();
+                        putInBuffer(right);
                         if(r1.isEncroached()){
                                 return r1;
                         } else if(r2.isEncroached()){
@@ -2532,6 +4250,588 @@ public class ConstrainedMesh implements Serializable {
                 return null;
         }
         
+        /**
+         * Insert a point in the computed mesh. The triangle that contains it is
+         * split, and the Delaunay property is restored with flip-flaps around
+         * the new point. If pt is outside the mesh, it is linked to the
+         * boundary edges it can see.
+         * @param pt
+         * @return
+         *      The triangles that have been created and removed. Nothing is
+         *      done if pt is already a vertex of the mesh.
+         * @throws DelaunayError
+         *      If the mesh has not been computed yet.
+         */
+        public final MeshUpdate insertPoint(DPoint pt) throws DelaunayError {
+                return insertPoints(Collections.singletonList(pt));
+        }
+
+        /**
+         * Insert some points in the computed mesh, one after the other, as
+         * insertPoint does. The points are sorted first, so that each one is
+         * searched from a triangle close to the previous one.
+         * @param pts
+         * @return
+         *      The triangles that have been created and removed by all the
+         *      insertions.
+         * @throws DelaunayError
+         *      If the mesh has not been computed yet.
+         */
+        public final MeshUpdate insertPoints(List<DPoint> pts) throws DelaunayError {
+                MeshUpdate ret = startUpdate();
+                try {
+                        List<DPoint> sorted = new ArrayList<DPoint>(pts);
+                        Collections.sort(sorted);
+                        for(DPoint pt : sorted){
+                                insertVertex(pt);
+                        }
+                } finally {
+                        endUpdate();
+                }
+                return ret;
+        }
+
+        /**
+         * Insert a new constraint in the computed mesh. Its extremities are
+         * inserted as points, then the edges it crosses are swapped until it
+         * becomes an edge of the mesh, and the Delaunay property is restored
+         * around it.<p></p>
+         * The constraint is split where it meets a vertex of the mesh, and where it
+         * crosses an existing constraint - both constraints are then split on a
+         * new point. constraint itself is not added to the mesh : the locked edges
+         * that replace it are added to the constraint edges, with its property.
+         * @param constraint
+         * @return
+         *      The triangles that have been created and removed.
+         * @throws DelaunayError
+         *      If the mesh has not been computed yet.
+         */
+        public final MeshUpdate insertConstraintEdge(DEdge constraint) throws DelaunayError {
+                MeshUpdate ret = startUpdate();
+                try {
+                        DPoint start = insertVertex(constraint.getStartPoint());
+                        DPoint end = insertVertex(constraint.getEndPoint());
+                        insertSegment(start, end, constraint.getProperty());
+                } finally {
+                        endUpdate();
+                }
+                return ret;
+        }
+
+        /**
+         * Prepare the mesh for an incremental insertion.
+         * @return
+         *      The MeshUpdate that will record the changes.
+         * @throws DelaunayError
+         */
+        private MeshUpdate startUpdate() throws DelaunayError {
+                if(!meshComputed){
+                        throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_NOT_GENERATED);
+                }
+                getPointLocator();
+                meshUpdate = new MeshUpdate();
+                return meshUpdate;
+        }
+
+        /**
+         * Forget the changes recorded during the last incremental insertion.
+         */
+        private void endUpdate() {
+                meshUpdate = null;
+                triangleIndex = null;
+        }
+
+        /**
+         * Insert pt in the mesh, if it is not a vertex yet. The changes are
+         * recorded in meshUpdate, if any.
+         * @param pt
+         * @return
+         *      The vertex of the mesh that is equal to pt, ie pt itself if it has
+         *      been inserted.
+         * @throws DelaunayError
+         */
+        private DPoint insertVertex(DPoint pt) throws DelaunayError {
+                Element found = locator.locate(pt);
+                Deque<DEdge> badEdges = insertedEdges;
+                badEdges.clear();
+                if(found instanceof DTriangle){
+                        DTriangle container = (DTriangle) found;
+                        for(int i = 0; i < DTriangle.PT_NB; i++){
+                                if(container.getPoint(i).equals2D(pt)){
+                                        locator.setHint(container);
+                                        return container.getPoint(i);
+                                }
+                        }
+                        DEdge contEdge = container.getContainingEdge(pt);
+                        if(contEdge != null){
+                                if(meshUpdate != null && contEdge.getLeft() != null){
+                                        meshUpdate.touch(contEdge.getLeft());
+                                }
+                                if(meshUpdate != null && contEdge.getRight() != null){
+                                        meshUpdate.touch(contEdge.getRight());
+                                }
+                                initPointOnEdge(pt, contEdge, badEdges);
+                        } else {
+                                if(meshUpdate != null){
+                                        meshUpdate.touch(container);
+                                }
+                                initPointInTriangle(pt, container, badEdges);
+                        }
+                        //container still has pt as a vertex after the flip-flaps.
+                        locator.setHint(container);
+                } else if(found instanceof DEdge){
+                        insertOutsideHull(pt, (DEdge) found, badEdges);
+                } else {
+                        throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_POINT_NOT_FOUND);
+                }
+                pointsSorted = false;
+                if(meshUpdate != null){
+                        meshUpdate.addPoint(pt);
+                }
+                legalizeEdges(badEdges);
+                return pt;
+        }
+
+        /**
+         * Link pt, that lies outside the mesh, to all the boundary edges it can
+         * see. hull is one of them. The boundary edges are put in badEdges.
+         * @param pt
+         * @param hull
+         * @param badEdges
+         * @throws DelaunayError
+         */
+        private void insertOutsideHull(DPoint pt, DEdge hull, Deque<DEdge> badEdges) throws DelaunayError {
+                LinkedList<DEdge> chain = new LinkedList<DEdge>();
+                chain.add(hull);
+                //We extend the chain of visible edges on both sides of hull.
+                DPoint last = hull.getEndPoint();
+                DEdge next = nextHullEdge(hull, last);
+                while(!chain.contains(next) && isVisibleFromOutside(next, pt)){
+                        chain.addLast(next);
+                        last = next.getStartPoint() == last ? next.getEndPoint() : next.getStartPoint();
+                        next = nextHullEdge(next, last);
+                }
+                DPoint first = hull.getStartPoint();
+                next = nextHullEdge(hull, first);
+                while(!chain.contains(next) && isVisibleFromOutside(next, pt)){
+                        chain.addFirst(next);
+                        first = next.getStartPoint() == first ? next.getEndPoint() : next.getStartPoint();
+                        next = nextHullEdge(next, first);
+                }
+                pointGID++;
+                pt.setGID(pointGID);
+                appendPoint(pt);
+                //We build a triangle with each edge of the chain.
+                DPoint current = first;
+                DEdge previous = newMeshEdge(pt, current);
+                for(DEdge ed : chain){
+                        current = ed.getStartPoint() == current ? ed.getEndPoint() : ed.getStartPoint();
+                        DEdge spoke = newMeshEdge(pt, current);
+                        DTriangle tri = new DTriangle(ed, previous, spoke);
+                        addTriangle(tri);
+                        locator.setHint(tri);
+                        badEdges.add(ed);
+                        previous = spoke;
+                }
+        }
+
+        /**
+         * Get the boundary edge of the mesh that follows hull around its extremity
+         * pt.
+         * @param hull
+         *      An edge of the boundary of the mesh.
+         * @param pt
+         *      An extremity of hull.
+         * @return
+         */
+        private static DEdge nextHullEdge(DEdge hull, DPoint pt) {
+                DEdge current = hull;
+                DTriangle tri = hull.getLeft() == null ? hull.getRight() : hull.getLeft();
+                while(true){
+                        current = otherEdgeAt(tri, current, pt);
+                        DTriangle other = current.getLeft() == tri ? current.getRight() : current.getLeft();
+                        if(other == null){
+                                return current;
+                        }
+                        tri = other;
+                }
+        }
+
+        /**
+         * Get the edge of tri that is not ed, and that has pt as an extremity.
+         * @param tri
+         * @param ed
+         * @param pt
+         * @return
+         */
+        private static DEdge otherEdgeAt(DTriangle tri, DEdge ed, DPoint pt) {
+                for(int i = 0; i < DTriangle.PT_NB; i++){
+                        DEdge cand = tri.getEdge(i);
+                        if(cand != ed && (cand.getStartPoint() == pt || cand.getEndPoint() == pt)){
+                                return cand;
+                        }
+                }
+                return null;
+        }
+
+        /**
+         * Check if pt lies strictly on the outer side of the boundary edge hull.
+         * @param hull
+         * @param pt
+         * @return
+         */
+        private static boolean isVisibleFromOutside(DEdge hull, DPoint pt) {
+                return hull.getLeft() == null ? hull.isLeft(pt) : hull.isRight(pt);
+        }
+
+        /**
+         * Create a new edge of the mesh, between start and end.
+         * @param start
+         * @param end
+         * @return
+         */
+        private DEdge newMeshEdge(DPoint start, DPoint end) {
+                DEdge ed = new DEdge(start, end);
+                edgeGID++;
+                ed.setGID(edgeGID);
+                edges.add(ed);
+                return ed;
+        }
+
+        /**
+         * Force the segment [start end] in the mesh, as one or more locked edges.
+         * start and end must be vertices of the mesh.
+         * @param start
+         * @param end
+         * @param property
+         * @throws DelaunayError
+         */
+        private void insertSegment(DPoint start, DPoint end, int property) throws DelaunayError {
+                DPoint current = start;
+                while(current != end){
+                        current = insertSegmentPart(current, end, property);
+                }
+        }
+
+        /**
+         * Force in the mesh the part of [start end] that goes from start to the
+         * first vertex found on it.
+         * @param start
+         * @param end
+         * @param property
+         * @return
+         *      The vertex that ends the inserted part.
+         * @throws DelaunayError
+         */
+        private DPoint insertSegmentPart(DPoint start, DPoint end, int property) throws DelaunayError {
+                DEdge seg = new DEdge(start, end);
+                Element found = locator.locate(start);
+                if(!(found instanceof DTriangle) || !((DTriangle) found).belongsTo(start)){
+                        throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_POINT_NOT_FOUND);
+                }
+                //We look for an edge going from start along seg, or for the triangle
+                //of start that is crossed by seg.
+                DEdge crossed = null;
+                DTriangle tri = null;
+                for(DTriangle around : trianglesAround((DTriangle) found, start)){
+                        for(int i = 0; i < DTriangle.PT_NB; i++){
+                                DEdge ed = around.getEdge(i);
+                                if(ed.getStartPoint() == start || ed.getEndPoint() == start){
+                                        DPoint other = ed.getStartPoint() == start ? ed.getEndPoint() : ed.getStartPoint();
+                                        if(other == end || seg.contains(other)){
+                                                lockConstraint(ed, property);
+                                                return other;
+                                        }
+                                }
+                        }
+                        DEdge op = around.getOppositeEdge(start);
+                        if(crossed == null && crossesSegment(op, start, end)){
+                                crossed = op;
+                                tri = around;
+                        }
+                }
+                if(crossed == null){
+                        throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_INCORRECT_TOPOLOGY);
+                }
+                //We walk along seg until we find a vertex on it.
+                List<DEdge> crossedEdges = new ArrayList<DEdge>();
+                DPoint stop = null;
+                while(stop == null){
+                        if(crossed.isLocked()){
+                                DPoint inter = insertVertex(getCrossingPoint(crossed, start, end));
+                                insertSegment(start, inter, property);
+                                return inter;
+                        }
+                        crossedEdges.add(crossed);
+                        tri = crossed.getLeft() == tri ? crossed.getRight() : crossed.getLeft();
+                        DPoint op = tri.getOppositePoint(crossed);
+                        if(op == end || seg.contains(op)){
+                                stop = op;
+                        } else if(orientation(start, end, op) * orientation(start, end, crossed.getStartPoint()) < 0){
+                                crossed = tri.getOppositeEdge(crossed.getEndPoint());
+                        } else {
+                                crossed = tri.getOppositeEdge(crossed.getStartPoint());
+                        }
+                }
+                Deque<DEdge> badEdges = insertedEdges;
+                badEdges.clear();
+                for(DEdge ed : swapCrossedEdges(crossedEdges, start, stop)){
+                        if(ed.isExtremity(start) && ed.isExtremity(stop)){
+                                lockConstraint(ed, property);
+                        } else {
+                                badEdges.add(ed);
+                        }
+                }
+                legalizeEdges(badEdges);
+                return stop;
+        }
+
+        /**
+         * Swap the edges that cross [start stop] until none of them crosses it.
+         * One of the swapped edges then goes from start to stop.
+         * @param crossedEdges
+         *      The edges crossed by [start stop], from start to stop.
+         * @param start
+         * @param stop
+         * @return
+         *      The swapped edges.
+         * @throws DelaunayError
+         */
+        private List<DEdge> swapCrossedEdges(List<DEdge> crossedEdges, DPoint start, DPoint stop)
+                        throws DelaunayError {
+                LinkedList<DEdge> queue = new LinkedList<DEdge>(crossedEdges);
+                List<DEdge> swapped = new ArrayList<DEdge>();
+                int maxIter = crossedEdges.size() * crossedEdges.size() * MAXITER + MAXITER;
+                while(!queue.isEmpty()){
+                        if(--maxIter < 0){
+                                throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_INTERNAL_ERROR,
+                                        "Can't force the constraint in the mesh.");
+                        }
+                        DEdge ed = queue.removeFirst();
+                        if(isConvexQuadrilateral(ed)){
+                                flipFlap(ed);
+                                if(crossesSegment(ed, start, stop)){
+                                        queue.addLast(ed);
+                                } else {
+                                        swapped.add(ed);
+                                }
+                        } else {
+                                queue.addLast(ed);
+                        }
+                }
+                return swapped;
+        }
+
+        /**
+         * Force constraint, that crosses a seam of a ParallelSweep, in the merged
+         * mesh. The edges it crosses are swapped, the edge that joins its
+         * extremities is replaced by constraint itself, as the sweep would
+         * have done, and the Delaunay property is restored around it.
+         * @param constraint
+         * @param loc
+         *      A locator on the merged mesh.
+         * @param replaced
+         *      The edges of the mesh replaced by a constraint are added to this set.
+         * @return
+         *      false if a vertex of the mesh, or another constraint, lies on
+         *      constraint. The mesh is then left in an incoherent state.
+         * @throws DelaunayError
+         */
+        private boolean insertSeamConstraint(DEdge constraint, PointLocator loc, Set<DEdge> replaced)
+                        throws DelaunayError {
+                DPoint start = constraint.getStartPoint();
+                DPoint end = constraint.getEndPoint();
+                Element found = loc.locate(start);
+                if(!(found instanceof DTriangle) || !((DTriangle) found).belongsTo(start)){
+                        return false;
+                }
+                DEdge crossed = null;
+                DTriangle tri = null;
+                for(DTriangle around : trianglesAround((DTriangle) found, start)){
+                        for(int i = 0; i < DTriangle.PT_NB; i++){
+                                DEdge ed = around.getEdge(i);
+                                if(ed.isExtremity(start) && ed.isExtremity(end)){
+                                        substituteConstraint(ed, constraint, replaced);
+                                        return true;
+                                }
+                        }
+                        DEdge op = around.getOppositeEdge(start);
+                        if(crossed == null && crossesSegment(op, start, end)){
+                                crossed = op;
+                                tri = around;
+                        }
+                }
+                if(crossed == null){
+                        //A vertex lies on the constraint, next to start.
+                        return false;
+                }
+                List<DEdge> crossedEdges = new ArrayList<DEdge>();
+                while(true){
+                        if(crossed.isLocked()){
+                                return false;
+                        }
+                        crossedEdges.add(crossed);
+                        tri = crossed.getLeft() == tri ? crossed.getRight() : crossed.getLeft();
+                        DPoint op = tri.getOppositePoint(crossed);
+                        if(op == end){
+                                break;
+                        }
+                        double o = orientation(start, end, op);
+                        if(o == 0){
+                                return false;
+                        } else if(o * orientation(start, end, crossed.getStartPoint()) < 0){
+                                crossed = tri.getOppositeEdge(crossed.getEndPoint());
+                        } else {
+                                crossed = tri.getOppositeEdge(crossed.getStartPoint());
+                        }
+                }
+                Deque<DEdge> badEdges = insertedEdges;
+                badEdges.clear();
+                for(DEdge ed : swapCrossedEdges(crossedEdges, start, end)){
+                        if(ed.isExtremity(start) && ed.isExtremity(end)){
+                                substituteConstraint(ed, constraint, replaced);
+                        } else {
+                                badEdges.add(ed);
+                        }
+                }
+                legalizeEdges(badEdges);
+                return true;
+        }
+
+        /**
+         * Put constraint in the triangles of ed, that has the same extremities.
+         * @param ed
+         * @param constraint
+         * @param replaced
+         */
+        private static void substituteConstraint(DEdge ed, DEdge constraint, Set<DEdge> replaced) {
+                DTriangle left = ed.getLeft();
+                DTriangle right = ed.getRight();
+                for(DTriangle tri : new DTriangle[]{left, right}){
+                        if(tri != null){
+                                for(int i = 0; i < DTriangle.PT_NB; i++){
+                                        if(tri.getEdge(i) == ed){
+                                                tri.setEdge(i, constraint);
+                                        }
+                                }
+                        }
+                }
+                if(ed.getStartPoint() == constraint.getStartPoint()){
+                        constraint.setLeft(left);
+                        constraint.setRight(right);
+                } else {
+                        constraint.setLeft(right);
+                        constraint.setRight(left);
+                }
+                replaced.add(ed);
+        }
+
+        /**
+         * Get the triangles that share the vertex pt with tri, tri included.
+         * @param tri
+         * @param pt
+         * @return
+         */
+        private static List<DTriangle> trianglesAround(DTriangle tri, DPoint pt) {
+                List<DTriangle> ret = new ArrayList<DTriangle>();
+                ret.add(tri);
+                DEdge first = otherEdgeAt(tri, null, pt);
+                //We turn around pt in one direction...
+                DTriangle current = tri;
+                DEdge ed = first;
+                DTriangle next = ed.getLeft() == current ? ed.getRight() : ed.getLeft();
+                while(next != null && next != tri){
+                        ret.add(next);
+                        ed = otherEdgeAt(next, ed, pt);
+                        current = next;
+                        next = ed.getLeft() == current ? ed.getRight() : ed.getLeft();
+                }
+                //...and in the other one if we have met the boundary of the mesh.
+                if(next == null){
+                        current = tri;
+                        ed = otherEdgeAt(tri, first, pt);
+                        next = ed.getLeft() == current ? ed.getRight() : ed.getLeft();
+                        while(next != null){
+                                ret.add(next);
+                                ed = otherEdgeAt(next, ed, pt);
+                                current = next;
+                                next = ed.getLeft() == current ? ed.getRight() : ed.getLeft();
+                        }
+                }
+                return ret;
+        }
+
+        /**
+         * Lock ed, and add it to the constraints of the mesh.
+         * @param ed
+         * @param property
+         */
+        private void lockConstraint(DEdge ed, int property) {
+                ed.addProperty(property);
+                if(!ed.isLocked()){
+                        ed.setLocked(true);
+                        fixConstraintDirection(ed);
+                        constraintEdges.add(ed);
+                }
+        }
+
+        /**
+         * Check if ed crosses the segment [start end], out of their extremities.
+         * @param ed
+         * @param start
+         * @param end
+         * @return
+         */
+        private static boolean crossesSegment(DEdge ed, DPoint start, DPoint end) {
+                return orientation(start, end, ed.getStartPoint()) * orientation(start, end, ed.getEndPoint()) < 0
+                        && orientation(ed.getStartPoint(), ed.getEndPoint(), start)
+                                * orientation(ed.getStartPoint(), ed.getEndPoint(), end) < 0;
+        }
+
+        /**
+         * Get the point where [start end] crosses ed. Its z is interpolated on ed.
+         * @param ed
+         * @param start
+         * @param end
+         * @return
+         * @throws DelaunayError
+         */
+        private static DPoint getCrossingPoint(DEdge ed, DPoint start, DPoint end) throws DelaunayError {
+                DPoint p1 = ed.getStartPoint();
+                DPoint p2 = ed.getEndPoint();
+                double o1 = orientation(start, end, p1);
+                double t = o1 / (o1 - orientation(start, end, p2));
+                return new DPoint(p1.getX() + t * (p2.getX() - p1.getX()),
+                        p1.getY() + t * (p2.getY() - p1.getY()),
+                        p1.getZ() + t * (p2.getZ() - p1.getZ()));
+        }
+
+        /**
+         * Check if the two triangles that share ed form a strictly convex
+         * quadrilateral, ie if ed can be swapped.
+         * @param ed
+         * @return
+         */
+        private static boolean isConvexQuadrilateral(DEdge ed) {
+                DPoint p1 = ed.getStartPoint();
+                DPoint p2 = ed.getEndPoint();
+                DPoint p3 = ed.getLeft().getOppositePoint(ed);
+                DPoint p4 = ed.getRight().getOppositePoint(ed);
+                return orientation(p3, p4, p1) * orientation(p3, p4, p2) < 0;
+        }
+
+        /**
+         * The orientation of the triangle (p1, p2, p3), with an exact sign : positive if p3 is
+         * on the left of (p1 p2).
+         * @param p1
+         * @param p2
+         * @param p3
+         * @return
+         */
+        private static double orientation(DPoint p1, DPoint p2, DPoint p3) {
+                return Predicates.orient2d(p1, p2, p3);
+        }
+
         /**
          * Ensure points are at least at epsilon from other points
          * NB : points are supposed to be already sorted
@@ -2620,6 +4920,7 @@ public class ConstrainedMesh implements Serializable {
 	 */
 	//NO-SONAR
 	public final void displayObject(Graphics g) {
+		ensureObjectMesh();
 		try {
 			Envelope theBox = getBoundingBox();
 			double scaleX, scaleY;
@@ -2689,5 +4990,10 @@ public class ConstrainedMesh implements Serializable {
 		// our "pseudo-constructor"
 		in.defaultReadObject();
 		badEdgesQueueList = new LinkedList<DEdge>();
+		flipQueue = new ArrayList<DEdge>();
+		flipQueued = newEdgeSet();
+		flipSeen = newEdgeSet();
+		flipOthers = new DEdge[4];
+		insertedEdges = new ArrayDeque<DEdge>();
 	}
 }
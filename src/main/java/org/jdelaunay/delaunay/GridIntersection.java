@@ -0,0 +1,544 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.Element;
+import org.jdelaunay.delaunay.tools.Kernels;
+import org.jdelaunay.delaunay.tools.Predicates;
+import org.jdelaunay.delaunay.tools.Tools;
+
+/**
+ * Force the integrity of the constraints using a uniform grid : the constraint
+ * edges are split where they cross each other, and where they pass through a
+ * point of the mesh, as with the sweeps.<p></p>
+ *
+ * The edges are bucketed in the cells of a grid covered by their bounding box,
+ * and each point in the cell that contains it. The cells are then processed in
+ * parallel : each pair of edges of a cell is tested with predicates that don't
+ * modify the edges, and that can only give false positives. A pair is only
+ * tested in the cell that contains the lower left corner of the intersection of
+ * the bounding boxes, so that it is tested once.<p></p>
+ *
+ * The intersections of the candidate pairs are then computed sequentially,
+ * in the order of the edge indices, with DEdge.getIntersection(ed, weights) :
+ * this method can modify the z of the points, and the intersection points must
+ * be merged the same way whatever the number of threads.
+ *
+ * @author alexis
+ */
+final class GridIntersection {
+
+	private final List<DPoint> points;
+	private final List<DEdge> constraints;
+	private final Map<Integer, Integer> weights;
+	private final int threads;
+	private double minX;
+	private double minY;
+	private double cellWidth;
+	private double cellHeight;
+	private int nx;
+	private int ny;
+	private final List<DPoint> newPoints = new ArrayList<DPoint>();
+
+	/**
+	 * Prepare the computation.
+	 * @param points
+	 *      The points of the mesh, sorted and without duplicates.
+	 * @param constraints
+	 *      The constraint edges. Their extremities must be in points.
+	 * @param weights
+	 *      The weights of the properties of the edges.
+	 * @param threads
+	 *      The number of threads used to search the candidate intersections.
+	 */
+	GridIntersection(List<DPoint> points, List<DEdge> constraints, Map<Integer, Integer> weights, int threads) {
+		this.points = points;
+		this.constraints = constraints;
+		this.weights = weights;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Get the intersection points that have been added. They are not in the
+	 * list of points given to the constructor.
+	 * @return
+	 *      The new points, sorted.
+	 */
+	List<DPoint> getNewPoints() {
+		return newPoints;
+	}
+
+	/**
+	 * Split the constraints.
+	 * @return
+	 *      The constraint edges, split at the intersection points, sorted with
+	 *      their left point and without duplicates. The edges that are not split
+	 *      are returned as is. When several edges overlap, their common parts
+	 *      are merged and receive the properties of all of them.
+	 * @throws DelaunayError
+	 */
+	List<DEdge> compute() throws DelaunayError {
+		if (constraints.isEmpty()) {
+			return new ArrayList<DEdge>(constraints);
+		}
+		int[][] cells = buildCells();
+		int[][] cellPoints = bucketPoints();
+		long[][] found = searchCandidates(cells, cellPoints);
+		Map<DEdge, List<DPoint>> splits = new IdentityHashMap<DEdge, List<DPoint>>();
+		for (long code : found[1]) {
+			addSplit(splits, constraints.get((int) (code >>> 32)), points.get((int) code));
+		}
+		processPairs(found[0], splits);
+		for (Map.Entry<DEdge, List<DPoint>> entry : splits.entrySet()) {
+			entry.setValue(sortSplits(entry.getKey(), entry.getValue()));
+		}
+		return BentleyOttmann.buildEdges(constraints, splits);
+	}
+
+	/**
+	 * Compute the grid, with about one cell per edge, and fill its cells with
+	 * the indices of the edges whose bounding box, enlarged with Tools.EPSILON,
+	 * overlaps them.
+	 * @return
+	 *      the indices of the edges of each cell, the cell (i, j) being at
+	 *      index j * nx + i.
+	 */
+	private int[][] buildCells() {
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		minX = Double.POSITIVE_INFINITY;
+		minY = Double.POSITIVE_INFINITY;
+		for (DEdge ed : constraints) {
+			DPoint left = ed.getPointLeft();
+			DPoint right = ed.getPointRight();
+			minX = Math.min(minX, left.getX());
+			maxX = Math.max(maxX, right.getX());
+			minY = Math.min(minY, Math.min(left.getY(), right.getY()));
+			maxY = Math.max(maxY, Math.max(left.getY(), right.getY()));
+		}
+		int side = Math.max(1, (int) Math.sqrt(constraints.size()));
+		nx = side;
+		ny = side;
+		cellWidth = Math.max((maxX - minX) / nx, Tools.EPSILON);
+		cellHeight = Math.max((maxY - minY) / ny, Tools.EPSILON);
+		int[] counts = new int[nx * ny];
+		for (DEdge ed : constraints) {
+			int[] r = getCellRange(ed);
+			for (int j = r[2]; j <= r[3]; j++) {
+				for (int i = r[0]; i <= r[1]; i++) {
+					counts[j * nx + i]++;
+				}
+			}
+		}
+		int[][] cells = new int[nx * ny][];
+		for (int c = 0; c < cells.length; c++) {
+			cells[c] = new int[counts[c]];
+			counts[c] = 0;
+		}
+		for (int k = 0; k < constraints.size(); k++) {
+			int[] r = getCellRange(constraints.get(k));
+			for (int j = r[2]; j <= r[3]; j++) {
+				for (int i = r[0]; i <= r[1]; i++) {
+					int c = j * nx + i;
+					cells[c][counts[c]++] = k;
+				}
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 * Put the index of each point that is in the grid in the cell that
+	 * contains it.
+	 * @return
+	 *      the indices of the points of each cell.
+	 */
+	private int[][] bucketPoints() {
+		int[] counts = new int[nx * ny];
+		int[] pointCells = new int[points.size()];
+		for (int k = 0; k < points.size(); k++) {
+			pointCells[k] = getCell(points.get(k));
+			if (pointCells[k] >= 0) {
+				counts[pointCells[k]]++;
+			}
+		}
+		int[][] ret = new int[nx * ny][];
+		for (int c = 0; c < ret.length; c++) {
+			ret[c] = new int[counts[c]];
+			counts[c] = 0;
+		}
+		for (int k = 0; k < points.size(); k++) {
+			int c = pointCells[k];
+			if (c >= 0) {
+				ret[c][counts[c]++] = k;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Search, in parallel, the pairs of edges that may intersect and the
+	 * points that lie inside an edge.
+	 * @param cells
+	 * @param cellPoints
+	 * @return
+	 *      The sorted codes (i &lt;&lt; 32 | j) of the pairs of edges (i &lt; j)
+	 *      that may intersect, and the sorted codes (e &lt;&lt; 32 | p) of the
+	 *      edges e that contain the point p.
+	 * @throws DelaunayError
+	 */
+	private long[][] searchCandidates(int[][] cells, int[][] cellPoints) throws DelaunayError {
+		int taskCount = Math.min(threads, cells.length);
+		List<CellTask> tasks = new ArrayList<CellTask>(taskCount);
+		for (int t = 0; t < taskCount; t++) {
+			tasks.add(new CellTask(cells, cellPoints, t * cells.length / taskCount,
+				(t + 1) * cells.length / taskCount));
+		}
+		if (taskCount == 1) {
+			tasks.get(0).call();
+		} else {
+			runTasks(tasks);
+		}
+		int pairCount = 0;
+		int pointCount = 0;
+		for (CellTask task : tasks) {
+			pairCount += task.pairs.size();
+			pointCount += task.inside.size();
+		}
+		long[] pairs = new long[pairCount];
+		long[] inside = new long[pointCount];
+		pairCount = 0;
+		pointCount = 0;
+		for (CellTask task : tasks) {
+			pairCount = task.pairs.copyTo(pairs, pairCount);
+			pointCount = task.inside.copyTo(inside, pointCount);
+		}
+		Arrays.sort(pairs);
+		Arrays.sort(inside);
+		return new long[][]{pairs, inside};
+	}
+
+	/**
+	 * Run the tasks in a thread pool, and wait for all of them.
+	 * @param tasks
+	 * @throws DelaunayError
+	 */
+	private void runTasks(List<CellTask> tasks) throws DelaunayError {
+		ExecutorService exec = Executors.newFixedThreadPool(tasks.size());
+		try {
+			List<Future<CellTask>> futures = new ArrayList<Future<CellTask>>(tasks.size());
+			for (CellTask task : tasks) {
+				futures.add(exec.submit(task));
+			}
+			for (Future<CellTask> f : futures) {
+				f.get();
+			}
+		} catch (ExecutionException e) {
+			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_INTERNAL_ERROR,
+				"Failed to search the intersections of the constraints : " + e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_INTERNAL_ERROR,
+				"Interrupted while searching the intersections of the constraints");
+		} finally {
+			exec.shutdown();
+		}
+	}
+
+	/**
+	 * Compute the intersections of the candidate pairs, and register the
+	 * points where the edges must be split.
+	 * @param pairs
+	 * @param splits
+	 * @throws DelaunayError
+	 */
+	private void processPairs(long[] pairs, Map<DEdge, List<DPoint>> splits) throws DelaunayError {
+		NavigableSet<DPoint> created = new TreeSet<DPoint>();
+		Map<DPoint, Integer> pointWeights = new IdentityHashMap<DPoint, Integer>();
+		for (long code : pairs) {
+			DEdge e1 = constraints.get((int) (code >>> 32));
+			DEdge e2 = constraints.get((int) code);
+			//As in the sweep, the intersection is computed from the edge that
+			//is under the other one before they cross.
+			DEdge lower = slope(e1) >= slope(e2) ? e1 : e2;
+			DEdge upper = lower == e1 ? e2 : e1;
+			Element inter = lower.getIntersection(upper, weights);
+			if (!(inter instanceof DPoint)) {
+				//The edges that overlap are split at the extremities of each
+				//other, that have already been found as points of the mesh.
+				continue;
+			}
+			DPoint pt = (DPoint) inter;
+			if (e1.isExtremity(pt) && e2.isExtremity(pt) || Collections.binarySearch(points, pt) >= 0) {
+				continue;
+			}
+			int weight = weights.isEmpty() ? -1 : Math.max(e1.getMaxWeight(weights), e2.getMaxWeight(weights));
+			DPoint known = created.ceiling(pt);
+			if (known == null || known.compareTo2D(pt) != 0) {
+				known = created.floor(pt);
+			}
+			if (known != null && known.compareTo2D(pt) == 0) {
+				if (weight > pointWeights.get(known)) {
+					known.setZ(pt.getZ());
+					pointWeights.put(known, weight);
+				}
+			} else {
+				created.add(pt);
+				pointWeights.put(pt, weight);
+				known = pt;
+			}
+			addSplit(splits, e1, known);
+			addSplit(splits, e2, known);
+		}
+		newPoints.addAll(created);
+	}
+
+	/**
+	 * Sort the split points of ed from its left point to its right point,
+	 * and remove the duplicates and its extremities.
+	 */
+	private List<DPoint> sortSplits(DEdge ed, List<DPoint> l) {
+		Collections.sort(l);
+		List<DPoint> ret = new ArrayList<DPoint>(l.size());
+		DPoint previous = ed.getPointLeft();
+		for (DPoint pt : l) {
+			if (pt.compareTo2D(previous) != 0 && pt.compareTo2D(ed.getPointRight()) != 0) {
+				ret.add(pt);
+				previous = pt;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Register pt as a point where ed must be split.
+	 */
+	private static void addSplit(Map<DEdge, List<DPoint>> splits, DEdge ed, DPoint pt) {
+		List<DPoint> l = splits.get(ed);
+		if (l == null) {
+			l = new ArrayList<DPoint>();
+			splits.put(ed, l);
+		}
+		l.add(pt);
+	}
+
+	private static double slope(DEdge ed) {
+		DPoint left = ed.getPointLeft();
+		DPoint right = ed.getPointRight();
+		if (left.getX() == right.getX()) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return (right.getY() - left.getY()) / (right.getX() - left.getX());
+	}
+
+	private int getColumn(double x) {
+		return Math.max(0, Math.min(nx - 1, (int) ((x - minX) / cellWidth)));
+	}
+
+	private int getRow(double y) {
+		return Math.max(0, Math.min(ny - 1, (int) ((y - minY) / cellHeight)));
+	}
+
+	/**
+	 * Get the index of the cell that contains pt, or -1 if it is too far from
+	 * the grid to be on a constraint.
+	 */
+	private int getCell(DPoint pt) {
+		double x = pt.getX();
+		double y = pt.getY();
+		if (x < minX - Tools.EPSILON || x > minX + nx * cellWidth + Tools.EPSILON
+				|| y < minY - Tools.EPSILON || y > minY + ny * cellHeight + Tools.EPSILON) {
+			return -1;
+		}
+		return getRow(y) * nx + getColumn(x);
+	}
+
+	/**
+	 * Get the first and last columns, and the first and last rows, covered by
+	 * the bounding box of ed enlarged with Tools.EPSILON.
+	 */
+	private int[] getCellRange(DEdge ed) {
+		DPoint left = ed.getPointLeft();
+		DPoint right = ed.getPointRight();
+		double lowY = Math.min(left.getY(), right.getY());
+		double highY = Math.max(left.getY(), right.getY());
+		return new int[]{getColumn(left.getX() - Tools.EPSILON), getColumn(right.getX() + Tools.EPSILON),
+			getRow(lowY - Tools.EPSILON), getRow(highY + Tools.EPSILON)};
+	}
+
+	/**
+	 * Check if the edges may intersect : their bounding boxes overlap, and
+	 * each one has its extremities on both sides of the other, or at a
+	 * distance lower than Tools.EPSILON of it.
+	 */
+	private static boolean mayIntersect(DEdge e1, DEdge e2) {
+		DPoint a = e1.getPointLeft();
+		DPoint b = e1.getPointRight();
+		DPoint c = e2.getPointLeft();
+		DPoint d = e2.getPointRight();
+		if (a.getX() > d.getX() + Tools.EPSILON || c.getX() > b.getX() + Tools.EPSILON
+				|| Math.min(a.getY(), b.getY()) > Math.max(c.getY(), d.getY()) + Tools.EPSILON
+				|| Math.min(c.getY(), d.getY()) > Math.max(a.getY(), b.getY()) + Tools.EPSILON) {
+			return false;
+		}
+		return straddles(a, b, c, d) && straddles(c, d, a, b);
+	}
+
+	/**
+	 * Check if c and d are not strictly on the same side of the line (a b),
+	 * when moved of Tools.EPSILON.
+	 */
+	private static boolean straddles(DPoint a, DPoint b, DPoint c, DPoint d) {
+		double tol = Tools.EPSILON * Math.sqrt(Kernels.squareDistance2D(a.getX(), a.getY(), b.getX(), b.getY()));
+		int oc = Predicates.orientation(a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY(), tol);
+		int od = Predicates.orientation(a.getX(), a.getY(), b.getX(), b.getY(), d.getX(), d.getY(), tol);
+		return oc * od <= 0;
+	}
+
+	/**
+	 * Check if pt is inside ed : between its extremities, and at a vertical
+	 * distance lower than Tools.EPSILON. It is the test made by the
+	 * Bentley-Ottmann sweep.
+	 */
+	private static boolean isInside(DEdge ed, DPoint pt) {
+		DPoint left = ed.getPointLeft();
+		DPoint right = ed.getPointRight();
+		if (left.compareTo2D(pt) >= 0 || pt.compareTo2D(right) >= 0) {
+			return false;
+		}
+		double y;
+		if (left.getX() == right.getX()) {
+			y = Math.max(left.getY(), Math.min(right.getY(), pt.getY()));
+		} else {
+			y = Kernels.yFromX(left.getX(), left.getY(), right.getX(), right.getY(), pt.getX());
+		}
+		return Math.abs(y - pt.getY()) < Tools.EPSILON;
+	}
+
+	/**
+	 * A growable array of long values.
+	 */
+	private static final class LongList {
+
+		private long[] values = new long[16];
+		private int size = 0;
+
+		void add(long v) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, 2 * size);
+			}
+			values[size++] = v;
+		}
+
+		int size() {
+			return size;
+		}
+
+		int copyTo(long[] dest, int pos) {
+			System.arraycopy(values, 0, dest, pos, size);
+			return pos + size;
+		}
+	}
+
+	/**
+	 * The search of the candidates in a range of cells. It only reads the
+	 * points and the edges.
+	 */
+	private final class CellTask implements Callable<CellTask> {
+
+		private final int[][] cells;
+		private final int[][] cellPoints;
+		private final int start;
+		private final int end;
+		private final LongList pairs = new LongList();
+		private final LongList inside = new LongList();
+
+		CellTask(int[][] cells, int[][] cellPoints, int start, int end) {
+			this.cells = cells;
+			this.cellPoints = cellPoints;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public CellTask call() {
+			for (int c = start; c < end; c++) {
+				int[] eds = cells[c];
+				for (int k = 0; k < eds.length; k++) {
+					DEdge e1 = constraints.get(eds[k]);
+					for (int l = k + 1; l < eds.length; l++) {
+						DEdge e2 = constraints.get(eds[l]);
+						if (isOwner(c, e1, e2) && mayIntersect(e1, e2)) {
+							int i = Math.min(eds[k], eds[l]);
+							int j = Math.max(eds[k], eds[l]);
+							pairs.add(((long) i << 32) | j);
+						}
+					}
+					for (int p : cellPoints[c]) {
+						if (isInside(e1, points.get(p))) {
+							inside.add(((long) eds[k] << 32) | p);
+						}
+					}
+				}
+			}
+			return this;
+		}
+
+		/**
+		 * Check if c is the cell where the pair (e1, e2) must be tested : the
+		 * one that contains the lower left corner of the intersection of their
+		 * enlarged bounding boxes.
+		 */
+		private boolean isOwner(int c, DEdge e1, DEdge e2) {
+			double x = Math.max(e1.getPointLeft().getX(), e2.getPointLeft().getX()) - Tools.EPSILON;
+			double y1 = Math.min(e1.getPointLeft().getY(), e1.getPointRight().getY());
+			double y2 = Math.min(e2.getPointLeft().getY(), e2.getPointRight().getY());
+			double y = Math.max(y1, y2) - Tools.EPSILON;
+			return getRow(y) * nx + getColumn(x) == c;
+		}
+	}
+}
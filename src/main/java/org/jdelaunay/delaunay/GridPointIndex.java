@@ -0,0 +1,168 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.tools.Tools;
+
+/**
+ * A PointIndex that hashes the points in a regular grid of square cells. As
+ * the cells are larger than Tools.EPSILON, the points equal to a given point
+ * can only lie in its cell or in the adjacent ones. When the cells hold a few
+ * points, the search and the insertion are done in constant time.
+ * @author alexis
+ */
+public final class GridPointIndex implements PointIndex {
+
+        /**
+         * The default size of the cells.
+         */
+        public static final double DEFAULT_CELL_SIZE = 1000 * Tools.EPSILON;
+
+        //Used to mix the two cell coordinates in a single key.
+        private static final long MIX = 0x9E3779B97F4A7C15L;
+
+        private final double cellSize;
+        private final Map<Long, List<DPoint>> cells;
+        private int size;
+
+        /**
+         * Build a new index, with cells of size DEFAULT_CELL_SIZE.
+         */
+        public GridPointIndex() {
+                this(DEFAULT_CELL_SIZE);
+        }
+
+        /**
+         * Build a new index. The cell size should be close to the usual distance
+         * between two neighbour points.
+         * @param cellSize
+         *      The size of the cells. It can't be lower than Tools.EPSILON.
+         */
+        public GridPointIndex(double cellSize) {
+                if(!(cellSize >= Tools.EPSILON) || Double.isInfinite(cellSize)){
+                        throw new IllegalArgumentException("The cells can't be smaller than Tools.EPSILON");
+                }
+                this.cellSize = cellSize;
+                cells = new HashMap<Long, List<DPoint>>();
+        }
+
+        /**
+         * Get the size of the cells of this index.
+         * @return
+         *      The size of the cells.
+         */
+        public double getCellSize() {
+                return cellSize;
+        }
+
+        @Override
+        public DPoint get(double x, double y) {
+                long minI = cell(x - Tools.EPSILON);
+                long maxI = cell(x + Tools.EPSILON);
+                long minJ = cell(y - Tools.EPSILON);
+                long maxJ = cell(y + Tools.EPSILON);
+                for(long i = minI; i <= maxI; i++){
+                        for(long j = minJ; j <= maxJ; j++){
+                                List<DPoint> bucket = cells.get(key(i, j));
+                                if(bucket != null){
+                                        for(DPoint pt : bucket){
+                                                double dx = pt.getX() - x;
+                                                double dy = pt.getY() - y;
+                                                if(dx * dx + dy * dy < Tools.EPSILON2){
+                                                        return pt;
+                                                }
+                                        }
+                                }
+                        }
+                }
+                return null;
+        }
+
+        @Override
+        public boolean add(DPoint pt) {
+                if(get(pt.getX(), pt.getY()) != null){
+                        return false;
+                }
+                Long k = key(cell(pt.getX()), cell(pt.getY()));
+                List<DPoint> bucket = cells.get(k);
+                if(bucket == null){
+                        bucket = new ArrayList<DPoint>(2);
+                        cells.put(k, bucket);
+                }
+                bucket.add(pt);
+                size++;
+                return true;
+        }
+
+        @Override
+        public boolean remove(DPoint pt) {
+                Long k = key(cell(pt.getX()), cell(pt.getY()));
+                List<DPoint> bucket = cells.get(k);
+                if(bucket == null){
+                        return false;
+                }
+                for(int i = 0; i < bucket.size(); i++){
+                        if(bucket.get(i) == pt){
+                                bucket.remove(i);
+                                if(bucket.isEmpty()){
+                                        cells.remove(k);
+                                }
+                                size--;
+                                return true;
+                        }
+                }
+                return false;
+        }
+
+        @Override
+        public void clear() {
+                cells.clear();
+                size = 0;
+        }
+
+        @Override
+        public int size() {
+                return size;
+        }
+
+        private long cell(double v) {
+                return (long) Math.floor(v / cellSize);
+        }
+
+        private static long key(long i, long j) {
+                return i * MIX + j;
+        }
+}
@@ -0,0 +1,121 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.Arrays;
+
+/**
+ * Sorts points along a Hilbert curve. Points that are close along the curve
+ * are close in the plane, so storing the elements of a mesh in this order
+ * keeps the neighbours close in memory too.
+ * @author alexis
+ */
+final class HilbertCurve {
+
+	//The number of bits of each coordinate in the keys : the keys and the
+	//indices of the points are packed in a long by getOrder.
+	static final int ORDER = 15;
+
+	/**
+	 * Default constructor is private : it is not supposed to be used !
+	 */
+	private HilbertCurve(){
+	}
+
+	/**
+	 * The position of the cell (x, y) along the Hilbert curve that fills a
+	 * grid of 2^order x 2^order cells.
+	 * @param x
+	 * @param y
+	 * @param order
+	 * @return
+	 */
+	static long getKey(int x, int y, int order) {
+		long d = 0;
+		int n = 1 << order;
+		int px = x;
+		int py = y;
+		for(int s = n >> 1; s > 0; s >>= 1){
+			int rx = (px & s) > 0 ? 1 : 0;
+			int ry = (py & s) > 0 ? 1 : 0;
+			d += (long) s * s * ((3 * rx) ^ ry);
+			//Rotate the quadrant.
+			if(ry == 0){
+				if(rx == 1){
+					px = n - 1 - px;
+					py = n - 1 - py;
+				}
+				int t = px;
+				px = py;
+				py = t;
+			}
+		}
+		return d;
+	}
+
+	/**
+	 * Sort the points (x[i], y[i]) along the Hilbert curve that fills their
+	 * bounding box. The points that fall in the same cell of the curve keep
+	 * their relative order.
+	 * @param x
+	 * @param y
+	 * @return
+	 *      The indices of the points, in the order of the curve.
+	 */
+	static int[] getOrder(double[] x, double[] y) {
+		int n = x.length;
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for(int i = 0; i < n; i++){
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+		int side = (1 << ORDER) - 1;
+		double sx = maxX > minX ? side / (maxX - minX) : 0;
+		double sy = maxY > minY ? side / (maxY - minY) : 0;
+		long[] keys = new long[n];
+		for(int i = 0; i < n; i++){
+			int hx = (int) ((x[i] - minX) * sx);
+			int hy = (int) ((y[i] - minY) * sy);
+			keys[i] = (getKey(hx, hy, ORDER) << 32) | i;
+		}
+		Arrays.sort(keys);
+		int[] ret = new int[n];
+		for(int i = 0; i < n; i++){
+			ret[i] = (int) keys[i];
+		}
+		return ret;
+	}
+}
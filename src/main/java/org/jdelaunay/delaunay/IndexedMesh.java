@@ -0,0 +1,608 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+import org.jdelaunay.delaunay.geometries.Element;
+
+/**
+ * A compact representation of a triangulation, based on arrays of primitives
+ * rather than on DPoint, DEdge and DTriangle instances.<p></p>
+ *
+ * Vertex i is stored in x[i], y[i], z[i]. Triangle t is described by the
+ * three vertex indices stored in triangles[3t], triangles[3t+1] and
+ * triangles[3t+2], in counterclockwise order. neighbours[3t+k] is the index
+ * of the triangle that shares the edge opposite to the k-th vertex of t, or -1
+ * if this edge is on the boundary of the mesh. Bit 3t+k of the constraint set
+ * tells if this same edge is a constraint of the mesh. The properties of the
+ * triangles and of the edges, if any, are stored in the same way.<p></p>
+ *
+ * In the indexed output mode of ConstrainedMesh, the sweep of processDelaunay
+ * writes its triangles directly in an IndexedMesh, and the DTriangle and DEdge
+ * instances are only built when they are asked for. An IndexedMesh can also be
+ * built from an existing mesh, to hand it to code that works on arrays
+ * (rasterization, files, renderers).
+ *
+ * @author alexis
+ */
+public class IndexedMesh implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	//The number of vertices of a triangle.
+	private static final int PT_NB = 3;
+
+	private final double[] x;
+	private final double[] y;
+	private final double[] z;
+	private final int[] triangles;
+	private final int[] neighbours;
+	private final BitSet constraints;
+	//The properties of the triangles and of the edges, null if they are all 0.
+	private final int[] triangleProperties;
+	private final int[] edgeProperties;
+
+	/**
+	 * Build a new IndexedMesh from its raw arrays. The arrays are not copied.
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param triangles
+	 *      The vertex indices, three per triangle, in counterclockwise order.
+	 * @param neighbours
+	 *      The neighbour indices, three per triangle, -1 on the boundary.
+	 * @param constraints
+	 *      The bits set for the edges that are constraints.
+	 * @throws IllegalArgumentException if the arrays have inconsistent lengths.
+	 */
+	public IndexedMesh(double[] x, double[] y, double[] z, int[] triangles,
+			int[] neighbours, BitSet constraints) {
+		this(x, y, z, triangles, neighbours, constraints, null, null);
+	}
+
+	/**
+	 * Build a new IndexedMesh from its raw arrays, with the properties of its
+	 * triangles and edges. The arrays are not copied.
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param triangles
+	 *      The vertex indices, three per triangle, in counterclockwise order.
+	 * @param neighbours
+	 *      The neighbour indices, three per triangle, -1 on the boundary.
+	 * @param constraints
+	 *      The bits set for the edges that are constraints.
+	 * @param triangleProperties
+	 *      The property of each triangle, or null if they are all 0.
+	 * @param edgeProperties
+	 *      The property of each edge, three per triangle, or null if they are all 0.
+	 * @throws IllegalArgumentException if the arrays have inconsistent lengths.
+	 */
+	public IndexedMesh(double[] x, double[] y, double[] z, int[] triangles,
+			int[] neighbours, BitSet constraints, int[] triangleProperties, int[] edgeProperties) {
+		if(x.length != y.length || x.length != z.length){
+			throw new IllegalArgumentException("The coordinate arrays must have the same length");
+		}
+		if(triangles.length % PT_NB != 0 || triangles.length != neighbours.length){
+			throw new IllegalArgumentException("Triangles and neighbours must hold three indices per triangle");
+		}
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.triangles = triangles;
+		this.neighbours = neighbours;
+		this.constraints = constraints == null ? new BitSet() : constraints;
+		if(triangleProperties != null && triangleProperties.length * PT_NB != triangles.length){
+			throw new IllegalArgumentException("There must be one property per triangle");
+		}
+		if(edgeProperties != null && edgeProperties.length != triangles.length){
+			throw new IllegalArgumentException("There must be three edge properties per triangle");
+		}
+		this.triangleProperties = triangleProperties;
+		this.edgeProperties = edgeProperties;
+	}
+
+	/**
+	 * Build an IndexedMesh from a list of points and the triangles that have been
+	 * built upon them. Vertex i of the result is pts.get(i), and triangle t is
+	 * tris.get(t). The edges that are locked are marked as constraints, and the
+	 * properties of the triangles and of the edges are kept.
+	 * @param pts
+	 * @param tris
+	 * @return
+	 *      The indexed version of the triangulation.
+	 * @throws DelaunayError
+	 *      If a triangle uses a point that is not in pts.
+	 */
+	public static IndexedMesh fromTriangles(List<DPoint> pts, List<DTriangle> tris) throws DelaunayError {
+		int n = pts.size();
+		double[] xs = new double[n];
+		double[] ys = new double[n];
+		double[] zs = new double[n];
+		int i = 0;
+		for(DPoint pt : pts){
+			xs[i] = pt.getX();
+			ys[i] = pt.getY();
+			zs[i] = pt.getZ();
+			i++;
+		}
+		int m = tris.size();
+		int[] tr = new int[PT_NB * m];
+		int[] nb = new int[PT_NB * m];
+		BitSet cs = new BitSet(PT_NB * m);
+		int[] tp = null;
+		int[] ep = null;
+		ElementIndex<DPoint> ptIndex = new ElementIndex<DPoint>(pts);
+		ElementIndex<DTriangle> triIndex = new ElementIndex<DTriangle>(tris);
+		DPoint[] apex = new DPoint[PT_NB];
+		int t = 0;
+		for(DTriangle tri : tris){
+			apex[0] = tri.getPoint(0);
+			apex[1] = tri.getPoint(1);
+			apex[2] = tri.getPoint(2);
+			double cross = (apex[1].getX() - apex[0].getX()) * (apex[2].getY() - apex[0].getY())
+				- (apex[1].getY() - apex[0].getY()) * (apex[2].getX() - apex[0].getX());
+			if(cross < 0){
+				DPoint mem = apex[1];
+				apex[1] = apex[2];
+				apex[2] = mem;
+			}
+			if(tri.getProperty() != 0){
+				tp = tp == null ? new int[m] : tp;
+				tp[t] = tri.getProperty();
+			}
+			for(int k = 0; k < PT_NB; k++){
+				int slot = PT_NB * t + k;
+				int v = ptIndex.indexOf(apex[k]);
+				if(v < 0){
+					throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_POINT_NOT_FOUND);
+				}
+				tr[slot] = v;
+				DEdge ed = getEdgeNotUsing(tri, apex[k]);
+				DTriangle other = ed.getLeft() == tri ? ed.getRight() : ed.getLeft();
+				nb[slot] = other == null ? -1 : triIndex.indexOf(other);
+				if(ed.isLocked()){
+					cs.set(slot);
+				}
+				if(ed.getProperty() != 0){
+					ep = ep == null ? new int[PT_NB * m] : ep;
+					ep[slot] = ed.getProperty();
+				}
+			}
+			t++;
+		}
+		return new IndexedMesh(xs, ys, zs, tr, nb, cs, tp, ep);
+	}
+
+	/**
+	 * Retrieve the edge of tri that does not contain pt.
+	 * @param tri
+	 * @param pt
+	 * @return
+	 */
+	private static DEdge getEdgeNotUsing(DTriangle tri, DPoint pt) {
+		for(int i = 0; i < PT_NB; i++){
+			DEdge ed = tri.getEdge(i);
+			if(ed.getStartPoint() != pt && ed.getEndPoint() != pt){
+				return ed;
+			}
+		}
+		return tri.getOppositeEdge(pt);
+	}
+
+	/**
+	 * @return the number of vertices of this mesh.
+	 */
+	public final int getVertexCount() {
+		return x.length;
+	}
+
+	/**
+	 * @return the number of triangles of this mesh.
+	 */
+	public final int getTriangleCount() {
+		return triangles.length / PT_NB;
+	}
+
+	/**
+	 * Get the number of edges of this mesh. Each inner edge is shared by two triangles,
+	 * each boundary edge is used by only one.
+	 * @return the number of edges of this mesh.
+	 */
+	public final int getEdgeCount() {
+		int boundary = 0;
+		for(int i = 0; i < neighbours.length; i++){
+			if(neighbours[i] < 0){
+				boundary++;
+			}
+		}
+		return (neighbours.length + boundary) / 2;
+	}
+
+	/**
+	 * @param i
+	 * @return the x coordinate of the ith vertex.
+	 */
+	public final double getX(int i) {
+		return x[i];
+	}
+
+	/**
+	 * @param i
+	 * @return the y coordinate of the ith vertex.
+	 */
+	public final double getY(int i) {
+		return y[i];
+	}
+
+	/**
+	 * @param i
+	 * @return the z coordinate of the ith vertex.
+	 */
+	public final double getZ(int i) {
+		return z[i];
+	}
+
+	/**
+	 * Get the index of the kth vertex of the triangle t.
+	 * @param t
+	 * @param k
+	 *      0, 1 or 2.
+	 * @return
+	 *      The index of the vertex.
+	 */
+	public final int getVertex(int t, int k) {
+		return triangles[PT_NB * t + k];
+	}
+
+	/**
+	 * Get the index of the triangle that shares the edge opposite to the kth
+	 * vertex of t.
+	 * @param t
+	 * @param k
+	 *      0, 1 or 2.
+	 * @return
+	 *      The index of the neighbour, or -1 if this edge is on the boundary.
+	 */
+	public final int getNeighbour(int t, int k) {
+		return neighbours[PT_NB * t + k];
+	}
+
+	/**
+	 * Checks if the edge opposite to the kth vertex of t is a constraint.
+	 * @param t
+	 * @param k
+	 *      0, 1 or 2.
+	 * @return
+	 *      true if this edge is a constraint.
+	 */
+	public final boolean isConstrained(int t, int k) {
+		return constraints.get(PT_NB * t + k);
+	}
+
+	/**
+	 * @param t
+	 * @return the property of the triangle t.
+	 */
+	public final int getTriangleProperty(int t) {
+		return triangleProperties == null ? 0 : triangleProperties[t];
+	}
+
+	/**
+	 * Get the property of the edge opposite to the kth vertex of t.
+	 * @param t
+	 * @param k
+	 *      0, 1 or 2.
+	 * @return
+	 *      The property of the edge.
+	 */
+	public final int getEdgeProperty(int t, int k) {
+		return edgeProperties == null ? 0 : edgeProperties[PT_NB * t + k];
+	}
+
+	/**
+	 * @return true if some triangles or edges have a property other than 0.
+	 */
+	final boolean hasProperties() {
+		return triangleProperties != null || edgeProperties != null;
+	}
+
+	/**
+	 * Build a copy of this mesh where the vertices and the triangles are
+	 * renumbered : vertex i of the result is vertex vertexOrder[i] of this mesh,
+	 * and triangle t of the result is triangle triangleOrder[t] of this mesh.
+	 * @param vertexOrder
+	 *      A permutation of the vertex indices.
+	 * @param triangleOrder
+	 *      A permutation of the triangle indices.
+	 * @return
+	 *      The renumbered mesh.
+	 * @throws IllegalArgumentException if the arrays are not permutations.
+	 */
+	public final IndexedMesh permute(int[] vertexOrder, int[] triangleOrder) {
+		int[] vInv = invert(vertexOrder, x.length);
+		int[] tInv = invert(triangleOrder, getTriangleCount());
+		double[] xs = new double[x.length];
+		double[] ys = new double[x.length];
+		double[] zs = new double[x.length];
+		for(int i = 0; i < x.length; i++){
+			xs[i] = x[vertexOrder[i]];
+			ys[i] = y[vertexOrder[i]];
+			zs[i] = z[vertexOrder[i]];
+		}
+		int[] tr = new int[triangles.length];
+		int[] nb = new int[neighbours.length];
+		BitSet cs = new BitSet(triangles.length);
+		int[] tp = triangleProperties == null ? null : new int[triangleProperties.length];
+		int[] ep = edgeProperties == null ? null : new int[edgeProperties.length];
+		for(int t = 0; t < triangleOrder.length; t++){
+			int old = triangleOrder[t];
+			if(tp != null){
+				tp[t] = triangleProperties[old];
+			}
+			for(int k = 0; k < PT_NB; k++){
+				int slot = PT_NB * old + k;
+				tr[PT_NB * t + k] = vInv[triangles[slot]];
+				nb[PT_NB * t + k] = neighbours[slot] < 0 ? -1 : tInv[neighbours[slot]];
+				if(constraints.get(slot)){
+					cs.set(PT_NB * t + k);
+				}
+				if(ep != null){
+					ep[PT_NB * t + k] = edgeProperties[slot];
+				}
+			}
+		}
+		return new IndexedMesh(xs, ys, zs, tr, nb, cs, tp, ep);
+	}
+
+	/**
+	 * Build a copy of this mesh where the vertices are sorted along a Hilbert
+	 * curve, and the triangles along the same curve using their centroids.
+	 * Vertices and triangles that are neighbours in the mesh are then close in
+	 * the arrays too, which makes the walks through the mesh faster.
+	 * @return
+	 *      The sorted mesh.
+	 */
+	public final IndexedMesh sortAlongHilbertCurve() {
+		return permute(getHilbertVertexOrder(), getHilbertTriangleOrder());
+	}
+
+	/**
+	 * @return the vertex indices, sorted along a Hilbert curve.
+	 */
+	final int[] getHilbertVertexOrder() {
+		return HilbertCurve.getOrder(x, y);
+	}
+
+	/**
+	 * @return the triangle indices, sorted along a Hilbert curve using their
+	 * centroids.
+	 */
+	final int[] getHilbertTriangleOrder() {
+		int m = getTriangleCount();
+		double[] cx = new double[m];
+		double[] cy = new double[m];
+		for(int t = 0; t < m; t++){
+			int a = triangles[PT_NB * t];
+			int b = triangles[PT_NB * t + 1];
+			int c = triangles[PT_NB * t + 2];
+			cx[t] = (x[a] + x[b] + x[c]) / PT_NB;
+			cy[t] = (y[a] + y[b] + y[c]) / PT_NB;
+		}
+		return HilbertCurve.getOrder(cx, cy);
+	}
+
+	/**
+	 * Invert a permutation of [0, n[.
+	 * @param order
+	 * @param n
+	 * @return
+	 * @throws IllegalArgumentException if order is not a permutation.
+	 */
+	private static int[] invert(int[] order, int n) {
+		if(order.length != n){
+			throw new IllegalArgumentException("The permutation must have " + n + " elements");
+		}
+		int[] ret = new int[n];
+		Arrays.fill(ret, -1);
+		for(int i = 0; i < n; i++){
+			int o = order[i];
+			if(o < 0 || o >= n || ret[o] >= 0){
+				throw new IllegalArgumentException("The array is not a permutation");
+			}
+			ret[o] = i;
+		}
+		return ret;
+	}
+
+	/**
+	 * Build DTriangle instances from this mesh. New DPoint instances are
+	 * created from the coordinates arrays, with GIDs going from 1 to the
+	 * number of vertices.
+	 * @return
+	 *      The triangles, in the same order as in this mesh.
+	 * @throws DelaunayError
+	 */
+	public final List<DTriangle> getTriangles() throws DelaunayError {
+		List<DPoint> pts = new ArrayList<DPoint>(x.length);
+		for(int i = 0; i < x.length; i++){
+			DPoint pt = new DPoint(x[i], y[i], z[i]);
+			pt.setGID(i + 1);
+			pts.add(pt);
+		}
+		List<DTriangle> tris = new ArrayList<DTriangle>(getTriangleCount());
+		List<DEdge> eds = new ArrayList<DEdge>();
+		Map<Long, DEdge> known = Collections.emptyMap();
+		materialize(pts, known, tris, eds);
+		int gid = 0;
+		for(DEdge ed : eds){
+			ed.setGID(++gid);
+		}
+		return tris;
+	}
+
+	/**
+	 * Build the DTriangle and DEdge instances of this mesh upon the points pts,
+	 * where pts.get(i) stands for the ith vertex.<br/>
+	 * If an edge can be found in known, using getEdgeKey, this instance is used
+	 * rather than a new one. New edges are given the GID -1 and their stored
+	 * property, triangle t is given the GID t+1 and its stored property.
+	 * @param pts
+	 * @param known
+	 * @param trisOut
+	 *      filled with the triangles.
+	 * @param edgesOut
+	 *      filled with the edges.
+	 * @throws DelaunayError
+	 */
+	final void materialize(List<DPoint> pts, Map<Long, DEdge> known, List<DTriangle> trisOut,
+			List<DEdge> edgesOut) throws DelaunayError {
+		int m = getTriangleCount();
+		DEdge[] slots = new DEdge[triangles.length];
+		DEdge[] tEdges = new DEdge[PT_NB];
+		for(int t = 0; t < m; t++){
+			for(int k = 0; k < PT_NB; k++){
+				int slot = PT_NB * t + k;
+				int other = neighbours[slot];
+				DEdge ed = null;
+				if(other >= 0 && other < t){
+					//The edge has already been built with the neighbour.
+					for(int j = 0; j < PT_NB; j++){
+						if(neighbours[PT_NB * other + j] == t
+								&& slots[PT_NB * other + j] != null
+								&& isSameEdge(slot, PT_NB * other + j)){
+							ed = slots[PT_NB * other + j];
+							break;
+						}
+					}
+				}
+				if(ed == null){
+					int a = triangles[PT_NB * t + (k + 1) % PT_NB];
+					int b = triangles[PT_NB * t + (k + 2) % PT_NB];
+					ed = known.get(getEdgeKey(a, b, x.length));
+					if(ed == null){
+						ed = new DEdge(pts.get(a), pts.get(b));
+						ed.setLocked(constraints.get(slot));
+						if(edgeProperties != null){
+							ed.setProperty(edgeProperties[slot]);
+						}
+					}
+					ed.setLeft(null);
+					ed.setRight(null);
+					edgesOut.add(ed);
+				}
+				slots[slot] = ed;
+				tEdges[k] = ed;
+			}
+			DTriangle tri = new DTriangle(tEdges[0], tEdges[1], tEdges[2]);
+			tri.setGID(t + 1);
+			if(triangleProperties != null){
+				tri.setProperty(triangleProperties[t]);
+			}
+			trisOut.add(tri);
+		}
+	}
+
+	/**
+	 * Checks that the edges stored in the two slots link the same vertices.
+	 * @param s1
+	 * @param s2
+	 * @return
+	 */
+	private boolean isSameEdge(int s1, int s2) {
+		int t1 = s1 - s1 % PT_NB;
+		int t2 = s2 - s2 % PT_NB;
+		int a1 = triangles[t1 + (s1 - t1 + 1) % PT_NB];
+		int b1 = triangles[t1 + (s1 - t1 + 2) % PT_NB];
+		int a2 = triangles[t2 + (s2 - t2 + 1) % PT_NB];
+		int b2 = triangles[t2 + (s2 - t2 + 2) % PT_NB];
+		return (a1 == a2 && b1 == b2) || (a1 == b2 && b1 == a2);
+	}
+
+	/**
+	 * Compute the key used to identify the edge linking the vertices a and b, in
+	 * a mesh of n vertices. The key does not depend on the order of a and b.
+	 * @param a
+	 * @param b
+	 * @param n
+	 * @return
+	 *      a key for the edge [a b].
+	 */
+	static long getEdgeKey(int a, int b, int n) {
+		return a < b ? (long) a * n + b : (long) b * n + a;
+	}
+
+	/**
+	 * Retrieves the index of an element in a list. When the GIDs of the
+	 * elements match their position in the list (GID = index + 1), no additional
+	 * structure is needed. Otherwise, an identity map is built on the first miss.
+	 * The fast path is only used on lists that support random access.
+	 * @param <T>
+	 */
+	private static final class ElementIndex<T extends Element> {
+
+		private final List<T> list;
+		private final boolean randomAccess;
+		private Map<T, Integer> map = null;
+
+		ElementIndex(List<T> list) {
+			this.list = list;
+			randomAccess = list instanceof RandomAccess;
+		}
+
+		int indexOf(T elt) {
+			int i = elt.getGID() - 1;
+			if(randomAccess && i >= 0 && i < list.size() && list.get(i) == elt){
+				return i;
+			}
+			if(map == null){
+				map = new IdentityHashMap<T, Integer>(list.size());
+				int j = 0;
+				for(T e : list){
+					map.put(e, j++);
+				}
+			}
+			Integer ret = map.get(elt);
+			return ret == null ? -1 : ret;
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Writes the triangles released by a StreamingFront in the arrays of an
+ * IndexedMesh. The vertex i of the mesh is the point whose GID is i+1. The
+ * neighbours are found with the DEdge instances : an edge whose first triangle
+ * has been written waits in a map until its second triangle is released. This
+ * map only holds the edges that separate the written triangles from the front,
+ * and the edges of the convex hull of the written triangles.
+ * @author alexis
+ */
+final class IndexedMeshBuilder implements TriangleSink {
+
+        //The number of vertices of a triangle.
+        private static final int PT_NB = 3;
+
+        private int[] triangles;
+        private int[] neighbours;
+        private final BitSet constraints = new BitSet();
+        private int[] triangleProperties = null;
+        private int[] edgeProperties = null;
+        //The slot of the edges whose second triangle has not been written yet.
+        private final Map<DEdge, Integer> pending = new IdentityHashMap<DEdge, Integer>();
+        private int count = 0;
+        private final DPoint[] apex = new DPoint[PT_NB];
+
+        /**
+         * Build a new builder for the triangulation of n points. It has less
+         * than 2n triangles, so that the arrays don't have to grow.
+         * @param n
+         */
+        IndexedMeshBuilder(int n) {
+                triangles = new int[2 * PT_NB * Math.max(n, 1)];
+                neighbours = new int[triangles.length];
+        }
+
+        @Override
+        public void processTriangle(DTriangle tri) throws DelaunayError {
+                int t = count++;
+                apex[0] = tri.getPoint(0);
+                apex[1] = tri.getPoint(1);
+                apex[2] = tri.getPoint(2);
+                double cross = (apex[1].getX() - apex[0].getX()) * (apex[2].getY() - apex[0].getY())
+                        - (apex[1].getY() - apex[0].getY()) * (apex[2].getX() - apex[0].getX());
+                if(cross < 0){
+                        DPoint mem = apex[1];
+                        apex[1] = apex[2];
+                        apex[2] = mem;
+                }
+                if(tri.getProperty() != 0){
+                        if(triangleProperties == null){
+                                triangleProperties = new int[triangles.length / PT_NB];
+                        }
+                        triangleProperties[t] = tri.getProperty();
+                }
+                for(int k = 0; k < PT_NB; k++){
+                        int slot = PT_NB * t + k;
+                        triangles[slot] = apex[k].getGID() - 1;
+                        DEdge ed = getEdgeNotUsing(tri, apex[k]);
+                        Integer other = pending.remove(ed);
+                        if(other != null){
+                                neighbours[slot] = other / PT_NB;
+                                neighbours[other] = t;
+                        } else {
+                                //A boundary edge can still get a triangle from
+                                //the next points.
+                                neighbours[slot] = -1;
+                                pending.put(ed, slot);
+                        }
+                        if(ed.isLocked()){
+                                constraints.set(slot);
+                        }
+                        if(ed.getProperty() != 0){
+                                if(edgeProperties == null){
+                                        edgeProperties = new int[triangles.length];
+                                }
+                                edgeProperties[slot] = ed.getProperty();
+                        }
+                }
+        }
+
+        /**
+         * Get the number of triangles written so far.
+         * @return
+         */
+        int getTriangleCount() {
+                return count;
+        }
+
+        /**
+         * Build the IndexedMesh once all the triangles have been written.
+         * @param pts
+         *      The points of the mesh, sorted by GID.
+         * @return
+         */
+        IndexedMesh build(List<DPoint> pts) {
+                int n = pts.size();
+                double[] x = new double[n];
+                double[] y = new double[n];
+                double[] z = new double[n];
+                int i = 0;
+                for(DPoint pt : pts){
+                        x[i] = pt.getX();
+                        y[i] = pt.getY();
+                        z[i] = pt.getZ();
+                        i++;
+                }
+                int len = PT_NB * count;
+                return new IndexedMesh(x, y, z, Arrays.copyOf(triangles, len), Arrays.copyOf(neighbours, len),
+                        constraints, triangleProperties == null ? null : Arrays.copyOf(triangleProperties, count),
+                        edgeProperties == null ? null : Arrays.copyOf(edgeProperties, len));
+        }
+
+        /**
+         * Get the edge of tri that does not contain pt.
+         * @param tri
+         * @param pt
+         * @return
+         */
+        private static DEdge getEdgeNotUsing(DTriangle tri, DPoint pt) {
+                for(int i = 0; i < PT_NB; i++){
+                        DEdge ed = tri.getEdge(i);
+                        if(ed.getStartPoint() != pt && ed.getEndPoint() != pt){
+                                return ed;
+                        }
+                }
+                return tri.getOppositeEdge(pt);
+        }
+}
@@ -0,0 +1,58 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+/**
+ * The algorithms that can be used by ConstrainedMesh.forceConstraintIntegrity
+ * to find the intersections between the constraint edges.
+ * @author alexis
+ */
+public enum IntersectionAlgorithm {
+	/**
+	 * The historical sweep line. The edges that cross the sweep line are
+	 * kept in a VerticalList, that is sorted again each time the line moves.
+	 * It is quadratic in the worst case.
+	 */
+	VERTICAL_LIST,
+	/**
+	 * A Bentley-Ottmann sweep, with a balanced tree as sweep status. It runs
+	 * in O((n+k) log n), where n is the number of edges and k the number of
+	 * intersections.
+	 */
+	BENTLEY_OTTMANN,
+	/**
+	 * The edges are bucketed in a uniform grid, and the pairs of edges of each
+	 * cell are tested in parallel, using the thread count of the mesh. The
+	 * intersection points are then merged sequentially, so that the result
+	 * does not depend on the number of threads.
+	 */
+	GRID
+}
@@ -0,0 +1,646 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.tools.Tools;
+
+/**
+ * A compact binary format for computed triangulations, and the memory-mapped
+ * reader of the files written in this format.<p></p>
+ *
+ * A file starts with a header of 64 bytes : a magic number, the version of the
+ * format, flags, the number of vertices, of triangles and of weights, then the
+ * precision and the tolerance of the mesh. It is followed by the weights, as
+ * pairs of ints, and by the arrays of an IndexedMesh : x, y and z of the vertices,
+ * the vertex indices and the neighbours of the triangles, and the words of the
+ * constraint bit set. The properties of the vertices, of the triangles and of
+ * the edges come last, and are only written if they are not all 0. All the values
+ * are little-endian, and each section starts on a multiple of 8 bytes.<p></p>
+ *
+ * Opening a file maps it in memory. The accessors of a MeshFile read the mapped
+ * sections directly, without copying them, and the mesh is only rebuilt as an
+ * IndexedMesh or as a ConstrainedMesh when it is asked for. Unlike the
+ * serialization of a ConstrainedMesh, where each point, edge and triangle is an
+ * object of the stream, writing and reading a file only costs a pass on its
+ * arrays. The GIDs of the elements are not stored : they are numbered from 1
+ * when the mesh is rebuilt.
+ * @author alexis
+ */
+public final class MeshFile {
+
+	//"JDMF", read as a little-endian int.
+	private static final int MAGIC = 0x464D444A;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 64;
+	//The flags that tell which properties are stored.
+	private static final int VERTEX_PROPERTIES = 1;
+	private static final int TRIANGLE_PROPERTIES = 2;
+	private static final int EDGE_PROPERTIES = 4;
+	//The number of vertices of a triangle.
+	private static final int PT_NB = 3;
+	private static final int INT_SIZE = 4;
+	private static final int LONG_SIZE = 8;
+	private static final int WORD_BITS = 64;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final int vertexCount;
+	private final int triangleCount;
+	private final double precision;
+	private final double tolerance;
+	private final Map<Integer, Integer> weights;
+	private final DoubleBuffer x;
+	private final DoubleBuffer y;
+	private final DoubleBuffer z;
+	private final IntBuffer triangles;
+	private final IntBuffer neighbours;
+	private final LongBuffer constraints;
+	//null when the matching properties are not stored.
+	private final IntBuffer vertexProperties;
+	private final IntBuffer triangleProperties;
+	private final IntBuffer edgeProperties;
+
+	/**
+	 * Map the sections of the file read through channel.
+	 * @param channel
+	 * @throws IOException
+	 *      If the file is not a valid mesh file.
+	 */
+	private MeshFile(FileChannel channel) throws IOException {
+		if(channel.size() < HEADER_SIZE){
+			throw new IOException("The file is too short to be a mesh file");
+		}
+		ByteBuffer header = map(channel, 0, HEADER_SIZE);
+		if(header.getInt(0) != MAGIC){
+			throw new IOException("The file is not a mesh file");
+		}
+		if(header.getInt(INT_SIZE) != VERSION){
+			throw new IOException("Unsupported version of the mesh file format : " + header.getInt(INT_SIZE));
+		}
+		int flags = header.getInt(2 * INT_SIZE);
+		vertexCount = header.getInt(3 * INT_SIZE);
+		triangleCount = header.getInt(4 * INT_SIZE);
+		int weightCount = header.getInt(5 * INT_SIZE);
+		precision = header.getDouble(6 * INT_SIZE);
+		tolerance = header.getDouble(6 * INT_SIZE + LONG_SIZE);
+		if(vertexCount < 0 || triangleCount < 0 || weightCount < 0){
+			throw new IOException("The header of the mesh file is corrupted");
+		}
+		long slots = (long) PT_NB * triangleCount;
+		long expected = HEADER_SIZE + align((long) 2 * INT_SIZE * weightCount)
+			+ PT_NB * (long) LONG_SIZE * vertexCount + 2 * align(INT_SIZE * slots)
+			+ LONG_SIZE * getWordCount(slots);
+		if((flags & VERTEX_PROPERTIES) != 0){
+			expected += align((long) INT_SIZE * vertexCount);
+		}
+		if((flags & TRIANGLE_PROPERTIES) != 0){
+			expected += align((long) INT_SIZE * triangleCount);
+		}
+		if((flags & EDGE_PROPERTIES) != 0){
+			expected += align(INT_SIZE * slots);
+		}
+		if(channel.size() < expected){
+			throw new IOException("The mesh file is truncated");
+		}
+		long pos = HEADER_SIZE;
+		ByteBuffer bb = map(channel, pos, (long) 2 * INT_SIZE * weightCount);
+		weights = new HashMap<Integer, Integer>();
+		for(int i = 0; i < weightCount; i++){
+			weights.put(bb.getInt(2 * INT_SIZE * i), bb.getInt(2 * INT_SIZE * i + INT_SIZE));
+		}
+		pos += align(bb.capacity());
+		long vSize = (long) LONG_SIZE * vertexCount;
+		x = map(channel, pos, vSize).asDoubleBuffer();
+		y = map(channel, pos + vSize, vSize).asDoubleBuffer();
+		z = map(channel, pos + 2 * vSize, vSize).asDoubleBuffer();
+		pos += PT_NB * vSize;
+		triangles = map(channel, pos, INT_SIZE * slots).asIntBuffer();
+		pos += align(INT_SIZE * slots);
+		neighbours = map(channel, pos, INT_SIZE * slots).asIntBuffer();
+		pos += align(INT_SIZE * slots);
+		constraints = map(channel, pos, LONG_SIZE * getWordCount(slots)).asLongBuffer();
+		pos += LONG_SIZE * getWordCount(slots);
+		if((flags & VERTEX_PROPERTIES) != 0){
+			vertexProperties = map(channel, pos, (long) INT_SIZE * vertexCount).asIntBuffer();
+			pos += align((long) INT_SIZE * vertexCount);
+		} else {
+			vertexProperties = null;
+		}
+		if((flags & TRIANGLE_PROPERTIES) != 0){
+			triangleProperties = map(channel, pos, (long) INT_SIZE * triangleCount).asIntBuffer();
+			pos += align((long) INT_SIZE * triangleCount);
+		} else {
+			triangleProperties = null;
+		}
+		if((flags & EDGE_PROPERTIES) != 0){
+			edgeProperties = map(channel, pos, INT_SIZE * slots).asIntBuffer();
+		} else {
+			edgeProperties = null;
+		}
+	}
+
+	/**
+	 * Open a mesh file. The file is mapped in memory, and can be closed by the
+	 * system as soon as this method returns : the mapping stays valid.
+	 * @param file
+	 * @return
+	 *      A view on the mesh stored in the file.
+	 * @throws IOException
+	 *      If the file can't be read, or if it is not a valid mesh file.
+	 */
+	public static MeshFile open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			return new MeshFile(raf.getChannel());
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Write the computed triangulation of mesh in file, with the properties of
+	 * its points, edges and triangles, its weights, its precision and its
+	 * tolerance. If mesh has been read lazily from a mesh file, the stored
+	 * IndexedMesh is written directly.
+	 * @param mesh
+	 * @param file
+	 * @throws IOException
+	 * @throws DelaunayError
+	 *      If the mesh has not been computed yet.
+	 */
+	public static void write(ConstrainedMesh mesh, File file) throws IOException, DelaunayError {
+		IndexedMesh im = mesh.getIndexedMesh();
+		List<DPoint> pts = mesh.getPoints();
+		int[] vp = null;
+		for(int i = 0; i < pts.size(); i++){
+			int prop = pts.get(i).getProperty();
+			if(prop != 0){
+				vp = vp == null ? new int[pts.size()] : vp;
+				vp[i] = prop;
+			}
+		}
+		write(im, vp, mesh.getWeights(), mesh.getPrecision(), mesh.getTolerance(), file);
+	}
+
+	/**
+	 * Write an IndexedMesh in file. The precision and the tolerance of the
+	 * file are the default ones of a ConstrainedMesh.
+	 * @param mesh
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void write(IndexedMesh mesh, File file) throws IOException {
+		write(mesh, null, new HashMap<Integer, Integer>(), 0, Tools.EPSILON, file);
+	}
+
+	/**
+	 * Write the file.
+	 * @param mesh
+	 * @param vertexProps
+	 *      The properties of the vertices, or null if they are all 0.
+	 * @param weights
+	 * @param precision
+	 * @param tolerance
+	 * @param file
+	 * @throws IOException
+	 */
+	private static void write(IndexedMesh mesh, int[] vertexProps, Map<Integer, Integer> weights,
+			double precision, double tolerance, File file) throws IOException {
+		int n = mesh.getVertexCount();
+		int m = mesh.getTriangleCount();
+		int flags = vertexProps == null ? 0 : VERTEX_PROPERTIES;
+		if(mesh.hasProperties()){
+			flags |= TRIANGLE_PROPERTIES | EDGE_PROPERTIES;
+		}
+		FileOutputStream fos = new FileOutputStream(file);
+		try {
+			Output out = new Output(fos.getChannel());
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+			out.putInt(flags);
+			out.putInt(n);
+			out.putInt(m);
+			out.putInt(weights.size());
+			out.putDouble(precision);
+			out.putDouble(tolerance);
+			out.pad(HEADER_SIZE);
+			for(Map.Entry<Integer, Integer> e : weights.entrySet()){
+				out.putInt(e.getKey());
+				out.putInt(e.getValue());
+			}
+			for(int i = 0; i < n; i++){
+				out.putDouble(mesh.getX(i));
+			}
+			for(int i = 0; i < n; i++){
+				out.putDouble(mesh.getY(i));
+			}
+			for(int i = 0; i < n; i++){
+				out.putDouble(mesh.getZ(i));
+			}
+			for(int t = 0; t < m; t++){
+				for(int k = 0; k < PT_NB; k++){
+					out.putInt(mesh.getVertex(t, k));
+				}
+			}
+			out.pad(LONG_SIZE);
+			for(int t = 0; t < m; t++){
+				for(int k = 0; k < PT_NB; k++){
+					out.putInt(mesh.getNeighbour(t, k));
+				}
+			}
+			out.pad(LONG_SIZE);
+			long word = 0;
+			int slots = PT_NB * m;
+			for(int s = 0; s < slots; s++){
+				if(mesh.isConstrained(s / PT_NB, s % PT_NB)){
+					word |= 1L << (s % WORD_BITS);
+				}
+				if(s % WORD_BITS == WORD_BITS - 1){
+					out.putLong(word);
+					word = 0;
+				}
+			}
+			if(slots % WORD_BITS != 0){
+				out.putLong(word);
+			}
+			if(vertexProps != null){
+				for(int i = 0; i < n; i++){
+					out.putInt(vertexProps[i]);
+				}
+				out.pad(LONG_SIZE);
+			}
+			if(mesh.hasProperties()){
+				for(int t = 0; t < m; t++){
+					out.putInt(mesh.getTriangleProperty(t));
+				}
+				out.pad(LONG_SIZE);
+				for(int t = 0; t < m; t++){
+					for(int k = 0; k < PT_NB; k++){
+						out.putInt(mesh.getEdgeProperty(t, k));
+					}
+				}
+				out.pad(LONG_SIZE);
+			}
+			out.flush();
+		} finally {
+			fos.close();
+		}
+	}
+
+	/**
+	 * @return the number of vertices of the mesh.
+	 */
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	/**
+	 * @return the number of triangles of the mesh.
+	 */
+	public int getTriangleCount() {
+		return triangleCount;
+	}
+
+	/**
+	 * @return the precision of the mesh that has been written.
+	 */
+	public double getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * @return the tolerance of the mesh that has been written.
+	 */
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	/**
+	 * @return a copy of the weights of the mesh that has been written.
+	 */
+	public Map<Integer, Integer> getWeights() {
+		return new HashMap<Integer, Integer>(weights);
+	}
+
+	/**
+	 * @param i
+	 * @return the x coordinate of the ith vertex.
+	 */
+	public double getX(int i) {
+		return x.get(i);
+	}
+
+	/**
+	 * @param i
+	 * @return the y coordinate of the ith vertex.
+	 */
+	public double getY(int i) {
+		return y.get(i);
+	}
+
+	/**
+	 * @param i
+	 * @return the z coordinate of the ith vertex.
+	 */
+	public double getZ(int i) {
+		return z.get(i);
+	}
+
+	/**
+	 * Get the index of the kth vertex of the triangle t.
+	 * @param t
+	 * @param k
+	 *      0, 1 or 2.
+	 * @return
+	 *      The index of the vertex.
+	 */
+	public int getVertex(int t, int k) {
+		return triangles.get(PT_NB * t + k);
+	}
+
+	/**
+	 * Get the index of the triangle that shares the edge opposite to the kth
+	 * vertex of t.
+	 * @param t
+	 * @param k
+	 *      0, 1 or 2.
+	 * @return
+	 *      The index of the neighbour, or -1 if this edge is on the boundary.
+	 */
+	public int getNeighbour(int t, int k) {
+		return neighbours.get(PT_NB * t + k);
+	}
+
+	/**
+	 * Checks if the edge opposite to the kth vertex of t is a constraint.
+	 * @param t
+	 * @param k
+	 *      0, 1 or 2.
+	 * @return
+	 *      true if this edge is a constraint.
+	 */
+	public boolean isConstrained(int t, int k) {
+		int slot = PT_NB * t + k;
+		return (constraints.get(slot / WORD_BITS) & (1L << (slot % WORD_BITS))) != 0;
+	}
+
+	/**
+	 * @param i
+	 * @return the property of the ith vertex.
+	 */
+	public int getVertexProperty(int i) {
+		return vertexProperties == null ? 0 : vertexProperties.get(i);
+	}
+
+	/**
+	 * @param t
+	 * @return the property of the triangle t.
+	 */
+	public int getTriangleProperty(int t) {
+		return triangleProperties == null ? 0 : triangleProperties.get(t);
+	}
+
+	/**
+	 * Get the property of the edge opposite to the kth vertex of t.
+	 * @param t
+	 * @param k
+	 *      0, 1 or 2.
+	 * @return
+	 *      The property of the edge.
+	 */
+	public int getEdgeProperty(int t, int k) {
+		return edgeProperties == null ? 0 : edgeProperties.get(PT_NB * t + k);
+	}
+
+	/**
+	 * Copy the mapped arrays in a new IndexedMesh.
+	 * @return
+	 *      The mesh stored in the file.
+	 */
+	public IndexedMesh getIndexedMesh() {
+		double[] xs = new double[vertexCount];
+		double[] ys = new double[vertexCount];
+		double[] zs = new double[vertexCount];
+		x.duplicate().get(xs);
+		y.duplicate().get(ys);
+		z.duplicate().get(zs);
+		int[] tr = new int[PT_NB * triangleCount];
+		int[] nb = new int[PT_NB * triangleCount];
+		triangles.duplicate().get(tr);
+		neighbours.duplicate().get(nb);
+		BitSet cs = new BitSet(tr.length);
+		for(int w = 0; w < constraints.capacity(); w++){
+			long word = constraints.get(w);
+			while(word != 0){
+				int bit = Long.numberOfTrailingZeros(word);
+				cs.set(w * WORD_BITS + bit);
+				word &= word - 1;
+			}
+		}
+		int[] tp = null;
+		int[] ep = null;
+		if(triangleProperties != null){
+			tp = new int[triangleCount];
+			triangleProperties.duplicate().get(tp);
+		}
+		if(edgeProperties != null){
+			ep = new int[tr.length];
+			edgeProperties.duplicate().get(ep);
+		}
+		return new IndexedMesh(xs, ys, zs, tr, nb, cs, tp, ep);
+	}
+
+	/**
+	 * Rebuild the ConstrainedMesh stored in the file, with its DTriangle and
+	 * DEdge instances.
+	 * @return
+	 *      A computed ConstrainedMesh.
+	 * @throws DelaunayError
+	 */
+	public ConstrainedMesh getConstrainedMesh() throws DelaunayError {
+		return getConstrainedMesh(false);
+	}
+
+	/**
+	 * Rebuild the ConstrainedMesh stored in the file. The constraint edges are
+	 * the edges marked as constraints in the file. If lazy is true, the mesh is
+	 * only kept as an IndexedMesh, until its triangles are asked for.
+	 * @param lazy
+	 * @return
+	 *      A computed ConstrainedMesh.
+	 * @throws DelaunayError
+	 */
+	public ConstrainedMesh getConstrainedMesh(boolean lazy) throws DelaunayError {
+		IndexedMesh im = getIndexedMesh();
+		List<DPoint> pts = new ArrayList<DPoint>(vertexCount);
+		boolean sorted = true;
+		for(int i = 0; i < vertexCount; i++){
+			DPoint pt = new DPoint(x.get(i), y.get(i), z.get(i));
+			pt.setProperty(getVertexProperty(i));
+			if(sorted && i > 0 && pts.get(i - 1).compareTo2D(pt) >= 0){
+				sorted = false;
+			}
+			pts.add(pt);
+		}
+		if(!sorted){
+			//The points of a ConstrainedMesh must be sorted : the vertices
+			//of the mesh are renumbered in their order.
+			double[] xs = new double[vertexCount];
+			double[] ys = new double[vertexCount];
+			for(int i = 0; i < vertexCount; i++){
+				xs[i] = x.get(i);
+				ys[i] = y.get(i);
+			}
+			int[] order = PointSorter.sort(xs, ys);
+			int[] identity = new int[triangleCount];
+			for(int t = 0; t < triangleCount; t++){
+				identity[t] = t;
+			}
+			im = im.permute(order, identity);
+			List<DPoint> sortedPts = new ArrayList<DPoint>(vertexCount);
+			for(int i : order){
+				sortedPts.add(pts.get(i));
+			}
+			pts = sortedPts;
+		}
+		for(int i = 0; i < vertexCount; i++){
+			pts.get(i).setGID(i + 1);
+		}
+		ConstrainedMesh ret = new ConstrainedMesh();
+		ret.setPrecision(precision);
+		ret.setTolerance(tolerance);
+		ret.setWeights(getWeights());
+		ret.setComputedMesh(pts, im, lazy);
+		return ret;
+	}
+
+	/**
+	 * Map a section of the file.
+	 * @param channel
+	 * @param pos
+	 * @param size
+	 * @return
+	 * @throws IOException
+	 */
+	private static ByteBuffer map(FileChannel channel, long pos, long size) throws IOException {
+		if(size > Integer.MAX_VALUE){
+			throw new IOException("A section of the mesh file is too large to be mapped");
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, pos, size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * @param size
+	 * @return the smallest multiple of 8 greater or equal to size.
+	 */
+	private static long align(long size) {
+		return (size + LONG_SIZE - 1) / LONG_SIZE * LONG_SIZE;
+	}
+
+	/**
+	 * @param bits
+	 * @return the number of 64 bits words needed to store bits bits.
+	 */
+	private static long getWordCount(long bits) {
+		return (bits + WORD_BITS - 1) / WORD_BITS;
+	}
+
+	/**
+	 * Writes little-endian values in a channel, through a direct buffer.
+	 */
+	private static final class Output {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private long written = 0;
+
+		Output(FileChannel channel) {
+			this.channel = channel;
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		void putInt(int v) throws IOException {
+			ensure(INT_SIZE);
+			buffer.putInt(v);
+		}
+
+		void putLong(long v) throws IOException {
+			ensure(LONG_SIZE);
+			buffer.putLong(v);
+		}
+
+		void putDouble(double v) throws IOException {
+			ensure(LONG_SIZE);
+			buffer.putDouble(v);
+		}
+
+		/**
+		 * Write zeros until the size of the output is a multiple of align.
+		 * @param align
+		 * @throws IOException
+		 */
+		void pad(int align) throws IOException {
+			while((written + buffer.position()) % align != 0){
+				putInt(0);
+			}
+		}
+
+		private void ensure(int size) throws IOException {
+			if(buffer.remaining() < size){
+				flush();
+			}
+		}
+
+		void flush() throws IOException {
+			buffer.flip();
+			while(buffer.hasRemaining()){
+				written += channel.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+}
@@ -0,0 +1,445 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Samples the z values of a triangulation in batch, either on the cells of a
+ * RasterGrid or on arrays of coordinates.<p></p>
+ *
+ * The grid is rasterised triangle by triangle : for each row of cells crossed by
+ * a triangle, the interval covered by the triangle is computed from its edges, and
+ * the cells of this interval are evaluated on the plane of the triangle. The rows
+ * are cut in bands that are processed concurrently, each band writing only in
+ * its own cells. The triangles are bucketed by band first, so that each band
+ * only reads the triangles that cross it.<p></p>
+ *
+ * The arrays of coordinates are cut in chunks, each chunk using its own
+ * PointLocator, so that consecutive close points are found with short walks.
+ * @author alexis
+ */
+final class MeshSampler {
+
+	//The tolerance used to decide if a cell center is on the border of a
+	//triangle, in cell units.
+	private static final double EPS = 1e-9;
+	//Bands per thread, so that a band covering a dense area does not keep
+	//the other threads waiting.
+	private static final int BANDS_PER_THREAD = 4;
+	//Chunks smaller than that are not worth a thread.
+	private static final int MIN_CHUNK = 4096;
+
+	/**
+	 * Where the sampled values are written.
+	 */
+	abstract static class Target {
+
+		abstract void set(int index, double z);
+	}
+
+	/**
+	 * Writes in a double array.
+	 */
+	static final class ArrayTarget extends Target {
+
+		private final double[] values;
+
+		ArrayTarget(double[] values) {
+			this.values = values;
+		}
+
+		@Override
+		void set(int index, double z) {
+			values[index] = z;
+		}
+	}
+
+	/**
+	 * Writes in a FloatBuffer, from its position, which is left unchanged.
+	 */
+	static final class BufferTarget extends Target {
+
+		private final FloatBuffer values;
+		private final int offset;
+
+		BufferTarget(FloatBuffer values) {
+			this.values = values;
+			offset = values.position();
+		}
+
+		@Override
+		void set(int index, double z) {
+			values.put(offset + index, (float) z);
+		}
+	}
+
+	private MeshSampler() {
+	}
+
+	/**
+	 * Write the z value of each cell of grid in target. The cells that are
+	 * outside the mesh receive noData.
+	 * @param mesh
+	 * @param grid
+	 * @param target
+	 * @param noData
+	 * @param threads
+	 *      The maximum number of threads to use.
+	 * @throws DelaunayError
+	 */
+	static void rasterize(final IndexedMesh mesh, final RasterGrid grid, final Target target,
+			final double noData, int threads) throws DelaunayError {
+		int rows = grid.getRows();
+		int bandCount = threads < 2 ? 1 : Math.min(rows, threads * BANDS_PER_THREAD);
+		int[] bounds = new int[bandCount + 1];
+		for(int b = 0; b <= bandCount; b++){
+			bounds[b] = (int) ((long) rows * b / bandCount);
+		}
+		//The triangles of band b are bucket[start[b]] to bucket[start[b + 1] - 1].
+		final int[] start = new int[bandCount + 1];
+		final int[] bucket = bucketByBand(mesh, grid, bounds, start);
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(bandCount);
+		for(int b = 0; b < bandCount; b++){
+			final int first = bounds[b];
+			final int last = bounds[b + 1];
+			final int band = b;
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					rasterizeRows(mesh, grid, target, noData, first, last,
+						bucket, start[band], start[band + 1]);
+					return null;
+				}
+			});
+		}
+		run(tasks, threads);
+	}
+
+	/**
+	 * Sort the triangles of mesh by the bands of rows they cross. A triangle
+	 * that crosses several bands is put in each of them.
+	 * @param mesh
+	 * @param grid
+	 * @param bounds
+	 *      The first row of each band, and the number of rows.
+	 * @param start
+	 *      Filled with the index in the result of the first triangle of each band,
+	 * and with the size of the result.
+	 * @return
+	 *      The indices of the triangles, band after band.
+	 */
+	private static int[] bucketByBand(IndexedMesh mesh, RasterGrid grid, int[] bounds, int[] start) {
+		int bandCount = bounds.length - 1;
+		int tc = mesh.getTriangleCount();
+		if(bandCount == 1){
+			int[] ret = new int[tc];
+			for(int t = 0; t < tc; t++){
+				ret[t] = t;
+			}
+			start[1] = tc;
+			return ret;
+		}
+		//The band of each row.
+		int[] bandOfRow = new int[bounds[bandCount]];
+		for(int b = 0; b < bandCount; b++){
+			for(int r = bounds[b]; r < bounds[b + 1]; r++){
+				bandOfRow[r] = b;
+			}
+		}
+		//The first and last bands of each triangle, or -1 if it crosses no row.
+		int[] firstBand = new int[tc];
+		int[] lastBand = new int[tc];
+		int[] counts = new int[bandCount];
+		for(int t = 0; t < tc; t++){
+			int rFirst = Math.max(0, firstRow(mesh, grid, t));
+			int rLast = Math.min(bounds[bandCount] - 1, lastRow(mesh, grid, t));
+			if(rFirst > rLast){
+				firstBand[t] = -1;
+				continue;
+			}
+			firstBand[t] = bandOfRow[rFirst];
+			lastBand[t] = bandOfRow[rLast];
+			for(int b = firstBand[t]; b <= lastBand[t]; b++){
+				counts[b]++;
+			}
+		}
+		for(int b = 0; b < bandCount; b++){
+			start[b + 1] = start[b] + counts[b];
+		}
+		int[] ret = new int[start[bandCount]];
+		int[] next = new int[bandCount];
+		System.arraycopy(start, 0, next, 0, bandCount);
+		for(int t = 0; t < tc; t++){
+			if(firstBand[t] < 0){
+				continue;
+			}
+			for(int b = firstBand[t]; b <= lastBand[t]; b++){
+				ret[next[b]++] = t;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * The first row whose cell centers can be in the triangle t. The row of a
+	 * cell center y is (maxY - y) / cs - 0.5.
+	 */
+	private static int firstRow(IndexedMesh mesh, RasterGrid grid, int t) {
+		double ymax = Math.max(mesh.getY(mesh.getVertex(t, 0)),
+			Math.max(mesh.getY(mesh.getVertex(t, 1)), mesh.getY(mesh.getVertex(t, 2))));
+		return (int) Math.ceil((grid.getMaxY() - ymax) / grid.getCellSize() - 0.5 - EPS);
+	}
+
+	/**
+	 * The last row whose cell centers can be in the triangle t.
+	 */
+	private static int lastRow(IndexedMesh mesh, RasterGrid grid, int t) {
+		double ymin = Math.min(mesh.getY(mesh.getVertex(t, 0)),
+			Math.min(mesh.getY(mesh.getVertex(t, 1)), mesh.getY(mesh.getVertex(t, 2))));
+		return (int) Math.floor((grid.getMaxY() - ymin) / grid.getCellSize() - 0.5 + EPS);
+	}
+
+	/**
+	 * Write the z values of the cells of the rows first (included) to last
+	 * (excluded) of grid, using the triangles bucket[from] to bucket[to - 1].
+	 */
+	private static void rasterizeRows(IndexedMesh mesh, RasterGrid grid, Target target,
+			double noData, int first, int last, int[] bucket, int from, int to) {
+		int columns = grid.getColumns();
+		for(int i = first * columns; i < last * columns; i++){
+			target.set(i, noData);
+		}
+		double cs = grid.getCellSize();
+		double minX = grid.getMinX();
+		double maxY = grid.getMaxY();
+		//The row of a cell center y is (maxY - y) / cs - 0.5, its column is
+		//(x - minX) / cs - 0.5.
+		for(int n = from; n < to; n++){
+			int t = bucket[n];
+			int i0 = mesh.getVertex(t, 0);
+			int i1 = mesh.getVertex(t, 1);
+			int i2 = mesh.getVertex(t, 2);
+			double x0 = mesh.getX(i0);
+			double y0 = mesh.getY(i0);
+			double x1 = mesh.getX(i1);
+			double y1 = mesh.getY(i1);
+			double x2 = mesh.getX(i2);
+			double y2 = mesh.getY(i2);
+			double ymin = Math.min(y0, Math.min(y1, y2));
+			double ymax = Math.max(y0, Math.max(y1, y2));
+			int rFirst = Math.max(first, (int) Math.ceil((maxY - ymax) / cs - 0.5 - EPS));
+			int rLast = Math.min(last - 1, (int) Math.floor((maxY - ymin) / cs - 0.5 + EPS));
+			if(rFirst > rLast){
+				continue;
+			}
+			double ux = x1 - x0;
+			double uy = y1 - y0;
+			double vx = x2 - x0;
+			double vy = y2 - y0;
+			double det = ux * vy - vx * uy;
+			if(det == 0){
+				continue;
+			}
+			double z0 = mesh.getZ(i0);
+			double uz = mesh.getZ(i1) - z0;
+			double vz = mesh.getZ(i2) - z0;
+			//z = z0 + a * (x - x0) + b * (y - y0) on the plane of the triangle.
+			double a = (uz * vy - vz * uy) / det;
+			double b = (ux * vz - vx * uz) / det;
+			for(int r = rFirst; r <= rLast; r++){
+				double y = maxY - (r + 0.5) * cs;
+				double xl = Double.POSITIVE_INFINITY;
+				double xr = Double.NEGATIVE_INFINITY;
+				for(int k = 0; k < 3; k++){
+					double xa = k == 0 ? x0 : (k == 1 ? x1 : x2);
+					double ya = k == 0 ? y0 : (k == 1 ? y1 : y2);
+					double xb = k == 0 ? x1 : (k == 1 ? x2 : x0);
+					double yb = k == 0 ? y1 : (k == 1 ? y2 : y0);
+					if((y - ya) * (y - yb) > 0){
+						continue;
+					}
+					if(ya == yb){
+						xl = Math.min(xl, Math.min(xa, xb));
+						xr = Math.max(xr, Math.max(xa, xb));
+					} else {
+						double xi = xa + (y - ya) * (xb - xa) / (yb - ya);
+						xl = Math.min(xl, xi);
+						xr = Math.max(xr, xi);
+					}
+				}
+				if(xl > xr){
+					//y is only inside the triangle with the tolerance.
+					double yc = Math.max(ymin, Math.min(ymax, y));
+					xl = Double.POSITIVE_INFINITY;
+					xr = Double.NEGATIVE_INFINITY;
+					if(y0 == yc){
+						xl = Math.min(xl, x0);
+						xr = Math.max(xr, x0);
+					}
+					if(y1 == yc){
+						xl = Math.min(xl, x1);
+						xr = Math.max(xr, x1);
+					}
+					if(y2 == yc){
+						xl = Math.min(xl, x2);
+						xr = Math.max(xr, x2);
+					}
+				}
+				int cFirst = Math.max(0, (int) Math.ceil((xl - minX) / cs - 0.5 - EPS));
+				int cLast = Math.min(columns - 1, (int) Math.floor((xr - minX) / cs - 0.5 + EPS));
+				double zRow = z0 + b * (y - y0) - a * x0;
+				int offset = r * columns;
+				for(int c = cFirst; c <= cLast; c++){
+					target.set(offset + c, zRow + a * (minX + (c + 0.5) * cs));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Write in z the z value of the mesh at each point (x[i], y[i]). The points
+	 * that are outside the mesh receive noData.
+	 * @param triangles
+	 *      The triangles of a computed mesh.
+	 * @param locator
+	 *      The locator to use when the sampling is not concurrent.
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param noData
+	 * @param threads
+	 * @throws DelaunayError
+	 */
+	static void sample(final List<DTriangle> triangles, PointLocator locator, final double[] x,
+			final double[] y, final double[] z, final double noData, int threads) throws DelaunayError {
+		int n = x.length;
+		int chunks = Math.max(1, Math.min(threads, n / MIN_CHUNK));
+		if(chunks == 1){
+			sampleRange(locator, x, y, z, noData, 0, n);
+			return;
+		}
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(chunks);
+		for(int c = 0; c < chunks; c++){
+			final int first = (int) ((long) n * c / chunks);
+			final int last = (int) ((long) n * (c + 1) / chunks);
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() throws DelaunayError {
+					sampleRange(new PointLocator(triangles), x, y, z, noData, first, last);
+					return null;
+				}
+			});
+		}
+		run(tasks, threads);
+	}
+
+	/**
+	 * Sample the points first (included) to last (excluded).
+	 */
+	private static void sampleRange(PointLocator locator, double[] x, double[] y, double[] z,
+			double noData, int first, int last) throws DelaunayError {
+		DPoint pt = new DPoint();
+		for(int i = first; i < last; i++){
+			pt.setX(x[i]);
+			pt.setY(y[i]);
+			DTriangle tri = locator.getTriangle(pt);
+			z[i] = tri == null ? noData : tri.interpolateZ(pt);
+		}
+	}
+
+	/**
+	 * Run the tasks, in the current thread if threads is 1 or if there is only
+	 * one task, in a thread pool otherwise.
+	 * @param tasks
+	 * @param threads
+	 * @throws DelaunayError
+	 */
+	private static void run(List<Callable<Void>> tasks, int threads) throws DelaunayError {
+		if(threads < 2 || tasks.size() < 2){
+			for(Callable<Void> c : tasks){
+				call(c);
+			}
+			return;
+		}
+		ExecutorService exec = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>(tasks.size());
+			for(Callable<Void> c : tasks){
+				futures.add(exec.submit(c));
+			}
+			DelaunayError failure = null;
+			for(Future<Void> f : futures){
+				try {
+					f.get();
+				} catch (ExecutionException e) {
+					if(failure == null){
+						failure = e.getCause() instanceof DelaunayError
+							? (DelaunayError) e.getCause()
+							: new DelaunayError(DelaunayError.DELAUNAY_ERROR_INTERNAL_ERROR,
+								String.valueOf(e.getCause()));
+					}
+				}
+			}
+			if(failure != null){
+				throw failure;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_INTERNAL_ERROR,
+				"Interrupted while sampling the mesh");
+		} finally {
+			exec.shutdown();
+		}
+	}
+
+	private static void call(Callable<Void> c) throws DelaunayError {
+		try {
+			c.call();
+		} catch (DelaunayError d) {
+			throw d;
+		} catch (RuntimeException r) {
+			throw r;
+		} catch (Exception e) {
+			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_INTERNAL_ERROR, e.toString());
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * The changes made to a computed ConstrainedMesh by one of its incremental
+ * insertion methods.<p></p>
+ * The insertion methods don't delete the triangles they change : they reuse
+ * them, as removing them from the list of triangles of the mesh would be too
+ * expensive. Such a triangle is given in both lists : the live object, with
+ * its new vertices, in getCreatedTriangles, and a detached copy of its old
+ * state, with the same GID, in getRemovedTriangles.
+ * @author alexis
+ */
+public final class MeshUpdate {
+
+        private final List<DTriangle> created;
+        private final List<DTriangle> modified;
+        private final List<DTriangle> removed;
+        //The triangles already recorded in created or modified.
+        private final Map<DTriangle, Boolean> known;
+        private final List<DPoint> insertedPoints;
+
+        /**
+         * Build a new, empty, update.
+         */
+        MeshUpdate() {
+                created = new ArrayList<DTriangle>();
+                modified = new ArrayList<DTriangle>();
+                removed = new ArrayList<DTriangle>();
+                known = new IdentityHashMap<DTriangle, Boolean>();
+                insertedPoints = new ArrayList<DPoint>();
+        }
+
+        /**
+         * Record a triangle that has been added to the mesh.
+         * @param tri
+         */
+        void create(DTriangle tri) {
+                if(known.put(tri, Boolean.TRUE) == null){
+                        created.add(tri);
+                }
+        }
+
+        /**
+         * Record a triangle of the mesh that is about to be changed. Its current
+         * state is copied the first time it is touched.
+         * @param tri
+         * @throws DelaunayError
+         */
+        void touch(DTriangle tri) throws DelaunayError {
+                if(known.put(tri, Boolean.TRUE) == null){
+                        modified.add(tri);
+                        DTriangle old = new DTriangle(tri.getPoint(0), tri.getPoint(1), tri.getPoint(2));
+                        old.setGID(tri.getGID());
+                        old.setProperty(tri.getProperty());
+                        removed.add(old);
+                }
+        }
+
+        /**
+         * Record a point that has been inserted in the mesh.
+         * @param pt
+         */
+        void addPoint(DPoint pt) {
+                insertedPoints.add(pt);
+        }
+
+        /**
+         * Get the triangles that are in the mesh after the update, and that were
+         * not before (or not with the same vertices).
+         * @return
+         *      The new and the changed triangles of the mesh.
+         */
+        public List<DTriangle> getCreatedTriangles() {
+                List<DTriangle> ret = new ArrayList<DTriangle>(created.size() + modified.size());
+                ret.addAll(created);
+                ret.addAll(modified);
+                return ret;
+        }
+
+        /**
+         * Get the triangles that were in the mesh before the update, and that are
+         * not anymore. These are detached copies : their edges are not the edges
+         * of the mesh.
+         * @return
+         *      Copies of the removed triangles, as they were before the update.
+         */
+        public List<DTriangle> getRemovedTriangles() {
+                return Collections.unmodifiableList(removed);
+        }
+
+        /**
+         * Get the points that have actually been added to the mesh : the input
+         * points that were already vertices of the mesh are not given, but the
+         * points created where a new constraint crosses an existing one are.
+         * @return
+         *      The new vertices of the mesh.
+         */
+        public List<DPoint> getInsertedPoints() {
+                return Collections.unmodifiableList(insertedPoints);
+        }
+
+        /**
+         * Check if this update has changed the mesh.
+         * @return
+         *      true if no triangle has been created or changed.
+         */
+        public boolean isEmpty() {
+                return known.isEmpty();
+        }
+}
@@ -0,0 +1,665 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.evaluator.InsertionEvaluator;
+import org.jdelaunay.delaunay.evaluator.ScoredEvaluator;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+import org.jdelaunay.delaunay.geometries.Element;
+import org.jdelaunay.delaunay.tools.Predicates;
+
+/**
+ * Refines a computed mesh with several threads, using the Ruppert's algorithm.
+ * The refinement works by rounds. In each round :<br/>
+ *  * the evaluator is called on the queued triangles, in the order of the
+ * queue, in the calling thread.<br/>
+ *  * the Steiner point of each queued triangle (its circumcenter or its
+ * off-center) or segment (its middle, or a point on a concentric shell) is computed concurrently, with its cavity : the triangles whose
+ * circumcircle contains it, that are reached without crossing a constraint.
+ * The mesh is only read during this step.<br/>
+ *  * the points are selected in the order of the queue, worst triangles first if
+ * the evaluator is a ScoredEvaluator : a point is kept if its
+ * cavity does not meet the cavity or the neighbours of the cavity of an already
+ * kept point. Other points are queued again for the next round.<br/>
+ *  * the kept points are inserted concurrently, each in its own cavity, that no
+ * other thread reads or writes.<br/>
+ *  * the new elements are added to the mesh, in the order of the queue, and
+ * the changed triangles are queued.<p></p>
+ *
+ * As the selection and the merge are made in the order of the queue, the result
+ * does not depend on the number of threads, nor on the scheduling of the threads.
+ * It is not the one of the sequential refinement, that inserts the points one
+ * after the other.<p></p>
+ *
+ * The evaluator is only called from the calling thread, one triangle after
+ * the other, as in the sequential refinement : it does not need to be thread
+ * safe. The mesh is not modified while it runs.
+ *
+ * @author alexis
+ */
+final class ParallelRefinement {
+
+	//Below this number of points, a step is made in the calling thread.
+	static final int MIN_PARALLEL_WORK = 256;
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private static final int DONE = 0;
+	private static final int INSERT = 1;
+	private static final int ENCROACHED = 2;
+
+	private static final Comparator<Plan> WORST_FIRST = new Comparator<Plan>() {
+		@Override
+		public int compare(Plan o1, Plan o2) {
+			return Double.compare(o2.score, o1.score);
+		}
+	};
+
+	private final ConstrainedMesh mesh;
+	private final double minLength;
+	private final InsertionEvaluator ev;
+	private final boolean splitSegments;
+	private final int threads;
+	private ExecutorService exec;
+	private int rounds;
+
+	/**
+	 * Prepare a parallel refinement.
+	 * @param mesh
+	 *      A computed mesh, with its triangles.
+	 * @param minLength
+	 *      The minimum length of an edge that could be inserted.
+	 * @param ev
+	 *      Decides which triangles must be refined.
+	 * @param splitSegments
+	 *      true to split the encroached constraints and boundary edges, as
+	 * refineMesh does, false to keep them, as refineTriangles does.
+	 * @param threads
+	 *      The number of threads to use.
+	 */
+	ParallelRefinement(ConstrainedMesh mesh, double minLength, InsertionEvaluator ev,
+			boolean splitSegments, int threads) {
+		this.mesh = mesh;
+		this.minLength = minLength;
+		this.ev = ev;
+		this.splitSegments = splitSegments;
+		this.threads = threads;
+	}
+
+	/**
+	 * @return the number of rounds made by the last refinement.
+	 */
+	int getRounds() {
+		return rounds;
+	}
+
+	/**
+	 * Refine the mesh, until no triangle needs to be refined anymore.
+	 * @throws DelaunayError
+	 */
+	void refine() throws DelaunayError {
+		List<DEdge> segments = new ArrayList<DEdge>();
+		if(splitSegments){
+			for(DEdge e : mesh.getEdges()){
+				if(e.isEncroached()){
+					segments.add(e);
+				}
+			}
+		}
+		List<DTriangle> candidates = new ArrayList<DTriangle>(mesh.getTriangleList());
+		rounds = 0;
+		exec = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+		try {
+			//The segments are split before the triangles are refined.
+			while(!segments.isEmpty() || !candidates.isEmpty()){
+				List<Plan> plans = new ArrayList<Plan>();
+				List<DEdge> nextSegments = new ArrayList<DEdge>();
+				if(segments.isEmpty()){
+					Set<DTriangle> seen = newSet();
+					for(DTriangle t : candidates){
+						if(seen.add(t)){
+							plans.add(new Plan(t, null));
+						}
+					}
+					candidates = new ArrayList<DTriangle>();
+				} else {
+					Set<DEdge> seen = newSet();
+					for(DEdge e : segments){
+						if(seen.add(e)){
+							plans.add(new Plan(null, e));
+						}
+					}
+				}
+				round(plans, candidates, nextSegments);
+				segments = nextSegments;
+				rounds++;
+			}
+		} finally {
+			if(exec != null){
+				exec.shutdown();
+				exec = null;
+			}
+		}
+	}
+
+	/**
+	 * Process a round of insertions.
+	 * @param plans
+	 *      The triangles or segments of this round.
+	 * @param candidates
+	 *      The triangles to process in the next rounds are added to this list.
+	 * @param segments
+	 *      The segments to split in the next round are added to this list.
+	 * @throws DelaunayError
+	 */
+	private void round(List<Plan> plans, List<DTriangle> candidates, List<DEdge> segments)
+			throws DelaunayError {
+		evaluate(plans);
+		forEach(plans, false);
+		if(ev instanceof ScoredEvaluator){
+			//The worst triangles are kept first. The sort is stable, so
+			//the order does not depend on the threads.
+			Collections.sort(plans, WORST_FIRST);
+		}
+		//We keep the points whose cavities are independent. TRUE marks the
+		//triangles that are modified, FALSE the ones that are only read.
+		Map<DTriangle, Boolean> claims = new IdentityHashMap<DTriangle, Boolean>();
+		List<Plan> kept = new ArrayList<Plan>();
+		for(Plan p : plans){
+			if(p.kind == ENCROACHED){
+				segments.add(p.encroached);
+				candidates.add(p.triangle);
+			} else if(p.kind == INSERT){
+				if(claim(p, claims)){
+					kept.add(p);
+				} else if(p.triangle != null){
+					candidates.add(p.triangle);
+				} else {
+					segments.add(p.segment);
+				}
+			}
+		}
+		forEach(kept, true);
+		for(Plan p : kept){
+			mesh.registerRefinement(p.point, p.newEdges, p.newTriangles);
+			candidates.addAll(p.cavity);
+			candidates.addAll(p.newTriangles);
+			segments.addAll(p.encroachedAfter);
+		}
+	}
+
+	/**
+	 * Call the evaluator on the triangles of plans, in this thread and in
+	 * the order of the list.
+	 * @param plans
+	 */
+	private void evaluate(List<Plan> plans) {
+		boolean scored = ev instanceof ScoredEvaluator;
+		for(Plan p : plans){
+			if(p.triangle != null){
+				p.refine = ev.evaluate(p.triangle);
+				if(p.refine && scored){
+					p.score = ((ScoredEvaluator) ev).score(p.triangle);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Claim the cavity and the neighbours of the cavity of p.
+	 * @param p
+	 * @param claims
+	 * @return
+	 *      false if they meet the ones of a point that has already been kept.
+	 */
+	private static boolean claim(Plan p, Map<DTriangle, Boolean> claims) {
+		for(DTriangle t : p.cavity){
+			if(claims.containsKey(t)){
+				return false;
+			}
+		}
+		for(DTriangle t : p.ring){
+			if(claims.get(t) == Boolean.TRUE){
+				return false;
+			}
+		}
+		for(DTriangle t : p.cavity){
+			claims.put(t, Boolean.TRUE);
+		}
+		for(DTriangle t : p.ring){
+			if(!claims.containsKey(t)){
+				claims.put(t, Boolean.FALSE);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Prepare or insert all the given plans, in the thread pool if there are
+	 * enough of them.
+	 * @param plans
+	 * @param insert
+	 * @throws DelaunayError
+	 */
+	private void forEach(final List<Plan> plans, final boolean insert) throws DelaunayError {
+		int n = plans.size();
+		if(exec == null || n < MIN_PARALLEL_WORK){
+			run(plans, insert, 0, n);
+			return;
+		}
+		int chunks = Math.min(n, threads * CHUNKS_PER_THREAD);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>(chunks);
+		for(int c = 0; c < chunks; c++){
+			final int first = (int) ((long) n * c / chunks);
+			final int last = (int) ((long) n * (c + 1) / chunks);
+			futures.add(exec.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws DelaunayError {
+					run(plans, insert, first, last);
+					return null;
+				}
+			}));
+		}
+		//We wait for all the tasks, even when one of them failed : the mesh
+		//must not be modified anymore when we return.
+		DelaunayError failure = null;
+		try {
+			for(Future<Void> f : futures){
+				try {
+					f.get();
+				} catch (ExecutionException e) {
+					if(failure == null){
+						failure = e.getCause() instanceof DelaunayError
+							? (DelaunayError) e.getCause()
+							: new DelaunayError(DelaunayError.DELAUNAY_ERROR_INTERNAL_ERROR,
+								String.valueOf(e.getCause()));
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_INTERNAL_ERROR,
+				"Interrupted while refining the mesh");
+		}
+		if(failure != null){
+			throw failure;
+		}
+	}
+
+	private void run(List<Plan> plans, boolean insert, int first, int last) throws DelaunayError {
+		for(int i = first; i < last; i++){
+			if(insert){
+				insert(plans.get(i));
+			} else {
+				prepare(plans.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Compute the Steiner point of p and its cavity, if p is a segment or a
+	 * triangle that the evaluator refines. The mesh is only read.
+	 * @param p
+	 * @throws DelaunayError
+	 */
+	private void prepare(Plan p) throws DelaunayError {
+		p.kind = DONE;
+		if(p.triangle == null){
+			DEdge seg = p.segment;
+			if(seg.getSquared2DLength() / 4 < minLength * minLength){
+				return;
+			}
+			p.point = mesh.getSplitPoint(seg, minLength);
+			p.onEdge = seg;
+			if(buildCavity(p, seg.getLeft(), seg.getRight(), false) == null){
+				p.kind = INSERT;
+			}
+			return;
+		}
+		if(!p.refine){
+			return;
+		}
+		DTriangle tri = p.triangle;
+		DPoint pt = mesh.getSteinerPoint(tri, ev);
+		Element container = tri.getContainerSafe(pt.getX(), pt.getY());
+		if(container == null){
+			return;
+		} else if(container instanceof DEdge){
+			encroached(p, (DEdge) container);
+			return;
+		}
+		DTriangle cont = (DTriangle) container;
+		pt.setZ(mesh.interpolateSteinerZ(cont, pt));
+		if(cont.isCloser(pt, minLength)){
+			return;
+		}
+		p.point = pt;
+		DEdge onEdge = cont.getContainingEdge(pt);
+		DTriangle other = null;
+		if(onEdge != null){
+			if(onEdge.isLocked() || onEdge.getLeft() == null || onEdge.getRight() == null){
+				encroached(p, onEdge);
+				return;
+			}
+			other = onEdge.getLeft() == cont ? onEdge.getRight() : onEdge.getLeft();
+			p.onEdge = onEdge;
+		}
+		DEdge enc = buildCavity(p, cont, other, true);
+		if(enc == null){
+			p.kind = INSERT;
+		} else {
+			encroached(p, enc);
+		}
+	}
+
+	/**
+	 * The Steiner point of p encroaches ed. In refineMesh, ed is split if it
+	 * is long enough and if the Steiner placement does not keep it, and the
+	 * triangle is processed again later.
+	 */
+	private void encroached(Plan p, DEdge ed) throws DelaunayError {
+		if(splitSegments && ed.get2DLength() > 2 * minLength
+			&& !mesh.isSplitTerminated(ed, p.triangle, minLength)){
+			p.kind = ENCROACHED;
+			p.encroached = ed;
+		}
+	}
+
+	/**
+	 * Search for the cavity of the point of p, from the given triangles, and
+	 * for the triangles that surround it.
+	 * @param p
+	 * @param first
+	 * @param second
+	 *      The other triangle linked to the edge the point lies on, if any.
+	 * @param check
+	 *      true to check that the point does not encroach a constraint or a
+	 * boundary edge of the cavity.
+	 * @return
+	 *      The first encroached edge, if any.
+	 * @throws DelaunayError
+	 */
+	private static DEdge buildCavity(Plan p, DTriangle first, DTriangle second, boolean check)
+			throws DelaunayError {
+		DPoint pt = p.point;
+		List<DTriangle> cavity = new ArrayList<DTriangle>();
+		List<DTriangle> around = new ArrayList<DTriangle>();
+		//The triangles whose circumcircle has been tested.
+		Set<DTriangle> tested = newSet();
+		for(DTriangle t : new DTriangle[]{first, second}){
+			if(t != null && tested.add(t)){
+				cavity.add(t);
+			}
+		}
+		for(int i = 0; i < cavity.size(); i++){
+			DTriangle t = cavity.get(i);
+			for(DEdge ed : t.getEdges()){
+				if(ed == p.onEdge){
+					continue;
+				}
+				DTriangle n = ed.getLeft() == t ? ed.getRight() : ed.getLeft();
+				if(n == null || ed.isLocked()){
+					if(check && ed.isEncroachedBy(pt)){
+						return ed;
+					}
+					//n can still be reached from another triangle of the cavity.
+					if(n != null){
+						around.add(n);
+					}
+				} else if(tested.add(n)){
+					if(inCircumCircle(n, pt)){
+						cavity.add(n);
+					} else {
+						around.add(n);
+					}
+				}
+			}
+		}
+		Set<DTriangle> excluded = newSet();
+		excluded.addAll(cavity);
+		List<DTriangle> ring = new ArrayList<DTriangle>();
+		for(DTriangle n : around){
+			if(excluded.add(n)){
+				ring.add(n);
+			}
+		}
+		p.cavity = cavity;
+		p.ring = ring;
+		return null;
+	}
+
+	/**
+	 * Exact test of the point against the circumcircle of tri. It does not use
+	 * the center cached in the triangle, that could be computed by another
+	 * thread. Flat triangles are always in the cavity.
+	 */
+	private static boolean inCircumCircle(DTriangle tri, DPoint pt) {
+		DPoint p0 = tri.getPoint(0);
+		DPoint p1 = tri.getPoint(1);
+		DPoint p2 = tri.getPoint(2);
+		double o = Predicates.orient2d(p0, p1, p2);
+		if(o > 0){
+			return Predicates.inCircle(p0, p1, p2, pt) > 0;
+		} else if(o < 0){
+			return Predicates.inCircle(p1, p0, p2, pt) > 0;
+		}
+		return true;
+	}
+
+	/**
+	 * Insert the point of p in its cavity, and restore the Delaunay property
+	 * with flip-flaps on the edges of the cavity. Only the cavity and its
+	 * neighbours are read or written.
+	 * @param p
+	 * @throws DelaunayError
+	 */
+	private void insert(Plan p) throws DelaunayError {
+		Deque<DEdge> badEdges = new ArrayDeque<DEdge>();
+		p.newEdges = new ArrayList<DEdge>(3);
+		p.newTriangles = new ArrayList<DTriangle>(2);
+		if(p.onEdge == null){
+			splitTriangle(p, p.cavity.get(0), badEdges);
+		} else {
+			splitEdge(p, p.onEdge, badEdges);
+		}
+		Set<DTriangle> owned = newSet();
+		owned.addAll(p.cavity);
+		owned.addAll(p.newTriangles);
+		Set<DEdge> queued = newSet();
+		queued.addAll(badEdges);
+		Set<DEdge> alreadySeen = newSet();
+		DEdge[] others = new DEdge[4];
+		while(!badEdges.isEmpty()){
+			DEdge ed = badEdges.pollFirst();
+			queued.remove(ed);
+			if(!ed.isLocked() && owned.contains(ed.getLeft()) && owned.contains(ed.getRight())
+					&& alreadySeen.add(ed) && mesh.swapTriangle(ed)){
+				ConstrainedMesh.fillOppositeEdges(ed, others);
+				for(DEdge edge : others){
+					if(edge.getLeft() != null && edge.getRight() != null && queued.add(edge)){
+						badEdges.addLast(edge);
+					}
+				}
+			}
+		}
+		p.encroachedAfter = new ArrayList<DEdge>();
+		if(splitSegments){
+			//The lists are used rather than owned, to keep a deterministic order.
+			Set<DEdge> checked = newSet();
+			checkEncroached(p.cavity, checked, p.encroachedAfter);
+			checkEncroached(p.newTriangles, checked, p.encroachedAfter);
+		}
+	}
+
+	/**
+	 * Add to encroached the edges of tris that are encroached and that are not
+	 * in checked yet.
+	 */
+	private static void checkEncroached(List<DTriangle> tris, Set<DEdge> checked,
+			List<DEdge> encroached) throws DelaunayError {
+		for(DTriangle t : tris){
+			for(DEdge ed : t.getEdges()){
+				if(checked.add(ed) && ed.isEncroached()){
+					encroached.add(ed);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Split container in three triangles around the point of p.
+	 */
+	private static void splitTriangle(Plan p, DTriangle container, Deque<DEdge> badEdges)
+			throws DelaunayError {
+		DPoint pt = p.point;
+		DEdge eMem0 = container.getEdge(0);
+		DEdge eMem1 = container.getEdge(1);
+		DEdge eMem2 = container.getEdge(2);
+		badEdges.add(eMem0);
+		badEdges.add(eMem1);
+		badEdges.add(eMem2);
+		DEdge e1 = new DEdge(pt, eMem1.getStartPoint());
+		DEdge e2 = new DEdge(pt, eMem1.getEndPoint());
+		DTriangle tri1 = new DTriangle(eMem1, e1, e2);
+		DEdge e3 = new DEdge(pt, container.getOppositePoint(eMem1));
+		DTriangle tri2;
+		if(eMem2.isExtremity(eMem1.getStartPoint())){
+			tri2 = new DTriangle(e1, e3, eMem2);
+			container.setEdge(1, e2);
+			container.setEdge(2, e3);
+		} else {
+			tri2 = new DTriangle(e2, e3, eMem2);
+			container.setEdge(1, e1);
+			container.setEdge(2, e3);
+		}
+		container.forceCoherenceWithEdges();
+		container.recomputeCenter();
+		p.newTriangles.add(tri1);
+		p.newTriangles.add(tri2);
+		p.newEdges.add(e1);
+		p.newEdges.add(e2);
+		p.newEdges.add(e3);
+	}
+
+	/**
+	 * Split contEdge and the triangles linked to it with the point of p. The
+	 * second half of contEdge is locked if contEdge is.
+	 */
+	private static void splitEdge(Plan p, DEdge contEdge, Deque<DEdge> badEdges)
+			throws DelaunayError {
+		DPoint pt = p.point;
+		DTriangle left = contEdge.getLeft();
+		DTriangle right = contEdge.getRight();
+		DEdge otherPart = new DEdge(pt, contEdge.getEndPoint());
+		if(left != null){
+			DEdge l1 = left.getOppositeEdge(contEdge.getEndPoint());
+			DEdge l2 = left.getOppositeEdge(contEdge.getStartPoint());
+			badEdges.add(l1);
+			badEdges.add(l2);
+			DEdge lastLeft = new DEdge(pt, left.getOppositePoint(contEdge));
+			DTriangle otl = new DTriangle(l2, otherPart, lastLeft);
+			left.setEdge(left.getEdgeIndex(l2), lastLeft);
+			lastLeft.setLeft(left);
+			p.newEdges.add(lastLeft);
+			p.newTriangles.add(otl);
+		}
+		if(right != null){
+			DEdge r1 = right.getOppositeEdge(contEdge.getEndPoint());
+			DEdge r2 = right.getOppositeEdge(contEdge.getStartPoint());
+			badEdges.add(r1);
+			badEdges.add(r2);
+			DEdge lastRight = new DEdge(pt, right.getOppositePoint(contEdge));
+			DTriangle otr = new DTriangle(r2, otherPart, lastRight);
+			right.setEdge(right.getEdgeIndex(r2), lastRight);
+			lastRight.setRight(right);
+			p.newEdges.add(lastRight);
+			p.newTriangles.add(otr);
+		}
+		contEdge.setEndPoint(pt);
+		otherPart.setProperty(contEdge.getProperty());
+		otherPart.setLocked(contEdge.isLocked());
+		p.newEdges.add(otherPart);
+		if(left != null){
+			left.recomputeCenter();
+		}
+		if(right != null){
+			right.recomputeCenter();
+		}
+	}
+
+	private static <T> Set<T> newSet() {
+		return Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+	}
+
+	/**
+	 * The insertion of a Steiner point, for a triangle or a segment.
+	 */
+	private static final class Plan {
+		//The triangle to refine, or the segment to split.
+		private final DTriangle triangle;
+		private final DEdge segment;
+		private int kind;
+		//Set by the evaluator, before the point is prepared.
+		private boolean refine;
+		private double score;
+		private DPoint point;
+		//The edge the point lies on, if any.
+		private DEdge onEdge;
+		private DEdge encroached;
+		//The cavity starts with the triangle that contains the point.
+		private List<DTriangle> cavity;
+		private List<DTriangle> ring;
+		private List<DEdge> newEdges;
+		private List<DTriangle> newTriangles;
+		private List<DEdge> encroachedAfter;
+
+		private Plan(DTriangle triangle, DEdge segment) {
+			this.triangle = triangle;
+			this.segment = segment;
+		}
+	}
+}
@@ -0,0 +1,492 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+import org.jdelaunay.delaunay.tools.Kernels;
+import org.jdelaunay.delaunay.tools.Predicates;
+import org.jdelaunay.delaunay.tools.Tools;
+
+/**
+ * Computes a constrained triangulation by splitting the input in vertical slabs.
+ * Each slab is triangulated in its own thread, with the usual sweep. The
+ * slabs are then sewn together along their convex hulls, from left to right.<p></p>
+ *
+ * Slabs are only cut between two points whose abscissas differ, so the area
+ * between two slabs is empty. The triangles built in this area are not Delaunay :
+ * their edges, and the hull edges they are connected to, are given back with
+ * getSeamEdges so that they can be processed with flip-flaps. Each slab is
+ * triangulated with the constraints that lie entirely in it. The constraints
+ * that cross a cut are given back with getCrossingConstraints : they must be
+ * forced in the merged mesh.
+ *
+ * @author alexis
+ */
+final class ParallelSweep {
+
+	//Slabs with less points than this are not worth a thread.
+	static final int MIN_SLAB_SIZE = 64;
+
+	private final List<DPoint> points;
+	private final List<DEdge> constraints;
+	private final int threads;
+	private List<DTriangle> triangles;
+	private List<DEdge> edges;
+	private List<DEdge> seamEdges;
+	private List<DEdge> crossingConstraints;
+	//The convex hull of the already merged slabs, in counterclockwise order.
+	//hullEdge associates to each vertex v the edge [v next(v)].
+	private final Map<DPoint, DPoint> next = new IdentityHashMap<DPoint, DPoint>();
+	private final Map<DPoint, DPoint> prev = new IdentityHashMap<DPoint, DPoint>();
+	private final Map<DPoint, DEdge> hullEdge = new IdentityHashMap<DPoint, DEdge>();
+
+	/**
+	 * Prepare a parallel triangulation.
+	 * @param points
+	 *      The points of the mesh, sorted and without duplicates.
+	 * @param constraints
+	 *      The constraints of the mesh, whose extremities are in points.
+	 * @param threads
+	 *      The number of threads to use.
+	 */
+	ParallelSweep(List<DPoint> points, List<DEdge> constraints, int threads) {
+		this.points = points;
+		this.constraints = constraints;
+		this.threads = threads;
+	}
+
+	/**
+	 * @return the triangles of the mesh, once computed.
+	 */
+	List<DTriangle> getTriangles() {
+		return triangles;
+	}
+
+	/**
+	 * @return the edges of the mesh, once computed.
+	 */
+	List<DEdge> getEdges() {
+		return edges;
+	}
+
+	/**
+	 * @return the edges that have been built or that have become internal
+	 * while merging the slabs. They must be checked with flip-flaps.
+	 */
+	List<DEdge> getSeamEdges() {
+		return seamEdges;
+	}
+
+	/**
+	 * @return the constraints that cross the cuts between the slabs, once
+	 * computed. They are not linked to the triangles of the mesh.
+	 */
+	List<DEdge> getCrossingConstraints() {
+		return crossingConstraints;
+	}
+
+	/**
+	 * Compute the indices where the sorted points must be cut to obtain slabCount
+	 * slabs of about the same size. A cut is only made between two points whose
+	 * abscissas differ.
+	 * @param pts
+	 * @param slabCount
+	 * @return
+	 *      The bounds of the slabs : slab i goes from bounds[i] (included) to
+	 *      bounds[i+1] (excluded). The first bound is 0, the last one is pts.size().
+	 */
+	static int[] computeBounds(List<DPoint> pts, int slabCount) {
+		int n = pts.size();
+		List<Integer> bounds = new ArrayList<Integer>();
+		bounds.add(0);
+		int last = 0;
+		for(int s = 1; s < slabCount; s++){
+			int target = Math.max((int) ((long) n * s / slabCount), last + MIN_SLAB_SIZE);
+			int g = target - 1;
+			while(g < n - MIN_SLAB_SIZE && pts.get(g + 1).getX() - pts.get(g).getX() <= Tools.EPSILON){
+				g++;
+			}
+			if(g >= n - MIN_SLAB_SIZE){
+				break;
+			}
+			last = g + 1;
+			bounds.add(last);
+		}
+		bounds.add(n);
+		int[] ret = new int[bounds.size()];
+		for(int i = 0; i < ret.length; i++){
+			ret[i] = bounds.get(i);
+		}
+		return ret;
+	}
+
+	/**
+	 * Get the slab that contains the point of index i.
+	 * @param bounds
+	 * @param i
+	 * @return
+	 */
+	private static int getSlab(int[] bounds, int i) {
+		int s = Arrays.binarySearch(bounds, i);
+		return s >= 0 ? s : -s - 2;
+	}
+
+	/**
+	 * Search pt in the sorted list pts, by identity first.
+	 * @param pts
+	 * @param pt
+	 * @return
+	 */
+	private static int indexOf(List<DPoint> pts, DPoint pt) {
+		int i = Collections.binarySearch(pts, pt);
+		return i >= 0 && pts.get(i) == pt ? i : -1;
+	}
+
+	/**
+	 * Triangulate the slabs, and merge them. The crossing constraints are not
+	 * inserted.
+	 * @return
+	 *      false if the input could not be split, or if one of the slabs or one of the
+	 *      merges failed. In this case, the constraints may have been connected
+	 *      to some triangles, and must be reset before any other triangulation.
+	 * @throws DelaunayError
+	 *      if the current thread is interrupted while waiting for the slabs.
+	 */
+	boolean compute() throws DelaunayError {
+		int[] bounds = computeBounds(points, threads);
+		int slabCount = bounds.length - 1;
+		if(slabCount < 2){
+			return false;
+		}
+		List<ArrayList<DEdge>> slabConstraints = new ArrayList<ArrayList<DEdge>>(slabCount);
+		for(int i = 0; i < slabCount; i++){
+			slabConstraints.add(new ArrayList<DEdge>());
+		}
+		crossingConstraints = new ArrayList<DEdge>();
+		//constraints are sorted according to their left point : so are the
+		//lists of each slab.
+		for(DEdge ed : constraints){
+			int a = indexOf(points, ed.getPointLeft());
+			int b = indexOf(points, ed.getPointRight());
+			if(a < 0 || b < 0){
+				//we can't locate this constraint.
+				return false;
+			}
+			int slab = getSlab(bounds, a);
+			if(slab == getSlab(bounds, b)){
+				slabConstraints.get(slab).add(ed);
+			} else {
+				crossingConstraints.add(ed);
+			}
+		}
+		List<Slab> slabs = new ArrayList<Slab>(slabCount);
+		for(int i = 0; i < slabCount; i++){
+			slabs.add(new Slab(new ArrayList<DPoint>(points.subList(bounds[i], bounds[i + 1])),
+				slabConstraints.get(i)));
+		}
+		if(!runSlabs(slabs)){
+			return false;
+		}
+		int triCount = 0;
+		int edCount = 0;
+		for(Slab s : slabs){
+			triCount += s.mesh.getTriangleList().size();
+			edCount += s.mesh.getEdges().size();
+		}
+		triangles = new ArrayList<DTriangle>(triCount + points.size() / 8);
+		edges = new ArrayList<DEdge>(edCount + points.size() / 8);
+		seamEdges = new LinkedList<DEdge>();
+		for(Slab s : slabs){
+			triangles.addAll(s.mesh.getTriangleList());
+			edges.addAll(s.mesh.getEdges());
+			next.putAll(s.next);
+			hullEdge.putAll(s.hullEdge);
+		}
+		for(Map.Entry<DPoint, DPoint> e : next.entrySet()){
+			prev.put(e.getValue(), e.getKey());
+		}
+		for(int i = 1; i < slabCount; i++){
+			if(!mergeSeam(points.get(bounds[i] - 1), points.get(bounds[i]))){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Run the triangulation of each slab in the thread pool, and wait for all of them.
+	 * @param slabs
+	 * @return
+	 *      true if all the slabs have been triangulated.
+	 * @throws DelaunayError
+	 */
+	private boolean runSlabs(List<Slab> slabs) throws DelaunayError {
+		ExecutorService exec = Executors.newFixedThreadPool(Math.min(threads, slabs.size()));
+		boolean ok = true;
+		try {
+			List<Future<Slab>> futures = new ArrayList<Future<Slab>>(slabs.size());
+			for(Slab s : slabs){
+				futures.add(exec.submit(s));
+			}
+			//We wait for all the slabs, even when one of them failed : the constraints
+			//must not be modified anymore when we return.
+			for(Future<Slab> f : futures){
+				try {
+					f.get();
+				} catch (ExecutionException e) {
+					ok = false;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_INTERNAL_ERROR,
+				"Interrupted while triangulating the slabs");
+		} finally {
+			exec.shutdown();
+		}
+		return ok;
+	}
+
+	/**
+	 * Sew the hull of the already merged slabs, whose rightmost point is left,
+	 * with the hull of the next slab, whose leftmost point is right.
+	 * @param left
+	 * @param right
+	 * @return
+	 *      false if a degenerate configuration prevented the merge.
+	 * @throws DelaunayError
+	 */
+	private boolean mergeSeam(DPoint left, DPoint right) throws DelaunayError {
+		DPoint[] low = tangent(left, right, true);
+		DPoint[] up = tangent(left, right, false);
+		if(low == null || up == null){
+			return false;
+		}
+		DPoint l = low[0];
+		DPoint r = low[1];
+		DEdge base = new DEdge(l, r);
+		edges.add(base);
+		DEdge lower = base;
+		int guard = next.size();
+		while(l != up[0] || r != up[1]){
+			if(--guard < 0){
+				return false;
+			}
+			DPoint ln = next.get(l);
+			DPoint rn = prev.get(r);
+			//The candidate must be above the base, and the new edge must not
+			//enter the other hull.
+			boolean okL = l != up[0] && orient(l, r, ln) > 0
+				&& (orient(ln, r, rn) > 0 || orient(r, next.get(r), ln) < 0);
+			boolean okR = r != up[1] && orient(l, r, rn) > 0
+				&& (orient(l, rn, ln) > 0 || orient(prev.get(l), l, rn) < 0);
+			if(okL && okR){
+				//We choose the triangle that is the closest to the Delaunay one.
+				if(inCircle(l, r, ln, rn) > 0){
+					okL = false;
+				} else {
+					okR = false;
+				}
+			}
+			DEdge side;
+			if(okL){
+				side = hullEdge.get(l);
+				l = ln;
+			} else if(okR){
+				side = hullEdge.get(rn);
+				r = rn;
+			} else {
+				return false;
+			}
+			DEdge nb = new DEdge(l, r);
+			edges.add(nb);
+			triangles.add(new DTriangle(base, side, nb));
+			seamEdges.add(base);
+			seamEdges.add(side);
+			base = nb;
+		}
+		next.put(low[0], low[1]);
+		prev.put(low[1], low[0]);
+		hullEdge.put(low[0], lower);
+		next.put(up[1], up[0]);
+		prev.put(up[0], up[1]);
+		hullEdge.put(up[1], base);
+		return true;
+	}
+
+	/**
+	 * Compute the lower (or upper) tangent to the hull on the left and the hull
+	 * on the right. When several points are aligned with the tangent, the ones that
+	 * are the closest to the gap are kept.
+	 * @param left the rightmost point of the left hull.
+	 * @param right the leftmost point of the right hull.
+	 * @param lower
+	 * @return
+	 *      the extremities of the tangent, left one first, or null if it can't be found.
+	 */
+	private DPoint[] tangent(DPoint left, DPoint right, boolean lower) {
+		DPoint l = left;
+		DPoint r = right;
+		int guard = next.size();
+		boolean moved = true;
+		while(moved){
+			moved = false;
+			DPoint cand = lower ? prev.get(l) : next.get(l);
+			while(cand != null && isBetter(l, r, cand, l, lower)){
+				l = cand;
+				cand = lower ? prev.get(l) : next.get(l);
+				moved = true;
+				if(--guard < 0){
+					return null;
+				}
+			}
+			if(cand == null){
+				return null;
+			}
+			cand = lower ? next.get(r) : prev.get(r);
+			while(cand != null && isBetter(l, r, cand, r, lower)){
+				r = cand;
+				cand = lower ? next.get(r) : prev.get(r);
+				moved = true;
+				if(--guard < 0){
+					return null;
+				}
+			}
+			if(cand == null){
+				return null;
+			}
+		}
+		return new DPoint[]{l, r};
+	}
+
+	/**
+	 * Check if cand must replace current, which is l or r, as an extremity of
+	 * the tangent [l r].
+	 * @return
+	 */
+	private static boolean isBetter(DPoint l, DPoint r, DPoint cand, DPoint current, boolean lower) {
+		double o = orient(l, r, cand);
+		if(o == 0){
+			DPoint other = current == l ? r : l;
+			return squareDistance(cand, other) < squareDistance(current, other);
+		}
+		return lower ? o < 0 : o > 0;
+	}
+
+	/**
+	 * @return the square of the 2D distance between a and b.
+	 */
+	private static double squareDistance(DPoint a, DPoint b) {
+		return Kernels.squareDistance2D(a.getX(), a.getY(), b.getX(), b.getY());
+	}
+
+	/**
+	 * @return a positive value if c is on the left of [a b], a negative one if
+	 * it is on its right, 0 if the three points are aligned.
+	 */
+	private static double orient(DPoint a, DPoint b, DPoint c) {
+		return Predicates.orient2d(a, b, c);
+	}
+
+	/**
+	 * @return a positive value if d is inside the circle of the counterclockwise
+	 * triangle (a b c).
+	 */
+	private static double inCircle(DPoint a, DPoint b, DPoint c, DPoint d) {
+		return Predicates.inCircle(a, b, c, d);
+	}
+
+	/**
+	 * The triangulation of a slab, and the description of its convex hull.
+	 */
+	private static final class Slab implements Callable<Slab> {
+
+		private final ArrayList<DPoint> pts;
+		private final ArrayList<DEdge> cons;
+		private ConstrainedMesh mesh;
+		private final Map<DPoint, DPoint> next = new IdentityHashMap<DPoint, DPoint>();
+		private final Map<DPoint, DEdge> hullEdge = new IdentityHashMap<DPoint, DEdge>();
+
+		Slab(ArrayList<DPoint> pts, ArrayList<DEdge> cons) {
+			this.pts = pts;
+			this.cons = cons;
+		}
+
+		@Override
+		public Slab call() throws DelaunayError {
+			mesh = new ConstrainedMesh();
+			mesh.setPoints(pts);
+			mesh.setConstraintEdges(cons);
+			mesh.processDelaunay();
+			if(mesh.getTriangleList().isEmpty()){
+				throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_MISC, "Flat slab");
+			}
+			for(DEdge ed : mesh.getEdges()){
+				if(ed.getLeft() == null && ed.getRight() == null){
+					throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_MISC, "Degenerated edge in a slab");
+				}
+			}
+			for(DTriangle tri : mesh.getTriangleList()){
+				for(int i = 0; i < 3; i++){
+					DEdge ed = tri.getEdge(i);
+					if(ed.getLeft() == null || ed.getRight() == null){
+						DPoint start = ed.getStartPoint();
+						DPoint end = ed.getEndPoint();
+						if(!ed.isLeft(tri.getOppositePoint(ed))){
+							start = ed.getEndPoint();
+							end = ed.getStartPoint();
+						}
+						if(next.put(start, end) != null){
+							throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_MISC, "Pinched hull in a slab");
+						}
+						hullEdge.put(start, ed);
+					}
+				}
+			}
+			return this;
+		}
+	}
+}
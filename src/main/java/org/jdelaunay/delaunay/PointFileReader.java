@@ -0,0 +1,452 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Reads large point files straight into arrays of coordinates, without
+ * building an object for each point.<p></p>
+ *
+ * Two formats are supported. ASCII XYZ files hold a point per line : the first
+ * three numbers of the line are its coordinates, separated by spaces, tabs,
+ * commas or semicolons, the following ones are ignored. The lines that don't
+ * start with a number are skipped, as headers or comments. The file is read
+ * through a channel, in chunks that are parsed in place. LAS files are read from
+ * their public header and their point data records, that are mapped in
+ * memory : only the coordinates of the records are used.<p></p>
+ *
+ * The points can be thinned while they are read : with a positive cell size,
+ * only the first point read in each cell of a grid of this size is kept.
+ * @author alexis
+ */
+final class PointFileReader {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+	//The bytes of an ASCII file used, on average, by a point at least.
+	private static final int MIN_LINE_SIZE = 32;
+	//The numbers that can be parsed without rounding error with a
+	//single multiplication or division.
+	private static final int MAX_FAST_DIGITS = 15;
+	private static final double[] POWERS = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7,
+		1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+		1e21, 1e22};
+	private static final int TEN = 10;
+	//The layout of the public header of a LAS file.
+	private static final int LAS_HEADER_SIZE = 227;
+	private static final int LAS_14_HEADER_SIZE = 375;
+	private static final int LAS_VERSION_MINOR = 25;
+	private static final int LAS_OFFSET_TO_POINTS = 96;
+	private static final int LAS_RECORD_LENGTH = 105;
+	private static final int LAS_POINT_COUNT = 107;
+	private static final int LAS_14_POINT_COUNT = 247;
+	private static final int LAS_SCALE = 131;
+	private static final int LAS_OFFSET = 155;
+	private static final int LAS_MIN_RECORD_LENGTH = 12;
+	private static final int LAS_14 = 4;
+	private static final int INT_SIZE = 4;
+	private static final int DOUBLE_SIZE = 8;
+	private static final int USHORT_MASK = 0xFFFF;
+	private static final long UINT_MASK = 0xFFFFFFFFL;
+
+	private PointFileReader() {
+	}
+
+	/**
+	 * Read the points of an ASCII XYZ file.
+	 * @param file
+	 * @param cellSize
+	 *      The size of the cells used to thin the points, or 0 to keep them all.
+	 * @return
+	 *      The arrays of x, y and z coordinates of the points, in this order.
+	 * @throws IOException
+	 *      If the file can't be read, or if a line has less than three coordinates.
+	 */
+	static double[][] readXYZ(File file, double cellSize) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			Coordinates coords = new Coordinates((int) Math.min(Integer.MAX_VALUE - TEN,
+				channel.size() / MIN_LINE_SIZE + TEN), cellSize);
+			LineParser parser = new LineParser(coords);
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			byte[] bytes = buffer.array();
+			boolean eof = false;
+			while(!eof){
+				eof = channel.read(buffer) < 0;
+				int limit = buffer.position();
+				int end = limit;
+				if(!eof){
+					while(end > 0 && bytes[end - 1] != '\n'){
+						end--;
+					}
+					if(end == 0 && limit == bytes.length){
+						throw new IOException("Line " + (parser.line + 1) + " is too long");
+					}
+				}
+				parser.parse(bytes, end);
+				//The incomplete last line is moved at the start of the buffer.
+				System.arraycopy(bytes, end, bytes, 0, limit - end);
+				buffer.position(limit - end);
+			}
+			return coords.toArrays();
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Read the coordinates of the points of a LAS file, in any version of the
+	 * format from 1.0 to 1.4.
+	 * @param file
+	 * @param cellSize
+	 *      The size of the cells used to thin the points, or 0 to keep them all.
+	 * @return
+	 *      The arrays of x, y and z coordinates of the points, in this order.
+	 * @throws IOException
+	 *      If the file can't be read, or if it is not a valid LAS file.
+	 */
+	static double[][] readLAS(File file, double cellSize) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if(channel.size() < LAS_HEADER_SIZE){
+				throw new IOException("The file is too short to be a LAS file");
+			}
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+				Math.min(channel.size(), LAS_14_HEADER_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+			if(header.get(0) != 'L' || header.get(1) != 'A' || header.get(2) != 'S' || header.get(3) != 'F'){
+				throw new IOException("The file is not a LAS file");
+			}
+			long offset = header.getInt(LAS_OFFSET_TO_POINTS) & UINT_MASK;
+			int recordLength = header.getShort(LAS_RECORD_LENGTH) & USHORT_MASK;
+			long count = header.getInt(LAS_POINT_COUNT) & UINT_MASK;
+			if(count == 0 && header.get(LAS_VERSION_MINOR) >= LAS_14 && header.limit() >= LAS_14_HEADER_SIZE){
+				count = header.getLong(LAS_14_POINT_COUNT);
+			}
+			double[] scale = new double[3];
+			double[] shift = new double[3];
+			for(int k = 0; k < 3; k++){
+				scale[k] = header.getDouble(LAS_SCALE + DOUBLE_SIZE * k);
+				shift[k] = header.getDouble(LAS_OFFSET + DOUBLE_SIZE * k);
+			}
+			if(recordLength < LAS_MIN_RECORD_LENGTH || count < 0
+					|| channel.size() < offset + count * recordLength){
+				throw new IOException("The header of the LAS file is corrupted");
+			}
+			if(count > Integer.MAX_VALUE - TEN){
+				throw new IOException("Too many points in the LAS file : " + count);
+			}
+			Coordinates coords = new Coordinates((int) count, cellSize);
+			//The records are mapped by windows, as a mapping can't exceed 2GB.
+			long perWindow = Integer.MAX_VALUE / recordLength;
+			for(long first = 0; first < count; first += perWindow){
+				int n = (int) Math.min(perWindow, count - first);
+				ByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY,
+					offset + first * recordLength, (long) n * recordLength).order(ByteOrder.LITTLE_ENDIAN);
+				for(int i = 0; i < n; i++){
+					int pos = i * recordLength;
+					coords.add(records.getInt(pos) * scale[0] + shift[0],
+						records.getInt(pos + INT_SIZE) * scale[1] + shift[1],
+						records.getInt(pos + 2 * INT_SIZE) * scale[2] + shift[2]);
+				}
+			}
+			return coords.toArrays();
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Parses the lines of an ASCII file.
+	 */
+	private static final class LineParser {
+
+		private final Coordinates coords;
+		private final double[] values = new double[3];
+		private long line = 0;
+
+		LineParser(Coordinates coords) {
+			this.coords = coords;
+		}
+
+		/**
+		 * Parse the lines stored in bytes, from 0 to end.
+		 * @param bytes
+		 * @param end
+		 * @throws IOException
+		 */
+		void parse(byte[] bytes, int end) throws IOException {
+			int pos = 0;
+			while(pos < end){
+				line++;
+				int found = 0;
+				boolean skip = false;
+				while(pos < end && bytes[pos] != '\n'){
+					byte b = bytes[pos];
+					if(isSeparator(b)){
+						pos++;
+					} else if(found == 0 && !isNumberStart(b)){
+						skip = true;
+						break;
+					} else if(found < 3){
+						pos = parseNumber(bytes, pos, end, found);
+						found++;
+					} else {
+						//The other columns are ignored.
+						break;
+					}
+				}
+				while(pos < end && bytes[pos] != '\n'){
+					pos++;
+				}
+				pos++;
+				if(found == 3){
+					coords.add(values[0], values[1], values[2]);
+				} else if(found > 0 && !skip){
+					throw new IOException("Line " + line + " : three coordinates expected");
+				}
+			}
+		}
+
+		/**
+		 * Parse the number that starts at pos, and store it in values[index].
+		 * @param bytes
+		 * @param pos
+		 * @param end
+		 * @param index
+		 * @return
+		 *      the position of the first byte after the number.
+		 * @throws IOException
+		 */
+		private int parseNumber(byte[] bytes, int pos, int end, int index) throws IOException {
+			int start = pos;
+			boolean negative = false;
+			if(bytes[pos] == '-' || bytes[pos] == '+'){
+				negative = bytes[pos] == '-';
+				pos++;
+			}
+			long mantissa = 0;
+			int digits = 0;
+			int exponent = 0;
+			boolean seen = false;
+			boolean point = false;
+			for(; pos < end; pos++){
+				byte b = bytes[pos];
+				if(b >= '0' && b <= '9'){
+					seen = true;
+					if(digits > 0 || b != '0'){
+						if(digits < MAX_FAST_DIGITS + 1){
+							mantissa = TEN * mantissa + (b - '0');
+						} else if(!point){
+							exponent++;
+						}
+						digits++;
+					}
+					if(point && digits <= MAX_FAST_DIGITS + 1){
+						exponent--;
+					}
+				} else if(b == '.' && !point){
+					point = true;
+				} else {
+					break;
+				}
+			}
+			if(pos < end && (bytes[pos] == 'e' || bytes[pos] == 'E')){
+				pos++;
+				boolean negExp = false;
+				if(pos < end && (bytes[pos] == '-' || bytes[pos] == '+')){
+					negExp = bytes[pos] == '-';
+					pos++;
+				}
+				int exp = 0;
+				boolean expSeen = false;
+				for(; pos < end && bytes[pos] >= '0' && bytes[pos] <= '9'; pos++){
+					exp = Math.min(TEN * exp + (bytes[pos] - '0'), Integer.MAX_VALUE / (2 * TEN));
+					expSeen = true;
+				}
+				seen = seen && expSeen;
+				exponent += negExp ? -exp : exp;
+			}
+			if(!seen || (pos < end && !isSeparator(bytes[pos]) && bytes[pos] != '\n')){
+				throw new IOException("Line " + line + " : invalid number");
+			}
+			double v;
+			if(digits <= MAX_FAST_DIGITS && exponent >= -(POWERS.length - 1) && exponent < POWERS.length){
+				//Both the mantissa and the power of ten are exact doubles, the
+				//result is then correctly rounded.
+				v = exponent < 0 ? mantissa / POWERS[-exponent] : mantissa * POWERS[exponent];
+				v = negative ? -v : v;
+			} else {
+				v = Double.parseDouble(new String(bytes, start, pos - start, "US-ASCII"));
+			}
+			values[index] = v;
+			return pos;
+		}
+
+		private static boolean isSeparator(byte b) {
+			return b == ' ' || b == '\t' || b == ',' || b == ';' || b == '\r';
+		}
+
+		private static boolean isNumberStart(byte b) {
+			return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.';
+		}
+	}
+
+	/**
+	 * Growable arrays of coordinates, that keep only the first point of each
+	 * cell when a cell size is given.
+	 */
+	private static final class Coordinates {
+
+		private static final long EMPTY = Long.MIN_VALUE;
+		private static final long MIX = 0x9E3779B97F4A7C15L;
+		private static final int CELL_BITS = 32;
+		private static final double GROWTH = 1.5;
+		//The initial capacity used when the points are thinned.
+		private static final int THINNED_CAPACITY = 1 << 16;
+
+		private double[] x;
+		private double[] y;
+		private double[] z;
+		private int size = 0;
+		private final double cellSize;
+		//An open addressing hash set of the cells that already have a point.
+		private long[] cells;
+		private int cellCount = 0;
+		private boolean emptyCell = false;
+
+		/**
+		 * @param capacity
+		 *      The expected number of points, before thinning.
+		 * @param cellSize
+		 */
+		Coordinates(int capacity, double cellSize) {
+			this.cellSize = cellSize;
+			int initial = capacity;
+			if(cellSize > 0){
+				initial = Math.min(capacity, THINNED_CAPACITY);
+				cells = new long[2 * THINNED_CAPACITY];
+				Arrays.fill(cells, EMPTY);
+			}
+			x = new double[initial];
+			y = new double[initial];
+			z = new double[initial];
+		}
+
+		void add(double px, double py, double pz) {
+			if(cellSize > 0 && !addCell(px, py)){
+				return;
+			}
+			if(size == x.length){
+				int capacity = (int) Math.min(Integer.MAX_VALUE - TEN, (long) (GROWTH * size) + TEN);
+				x = Arrays.copyOf(x, capacity);
+				y = Arrays.copyOf(y, capacity);
+				z = Arrays.copyOf(z, capacity);
+			}
+			x[size] = px;
+			y[size] = py;
+			z[size] = pz;
+			size++;
+		}
+
+		/**
+		 * Register the cell of the point (px, py).
+		 * @param px
+		 * @param py
+		 * @return
+		 *      true if the cell had no point yet.
+		 */
+		private boolean addCell(double px, double py) {
+			double cx = Math.floor(px / cellSize);
+			double cy = Math.floor(py / cellSize);
+			if(Math.abs(cx) > Integer.MAX_VALUE || Math.abs(cy) > Integer.MAX_VALUE){
+				throw new IllegalArgumentException("The cell size is too small for the extent of the points");
+			}
+			long key = ((long) cx << CELL_BITS) | ((long) cy & UINT_MASK);
+			if(key == EMPTY){
+				boolean ret = !emptyCell;
+				emptyCell = true;
+				return ret;
+			}
+			int mask = cells.length - 1;
+			int i = (int) ((key * MIX) >>> (Long.SIZE - Integer.numberOfTrailingZeros(cells.length)));
+			while(cells[i] != EMPTY){
+				if(cells[i] == key){
+					return false;
+				}
+				i = (i + 1) & mask;
+			}
+			cells[i] = key;
+			cellCount++;
+			if(2 * cellCount > cells.length){
+				rehash();
+			}
+			return true;
+		}
+
+		private void rehash() {
+			long[] old = cells;
+			cells = new long[2 * old.length];
+			Arrays.fill(cells, EMPTY);
+			int mask = cells.length - 1;
+			int shift = Long.SIZE - Integer.numberOfTrailingZeros(cells.length);
+			for(long key : old){
+				if(key != EMPTY){
+					int i = (int) ((key * MIX) >>> shift);
+					while(cells[i] != EMPTY){
+						i = (i + 1) & mask;
+					}
+					cells[i] = key;
+				}
+			}
+		}
+
+		/**
+		 * @return the coordinates, in arrays as long as the number of points.
+		 */
+		double[][] toArrays() {
+			cells = null;
+			if(size < x.length){
+				x = Arrays.copyOf(x, size);
+				y = Arrays.copyOf(y, size);
+				z = Arrays.copyOf(z, size);
+			}
+			return new double[][]{x, y, z};
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * A spatial index on the points of a ConstrainedMesh. Two points are considered
+ * as equal if they are equal in 2D, as defined by DPoint.equals2D. When an index
+ * is given to a ConstrainedMesh, the points are not kept sorted while they are
+ * added : the search for duplicates is delegated to the index, and the list
+ * is sorted once, when it is needed.
+ * @author alexis
+ */
+public interface PointIndex {
+
+        /**
+         * Get the point of the index that is equal to (x,y) in 2D.
+         * @param x
+         * @param y
+         * @return
+         *      The stored point, or null if there isn't any.
+         */
+        DPoint get(double x, double y);
+
+        /**
+         * Add pt in the index, if it does not already contain a point equal
+         * to pt in 2D.
+         * @param pt
+         * @return
+         *      true if pt has been added.
+         */
+        boolean add(DPoint pt);
+
+        /**
+         * Remove pt from the index.
+         * @param pt
+         * @return
+         *      true if pt was in the index.
+         */
+        boolean remove(DPoint pt);
+
+        /**
+         * Remove all the points of the index.
+         */
+        void clear();
+
+        /**
+         * Get the number of points in the index.
+         * @return
+         *      The size of the index.
+         */
+        int size();
+}
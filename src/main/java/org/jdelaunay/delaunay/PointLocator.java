@@ -0,0 +1,334 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.Iterator;
+import java.util.List;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+import org.jdelaunay.delaunay.geometries.Element;
+import org.jdelaunay.delaunay.tools.Kernels;
+
+/**
+ * Finds the triangle of a mesh that contains a given point, with a jump and
+ * walk. One triangle out of SAMPLE_STEP is sampled, and the sampled triangles
+ * are bucketed in a regular grid, so that the jump to a sampled triangle close
+ * to the point costs a single lookup. The search then walks from this triangle,
+ * or from the last triangle found if it is closer. The walk is iterative, and
+ * chooses the edge it leaves a triangle through at random, so that it can't
+ * loop even in a constrained triangulation.<p></p>
+ * A PointLocator is not thread safe : each thread must use its own instance.
+ * It stays valid while the mesh is refined or updated incrementally, as the
+ * triangles of the mesh are reused, but not after a new call to processDelaunay.
+ * @author alexis
+ */
+public final class PointLocator {
+
+        //One triangle out of SAMPLE_STEP is put in the grid. The walks are
+        //then a few triangles long, and the grid stays small.
+        private static final int SAMPLE_STEP = 8;
+        private static final int SEED = 0x2545F491;
+
+        private final List<DTriangle> triangles;
+        //The grid of sampled triangles. Each cell contains a triangle that has
+        //a vertex in it, or the one of a close cell when it is empty.
+        private DTriangle[] cells;
+        //The coordinates of the vertex of the triangle of each cell.
+        private double[] cellX;
+        private double[] cellY;
+        private int nx;
+        private int ny;
+        private double minX;
+        private double minY;
+        private double invCellSize;
+        //The size of triangles when the grid was built.
+        private int sampledSize;
+        private DTriangle last;
+        //The point last searched, that is in last.
+        private double lastX;
+        private double lastY;
+        //The state of the xorshift generator used to choose the edges of the walk.
+        private int walkState;
+
+        /**
+         * Build a new PointLocator on a list of triangles, that must be the
+         * triangles of a computed mesh.
+         * @param triangles
+         */
+        public PointLocator(List<DTriangle> triangles) {
+                this.triangles = triangles;
+                cells = new DTriangle[0];
+                sampledSize = 0;
+                walkState = SEED;
+        }
+
+        /**
+         * Search the triangle that contains pt.
+         * @param pt
+         * @return
+         *      The triangle that contains pt, or, if pt is outside the mesh, an
+         *      edge of the boundary of the mesh that separates pt from it.
+         * @throws DelaunayError
+         *      If the mesh has no triangle.
+         */
+        public Element locate(DPoint pt) throws DelaunayError {
+                Element ret = walk(getStart(pt.getX(), pt.getY()), pt);
+                lastX = pt.getX();
+                lastY = pt.getY();
+                return ret;
+        }
+
+        /**
+         * Search the triangle that contains pt.
+         * @param pt
+         * @return
+         *      The triangle that contains pt, or null if pt is outside the mesh.
+         * @throws DelaunayError
+         *      If the mesh has no triangle.
+         */
+        public DTriangle getTriangle(DPoint pt) throws DelaunayError {
+                Element found = locate(pt);
+                return found instanceof DTriangle ? (DTriangle) found : null;
+        }
+
+        /**
+         * Set the triangle the next search will start from, if it is closer to
+         * the searched point than the sampled triangles.
+         * @param tri
+         *      A triangle of the mesh.
+         */
+        public void setHint(DTriangle tri) {
+                last = tri;
+                DPoint p = tri.getPoint(0);
+                lastX = p.getX();
+                lastY = p.getY();
+        }
+
+        /**
+         * Get the triangle the next search will start from : the sampled
+         * triangle of the cell of (x, y), or the last triangle found if it is
+         * closer.
+         * @param x
+         * @param y
+         * @return
+         * @throws DelaunayError
+         */
+        private DTriangle getStart(double x, double y) throws DelaunayError {
+                int size = triangles.size();
+                if(size > 2 * sampledSize || 2 * size < sampledSize){
+                        resample();
+                }
+                DTriangle start = null;
+                if(cells.length > 0){
+                        int index = cellIndex(x, y);
+                        start = cells[index];
+                        if(last != null && Kernels.squareDistance2D(lastX, lastY, x, y)
+                                        <= Kernels.squareDistance2D(cellX[index], cellY[index], x, y)){
+                                start = last;
+                        }
+                } else {
+                        start = last;
+                }
+                if(start == null){
+                        throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_NO_MESH);
+                }
+                return start;
+        }
+
+        /**
+         * Sample the triangles, and build the grid.
+         */
+        private void resample() {
+                int size = triangles.size();
+                int count = (size + SAMPLE_STEP - 1) / SAMPLE_STEP;
+                sampledSize = size;
+                if(count == 0){
+                        cells = new DTriangle[0];
+                        return;
+                }
+                DTriangle[] sample = new DTriangle[count];
+                double[] sx = new double[count];
+                double[] sy = new double[count];
+                double maxX = Double.NEGATIVE_INFINITY;
+                double maxY = Double.NEGATIVE_INFINITY;
+                minX = Double.POSITIVE_INFINITY;
+                minY = Double.POSITIVE_INFINITY;
+                Iterator<DTriangle> it = triangles.iterator();
+                int k = 0;
+                for(int j = 0; k < count; j++){
+                        DTriangle tri = it.next();
+                        if(j % SAMPLE_STEP == 0){
+                                DPoint p = tri.getPoint(0);
+                                sample[k] = tri;
+                                sx[k] = p.getX();
+                                sy[k] = p.getY();
+                                minX = Math.min(minX, sx[k]);
+                                minY = Math.min(minY, sy[k]);
+                                maxX = Math.max(maxX, sx[k]);
+                                maxY = Math.max(maxY, sy[k]);
+                                k++;
+                        }
+                }
+                double width = maxX - minX;
+                double height = maxY - minY;
+                //About one sampled triangle per cell, without creating more
+                //cells than samples when the extent is flat.
+                double cellSize = Math.max(Math.sqrt(width * height / count), Math.max(width, height) / count);
+                if(cellSize <= 0){
+                        cellSize = 1;
+                }
+                invCellSize = 1 / cellSize;
+                nx = (int) (width * invCellSize) + 1;
+                ny = (int) (height * invCellSize) + 1;
+                cells = new DTriangle[nx * ny];
+                cellX = new double[nx * ny];
+                cellY = new double[nx * ny];
+                for(int i = 0; i < count; i++){
+                        int index = cellIndex(sx[i], sy[i]);
+                        cells[index] = sample[i];
+                        cellX[index] = sx[i];
+                        cellY[index] = sy[i];
+                }
+                fillEmptyCells();
+        }
+
+        /**
+         * Give to each empty cell the triangle of a close cell : the closest one
+         * in its row if the row is not empty, or the one of the closest non
+         * empty row.
+         */
+        private void fillEmptyCells() {
+                for(int j = 0; j < ny; j++){
+                        fill(j * nx, 1, nx);
+                }
+                for(int i = 0; i < nx; i++){
+                        fill(i, nx, ny);
+                }
+        }
+
+        /**
+         * Fill the empty cells of a row or column of the grid with the closest
+         * non empty one, in a forward and a backward pass.
+         * @param first
+         *      The index of the first cell.
+         * @param stride
+         *      The offset between two consecutive cells.
+         * @param length
+         *      The number of cells.
+         */
+        private void fill(int first, int stride, int length) {
+                int carried = -1;
+                int[] dist = new int[length];
+                for(int i = 0; i < length; i++){
+                        int index = first + i * stride;
+                        if(cells[index] != null){
+                                carried = i;
+                        } else if(carried < 0){
+                                dist[i] = Integer.MAX_VALUE;
+                        } else {
+                                copyCell(first + carried * stride, index);
+                                dist[i] = i - carried;
+                        }
+                }
+                carried = -1;
+                for(int i = length - 1; i >= 0; i--){
+                        int index = first + i * stride;
+                        if(dist[i] == 0){
+                                carried = i;
+                        } else if(carried >= 0 && carried - i < dist[i]){
+                                copyCell(first + carried * stride, index);
+                        }
+                }
+        }
+
+        /**
+         * Copy the content of a cell of the grid in another one.
+         * @param from
+         * @param to
+         */
+        private void copyCell(int from, int to) {
+                cells[to] = cells[from];
+                cellX[to] = cellX[from];
+                cellY[to] = cellY[from];
+        }
+
+        /**
+         * Get the index of the cell that contains (x, y), or of the closest cell
+         * if it is out of the grid.
+         * @param x
+         * @param y
+         * @return
+         */
+        private int cellIndex(double x, double y) {
+                int i = (int) ((x - minX) * invCellSize);
+                int j = (int) ((y - minY) * invCellSize);
+                i = i < 0 ? 0 : (i >= nx ? nx - 1 : i);
+                j = j < 0 ? 0 : (j >= ny ? ny - 1 : j);
+                return j * nx + i;
+        }
+
+        /**
+         * Walk from start to the triangle that contains pt.
+         * @param start
+         * @param pt
+         * @return
+         */
+        private Element walk(DTriangle start, DPoint pt) {
+                DTriangle current = start;
+                DEdge from = null;
+                while(true){
+                        walkState ^= walkState << 13;
+                        walkState ^= walkState >>> 17;
+                        walkState ^= walkState << 5;
+                        int first = (walkState >>> 1) % DTriangle.PT_NB;
+                        DEdge exit = null;
+                        for(int i = 0; i < DTriangle.PT_NB && exit == null; i++){
+                                DEdge ed = current.getEdge((first + i) % DTriangle.PT_NB);
+                                if(ed != from && ed.getSide(pt) == (ed.getLeft() == current ? -1 : 1)){
+                                        exit = ed;
+                                }
+                        }
+                        last = current;
+                        if(exit == null){
+                                return current;
+                        }
+                        DTriangle next = exit.getLeft() == current ? exit.getRight() : exit.getLeft();
+                        if(next == null){
+                                //The mesh is convex : pt is outside it.
+                                return exit;
+                        }
+                        from = exit;
+                        current = next;
+                }
+        }
+}
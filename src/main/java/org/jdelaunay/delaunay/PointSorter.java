@@ -0,0 +1,264 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.Arrays;
+import org.jdelaunay.delaunay.tools.Tools;
+
+/**
+ * Sorts large sets of coordinates, given as primitive arrays, in the order
+ * defined by DPoint.compareTo2D. The coordinates are not moved : we compute
+ * the permutation that sorts them.<br/>
+ * A stable LSD radix sort is performed on the bits of y, then on the bits of x.
+ * It gives the lexicographic order on (x,y), that differs from the order of
+ * compareTo2D only for points whose abscissas are closer than Tools.EPSILON.
+ * The runs of such points are found in one pass, and each run is sorted on y
+ * with a merge sort. compareTo2D is not transitive in a run whose abscissas
+ * spread over more than Tools.EPSILON : such a run is cut in parts that are
+ * sorted on y, then the few remaining inversions are fixed with an insertion
+ * sort, limited to the run.
+ * @author alexis
+ */
+final class PointSorter {
+
+        private static final int RADIX_BITS = 16;
+        private static final int RADIX = 1 << RADIX_BITS;
+        private static final int MASK = RADIX - 1;
+        //The size under which the merge sort uses an insertion sort.
+        private static final int MIN_MERGE = 16;
+
+        private PointSorter(){
+        }
+
+        /**
+         * Get the permutation that sorts the points (x[i], y[i]).
+         * @param x
+         * @param y
+         * @return
+         *      An array order such as the point order[k] is the kth point in
+         *      the order defined by DPoint.compareTo2D.
+         */
+        static int[] sort(double[] x, double[] y) {
+                int n = x.length;
+                int[] order = new int[n];
+                for(int i = 0; i < n; i++){
+                        order[i] = i;
+                }
+                int[] buf = new int[n];
+                long[] keys = new long[n];
+                long[] keyBuf = new long[n];
+                int[] sorted = radixSort(y, order, buf, keys, keyBuf);
+                sorted = radixSort(x, sorted, sorted == order ? buf : order, keys, keyBuf);
+                fixOrder(x, y, sorted);
+                return sorted;
+        }
+
+        /**
+         * Stable sort of the permutation src, according to the values of coords.
+         * @param coords
+         * @param src
+         * @param dst
+         *      A buffer, as long as src.
+         * @param keys
+         *      A buffer, as long as src.
+         * @param keyBuf
+         *      A buffer, as long as src.
+         * @return
+         *      The sorted permutation, that is either src or dst.
+         */
+        private static int[] radixSort(double[] coords, int[] src, int[] dst, long[] keys, long[] keyBuf) {
+                int n = src.length;
+                int[] from = src;
+                int[] to = dst;
+                long[] kFrom = keys;
+                long[] kTo = keyBuf;
+                //The keys are stored in the current order, to have sequential accesses.
+                for(int i = 0; i < n; i++){
+                        kFrom[i] = sortableBits(coords[from[i]]);
+                }
+                int[] count = new int[RADIX];
+                for(int shift = 0; shift < Long.SIZE; shift += RADIX_BITS){
+                        Arrays.fill(count, 0);
+                        for(int i = 0; i < n; i++){
+                                count[(int) (kFrom[i] >>> shift) & MASK]++;
+                        }
+                        if(n == 0 || count[(int) (kFrom[0] >>> shift) & MASK] == n){
+                                //All the keys share this digit.
+                                continue;
+                        }
+                        int sum = 0;
+                        for(int d = 0; d < RADIX; d++){
+                                int c = count[d];
+                                count[d] = sum;
+                                sum += c;
+                        }
+                        for(int i = 0; i < n; i++){
+                                int pos = count[(int) (kFrom[i] >>> shift) & MASK]++;
+                                to[pos] = from[i];
+                                kTo[pos] = kFrom[i];
+                        }
+                        int[] swap = from;
+                        from = to;
+                        to = swap;
+                        long[] kSwap = kFrom;
+                        kFrom = kTo;
+                        kTo = kSwap;
+                }
+                return from;
+        }
+
+        /**
+         * Map the double v on a long, so that the order of the longs, compared
+         * as unsigned values, is the order of the doubles.
+         */
+        private static long sortableBits(double v) {
+                long bits = Double.doubleToLongBits(v);
+                return bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+        }
+
+        /**
+         * Sort the runs of points of order whose abscissas are closer than
+         * Tools.EPSILON, order being sorted on the exact abscissas.
+         */
+        private static void fixOrder(double[] x, double[] y, int[] order) {
+                int n = order.length;
+                int[] buf = null;
+                int start = 0;
+                while(start < n){
+                        int end = start + 1;
+                        while(end < n && isClose(x, order[end - 1], order[end])){
+                                end++;
+                        }
+                        if(end - start > 1){
+                                buf = buf == null ? new int[n] : buf;
+                                if(isClose(x, order[start], order[end - 1])){
+                                        //All the points of the run are compared on y.
+                                        sortOnY(y, order, buf, start, end);
+                                } else {
+                                        int from = start;
+                                        for(int i = start + 1; i <= end; i++){
+                                                if(i == end || !isClose(x, order[from], order[i])){
+                                                        sortOnY(y, order, buf, from, i);
+                                                        from = i;
+                                                }
+                                        }
+                                        insertionSort(x, y, order, start, end);
+                                }
+                        }
+                        start = end;
+                }
+        }
+
+        /**
+         * Checks if compare uses the ordinates to compare the points i and j.
+         */
+        private static boolean isClose(double[] x, int i, int j) {
+                double dx = x[i] - x[j];
+                return dx * dx * 2 < Tools.EPSILON2;
+        }
+
+        /**
+         * Stable merge sort of order[from..to[, on the ordinates of the points.
+         * @param y
+         * @param order
+         * @param buf
+         *      A buffer, as long as order.
+         * @param from
+         * @param to
+         */
+        private static void sortOnY(double[] y, int[] order, int[] buf, int from, int to) {
+                if(to - from <= MIN_MERGE){
+                        for(int i = from + 1; i < to; i++){
+                                int cur = order[i];
+                                int j = i;
+                                while(j > from && y[order[j - 1]] > y[cur]){
+                                        order[j] = order[j - 1];
+                                        j--;
+                                }
+                                order[j] = cur;
+                        }
+                        return;
+                }
+                int mid = (from + to) >>> 1;
+                sortOnY(y, order, buf, from, mid);
+                sortOnY(y, order, buf, mid, to);
+                if(y[order[mid - 1]] <= y[order[mid]]){
+                        return;
+                }
+                System.arraycopy(order, from, buf, from, to - from);
+                int i = from;
+                int j = mid;
+                for(int k = from; k < to; k++){
+                        if(j >= to || (i < mid && y[buf[i]] <= y[buf[j]])){
+                                order[k] = buf[i++];
+                        } else {
+                                order[k] = buf[j++];
+                        }
+                }
+        }
+
+        /**
+         * Insertion sort of order[from..to[, according to compare. As this part
+         * of order is already almost sorted, it runs in linear time.
+         */
+        private static void insertionSort(double[] x, double[] y, int[] order, int from, int to) {
+                for(int i = from + 1; i < to; i++){
+                        int cur = order[i];
+                        int j = i;
+                        while(j > from && compare(x, y, order[j - 1], cur) > 0){
+                                order[j] = order[j - 1];
+                                j--;
+                        }
+                        order[j] = cur;
+                }
+        }
+
+        /**
+         * The same comparison as DPoint.compareTo2D, on the points i and j.
+         */
+        static int compare(double[] x, double[] y, int i, int j) {
+                double dx = x[i] - x[j];
+                if(dx * dx * 2 < Tools.EPSILON2){
+                        double dy = y[i] - y[j];
+                        if(dx * dx + dy * dy < Tools.EPSILON2){
+                                return 0;
+                        } else if(y[i] < y[j]){
+                                return -1;
+                        } else {
+                                return 1;
+                        }
+                } else if(x[i] < x[j]){
+                        return -1;
+                } else {
+                        return 1;
+                }
+        }
+}
@@ -0,0 +1,158 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+/**
+ * The definition of a regular grid of square cells, used to sample a mesh as
+ * a raster. The grid is given by its lower left corner, the size of its cells
+ * and its numbers of columns and rows. The cells are stored row by row, from
+ * the north to the south : the cell (column, row) has the index
+ * row * columns + column, and is sampled at its center.
+ * @author alexis
+ */
+public final class RasterGrid {
+
+        private final double minX;
+        private final double minY;
+        private final double cellSize;
+        private final int columns;
+        private final int rows;
+
+        /**
+         * Build a new grid definition.
+         * @param minX
+         *      The x coordinate of the west side of the grid.
+         * @param minY
+         *      The y coordinate of the south side of the grid.
+         * @param cellSize
+         *      The width and height of a cell.
+         * @param columns
+         * @param rows
+         * @throws IllegalArgumentException if cellSize, columns or rows is not
+         *      strictly positive, or if the grid has more than Integer.MAX_VALUE
+         *      cells.
+         */
+        public RasterGrid(double minX, double minY, double cellSize, int columns, int rows) {
+                if(!(cellSize > 0) || columns <= 0 || rows <= 0){
+                        throw new IllegalArgumentException("The cell size and the dimensions of the grid must be positive");
+                }
+                if((long) columns * rows > Integer.MAX_VALUE){
+                        throw new IllegalArgumentException("The grid has too many cells");
+                }
+                this.minX = minX;
+                this.minY = minY;
+                this.cellSize = cellSize;
+                this.columns = columns;
+                this.rows = rows;
+        }
+
+        /**
+         * @return
+         *      The x coordinate of the west side of the grid.
+         */
+        public double getMinX() {
+                return minX;
+        }
+
+        /**
+         * @return
+         *      The y coordinate of the south side of the grid.
+         */
+        public double getMinY() {
+                return minY;
+        }
+
+        /**
+         * @return
+         *      The y coordinate of the north side of the grid.
+         */
+        public double getMaxY() {
+                return minY + rows * cellSize;
+        }
+
+        /**
+         * @return
+         *      The x coordinate of the east side of the grid.
+         */
+        public double getMaxX() {
+                return minX + columns * cellSize;
+        }
+
+        /**
+         * @return
+         *      The width and height of a cell.
+         */
+        public double getCellSize() {
+                return cellSize;
+        }
+
+        /**
+         * @return
+         *      The number of columns of the grid.
+         */
+        public int getColumns() {
+                return columns;
+        }
+
+        /**
+         * @return
+         *      The number of rows of the grid.
+         */
+        public int getRows() {
+                return rows;
+        }
+
+        /**
+         * @return
+         *      The number of cells of the grid.
+         */
+        public int getCellCount() {
+                return columns * rows;
+        }
+
+        /**
+         * Get the x coordinate of the center of the cells of a column.
+         * @param column
+         * @return
+         */
+        public double getCellX(int column) {
+                return minX + (column + 0.5) * cellSize;
+        }
+
+        /**
+         * Get the y coordinate of the center of the cells of a row.
+         * @param row
+         * @return
+         */
+        public double getCellY(int row) {
+                return getMaxY() - (row + 0.5) * cellSize;
+        }
+}
@@ -0,0 +1,163 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import org.jdelaunay.delaunay.evaluator.InsertionEvaluator;
+import org.jdelaunay.delaunay.evaluator.ScoredEvaluator;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * The triangles that must be processed during a refinement. Only the triangles
+ * the evaluator accepts are queued. With a ScoredEvaluator, the triangle with
+ * the greatest score is given first, and the triangles with the same score in
+ * the order they were queued. With another evaluator, the triangles are given
+ * in the order they were queued.<p></p>
+ *
+ * A triangle that is queued again, because it has changed, takes a new place
+ * in the queue, computed with its new score. Its former place is then ignored.
+ *
+ * @author alexis
+ */
+final class RefinementQueue {
+
+	private static final Comparator<Entry> WORST_FIRST = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry o1, Entry o2) {
+			int c = Double.compare(o2.score, o1.score);
+			if(c == 0){
+				c = o1.rank < o2.rank ? -1 : (o1.rank > o2.rank ? 1 : 0);
+			}
+			return c;
+		}
+	};
+
+	private final InsertionEvaluator ev;
+	private final ScoredEvaluator scored;
+	private final Queue<Entry> queue;
+	//The current entry of each queued triangle.
+	private final Map<DTriangle, Entry> current = new IdentityHashMap<DTriangle, Entry>();
+	private long rank = 0;
+
+	/**
+	 * Build an empty queue.
+	 * @param ev
+	 *      Decides which triangles are queued, and in which order if it is
+	 * a ScoredEvaluator.
+	 * @param capacity
+	 *      The expected number of triangles.
+	 */
+	RefinementQueue(InsertionEvaluator ev, int capacity) {
+		this.ev = ev;
+		int cap = Math.max(1, capacity);
+		if(ev instanceof ScoredEvaluator){
+			scored = (ScoredEvaluator) ev;
+			queue = new PriorityQueue<Entry>(cap, WORST_FIRST);
+		} else {
+			scored = null;
+			queue = new ArrayDeque<Entry>(cap);
+		}
+	}
+
+	/**
+	 * Queue tri if the evaluator accepts it. If tri is already queued, it
+	 * is moved according to its new score. Without score, it keeps its place.
+	 * @param tri
+	 */
+	void add(DTriangle tri) {
+		if(scored == null && current.containsKey(tri)){
+			return;
+		}
+		if(!ev.evaluate(tri)){
+			current.remove(tri);
+			return;
+		}
+		Entry e = new Entry(tri, scored == null ? 0 : scored.score(tri), rank++);
+		current.put(tri, e);
+		queue.add(e);
+	}
+
+	/**
+	 * Queue all the given triangles.
+	 * @param tris
+	 */
+	void addAll(Collection<DTriangle> tris) {
+		for(DTriangle t : tris){
+			add(t);
+		}
+	}
+
+	/**
+	 * Remove the next triangle from the queue.
+	 * @return
+	 *      The next triangle, or null if the queue is empty.
+	 */
+	DTriangle poll() {
+		Entry e = queue.poll();
+		while(e != null){
+			if(current.get(e.triangle) == e){
+				current.remove(e.triangle);
+				return e.triangle;
+			}
+			e = queue.poll();
+		}
+		return null;
+	}
+
+	/**
+	 * @return true if there is no triangle left in the queue.
+	 */
+	boolean isEmpty() {
+		return current.isEmpty();
+	}
+
+	/**
+	 * The place of a triangle in the queue.
+	 */
+	private static final class Entry {
+		private final DTriangle triangle;
+		private final double score;
+		//The triangles with the same score are given in this order.
+		private final long rank;
+
+		private Entry(DTriangle triangle, double score, long rank) {
+			this.triangle = triangle;
+			this.score = score;
+			this.rank = rank;
+		}
+	}
+}
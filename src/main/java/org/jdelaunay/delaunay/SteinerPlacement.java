@@ -0,0 +1,64 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+/**
+ * The locations where ConstrainedMesh.refineMesh and refineTriangles insert
+ * the Steiner points.
+ * @author alexis
+ */
+public enum SteinerPlacement {
+	/**
+	 * The historical placement : the circumcenter of the skinny triangles,
+	 * and the middle of the encroached segments.
+	 */
+	CIRCUMCENTER,
+	/**
+	 * The off-centers of Ungor : the point of the bisector of the shortest
+	 * edge of the triangle that makes, with this edge, a triangle whose
+	 * smallest angle is the one of the evaluator. It is used instead of the
+	 * circumcenter when it is closer to the edge, so that the new triangle
+	 * does not have to be refined again. The segments are split in their middle.
+	 * It needs a SkinnyEvaluator or a QualitySizeEvaluator, circumcenters
+	 * are used with other evaluators.
+	 */
+	OFF_CENTER,
+	/**
+	 * The off-centers, and the rules of the terminator of Shewchuk around
+	 * the small angles between the constraints : a segment that makes an
+	 * angle smaller than 60 degrees with another constraint is split on a circle
+	 * centered on their common vertex, whose radius is a power of two, and it
+	 * is not split for a skinny triangle if the split would create an edge
+	 * shorter than the shortest edge of the triangle. Such a triangle is
+	 * kept as is. This avoids the endless cascades of splits near small angles.
+	 */
+	TERMINATOR
+}
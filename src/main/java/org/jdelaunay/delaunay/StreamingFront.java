@@ -0,0 +1,199 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * The triangles of a streaming triangulation that can still be changed by the
+ * insertion of the next points. As the points are inserted in increasing x
+ * order, a triangle whose circumcircle lies entirely on the left of the current
+ * point will never be swapped : it is given to the TriangleSink and forgotten.
+ * The triangles are sorted on the right end of their circumcircle. This value
+ * changes when a triangle is swapped : the swapped triangles must be given to
+ * update. It is checked again before the triangle is released anyway.
+ * @author alexis
+ */
+final class StreamingFront {
+
+        private static final int MIN_COMPACTION = 1024;
+
+        private final PriorityQueue<Entry> queue;
+        //The live entry of each triangle of the front.
+        private final Map<DTriangle, Entry> entries;
+        private final TriangleSink sink;
+        private int released;
+        //The number of dead entries in the queue.
+        private int deadCount;
+
+        /**
+         * Build a new, empty, front.
+         * @param sink
+         *      The destination of the released triangles.
+         */
+        StreamingFront(TriangleSink sink) {
+                this.sink = sink;
+                queue = new PriorityQueue<Entry>();
+                entries = new IdentityHashMap<DTriangle, Entry>();
+        }
+
+        /**
+         * Add a new triangle in the front, or update the position of a triangle
+         * that has been swapped.
+         * @param tri
+         */
+        void update(DTriangle tri) {
+                double ext = rightExtent(tri);
+                Entry old = entries.get(tri);
+                if(old != null){
+                        if(old.extent == ext){
+                                return;
+                        }
+                        //The old entry is left in the queue, and skipped later.
+                        old.dead = true;
+                        deadCount++;
+                }
+                Entry ent = new Entry(tri, ext);
+                entries.put(tri, ent);
+                queue.add(ent);
+                if(deadCount > MIN_COMPACTION && deadCount > entries.size()){
+                        //The dead entries would retain the released triangles.
+                        queue.clear();
+                        queue.addAll(entries.values());
+                        deadCount = 0;
+                }
+        }
+
+        /**
+         * Get the number of triangles in the front.
+         * @return
+         */
+        int size() {
+                return entries.size();
+        }
+
+        /**
+         * Get the number of triangles given to the sink.
+         * @return
+         */
+        int getReleasedCount() {
+                return released;
+        }
+
+        /**
+         * Release all the triangles whose circumcircle lies on the left of x.
+         * @param x
+         * @throws DelaunayError
+         */
+        void flush(double x) throws DelaunayError {
+                while(!queue.isEmpty() && queue.peek().extent < x){
+                        Entry ent = queue.poll();
+                        if(ent.dead){
+                                deadCount--;
+                                continue;
+                        }
+                        if(rightExtent(ent.tri) < x){
+                                release(ent.tri);
+                        } else {
+                                //The triangle has been swapped without being updated.
+                                update(ent.tri);
+                        }
+                }
+        }
+
+        /**
+         * Release all the remaining triangles.
+         * @throws DelaunayError
+         */
+        void flushAll() throws DelaunayError {
+                while(!queue.isEmpty()){
+                        Entry ent = queue.poll();
+                        if(!ent.dead){
+                                release(ent.tri);
+                        }
+                }
+        }
+
+        /**
+         * Give tri to the sink, and unlink it from its edges, so that the already
+         * released part of the mesh can be garbage collected. The edges shared
+         * with a triangle of the front then look like boundary edges : they
+         * won't be swapped anymore, which is right, as tri can't change.
+         * @param tri
+         * @throws DelaunayError
+         */
+        private void release(DTriangle tri) throws DelaunayError {
+                entries.remove(tri);
+                sink.processTriangle(tri);
+                released++;
+                for(int i = 0; i < 3; i++){
+                        DEdge ed = tri.getEdge(i);
+                        if(ed.getLeft() == tri){
+                                ed.setLeft(null);
+                        }
+                        if(ed.getRight() == tri){
+                                ed.setRight(null);
+                        }
+                }
+        }
+
+        /**
+         * The greatest x-coordinate of the circumcircle of tri.
+         */
+        private static double rightExtent(DTriangle tri) {
+                return tri.getCircumCenterX() + tri.getRadius();
+        }
+
+        /**
+         * A triangle in the queue.
+         */
+        private static final class Entry implements Comparable<Entry> {
+
+                private final DTriangle tri;
+                private final double extent;
+                private boolean dead = false;
+
+                private Entry(DTriangle tri, double extent) {
+                        this.tri = tri;
+                        this.extent = extent;
+                }
+
+                @Override
+                public int compareTo(Entry o) {
+                        return Double.compare(extent, o.extent);
+                }
+        }
+}
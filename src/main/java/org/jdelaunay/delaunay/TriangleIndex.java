@@ -0,0 +1,327 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+import org.jdelaunay.delaunay.tools.Kernels;
+import org.jdelaunay.delaunay.tools.Predicates;
+
+/**
+ * A packed Hilbert R-tree over the triangles of a mesh.<p></p>
+ *
+ * The triangles are sorted along a Hilbert curve, using their centroids, and
+ * grouped by NODE_SIZE to make the leaves of the tree. The nodes of each level
+ * are then grouped by NODE_SIZE to make the next one, until a single root is
+ * left. The tree only stores the sorted references to the triangles and the
+ * bounding boxes of its nodes, ie about a quarter of a double per triangle :
+ * the coordinates are read from the triangles themselves.<p></p>
+ *
+ * The index is not updated when the mesh changes. It can be shared between
+ * threads, as the queries don't modify it.
+ * @author alexis
+ */
+public final class TriangleIndex {
+
+	//The number of children of each node.
+	private static final int NODE_SIZE = 16;
+	private static final int BOX_SIZE = 4;
+
+	//The triangles, in the order of the Hilbert curve.
+	private final DTriangle[] triangles;
+	//minX, minY, maxX, maxY for each node, the leaves first and the root last.
+	private final double[] boxes;
+	//The index of the first node of each level, and the total number of nodes.
+	private final int[] levels;
+
+	/**
+	 * Build the index of the given triangles.
+	 * @param tris
+	 */
+	public TriangleIndex(List<DTriangle> tris) {
+		triangles = sortTriangles(tris);
+		List<Integer> starts = new ArrayList<Integer>();
+		int count = triangles.length;
+		int total = 0;
+		do {
+			count = (count + NODE_SIZE - 1) / NODE_SIZE;
+			starts.add(total);
+			total += count;
+		} while(count > 1);
+		levels = new int[starts.size() + 1];
+		for(int i = 0; i < starts.size(); i++){
+			levels[i] = starts.get(i);
+		}
+		levels[starts.size()] = total;
+		boxes = new double[BOX_SIZE * total];
+		Arrays.fill(boxes, Double.NaN);
+		for(int t = 0; t < triangles.length; t++){
+			DTriangle tri = triangles[t];
+			int node = t / NODE_SIZE;
+			for(int k = 0; k < 3; k++){
+				DPoint pt = tri.getPoint(k);
+				extend(node, pt.getX(), pt.getY(), pt.getX(), pt.getY());
+			}
+		}
+		for(int l = 1; l < levels.length - 1; l++){
+			for(int child = levels[l - 1]; child < levels[l]; child++){
+				int node = levels[l] + (child - levels[l - 1]) / NODE_SIZE;
+				int b = BOX_SIZE * child;
+				extend(node, boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3]);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of indexed triangles.
+	 * @return
+	 */
+	public int size() {
+		return triangles.length;
+	}
+
+	/**
+	 * Get the triangles whose bounding box intersects the given envelope.
+	 * @param minX
+	 * @param minY
+	 * @param maxX
+	 * @param maxY
+	 * @return
+	 *      The triangles, in the order of the index.
+	 */
+	public List<DTriangle> query(double minX, double minY, double maxX, double maxY) {
+		List<DTriangle> ret = new ArrayList<DTriangle>();
+		if(triangles.length > 0){
+			query(levels.length - 2, levels[levels.length - 2], minX, minY, maxX, maxY, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Get a triangle that contains the point (x, y). If the point is on an
+	 * edge or on a vertex, any of the triangles that share it can be returned.
+	 * @param x
+	 * @param y
+	 * @return
+	 *      The triangle, or null if the point is outside the mesh.
+	 */
+	public DTriangle getContainingTriangle(double x, double y) {
+		if(triangles.length == 0){
+			return null;
+		}
+		return searchContaining(levels.length - 2, levels[levels.length - 2], x, y);
+	}
+
+	/**
+	 * Get the vertex of the mesh that is the closest to (x, y), in 2D.
+	 * @param x
+	 * @param y
+	 * @return
+	 *      The closest vertex, or null if there is no triangle.
+	 */
+	public DPoint getNearestVertex(double x, double y) {
+		if(triangles.length == 0){
+			return null;
+		}
+		Nearest best = new Nearest();
+		searchNearest(levels.length - 2, levels[levels.length - 2], x, y, best);
+		return best.vertex;
+	}
+
+	private void query(int level, int node, double minX, double minY, double maxX, double maxY,
+			List<DTriangle> ret) {
+		int b = BOX_SIZE * node;
+		if(boxes[b] > maxX || boxes[b + 1] > maxY || boxes[b + 2] < minX || boxes[b + 3] < minY){
+			return;
+		}
+		int first = (node - levels[level]) * NODE_SIZE;
+		if(level == 0){
+			int last = Math.min(first + NODE_SIZE, triangles.length);
+			for(int t = first; t < last; t++){
+				if(intersects(triangles[t], minX, minY, maxX, maxY)){
+					ret.add(triangles[t]);
+				}
+			}
+		} else {
+			int last = Math.min(first + NODE_SIZE, levels[level] - levels[level - 1]);
+			for(int c = first; c < last; c++){
+				query(level - 1, levels[level - 1] + c, minX, minY, maxX, maxY, ret);
+			}
+		}
+	}
+
+	private DTriangle searchContaining(int level, int node, double x, double y) {
+		int b = BOX_SIZE * node;
+		if(boxes[b] > x || boxes[b + 1] > y || boxes[b + 2] < x || boxes[b + 3] < y){
+			return null;
+		}
+		int first = (node - levels[level]) * NODE_SIZE;
+		if(level == 0){
+			int last = Math.min(first + NODE_SIZE, triangles.length);
+			for(int t = first; t < last; t++){
+				if(contains(triangles[t], x, y)){
+					return triangles[t];
+				}
+			}
+		} else {
+			int last = Math.min(first + NODE_SIZE, levels[level] - levels[level - 1]);
+			for(int c = first; c < last; c++){
+				DTriangle found = searchContaining(level - 1, levels[level - 1] + c, x, y);
+				if(found != null){
+					return found;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Branch and bound search of the nearest vertex : the children of a node
+	 * are visited from the closest one, and skipped when their box is farther
+	 * than the best vertex found so far.
+	 */
+	private void searchNearest(int level, int node, double x, double y, Nearest best) {
+		int first = (node - levels[level]) * NODE_SIZE;
+		if(level == 0){
+			int last = Math.min(first + NODE_SIZE, triangles.length);
+			for(int t = first; t < last; t++){
+				for(int k = 0; k < 3; k++){
+					DPoint pt = triangles[t].getPoint(k);
+					double d = Kernels.squareDistance2D(x, y, pt.getX(), pt.getY());
+					if(d < best.distance){
+						best.distance = d;
+						best.vertex = pt;
+					}
+				}
+			}
+		} else {
+			int last = Math.min(first + NODE_SIZE, levels[level] - levels[level - 1]);
+			int n = last - first;
+			int[] sorted = new int[n];
+			double[] dist = new double[n];
+			for(int c = 0; c < n; c++){
+				dist[c] = getSquareDistance(levels[level - 1] + first + c, x, y);
+				//Insertion sort of the children, with their distance.
+				int k = c;
+				while(k > 0 && dist[sorted[k - 1]] > dist[c]){
+					sorted[k] = sorted[k - 1];
+					k--;
+				}
+				sorted[k] = c;
+			}
+			for(int c : sorted){
+				if(dist[c] >= best.distance){
+					return;
+				}
+				searchNearest(level - 1, levels[level - 1] + first + c, x, y, best);
+			}
+		}
+	}
+
+	/**
+	 * The square of the distance between (x, y) and the box of the node.
+	 */
+	private double getSquareDistance(int node, double x, double y) {
+		int b = BOX_SIZE * node;
+		double dx = Math.max(0, Math.max(boxes[b] - x, x - boxes[b + 2]));
+		double dy = Math.max(0, Math.max(boxes[b + 1] - y, y - boxes[b + 3]));
+		return dx * dx + dy * dy;
+	}
+
+	private void extend(int node, double minX, double minY, double maxX, double maxY) {
+		int b = BOX_SIZE * node;
+		if(Double.isNaN(boxes[b])){
+			boxes[b] = minX;
+			boxes[b + 1] = minY;
+			boxes[b + 2] = maxX;
+			boxes[b + 3] = maxY;
+		} else {
+			boxes[b] = Math.min(boxes[b], minX);
+			boxes[b + 1] = Math.min(boxes[b + 1], minY);
+			boxes[b + 2] = Math.max(boxes[b + 2], maxX);
+			boxes[b + 3] = Math.max(boxes[b + 3], maxY);
+		}
+	}
+
+	private static boolean intersects(DTriangle tri, double minX, double minY, double maxX, double maxY) {
+		DPoint a = tri.getPoint(0);
+		DPoint b = tri.getPoint(1);
+		DPoint c = tri.getPoint(2);
+		return Math.min(a.getX(), Math.min(b.getX(), c.getX())) <= maxX
+			&& Math.max(a.getX(), Math.max(b.getX(), c.getX())) >= minX
+			&& Math.min(a.getY(), Math.min(b.getY(), c.getY())) <= maxY
+			&& Math.max(a.getY(), Math.max(b.getY(), c.getY())) >= minY;
+	}
+
+	/**
+	 * Check if (x, y) is inside tri, or on its boundary, with exact predicates.
+	 */
+	private static boolean contains(DTriangle tri, double x, double y) {
+		DPoint a = tri.getPoint(0);
+		DPoint b = tri.getPoint(1);
+		DPoint c = tri.getPoint(2);
+		double o1 = Predicates.orient2d(a.getX(), a.getY(), b.getX(), b.getY(), x, y);
+		double o2 = Predicates.orient2d(b.getX(), b.getY(), c.getX(), c.getY(), x, y);
+		double o3 = Predicates.orient2d(c.getX(), c.getY(), a.getX(), a.getY(), x, y);
+		return o1 >= 0 && o2 >= 0 && o3 >= 0 || o1 <= 0 && o2 <= 0 && o3 <= 0;
+	}
+
+	/**
+	 * Sort the triangles along a Hilbert curve, using their centroids.
+	 */
+	private static DTriangle[] sortTriangles(List<DTriangle> tris) {
+		DTriangle[] ret = tris.toArray(new DTriangle[tris.size()]);
+		double[] cx = new double[ret.length];
+		double[] cy = new double[ret.length];
+		for(int i = 0; i < ret.length; i++){
+			DTriangle tri = ret[i];
+			cx[i] = (tri.getPoint(0).getX() + tri.getPoint(1).getX() + tri.getPoint(2).getX()) / 3;
+			cy[i] = (tri.getPoint(0).getY() + tri.getPoint(1).getY() + tri.getPoint(2).getY()) / 3;
+		}
+		int[] order = HilbertCurve.getOrder(cx, cy);
+		DTriangle[] sorted = new DTriangle[ret.length];
+		for(int i = 0; i < order.length; i++){
+			sorted[i] = ret[order[i]];
+		}
+		return sorted;
+	}
+
+	/**
+	 * The best vertex found during a nearest vertex search.
+	 */
+	private static final class Nearest {
+		private DPoint vertex = null;
+		private double distance = Double.POSITIVE_INFINITY;
+	}
+}
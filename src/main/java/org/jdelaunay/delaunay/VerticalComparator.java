@@ -32,8 +32,6 @@ package org.jdelaunay.delaunay;
 
 import java.io.Serializable;
 import java.util.Comparator;
-import org.apache.log4j.Logger;
-import org.jdelaunay.delaunay.error.DelaunayError;
 import org.jdelaunay.delaunay.geometries.DEdge;
 import org.jdelaunay.delaunay.geometries.DPoint;
 import org.jdelaunay.delaunay.tools.Tools;
@@ -47,8 +45,6 @@ import org.jdelaunay.delaunay.tools.Tools;
 public class VerticalComparator implements Comparator<DEdge>, Serializable {
 	private static final long serialVersionUID = 1L;
 
-	private static final Logger LOG = Logger.getLogger(VerticalComparator.class);
-
 	//The absciss where we are going to make the comparison.
 	private double abs;
 
@@ -99,25 +95,20 @@ public class VerticalComparator implements Comparator<DEdge>, Serializable {
 	@Override
 	public final int compare(DEdge edge1, DEdge edge2) {
 		int c;
-		DPoint pEdge1 = null;
-		DPoint pEdge2 = null;
 		//If the two edges are equal, we return fast
 		if(edge1.equals(edge2)){
 			return 0;
 		}
-		try{
-			//We retrieve the points that must be used to perform the comparison.
-			pEdge1 = edge1.getPointFromItsX(abs);
-			pEdge2 = edge2.getPointFromItsX(abs);
-		} catch (DelaunayError e){
-			LOG.error("Problem while processing the points from their absciss !");
-		}
-		if (pEdge1 == null || pEdge2 == null) {
+		//We retrieve the ordinates that must be used to perform the comparison.
+		//We don't need the points themselves, so we don't build them.
+		double yEdge1 = edge1.getYFromItsX(abs);
+		double yEdge2 = edge2.getYFromItsX(abs);
+		if (Double.isNaN(yEdge1) || Double.isNaN(yEdge2)) {
 			c=-2;
 		} else {
 			//We can perform the comparison.
-			c = pEdge1.getY()<pEdge2.getY() ? -1 : 1;
-			c = pEdge1.getY()==pEdge2.getY() ? 0 : c;
+			c = yEdge1<yEdge2 ? -1 : 1;
+			c = yEdge1==yEdge2 ? 0 : c;
 			if (c == 0) {
 				//We have an intersection. (pEdge1 and pEdge2 are equal)
 				if(edge1.isVertical()){
@@ -127,16 +118,16 @@ public class VerticalComparator implements Comparator<DEdge>, Serializable {
 						return yr1 > yr2 ? 1: -1;
 					}
 					c = comparePoints(edge1.getPointRight(),edge2.getPointRight());
-					if(edge1.getPointLeft().equals(pEdge1)){
+					if(edge1.getPointLeft().getY() == yEdge1){
 						c = 1;
-					} else if(edge1.getPointRight().equals(pEdge1)){
+					} else if(edge1.getPointRight().getY() == yEdge1){
 						c = -1;
 					}
 				} else if(edge2.isVertical()){
 					c = comparePoints(edge2.getPointRight(),edge1.getPointRight());
-					if(edge2.getPointLeft().equals(pEdge2)){
+					if(edge2.getPointLeft().getY() == yEdge2){
 						c = -1;
-					} else if(edge2.getPointRight().equals(pEdge2)){
+					} else if(edge2.getPointRight().getY() == yEdge2){
 						c = 1;
 					}
 				} else {
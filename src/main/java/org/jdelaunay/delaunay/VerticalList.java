@@ -356,12 +356,12 @@ public class VerticalList {
                 //the operation in the loop at least once.
                 double edgeOrd;
                 do{
-                        edgeOrd = constraintsList.get(index).getPointFromItsX(abs).getY();
+                        edgeOrd = constraintsList.get(index).getYFromItsX(abs);
                         index ++;
                 } while(Math.abs(edgeOrd - point.getY())<Tools.EPSILON && index < size);
                 //We've gone one place too far
                 index --;
-                edgeOrd = constraintsList.get(index).getPointFromItsX(abs).getY();
+                edgeOrd = constraintsList.get(index).getYFromItsX(abs);
                 //We must check that the last edge is really upper than point, ie that
                 //point and constraintsEdge.get(size -1) are not colinear.
                 //If they are, we return null
@@ -448,29 +448,26 @@ public class VerticalList {
                         return null;
                 }
 		DEdge edgeTmp;
-		DPoint pointTmp;
 		//we need to handle a boolean to be able to manage vertical edges
 		boolean cont = true;
                 do{
 			edgeTmp = constraintsList.get(index);
-			pointTmp = edgeTmp.getPointFromItsX(abs);
-			if(pointTmp == null){
+			edgeOrd = edgeTmp.getYFromItsX(abs);
+			if(Double.isNaN(edgeOrd)){
 				//We are dealing with a vertical edge.
 				cont=true;
 			} else {
-				edgeOrd = pointTmp.getY();
 				cont = Math.abs(edgeOrd - point.getY())<Tools.EPSILON;
 			}
                         index --;
                 } while(cont && index >=0);
 		//We've gone one place too far
 		index ++;
-		pointTmp = constraintsList.get(index).getPointFromItsX(abs);
-		if(pointTmp == null){
+		edgeOrd = constraintsList.get(index).getYFromItsX(abs);
+		if(Double.isNaN(edgeOrd)){
 			lastLowerEd=null;
 			return null;
 		} else {
-			edgeOrd = pointTmp.getY();
 			//We must check that the last edge is really lower than point, ie that
 			//point and constraintsEdge.get(size -1) are not colinear.
 			//If they are, we return null
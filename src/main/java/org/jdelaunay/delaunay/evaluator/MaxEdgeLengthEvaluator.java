@@ -0,0 +1,91 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.evaluator;
+
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Evaluator used to refine the triangles whose longest edge is too long. The
+ * maximum length is either a constant, or the value of a sizing field at the
+ * barycenter of the triangle.
+ * @author alexis
+ */
+public class MaxEdgeLengthEvaluator implements ScoredEvaluator {
+
+        private final SizingField field;
+
+        /**
+         * Refine the triangles that have an edge longer than maxLength.
+         * @param maxLength 
+         * @throws IllegalArgumentException if maxLength is not strictly positive.
+         */
+        public MaxEdgeLengthEvaluator(double maxLength) {
+                this(new UniformSizingField(maxLength));
+        }
+
+        /**
+         * Refine the triangles that have an edge longer than the value of
+         * field at their barycenter.
+         * @param field 
+         * @throws IllegalArgumentException if field is null.
+         */
+        public MaxEdgeLengthEvaluator(SizingField field) {
+                if(field == null){
+                        throw new IllegalArgumentException("The sizing field can't be null");
+                }
+                this.field = field;
+        }
+
+        /**
+         * Get the length the edges of dt should not exceed.
+         * @param dt
+         * @return 
+         */
+        public final double getMaxLength(DTriangle dt) {
+                return Sizes.getSize(field, dt);
+        }
+
+        @Override
+        public final boolean evaluate(DTriangle dt) {
+                return Sizes.getLongestEdge(dt) > getMaxLength(dt);
+        }
+
+        /**
+         * The score of dt is the ratio between the length of its longest edge
+         * and the maximum length.
+         * @param dt
+         * @return 
+         */
+        @Override
+        public final double score(DTriangle dt) {
+                return Sizes.getLongestEdge(dt) / getMaxLength(dt);
+        }
+}
@@ -0,0 +1,103 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.evaluator;
+
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Evaluator used to refine the triangles that are skinny or too large. The
+ * size is checked with a MaxAreaEvaluator or a MaxEdgeLengthEvaluator, whose
+ * scores are ratios to the maximum size.<br/>
+ * The score of a triangle is the greatest of its relative angle defect,
+ * (minAngle - angle) / minAngle, and of its relative size excess, the score
+ * of the size evaluator minus 1.
+ * @author alexis
+ */
+public class QualitySizeEvaluator implements ScoredEvaluator {
+
+        private final SkinnyEvaluator quality;
+        private final ScoredEvaluator size;
+
+        /**
+         * Refine the triangles that have an angle smaller than minAngle, or
+         * that size evaluates.
+         * @param minAngle
+         *      The threshold angle, in degrees.
+         * @param size 
+         * @throws IllegalArgumentException
+         *      if minAngle is greater than 32° or inferior to 0°, or if size is null.
+         */
+        public QualitySizeEvaluator(double minAngle, ScoredEvaluator size) {
+                if(size == null){
+                        throw new IllegalArgumentException("The size evaluator can't be null");
+                }
+                this.quality = new SkinnyEvaluator(minAngle);
+                this.size = size;
+        }
+
+        /**
+         * Refine the triangles that have an angle smaller than minAngle, or an
+         * edge longer than the value of field at their barycenter.
+         * @param minAngle
+         *      The threshold angle, in degrees.
+         * @param field 
+         * @throws IllegalArgumentException
+         *      if minAngle is greater than 32° or inferior to 0°, or if field is null.
+         */
+        public QualitySizeEvaluator(double minAngle, SizingField field) {
+                this(minAngle, new MaxEdgeLengthEvaluator(field));
+        }
+
+        /**
+         * @return
+         *      The threshold angle, in degrees.
+         */
+        public final double getMinAngle() {
+                return quality.getMinAngle();
+        }
+
+        @Override
+        public final boolean evaluate(DTriangle dt) {
+                return quality.evaluate(dt) || size.evaluate(dt);
+        }
+
+        @Override
+        public final double score(DTriangle dt) {
+                double ret = 0;
+                if(quality.evaluate(dt)){
+                        ret = quality.score(dt) / quality.getMinAngle();
+                }
+                if(size.evaluate(dt)){
+                        ret = Math.max(ret, size.score(dt) - 1);
+                }
+                return ret;
+        }
+}
@@ -0,0 +1,173 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.evaluator;
+
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.RasterGrid;
+import org.jdelaunay.delaunay.error.DelaunayError;
+
+/**
+ * A sizing field defined on a regular grid. The sizes are given at the center
+ * of the cells, and interpolated bilinearly between them. Outside the centers
+ * of the border cells, the value of the closest border is used.
+ * @author alexis
+ */
+public final class RasterSizingField implements SizingField {
+
+        private final double minX;
+        private final double maxY;
+        private final double cellSize;
+        private final int columns;
+        private final int rows;
+        private final double[] sizes;
+
+        /**
+         * Build a sizing field from the values of the cells of grid.
+         * @param grid
+         * @param sizes
+         *      The size in each cell, row after row, from the north, as
+         * ConstrainedMesh.interpolateZ writes them. The array is copied.
+         * @throws IllegalArgumentException if sizes is smaller than the grid,
+         * or if one of the sizes is not strictly positive.
+         */
+        public RasterSizingField(RasterGrid grid, double[] sizes) {
+                int n = grid.getCellCount();
+                if(sizes.length < n){
+                        throw new IllegalArgumentException("The array is smaller than the grid");
+                }
+                for(int i = 0; i < n; i++){
+                        if(!(sizes[i] > 0)){
+                                throw new IllegalArgumentException("The sizes must be strictly positive");
+                        }
+                }
+                this.minX = grid.getMinX();
+                this.maxY = grid.getMaxY();
+                this.cellSize = grid.getCellSize();
+                this.columns = grid.getColumns();
+                this.rows = grid.getRows();
+                this.sizes = new double[n];
+                System.arraycopy(sizes, 0, this.sizes, 0, n);
+        }
+
+        /**
+         * Build a sizing field from scattered samples. The samples are
+         * triangulated, the triangulation is sampled on a grid of cells of
+         * size cellSize that covers them, and the cells outside the convex hull
+         * of the samples receive the value of the closest sampled cell.
+         * @param x
+         * @param y
+         * @param sizes
+         *      The size at each sample.
+         * @param cellSize
+         * @return
+         * @throws DelaunayError
+         *      If the samples can't be triangulated.
+         * @throws IllegalArgumentException if the arrays have different lengths,
+         * if one of the sizes or cellSize is not strictly positive.
+         */
+        public static RasterSizingField fromPoints(double[] x, double[] y, double[] sizes, double cellSize)
+                        throws DelaunayError {
+                if(x.length != y.length || x.length != sizes.length){
+                        throw new IllegalArgumentException("The coordinate arrays must have the same length");
+                }
+                double x0 = Double.POSITIVE_INFINITY;
+                double y0 = Double.POSITIVE_INFINITY;
+                double x1 = Double.NEGATIVE_INFINITY;
+                double y1 = Double.NEGATIVE_INFINITY;
+                for(int i = 0; i < x.length; i++){
+                        if(!(sizes[i] > 0)){
+                                throw new IllegalArgumentException("The sizes must be strictly positive");
+                        }
+                        x0 = Math.min(x0, x[i]);
+                        y0 = Math.min(y0, y[i]);
+                        x1 = Math.max(x1, x[i]);
+                        y1 = Math.max(y1, y[i]);
+                }
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                mesh.setPoints(x, y, sizes);
+                mesh.processDelaunay();
+                int cols = Math.max(1, (int) Math.ceil((x1 - x0) / cellSize));
+                int rws = Math.max(1, (int) Math.ceil((y1 - y0) / cellSize));
+                RasterGrid grid = new RasterGrid(x0, y0, cellSize, cols, rws);
+                double[] values = new double[grid.getCellCount()];
+                mesh.interpolateZ(grid, values, Double.NaN);
+                fillEmptyCells(values, cols, rws);
+                return new RasterSizingField(grid, values);
+        }
+
+        /**
+         * Give to the NaN cells the value of the closest cell that is not NaN,
+         * with a breadth first search from all the valued cells at once.
+         */
+        private static void fillEmptyCells(double[] values, int cols, int rws) {
+                int[] queue = new int[values.length];
+                int head = 0;
+                int tail = 0;
+                for(int i = 0; i < values.length; i++){
+                        if(!Double.isNaN(values[i])){
+                                queue[tail++] = i;
+                        }
+                }
+                while(head < tail){
+                        int i = queue[head++];
+                        int c = i % cols;
+                        int r = i / cols;
+                        int[] next = {c > 0 ? i - 1 : -1, c < cols - 1 ? i + 1 : -1,
+                                r > 0 ? i - cols : -1, r < rws - 1 ? i + cols : -1};
+                        for(int j : next){
+                                if(j >= 0 && Double.isNaN(values[j])){
+                                        values[j] = values[i];
+                                        queue[tail++] = j;
+                                }
+                        }
+                }
+        }
+
+        @Override
+        public double getSize(double x, double y) {
+                //Coordinates relative to the center of the first cell.
+                double u = clamp((x - minX) / cellSize - 0.5, columns - 1);
+                double v = clamp((maxY - y) / cellSize - 0.5, rows - 1);
+                int c0 = Math.min((int) u, Math.max(0, columns - 2));
+                int r0 = Math.min((int) v, Math.max(0, rows - 2));
+                int c1 = Math.min(c0 + 1, columns - 1);
+                int r1 = Math.min(r0 + 1, rows - 1);
+                double fu = u - c0;
+                double fv = v - r0;
+                double north = sizes[r0 * columns + c0] * (1 - fu) + sizes[r0 * columns + c1] * fu;
+                double south = sizes[r1 * columns + c0] * (1 - fu) + sizes[r1 * columns + c1] * fu;
+                return north * (1 - fv) + south * fv;
+        }
+
+        private static double clamp(double d, int max) {
+                return d < 0 ? 0 : (d > max ? max : d);
+        }
+}
@@ -0,0 +1,77 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.evaluator;
+
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Measures shared by the size evaluators.
+ * @author alexis
+ */
+final class Sizes {
+
+        /**
+         * The area of an equilateral triangle whose edges have a length of 1.
+         */
+        static final double EQUILATERAL_AREA = Math.sqrt(3) / 4;
+
+        private Sizes() {
+        }
+
+        /**
+         * Get the value of field at the barycenter of dt.
+         * @param field
+         * @param dt
+         * @return
+         */
+        static double getSize(SizingField field, DTriangle dt) {
+                DPoint p0 = dt.getPoint(0);
+                DPoint p1 = dt.getPoint(1);
+                DPoint p2 = dt.getPoint(2);
+                return field.getSize((p0.getX() + p1.getX() + p2.getX()) / 3,
+                        (p0.getY() + p1.getY() + p2.getY()) / 3);
+        }
+
+        /**
+         * Get the 2D length of the longest edge of dt.
+         * @param dt
+         * @return
+         */
+        static double getLongestEdge(DTriangle dt) {
+                double max = 0;
+                for(int i = 0; i < 3; i++){
+                        double l = dt.getEdge(i).get2DLength();
+                        max = l > max ? l : max;
+                }
+                return max;
+        }
+}
@@ -34,10 +34,11 @@ import org.jdelaunay.delaunay.geometries.DTriangle;
 
 /**
  * Evaluator used to determine if a triangle is skinny (ie if it has an angle 
- * inferior to a given value) or not.
+ * inferior to a given value) or not. The triangles with the smallest angles
+ * are the worst ones.
  * @author alexis
  */
-public class SkinnyEvaluator implements InsertionEvaluator {
+public class SkinnyEvaluator implements ScoredEvaluator {
         /**
          * The maximum valule that can be used in a skinny evaluator. As the Ruppert
          * algorithm won't end for angles superior to this value, such values are 
@@ -94,5 +95,16 @@ public class SkinnyEvaluator implements InsertionEvaluator {
         public final boolean evaluate(DTriangle dt) {
                 return minAngle > dt.getMinAngle();
         }
+
+        /**
+         * The score of dt is the difference between the threshold angle and
+         * its smallest angle, in degrees.
+         * @param dt
+         * @return 
+         */
+        @Override
+        public final double score(DTriangle dt) {
+                return minAngle - dt.getMinAngle();
+        }
         
 }
@@ -40,6 +40,8 @@ import com.vividsolutions.jts.geom.Coordinate;
 import java.util.LinkedList;
 import java.util.Map;
 import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.tools.Kernels;
+import org.jdelaunay.delaunay.tools.Predicates;
 import org.jdelaunay.delaunay.tools.Tools;
 
 /**
@@ -982,12 +984,7 @@ public class DEdge extends Element implements Comparable<DEdge> {
          *      true if p is on the left (strictly) of this point.
 	 */
 	public final boolean isLeft(DPoint p) {
-		double ux = this.endPoint.getX() - this.startPoint.getX();
-		double uy = this.endPoint.getY() - this.startPoint.getY();
-		double vx = p.getX() - this.startPoint.getX();
-		double vy = p.getY() - this.startPoint.getY();
-
-		return ux * vy - uy * vx > Tools.EPSILON;
+		return getSide(p) > 0;
 	}
 
 	/**
@@ -998,12 +995,36 @@ public class DEdge extends Element implements Comparable<DEdge> {
          *      true if p is on the right (strictly) of this point.
 	 */
 	public final boolean isRight(DPoint p) {
-		double ux = this.endPoint.getX() - this.startPoint.getX();
-		double uy = this.endPoint.getY() - this.startPoint.getY();
-		double vx = p.getX() - this.startPoint.getX();
-		double vy = p.getY() - this.startPoint.getY();
+		return getSide(p) < 0;
+	}
 
-		return ux * vy - uy * vx < -Tools.EPSILON;
+	/**
+	 * Get the side of this edge p lies on. p is considered to be on the line
+	 * of this edge if the cross product of this edge and of the vector from the
+	 * start point to p is lower than Tools.EPSILON. This cross product is
+	 * compared exactly : the answer doesn't depend on the orientation of the
+	 * edge, nor on rounding errors.
+	 * @param p
+	 * @return
+	 *      1 if p is on the left of this edge, -1 if it is on its right, 0 if
+	 *      it is on the line that contains it.
+	 */
+	public final int getSide(DPoint p) {
+		return Predicates.orientation(startPoint, endPoint, p, Tools.EPSILON);
+	}
+
+	/**
+	 * Get the side of this edge the point (x, y) lies on.
+	 * @param x
+	 * @param y
+	 * @return
+	 *      1 if (x, y) is on the left of this edge, -1 if it is on its right,
+	 *      0 if it is on the line that contains it.
+	 * @see #getSide(DPoint)
+	 */
+	public final int getSide(double x, double y) {
+		return Predicates.orientation(startPoint.getX(), startPoint.getY(),
+			endPoint.getX(), endPoint.getY(), x, y, Tools.EPSILON);
 	}
 
 	/**
@@ -1087,6 +1108,32 @@ public class DEdge extends Element implements Comparable<DEdge> {
 		}
 	}
 
+	/**
+	 * Get the ordinate of the point returned by getPointFromItsX, without
+	 * building it. The vertical comparisons of the sweep only need this value.
+	 * @param abs
+	 * @return
+	 *      The ordinate of the intersection of this with the line of absciss abs,
+	 *      or Double.NaN if this is vertical and this.x != abs.
+	 */
+	public final double getYFromItsX(double abs) {
+		DPoint left = getPointLeft();
+		DPoint right = getPointRight();
+		if(Math.abs(left.getX() - abs)<Tools.EPSILON){
+			return left.getY();
+		} else if(Math.abs(right.getX() - abs)<Tools.EPSILON){
+			return right.getY();
+		}
+		double deltaX = (startPoint.getX() - endPoint.getX());
+		double dX = (deltaX < 0 ? -deltaX : deltaX);
+		if (dX < Tools.EPSILON) {
+			return abs == startPoint.getX() ? left.getY() : Double.NaN;
+		} else {
+			return Kernels.yFromX(startPoint.getX(), startPoint.getY(),
+				endPoint.getX(), endPoint.getY(), abs);
+		}
+	}
+
 	/**
 	 * return the point of the edge that have the greatest Z coordinate.
 	 * @return
@@ -1121,18 +1168,17 @@ public class DEdge extends Element implements Comparable<DEdge> {
 		if(!isLocked() && left != null && right != null){
 			return false;
 		}
-		DPoint middle = getMiddle();
 		double length = getSquared2DLength()/4.0;
 		DPoint other ;
 		if(left!=null){
 			other = left.getOppositePoint(this);
-			if(other.squareDistance2D(middle)<length){
+			if(squareDistanceToMiddle(other)<length){
 				return true;
                         }
                 }
 		if(right!=null){
 			other = right.getOppositePoint(this);
-			if(other.squareDistance2D(middle)<length){
+			if(squareDistanceToMiddle(other)<length){
 				return true;
                         }
                 }
@@ -1150,14 +1196,25 @@ public class DEdge extends Element implements Comparable<DEdge> {
 		if(!isLocked() && left != null && right != null){
 			return false;
 		}
-		DPoint middle = getMiddle();
 		double length = getSquared2DLength()/4.0;
-                if(pt.squareDistance2D(middle)<length){
+                if(squareDistanceToMiddle(pt)<length){
                         return true;
                 }
                 return false;
         }
 
+	/**
+	 * Square of the 2D distance between pt and the middle of this edge,
+	 * computed without building the middle.
+	 * @param pt
+	 * @return
+	 */
+	private double squareDistanceToMiddle(DPoint pt) {
+		double mx = startPoint.getX() + (endPoint.getX() - startPoint.getX()) / 2;
+		double my = startPoint.getY() + (endPoint.getY() - startPoint.getY()) / 2;
+		return Kernels.squareDistance2D(mx, my, pt.getX(), pt.getY());
+	}
+
 	/**
 	 * Swap the 2 points of the edge
 	 * also swap connected triangles
@@ -41,6 +41,8 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.tools.Kernels;
+import org.jdelaunay.delaunay.tools.Predicates;
 import org.jdelaunay.delaunay.tools.Tools;
 
 /**
@@ -62,14 +64,20 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 
 	private static final int HASHBASE = 5;
 	private static final int HASHMULT = 97;
+	//The seed of the xorshift generator used to choose the edges of a walk.
+	private static final int WALK_SEED = 0x2545F491;
 
 	/**
 	 * The array of edges that constitute this triangle
 	 */
 	private DEdge[] edges;
-	//The coordinates of the center of the circle.
+	//The coordinates of the center of the circle. They are computed lazily :
+	//most of the triangles built during the sweep are swapped before anyone
+	//needs them. The z value is only needed by the refinement.
 	private double xCenter, yCenter, zCenter;
 	private double radius;
+	private boolean centerComputed;
+	private boolean zCenterComputed;
 
 	private boolean seenForFlatRemoval;
         //This attribute will be used to manage triangles while refining the mesh
@@ -84,6 +92,8 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 		this.yCenter = 0;
 		zCenter = 0;
 		this.radius = -1;
+		centerComputed = false;
+		zCenterComputed = false;
 		seenForFlatRemoval = false;
                 processed = false;
 	}
@@ -119,8 +129,6 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 			edges[2] = e3;
 
 			connectEdges();
-			recomputeCenter();
-			radius = e1.getStartPoint().squareDistance2D(xCenter, yCenter);
 		} else {
 			throw new DelaunayError("Problem while generating the Triangle : "+
 				integrityE1E2 +" "+ integrityE1EptNb+" "+integrityEptNbE2);
@@ -145,9 +153,6 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
                 edges[1] = e2;
                 edges[2] = e3;
                 connectEdges();
-                recomputeCenter();
-                radius = e1.getStartPoint().squareDistance2D(xCenter, yCenter);
-                
         }
 
 	/**
@@ -163,7 +168,10 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 
 		xCenter = aTriangle.xCenter;
 		yCenter = aTriangle.yCenter;
+		zCenter = aTriangle.zCenter;
 		radius = aTriangle.radius;
+		centerComputed = aTriangle.centerComputed;
+		zCenterComputed = aTriangle.zCenterComputed;
 	}
 
 	/**
@@ -258,6 +266,8 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 	public final boolean setEdge(int i, DEdge anEdge) {
 		if (0<=i && i<=2) {
 			edges[i] = anEdge;
+			centerComputed = false;
+			zCenterComputed = false;
                         return true;
 		}
                 return false;
@@ -269,6 +279,7 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 	 * @return radius
 	 */
 	public final double getRadius() {
+		computeCenter();
 		return Math.sqrt(radius);
 	}
 
@@ -279,9 +290,36 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
          *      The circumcenter of the triangle, as a JTS Coordinate.
 	 */
 	public final Coordinate getCircumCenter() {
+		computeCenter();
+		if(!zCenterComputed){
+			zCenter = radius < 0 ? 0 : interpolateZ(xCenter, yCenter);
+			zCenterComputed = true;
+		}
 		return new Coordinate(this.xCenter, this.yCenter, zCenter);
 	}
 
+	/**
+	 * Get the x coordinate of the center of the CircumCircle. Contrary to
+	 * getCircumCenter, it does not need to compute the z of the center.
+	 * @return
+	 *      The x coordinate of the circumcenter.
+	 */
+	public final double getCircumCenterX() {
+		computeCenter();
+		return xCenter;
+	}
+
+	/**
+	 * Get the y coordinate of the center of the CircumCircle. Contrary to
+	 * getCircumCenter, it does not need to compute the z of the center.
+	 * @return
+	 *      The y coordinate of the circumcenter.
+	 */
+	public final double getCircumCenterY() {
+		computeCenter();
+		return yCenter;
+	}
+
 	/**
 	 * check if this triangle has already been encountered (and marked if flat)
 	 * during the flat removal operation.
@@ -389,7 +427,7 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 	
 	@Override
 	public final boolean contains(Coordinate c) throws DelaunayError {
-		return isInside(new DPoint(c));
+		return isInside(c.x, c.y);
 	}
 
 	/**
@@ -408,10 +446,38 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 	}
 
 	/**
-	 * Recompute the center of the circle that joins the ptNb points : the CircumCenter
+	 * Translate the circumcenter of this triangle by (dx, dy), without computing
+	 * it again. To be used when all the points of the triangle have been moved
+	 * by (dx, dy).
+	 * @param dx
+	 * @param dy
+	 */
+	public final void translateCircumCenter(double dx, double dy) {
+		if(centerComputed){
+			xCenter += dx;
+			yCenter += dy;
+		}
+	}
+
+	/**
+	 * Recompute the center of the circle that joins the ptNb points : the CircumCenter.
+	 * The computation is actually made the next time the circumcircle is needed.
 	 * @throws DelaunayError
 	 */
 	public final void recomputeCenter() throws DelaunayError {
+		centerComputed = false;
+		zCenterComputed = false;
+	}
+
+	/**
+	 * Compute the center and the radius of the circumcircle, if they are not
+	 * up to date.
+	 */
+	private void computeCenter() {
+		if(centerComputed){
+			return;
+		}
+		centerComputed = true;
 		DPoint p1,p2,pptNb;
 		p1 = edges[0].getStartPoint();
 		p2 = edges[0].getEndPoint();
@@ -420,31 +486,25 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 			pptNb = edges[1].getEndPoint();
 		}
 
-		double p1Sq = p1.getX() * p1.getX() + p1.getY() * p1.getY();
-		double p2Sq = p2.getX() * p2.getX() + p2.getY() * p2.getY();
-		double pptNbSq = pptNb.getX() * pptNb.getX() + pptNb.getY() * pptNb.getY();
-
+		//The center is computed relatively to p1, so that the result does
+		//not depend on the distance to the origin.
 		double ux = p2.getX() - p1.getX();
 		double uy = p2.getY() - p1.getY();
 		double vx = pptNb.getX() - p1.getX();
 		double vy = pptNb.getY() - p1.getY();
 
 		double cp = ux * vy - uy * vx;
-		double cx, cy;
 
 		if (cp != 0) {
-			cx = (p1Sq * (p2.getY() - pptNb.getY()) + p2Sq * (pptNb.getY() - p1.getY()) + pptNbSq
-					* (p1.getY() - p2.getY()))
-					/ (2.0 * cp);
-			cy = (p1Sq * (pptNb.getX() - p2.getX()) + p2Sq * (p1.getX() - pptNb.getX()) + pptNbSq
-					* (p2.getX() - p1.getX()))
-					/ (2.0 * cp);
-
-			xCenter = cx;
-			yCenter = cy;
-			zCenter = interpolateZ(new DPoint(cx, cy, 0));
-
-			radius = p1.squareDistance2D(xCenter, yCenter);
+			double uSq = ux * ux + uy * uy;
+			double vSq = vx * vx + vy * vy;
+			double cx = (vy * uSq - uy * vSq) / (2.0 * cp);
+			double cy = (ux * vSq - vx * uSq) / (2.0 * cp);
+
+			xCenter = p1.getX() + cx;
+			yCenter = p1.getY() + cy;
+
+			radius = cx * cx + cy * cy;
 		} else {
 			xCenter = 0.0;
 			yCenter = 0.0;
@@ -484,9 +544,20 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
          *  * 2 = on the circle
 	 */
 	public final int inCircle(DPoint aPoint) {
+		DPoint p0 = edges[0].getStartPoint();
+		DPoint p1 = edges[0].getEndPoint();
+		DPoint p2 = getPoint(2);
+		double o = Predicates.orient2d(p0, p1, p2);
+		if(o != 0){
+			//The test is exact, and doesn't depend on the cached center.
+			double d = o > 0 ? Predicates.inCircle(p0, p1, p2, aPoint)
+				: Predicates.inCircle(p1, p0, p2, aPoint);
+			return d > 0 ? 1 : (d < 0 ? 0 : 2);
+		}
 		// default is outside the circle
 		int returnedValue = 0;
 
+		computeCenter();
 		double ux = aPoint.getX() - xCenter;
 		double uy = aPoint.getY() - yCenter;
 		double distance = ux * ux + uy * uy;
@@ -507,6 +578,16 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 	 * @return isInside
 	 */
 	public final boolean isInside(DPoint aPoint) {
+		return isInside(aPoint.getX(), aPoint.getY());
+	}
+
+	/**
+	 * Check if the point (x, y) is inside the triangle.
+	 * @param x
+	 * @param y
+	 * @return isInside
+	 */
+	private boolean isInside(double x, double y) {
 		boolean isInside = true;
 
 		int k = 0;
@@ -514,11 +595,11 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 			DEdge theEdge = edges[k];
 
 			if (theEdge.getLeft() == this) {
-				if (theEdge.isRight(aPoint)) {
+				if (theEdge.getSide(x, y) < 0) {
 					isInside = false;
 				}
 			} else {
-				if (theEdge.isLeft(aPoint)) {
+				if (theEdge.getSide(x, y) > 0) {
 					isInside = false;
 				}
 			}
@@ -534,6 +615,16 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 	 * @return ZValue
 	 */
 	public final double interpolateZ(DPoint aPoint) {
+		return interpolateZ(aPoint.getX(), aPoint.getY());
+	}
+
+	/**
+	 * Get the Z value of the point (x, y) on the plane of this triangle.
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	private double interpolateZ(double x, double y) {
 		double zValue = 0;
 
 		DPoint p1,p2,p3;
@@ -558,7 +649,7 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 
 		if (Math.abs(c) > Tools.EPSILON) {
 			// Non vertical triangle
-			zValue = (-a * aPoint.getX() - b * aPoint.getY() - d) / c;
+			zValue = (-a * x - b * y - d) / c;
 		}
 
 		return zValue;
@@ -631,7 +722,7 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 		double dy2 = edges[1].getStartPoint().getY() - edges[1].getEndPoint().getY();
 		double dz2 = edges[1].getStartPoint().getZ() - edges[1].getEndPoint().getZ();
 		DPoint vec = new DPoint(dy1*dz2 - dz1*dy2, dz1 * dx2 - dx1 * dz2, dx1 * dy2 - dy1 * dx2);
-		double length = Math.sqrt(vec.squareDistance(new DPoint(0,0,0)));
+		double length = Math.sqrt(Kernels.squareDistance(0, 0, 0, vec.getX(), vec.getY(), vec.getZ()));
 		vec.setX(vec.getX()/length);
 		vec.setY(vec.getY()/length);
 		vec.setZ(vec.getZ()/length);
@@ -665,7 +756,8 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 			pente.setZ(-pente.getZ());
 		}
 		//We normalize it
-		double length = Math.sqrt(pente.squareDistance(new DPoint(0,0,0)));
+		double length = Math.sqrt(Kernels.squareDistance(0, 0, 0,
+			pente.getX(), pente.getY(), pente.getZ()));
 		if(length > Tools.EPSILON){
 			pente.setX(pente.getX()/length);
 			pente.setY(pente.getY()/length);
@@ -1010,6 +1102,7 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 	 * @param decalageY
 	 */
 	protected final void displayObjectCircles(Graphics g, int decalageX, int decalageY) {
+		computeCenter();
 		double r = Math.sqrt(radius);
 		g.setColor(Color.red);
 		g.drawOval((int) (xCenter) + decalageX, decalageY - (int) (yCenter),
@@ -1156,20 +1249,18 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 
 
 		DPoint c = getOppositePoint(ed);
-		DPoint ab = Tools.vectorialDiff(b, a);
-		DPoint ac = Tools.vectorialDiff(c, a);
 		// orientation CCW
-		if (Tools.vectorProduct(ab, ac).getZ() < 0) {
+		if (Kernels.crossZ(b.getX() - a.getX(), b.getY() - a.getY(),
+				c.getX() - a.getX(), c.getY() - a.getY()) < 0) {
 			// echange A et B
 			DPoint d = a;
 			a = b;
 			b = d;
-			ab = Tools.vectorialDiff(b, a);
 		}
 		// test d'intersection entre AB et P
 		DPoint p =getSteepestVector();
 
-		res = Tools.vectorProduct(ab, p).getZ() < 0;
+		res = Kernels.crossZ(b.getX() - a.getX(), b.getY() - a.getY(), p.getX(), p.getY()) < 0;
 
 		return res;
 	}
@@ -1236,8 +1327,7 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
          * @throws DelaunayError 
          */
         public final Element getCircumCenterContainer() throws DelaunayError{
-                DPoint cc = new DPoint(getCircumCenter());
-                return searchPointContainer(cc);
+                return searchPointImpl(getCircumCenterX(), getCircumCenterY(), false);
         }
         
         /**
@@ -1249,13 +1339,27 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
          * @throws DelaunayError 
          */
         public final Element getCircumCenterContainerSafe() throws DelaunayError{
-                DPoint cc = new DPoint(getCircumCenter());
-                return searchPointImpl(cc, true);
+                return searchPointImpl(getCircumCenterX(), getCircumCenterY(), true);
+        }
+
+        /**
+         * Return the triangle of the mesh that contains (x, y), walking from this
+         * DTriangle without crossing any constraint, as getCircumCenterContainerSafe does.
+         * @param x
+         * @param y
+         * @return
+         *      The DTriangle that contains (x, y).<br />
+         *      The last DEdge seen, if the point is not in the mesh. <br />
+         *      <code>null<code> if a constraint is crossed while searching for the point.
+         * @throws DelaunayError
+         */
+        public final Element getContainerSafe(double x, double y) throws DelaunayError{
+                return searchPointImpl(x, y, true);
         }
         
         /**
-         * This method recursively search for pt in the mesh. If it's in this, this is
-         * returned. Else, we search in the adjacent triangles.
+         * This method search for pt in the mesh. If it's in this, this is
+         * returned. Else, we walk through the adjacent triangles.
          * @param pt
          * @return
          *      The triangle that contains the triangle, or the last edge visited
@@ -1263,44 +1367,79 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
          * @throws DelaunayError 
          */
         public final Element searchPointContainer(final DPoint pt) throws DelaunayError {
-                return searchPointImpl(pt, false);
+                return searchPointImpl(pt.getX(), pt.getY(), false);
         }
         
         /**
-         * Common implementation for the search operations.
-         * @param pt
+         * Common implementation for the search operations. It works on the raw
+         * coordinates, so that we don't need to build a point to search for the
+         * circumcenter.
+         * @param x
+         * @param y
          * @param safe
          * @return
          * @throws DelaunayError 
          */
-        private Element searchPointImpl(final DPoint pt, final boolean safe) throws DelaunayError {
-                Element ret = null;
-                if(contains(pt)){
-                        return this;
-                } else {
-                        for(DEdge ed : edges){
-                                DPoint op = getOppositePoint(ed);
-                                if(ed.isRight(pt) && ed.isLeft(op)){
-                                        if(ed.isLocked() && safe){
+        private Element searchPointImpl(final double x, final double y, final boolean safe) throws DelaunayError {
+                //The walk is iterative, as a recursion could overflow the stack
+                //on large meshes. As before, the constraints are only checked
+                //around this. The first edge tested in each triangle is chosen at
+                //random : a walk that always leaves through the first crossed
+                //edge can cycle forever in a mesh that is not Delaunay, as a
+                //constrained or a partly refined one.
+                DTriangle current = this;
+                DEdge from = null;
+                boolean checkLocks = safe;
+                int state = WALK_SEED;
+                while(true){
+                        if(current.isInside(x, y)){
+                                return current;
+                        }
+                        state ^= state << 13;
+                        state ^= state >>> 17;
+                        state ^= state << 5;
+                        int first = (state >>> 1) % PT_NB;
+                        Element ret = null;
+                        DEdge exit = null;
+                        DTriangle next = null;
+                        for(int i = 0; i < PT_NB && next == null; i++){
+                                DEdge ed = current.edges[(first + i) % PT_NB];
+                                if(ed == from){
+                                        continue;
+                                }
+                                //The sides are computed robustly, so that two
+                                //neighbours can't send the walk back to each other.
+                                int side = ed.getSide(x, y);
+                                int opSide = side == 0 ? 0 : ed.getSide(current.getOppositePoint(ed));
+                                if(side < 0 && opSide > 0){
+                                        if(ed.isLocked() && checkLocks){
                                                 return null;
                                         } else if(ed.getRight() != null){
-                                                return ed.getRight().searchPointContainer(pt );
+                                                next = ed.getRight();
+                                                exit = ed;
                                         } else {
                                                 ret = ed;
                                         }
-                                } else if(ed.isLeft(pt) && ed.isRight(op)){
-                                        if(ed.isLocked() && safe){
+                                } else if(side > 0 && opSide < 0){
+                                        if(ed.isLocked() && checkLocks){
                                                 return null;
                                         } else if(ed.getLeft() != null){
-                                                return ed.getLeft().searchPointContainer(pt);
+                                                next = ed.getLeft();
+                                                exit = ed;
                                         } else {
                                                 ret = ed;
                                         }
                                 }
                         }
-                }             
-                return ret;
-                
+                        if(next == null){
+                                //pt is on the border of current, just out of
+                                //the tolerance of contains.
+                                return ret == null ? current : ret;
+                        }
+                        current = next;
+                        from = exit;
+                        checkLocks = false;
+                }
         }
         
         /**
@@ -0,0 +1,117 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.tools;
+
+/**
+ * Geometric kernels working on raw coordinates.<p></p>
+ *
+ * These methods don't build any DPoint : they are meant to be used in the hot
+ * loops of the triangulation and of the refinement, where the temporary points
+ * returned by methods like DEdge.getMiddle would cost a DPoint, a JTS Coordinate
+ * and the checks of DPoint.init for a value that is used only once.<p></p>
+ *
+ * The orientation and in-circle tests on raw coordinates are in Predicates.
+ *
+ * @author alexis
+ */
+public final class Kernels {
+
+	/**
+	 * Default constructor is private : it is not supposed to be used !
+	 */
+	private Kernels(){
+	}
+
+	/**
+	 * Square of the distance between (x1, y1) and (x2, y2).
+	 * @param x1
+	 * @param y1
+	 * @param x2
+	 * @param y2
+	 * @return
+	 *      The square of the 2D distance.
+	 */
+	public static double squareDistance2D(double x1, double y1, double x2, double y2) {
+		double dx = x2 - x1;
+		double dy = y2 - y1;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Square of the distance between (x1, y1, z1) and (x2, y2, z2).
+	 * @param x1
+	 * @param y1
+	 * @param z1
+	 * @param x2
+	 * @param y2
+	 * @param z2
+	 * @return
+	 *      The square of the 3D distance.
+	 */
+	public static double squareDistance(double x1, double y1, double z1,
+			double x2, double y2, double z2) {
+		double dx = x2 - x1;
+		double dy = y2 - y1;
+		double dz = z2 - z1;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * The z component of the vector product u ^ v, ie twice the signed area of
+	 * the triangle built on u and v. This is not robust : use Predicates when
+	 * the sign must be exact.
+	 * @param ux
+	 * @param uy
+	 * @param vx
+	 * @param vy
+	 * @return
+	 *      ux * vy - uy * vx
+	 */
+	public static double crossZ(double ux, double uy, double vx, double vy) {
+		return ux * vy - uy * vx;
+	}
+
+	/**
+	 * Get the ordinate of the point of absciss abs on the line that passes
+	 * through (x1, y1) and (x2, y2). This line must not be vertical.
+	 * @param x1
+	 * @param y1
+	 * @param x2
+	 * @param y2
+	 * @param abs
+	 * @return
+	 *      The ordinate of the point.
+	 */
+	public static double yFromX(double x1, double y1, double x2, double y2, double abs) {
+		double p = (abs - x1) / (x2 - x1);
+		return y1 + p * (y2 - y1);
+	}
+}
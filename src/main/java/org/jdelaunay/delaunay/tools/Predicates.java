@@ -0,0 +1,412 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.tools;
+
+import java.util.Arrays;
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * Robust geometric predicates, after Shewchuk's orient2d and incircle.<p></p>
+ *
+ * The determinants are first evaluated with doubles, and their sign is trusted
+ * when they are larger than a bound of the rounding error. Otherwise, which only
+ * happens for points that are aligned or cocircular, or very close to be, they
+ * are evaluated again exactly, using floating-point expansions : a number is
+ * then represented by a sum of non overlapping doubles, sorted by increasing
+ * magnitude.<p></p>
+ *
+ * The sign of the returned values is always exact, their magnitude is only an
+ * approximation of the determinant. Unlike the tests made with Tools.EPSILON,
+ * the answers are consistent whatever the magnitude of the coordinates.
+ *
+ * @author alexis
+ */
+public final class Predicates {
+
+	//2^-53, the relative rounding error of a double operation.
+	private static final double EPS = Math.ulp(1.0) / 2;
+	//2^27 + 1, used to split a double in two halves that can be multiplied exactly.
+	private static final double SPLITTER = 134217729.0;
+	private static final double CCW_ERRBOUND = (3.0 + 16.0 * EPS) * EPS;
+	private static final double ICC_ERRBOUND = (10.0 + 96.0 * EPS) * EPS;
+
+	/**
+	 * Default constructor is private : it is not supposed to be used !
+	 */
+	private Predicates(){
+	}
+
+	/**
+	 * Orientation of the triangle (a b c).
+	 * @param ax
+	 * @param ay
+	 * @param bx
+	 * @param by
+	 * @param cx
+	 * @param cy
+	 * @return
+	 *      a positive value if c is on the left of (a b), ie if (a b c) is
+	 *      counterclockwise, a negative value if it is on its right, and 0 if the
+	 *      three points are aligned.
+	 */
+	public static double orient2d(double ax, double ay, double bx, double by, double cx, double cy) {
+		double detleft = (ax - cx) * (by - cy);
+		double detright = (ay - cy) * (bx - cx);
+		double det = detleft - detright;
+		double detsum;
+		if(detleft > 0){
+			if(detright <= 0){
+				return det;
+			}
+			detsum = detleft + detright;
+		} else if(detleft < 0){
+			if(detright >= 0){
+				return det;
+			}
+			detsum = -detleft - detright;
+		} else {
+			return det;
+		}
+		double errbound = CCW_ERRBOUND * detsum;
+		if(det >= errbound || -det >= errbound){
+			return det;
+		}
+		return orient2dExact(ax, ay, bx, by, cx, cy);
+	}
+
+	/**
+	 * Orientation of the triangle (a b c), computed in the (x, y) plane.
+	 * @param a
+	 * @param b
+	 * @param c
+	 * @return
+	 *      a positive value if (a b c) is counterclockwise, a negative one if
+	 *      it is clockwise, 0 if the three points are aligned.
+	 */
+	public static double orient2d(DPoint a, DPoint b, DPoint c) {
+		return orient2d(a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY());
+	}
+
+	/**
+	 * Orientation of the triangle (a b c), with a tolerance : the points are
+	 * considered as aligned if the determinant of orient2d, ie twice the signed
+	 * area of the triangle, is not greater than tolerance in absolute value.<br/>
+	 * The comparison is made on the exact value of the determinant. Consequently,
+	 * the answer does not depend on the order the points are given in : if
+	 * (a b c) is counterclockwise, (b c a) is counterclockwise and (b a c) is
+	 * clockwise.
+	 * @param a
+	 * @param b
+	 * @param c
+	 * @param tolerance
+	 *      A positive or null value.
+	 * @return
+	 *      1 if (a b c) is counterclockwise, -1 if it is clockwise, 0 if the
+	 *      points are aligned.
+	 */
+	public static int orientation(DPoint a, DPoint b, DPoint c, double tolerance) {
+		return orientation(a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY(), tolerance);
+	}
+
+	/**
+	 * Orientation of the triangle (a b c), with a tolerance, computed on raw
+	 * coordinates.
+	 * @param ax
+	 * @param ay
+	 * @param bx
+	 * @param by
+	 * @param cx
+	 * @param cy
+	 * @param tolerance
+	 *      A positive or null value.
+	 * @return
+	 *      1 if (a b c) is counterclockwise, -1 if it is clockwise, 0 if the
+	 *      points are aligned.
+	 * @see #orientation(DPoint, DPoint, DPoint, double)
+	 */
+	public static int orientation(double ax, double ay, double bx, double by,
+			double cx, double cy, double tolerance) {
+		double detleft = (ax - cx) * (by - cy);
+		double detright = (ay - cy) * (bx - cx);
+		double det = detleft - detright;
+		//Twice the error bound of orient2d, to cover the rounding of the
+		//comparisons with tolerance too.
+		double margin = 2 * CCW_ERRBOUND * (Math.abs(detleft) + Math.abs(detright) + tolerance);
+		if(det > tolerance + margin){
+			return 1;
+		} else if(det < -tolerance - margin){
+			return -1;
+		} else if(Math.abs(det) < tolerance - margin){
+			return 0;
+		}
+		double[] exact = orient2dExpansion(ax, ay, bx, by, cx, cy);
+		if(highest(grow(exact, -tolerance)) > 0){
+			return 1;
+		} else if(highest(grow(exact, tolerance)) < 0){
+			return -1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Position of d relatively to the circle that passes through a, b and c,
+	 * that must be in counterclockwise order.
+	 * @param ax
+	 * @param ay
+	 * @param bx
+	 * @param by
+	 * @param cx
+	 * @param cy
+	 * @param dx
+	 * @param dy
+	 * @return
+	 *      a positive value if d is inside the circle, a negative one if it is
+	 *      outside, 0 if the four points are cocircular.
+	 */
+	public static double inCircle(double ax, double ay, double bx, double by,
+			double cx, double cy, double dx, double dy) {
+		double adx = ax - dx;
+		double bdx = bx - dx;
+		double cdx = cx - dx;
+		double ady = ay - dy;
+		double bdy = by - dy;
+		double cdy = cy - dy;
+
+		double bdxcdy = bdx * cdy;
+		double cdxbdy = cdx * bdy;
+		double alift = adx * adx + ady * ady;
+
+		double cdxady = cdx * ady;
+		double adxcdy = adx * cdy;
+		double blift = bdx * bdx + bdy * bdy;
+
+		double adxbdy = adx * bdy;
+		double bdxady = bdx * ady;
+		double clift = cdx * cdx + cdy * cdy;
+
+		double det = alift * (bdxcdy - cdxbdy)
+			+ blift * (cdxady - adxcdy)
+			+ clift * (adxbdy - bdxady);
+		double permanent = (Math.abs(bdxcdy) + Math.abs(cdxbdy)) * alift
+			+ (Math.abs(cdxady) + Math.abs(adxcdy)) * blift
+			+ (Math.abs(adxbdy) + Math.abs(bdxady)) * clift;
+		double errbound = ICC_ERRBOUND * permanent;
+		if(det > errbound || -det > errbound){
+			return det;
+		}
+		return inCircleExact(ax, ay, bx, by, cx, cy, dx, dy);
+	}
+
+	/**
+	 * Position of d relatively to the circle that passes through a, b and c,
+	 * that must be in counterclockwise order, computed in the (x, y) plane.
+	 * @param a
+	 * @param b
+	 * @param c
+	 * @param d
+	 * @return
+	 *      a positive value if d is inside the circle, a negative one if it is
+	 *      outside, 0 if the four points are cocircular.
+	 */
+	public static double inCircle(DPoint a, DPoint b, DPoint c, DPoint d) {
+		return inCircle(a.getX(), a.getY(), b.getX(), b.getY(),
+			c.getX(), c.getY(), d.getX(), d.getY());
+	}
+
+	/**
+	 * Exact evaluation of orient2d.
+	 */
+	private static double orient2dExact(double ax, double ay, double bx, double by, double cx, double cy) {
+		return highest(orient2dExpansion(ax, ay, bx, by, cx, cy));
+	}
+
+	/**
+	 * The determinant of orient2d, as an expansion.
+	 */
+	private static double[] orient2dExpansion(double ax, double ay, double bx, double by, double cx, double cy) {
+		double[] acx = diff(ax, cx);
+		double[] acy = diff(ay, cy);
+		double[] bcx = diff(bx, cx);
+		double[] bcy = diff(by, cy);
+		return sum(multiply(acx, bcy), negate(multiply(acy, bcx)));
+	}
+
+	/**
+	 * Exact evaluation of inCircle.
+	 */
+	private static double inCircleExact(double ax, double ay, double bx, double by,
+			double cx, double cy, double dx, double dy) {
+		double[] adx = diff(ax, dx);
+		double[] ady = diff(ay, dy);
+		double[] bdx = diff(bx, dx);
+		double[] bdy = diff(by, dy);
+		double[] cdx = diff(cx, dx);
+		double[] cdy = diff(cy, dy);
+		double[] alift = sum(multiply(adx, adx), multiply(ady, ady));
+		double[] blift = sum(multiply(bdx, bdx), multiply(bdy, bdy));
+		double[] clift = sum(multiply(cdx, cdx), multiply(cdy, cdy));
+		double[] bc = sum(multiply(bdx, cdy), negate(multiply(cdx, bdy)));
+		double[] ca = sum(multiply(cdx, ady), negate(multiply(adx, cdy)));
+		double[] ab = sum(multiply(adx, bdy), negate(multiply(bdx, ady)));
+		return highest(sum(sum(multiply(alift, bc), multiply(blift, ca)), multiply(clift, ab)));
+	}
+
+	/**
+	 * The component of greatest magnitude of an expansion, that has the sign
+	 * of the expansion and approximates it.
+	 */
+	private static double highest(double[] e) {
+		return e[e.length - 1];
+	}
+
+	/**
+	 * The exact difference a - b, as an expansion.
+	 */
+	private static double[] diff(double a, double b) {
+		double x = a - b;
+		double bvirt = a - x;
+		double avirt = x + bvirt;
+		double bround = bvirt - b;
+		double around = a - avirt;
+		double y = around + bround;
+		return y == 0 ? new double[]{x} : new double[]{y, x};
+	}
+
+	private static double[] negate(double[] e) {
+		for(int i = 0; i < e.length; i++){
+			e[i] = -e[i];
+		}
+		return e;
+	}
+
+	/**
+	 * The sum of two expansions, by adding the components of f one after
+	 * the other to e. The zero components are removed.
+	 */
+	private static double[] sum(double[] e, double[] f) {
+		double[] h = e;
+		for(double b : f){
+			h = grow(h, b);
+		}
+		return h;
+	}
+
+	/**
+	 * Shewchuk's grow_expansion_zeroelim : the sum of the expansion e and of b.
+	 */
+	private static double[] grow(double[] e, double b) {
+		double[] h = new double[e.length + 1];
+		int n = 0;
+		double q = b;
+		for(double enow : e){
+			double x = q + enow;
+			double bvirt = x - q;
+			double avirt = x - bvirt;
+			double y = (q - avirt) + (enow - bvirt);
+			if(y != 0){
+				h[n++] = y;
+			}
+			q = x;
+		}
+		if(q != 0 || n == 0){
+			h[n++] = q;
+		}
+		return n == h.length ? h : Arrays.copyOf(h, n);
+	}
+
+	/**
+	 * Shewchuk's scale_expansion_zeroelim : the product of the expansion e by b.
+	 */
+	private static double[] scale(double[] e, double b) {
+		double[] h = new double[2 * e.length];
+		int n = 0;
+		double bhi = splitHigh(b);
+		double blo = b - bhi;
+		double q = e[0] * b;
+		double hh = productTail(e[0], b, q, bhi, blo);
+		if(hh != 0){
+			h[n++] = hh;
+		}
+		for(int i = 1; i < e.length; i++){
+			double enow = e[i];
+			double product1 = enow * b;
+			double product0 = productTail(enow, b, product1, bhi, blo);
+			double sum = q + product0;
+			double bvirt = sum - q;
+			double avirt = sum - bvirt;
+			hh = (q - avirt) + (product0 - bvirt);
+			if(hh != 0){
+				h[n++] = hh;
+			}
+			q = product1 + sum;
+			hh = sum - (q - product1);
+			if(hh != 0){
+				h[n++] = hh;
+			}
+		}
+		if(q != 0 || n == 0){
+			h[n++] = q;
+		}
+		return n == h.length ? h : Arrays.copyOf(h, n);
+	}
+
+	/**
+	 * The product of two expansions.
+	 */
+	private static double[] multiply(double[] e, double[] f) {
+		double[] h = scale(e, f[0]);
+		for(int i = 1; i < f.length; i++){
+			h = sum(h, scale(e, f[i]));
+		}
+		return h;
+	}
+
+	/**
+	 * The high half of a, according to Dekker's splitting.
+	 */
+	private static double splitHigh(double a) {
+		double c = SPLITTER * a;
+		double abig = c - a;
+		return c - abig;
+	}
+
+	/**
+	 * The rounding error of the product x = a * b, b being split in bhi and blo.
+	 */
+	private static double productTail(double a, double b, double x, double bhi, double blo) {
+		double ahi = splitHigh(a);
+		double alo = a - ahi;
+		double err1 = x - (ahi * bhi);
+		double err2 = err1 - (alo * bhi);
+		double err3 = err2 - (ahi * blo);
+		return (alo * blo) - err3;
+	}
+}
@@ -35,14 +35,17 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jdelaunay.delaunay.display.MeshDrawer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 
 import junit.framework.TestCase;
 import org.jdelaunay.delaunay.error.DelaunayError;
 import org.jdelaunay.delaunay.geometries.DEdge;
 import org.jdelaunay.delaunay.geometries.DPoint;
 import org.jdelaunay.delaunay.geometries.DTriangle;
+import org.jdelaunay.delaunay.geometries.Element;
 
 public class BaseUtility extends TestCase {
 
@@ -67,6 +70,35 @@ public class BaseUtility extends TestCase {
         public static final int SEWER_INPUT = 1 << 8;
         // The object is a sewer output
         public static final int SEWER_OUTPUT = 1 << 9;
+
+	//Element.WEIGHTED_PROPERTIES is shared by all the tests : it is saved
+	//before each test and restored after it.
+	private List<Integer> weightedProperties;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		weightedProperties = new ArrayList<Integer>(Element.WEIGHTED_PROPERTIES);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		Element.WEIGHTED_PROPERTIES.clear();
+		Element.WEIGHTED_PROPERTIES.addAll(weightedProperties);
+		super.tearDown();
+	}
+
+	/**
+	 * Set the properties whose weights are used when computing the z of
+	 * the intersections. The previous list is restored after the test.
+	 * @param properties
+	 */
+	public void setWeightedProperties(int... properties) {
+		Element.WEIGHTED_PROPERTIES.clear();
+		for(int prop : properties){
+			Element.WEIGHTED_PROPERTIES.add(prop);
+		}
+	}
         
 	// ---------------------------------------------------------------------------
 	// Utilities
@@ -139,6 +171,102 @@ public class BaseUtility extends TestCase {
                 }
 	}
 
+	/**
+	 * Build a mesh with the given constraints and points, and force the integrity
+	 * of the constraints with the given algorithm.
+	 * @param constr
+	 *      x1, y1, z1, x2, y2, z2 for each constraint.
+	 * @param props
+	 *      the property of each constraint, or null.
+	 * @param coords
+	 *      x, y, z for each point, or null.
+	 * @param weights
+	 *      the weights of the properties, or null.
+	 * @param alg
+	 * @param threads
+	 * @return
+	 * @throws DelaunayError
+	 */
+	public static ConstrainedMesh intersect(double[] constr, int[] props, double[] coords,
+			Map<Integer, Integer> weights, IntersectionAlgorithm alg, int threads) throws DelaunayError {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setIntersectionAlgorithm(alg);
+		mesh.setThreadCount(threads);
+		if(weights != null){
+			mesh.setWeights(weights);
+		}
+		for(int i = 0; i < constr.length; i += 6){
+			DEdge ed = new DEdge(constr[i], constr[i+1], constr[i+2],
+				constr[i+3], constr[i+4], constr[i+5]);
+			if(props != null){
+				ed.setProperty(props[i / 6]);
+			}
+			mesh.addConstraintEdge(ed);
+		}
+		if(coords != null){
+			for(int i = 0; i < coords.length; i += 3){
+				mesh.addPoint(new DPoint(coords[i], coords[i+1], coords[i+2]));
+			}
+		}
+		mesh.forceConstraintIntegrity();
+		return mesh;
+	}
+
+	/**
+	 * Get a sorted textual description of the constraints of the mesh.
+	 * @param mesh
+	 * @param withZ
+	 * @return
+	 */
+	public static List<String> getConstraintKeys(ConstrainedMesh mesh, boolean withZ) {
+		List<String> ret = new ArrayList<String>();
+		for(DEdge ed : mesh.getConstraintEdges()){
+			ret.add(getPointKey(ed.getPointLeft(), withZ) + " " + getPointKey(ed.getPointRight(), withZ)
+				+ " " + ed.getProperty());
+		}
+		Collections.sort(ret);
+		return ret;
+	}
+
+	/**
+	 * Get a sorted textual description of the points of the mesh.
+	 * @param mesh
+	 * @param withZ
+	 * @return
+	 */
+	public static List<String> getPointKeys(ConstrainedMesh mesh, boolean withZ) {
+		List<String> ret = new ArrayList<String>();
+		for(DPoint pt : mesh.getPoints()){
+			ret.add(getPointKey(pt, withZ));
+		}
+		Collections.sort(ret);
+		return ret;
+	}
+
+	/**
+	 * Get the description of the constraints, followed by the description of
+	 * the points of the mesh.
+	 * @param mesh
+	 * @param withZ
+	 * @return
+	 */
+	public static List<String> getKeys(ConstrainedMesh mesh, boolean withZ) {
+		List<String> ret = getConstraintKeys(mesh, withZ);
+		ret.addAll(getPointKeys(mesh, withZ));
+		return ret;
+	}
+
+	/**
+	 * Get a textual description of a point, rounded to 1e-6.
+	 * @param pt
+	 * @param withZ
+	 * @return
+	 */
+	public static String getPointKey(DPoint pt, boolean withZ) {
+		return withZ ? String.format("(%.6f %.6f %.6f)", pt.getX(), pt.getY(), pt.getZ())
+			: String.format("(%.6f %.6f)", pt.getX(), pt.getY());
+	}
+
 	// ---------------------------------------------------------------------------
 	// Assertions
 	/**
@@ -30,8 +30,12 @@
  */
 package org.jdelaunay.delaunay;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
 import org.jdelaunay.delaunay.geometries.DTriangle;
 
 
@@ -76,4 +80,57 @@ public class DelaunayForHydroTest extends BaseUtility {
 		assertTrue(nbFlat == 0);
 	}
 
+	/**
+	 * The incremental removal gives the same mesh as the full triangulation.
+	 * @throws DelaunayError
+	 */
+	public void testRemoveFlatTrianglesIncremental() throws DelaunayError {
+		List<DPoint> pts = getPoints();
+		//Quantized random points, with large flat areas.
+		Random rand = new Random(17);
+		for(int i = 0; i < 400; i++){
+			double x = 200 + rand.nextDouble() * 200;
+			double y = rand.nextDouble() * 200;
+			pts.add(new DPoint(x, y, Math.floor(x / 50)));
+		}
+		ConstrainedMesh full = new ConstrainedMesh();
+		full.setPoints(new ArrayList<DPoint>(pts));
+		full.addConstraintEdge(new DEdge(210, 20, 3, 390, 180, 3));
+		full.processDelaunay();
+		full.removeFlatTriangles();
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setIncrementalFlatRemoval(true);
+		mesh.setPoints(new ArrayList<DPoint>(pts));
+		mesh.addConstraintEdge(new DEdge(210, 20, 3, 390, 180, 3));
+		mesh.processDelaunay();
+		int before = mesh.getPoints().size();
+		int flatBefore = countFlat(mesh);
+		mesh.removeFlatTriangles();
+		assertTrue(mesh.getPoints().size() > before);
+		assertEquals(full.getPoints().size(), mesh.getPoints().size());
+		assertEquals(full.getTriangleList().size(), mesh.getTriangleList().size());
+		int flat = countFlat(mesh);
+		assertTrue(flat < flatBefore);
+		assertEquals(countFlat(full), flat);
+		for(DEdge ed : mesh.getEdges()){
+			if(!ed.isLocked() && ed.getLeft() != null && ed.getRight() != null){
+				assertTrue(ed.getLeft().inCircle(ed.getRight().getOppositePoint(ed)) != 1);
+			}
+		}
+		assertTrianglesTopology(mesh);
+		assertUseEachPoint(mesh);
+		assertGIDUnicity(mesh);
+		assertConstraintsAreLocked(mesh);
+	}
+
+	private int countFlat(ConstrainedMesh mesh) {
+		int ret = 0;
+		for(DTriangle tri : mesh.getTriangleList()){
+			if(tri.isFlatSlope()){
+				ret++;
+			}
+		}
+		return ret;
+	}
+
 }
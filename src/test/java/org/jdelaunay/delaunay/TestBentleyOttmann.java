@@ -0,0 +1,204 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.Element;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.tools.Tools;
+
+/**
+ * Tests the constraint integrity enforcement made with the Bentley-Ottmann sweep.
+ * @author alexis
+ */
+public class TestBentleyOttmann extends BaseUtility {
+
+	/**
+	 * Checks that the two algorithms give the same constraints and points.
+	 * @param constr
+	 * @param props
+	 * @param weights
+	 * @param withZ
+	 *      if true, the z values are compared too.
+	 * @throws DelaunayError
+	 */
+	private void assertSameAsVerticalList(double[] constr, int[] props, Map<Integer, Integer> weights,
+			boolean withZ) throws DelaunayError {
+		ConstrainedMesh ref = intersect(constr, props, null, weights, IntersectionAlgorithm.VERTICAL_LIST, 1);
+		ConstrainedMesh bo = intersect(constr, props, null, weights, IntersectionAlgorithm.BENTLEY_OTTMANN, 1);
+		assertEquals(getConstraintKeys(ref, withZ), getConstraintKeys(bo, withZ));
+		assertEquals(getPointKeys(ref, withZ), getPointKeys(bo, withZ));
+		for(DEdge ed : bo.getConstraintEdges()){
+			assertTrue(ed.isLocked());
+			assertTrue(ed.getPointLeft().compareTo2D(ed.getPointRight()) < 0);
+		}
+	}
+
+	/**
+	 * The default algorithm is the vertical list.
+	 */
+	public void testDefault() {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		assertEquals(IntersectionAlgorithm.VERTICAL_LIST, mesh.getIntersectionAlgorithm());
+		mesh.setIntersectionAlgorithm(IntersectionAlgorithm.BENTLEY_OTTMANN);
+		assertEquals(IntersectionAlgorithm.BENTLEY_OTTMANN, mesh.getIntersectionAlgorithm());
+		try{
+			mesh.setIntersectionAlgorithm(null);
+			fail();
+		} catch (IllegalArgumentException e){
+		}
+	}
+
+	/**
+	 * Two edges that cross in one point.
+	 * @throws DelaunayError
+	 */
+	public void testCross() throws DelaunayError {
+		double[] constr = new double[]{0, 0, 0, 4, 4, 4, 0, 4, 10, 4, 0, 20};
+		ConstrainedMesh mesh = intersect(constr, null, null, null, IntersectionAlgorithm.BENTLEY_OTTMANN, 1);
+		assertEquals(4, mesh.getConstraintEdges().size());
+		assertEquals(5, mesh.getPoints().size());
+		assertTrue(mesh.getConstraintEdges().contains(new DEdge(0, 0, 0, 2, 2, 2)));
+		assertTrue(mesh.getConstraintEdges().contains(new DEdge(2, 2, 2, 4, 0, 20)));
+		assertSameAsVerticalList(constr, null, null, true);
+	}
+
+	/**
+	 * An edge ends in the middle of another one, and a vertical edge cross
+	 * an horizontal one.
+	 * @throws DelaunayError
+	 */
+	public void testTJunctionAndVertical() throws DelaunayError {
+		double[] constr = new double[]{0, 0, 0, 10, 0, 0,
+			5, 0, 0, 5, 5, 0,
+			2, -3, 0, 2, 3, 0,
+			7, -2, 0, 9, 4, 0};
+		ConstrainedMesh mesh = intersect(constr, null, null, null, IntersectionAlgorithm.BENTLEY_OTTMANN, 1);
+		assertEquals(9, mesh.getConstraintEdges().size());
+		assertTrue(mesh.getConstraintEdges().contains(new DEdge(2, -3, 0, 2, 0, 0)));
+		assertTrue(mesh.getConstraintEdges().contains(new DEdge(2, 0, 0, 5, 0, 0)));
+		assertSameAsVerticalList(constr, null, null, true);
+	}
+
+	/**
+	 * Overlapping edges are merged, and their properties are combined.
+	 * @throws DelaunayError
+	 */
+	public void testOverlap() throws DelaunayError {
+		double[] constr = new double[]{0, 0, 0, 6, 3, 0,
+			2, 1, 0, 8, 4, 0,
+			4, 0, 0, 4, 4, 0};
+		int[] props = new int[]{1, 2, 4};
+		ConstrainedMesh mesh = intersect(constr, props, null, null, IntersectionAlgorithm.BENTLEY_OTTMANN, 1);
+		int index = mesh.getConstraintEdges().indexOf(new DEdge(2, 1, 0, 4, 2, 0));
+		assertTrue(index >= 0);
+		assertEquals(3, mesh.getConstraintEdges().get(index).getProperty());
+		assertSameAsVerticalList(constr, props, null, false);
+	}
+
+	/**
+	 * When weights are given, the z of an intersection comes from the heaviest edge.
+	 * @throws DelaunayError
+	 */
+	public void testWeights() throws DelaunayError {
+		setWeightedProperties(WALL, SEWER);
+		double[] constr = new double[]{0, 0, 0, 4, 4, 4, 0, 4, 10, 4, 0, 20};
+		int[] props = new int[]{1, 2};
+		Map<Integer, Integer> weights = new HashMap<Integer, Integer>();
+		weights.put(1, 5);
+		weights.put(2, 10);
+		ConstrainedMesh mesh = intersect(constr, props, null, weights, IntersectionAlgorithm.BENTLEY_OTTMANN, 1);
+		DPoint inter = null;
+		for(DPoint pt : mesh.getPoints()){
+			if(pt.equals2D(new DPoint(2, 2, 0))){
+				inter = pt;
+			}
+		}
+		assertNotNull(inter);
+		assertEquals(15, inter.getZ(), Tools.EPSILON);
+		assertSameAsVerticalList(constr, props, weights, true);
+	}
+
+	/**
+	 * Checks that two constraints of the mesh can only intersect on their extremities.
+	 * @param mesh
+	 * @throws DelaunayError
+	 */
+	private void assertNoIntersection(ConstrainedMesh mesh) throws DelaunayError {
+		List<DEdge> constraints = mesh.getConstraintEdges();
+		for(int i = 0; i < constraints.size(); i++){
+			DEdge e1 = constraints.get(i);
+			for(int j = i + 1; j < constraints.size(); j++){
+				DEdge e2 = constraints.get(j);
+				Element inter = e1.getIntersection(e2);
+				assertFalse(inter instanceof DEdge);
+				if(inter instanceof DPoint){
+					assertTrue(e1.isExtremity((DPoint) inter));
+					assertTrue(e2.isExtremity((DPoint) inter));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Random segments, on a grid to get many degenerate cases. The constraints
+	 * must not intersect anymore, and all the points found by the vertical list
+	 * must be found. The vertical list can miss some T-junctions, so we don't
+	 * ask for the exact same result.
+	 * @throws DelaunayError
+	 */
+	public void testRandomSegments() throws DelaunayError {
+		Random rand = new Random(7);
+		for(int k = 0; k < 30; k++){
+			int n = 10 + rand.nextInt(40);
+			double[] constr = new double[6 * n];
+			for(int i = 0; i < n; i++){
+				do {
+					for(int j = 0; j < 6; j++){
+						constr[6 * i + j] = k % 2 == 0 ? rand.nextInt(20) : rand.nextDouble() * 100;
+					}
+				} while(constr[6 * i] == constr[6 * i + 3] && constr[6 * i + 1] == constr[6 * i + 4]);
+			}
+			ConstrainedMesh ref = intersect(constr, null, null, null, IntersectionAlgorithm.VERTICAL_LIST, 1);
+			ConstrainedMesh bo = intersect(constr, null, null, null, IntersectionAlgorithm.BENTLEY_OTTMANN, 1);
+			for(DPoint pt : ref.getPoints()){
+				assertTrue(Collections.binarySearch(bo.getPoints(), pt) >= 0);
+			}
+			assertNoIntersection(bo);
+		}
+	}
+}
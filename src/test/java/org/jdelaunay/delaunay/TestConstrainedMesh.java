@@ -2536,4 +2536,69 @@ public class TestConstrainedMesh extends BaseUtility {
                 assertTrue(ed22 == mesh.getEdges().get(index));
         }
 
+        /**
+         * The translation used by the local frame is exact.
+         */
+        public void testExactShift() {
+                double shift = ConstrainedMesh.exactShift(6500123.25, 6512345.75);
+                assertTrue(Math.abs(shift - 6506234.5) < 1);
+                java.util.Random rand = new java.util.Random(4);
+                for(int i = 0; i < 10000; i++){
+                        double x = 6500123.25 + rand.nextDouble() * 12222.5;
+                        assertEquals(x, (x - shift) + shift);
+                }
+                assertEquals(0.0, ConstrainedMesh.exactShift(-10, 10));
+                assertEquals(0.0, ConstrainedMesh.exactShift(1, 100));
+                assertTrue(ConstrainedMesh.exactShift(-2262000, -2261000) < 0);
+        }
+
+        /**
+         * A mesh computed in the local frame has the same triangles as the one
+         * computed in the world frame, and its input points are not changed.
+         * @throws DelaunayError
+         */
+        public void testLocalFrame() throws DelaunayError {
+                ConstrainedMesh world = new ConstrainedMesh();
+                ConstrainedMesh local = new ConstrainedMesh();
+                local.setLocalFrame(true);
+                assertTrue(local.isLocalFrame());
+                java.util.Random rand = new java.util.Random(9);
+                List<DPoint> input = new ArrayList<DPoint>();
+                for(int i = 0; i < 500; i++){
+                        double x = 652000 + rand.nextDouble() * 200;
+                        double y = 6860000 + rand.nextDouble() * 200;
+                        world.addPoint(new DPoint(x, y, i));
+                        DPoint pt = new DPoint(x, y, i);
+                        input.add(new DPoint(pt));
+                        local.addPoint(pt);
+                }
+                world.addConstraintEdge(new DEdge(652010, 6860010, 0, 652190, 6860150, 0));
+                world.addConstraintEdge(new DEdge(652010, 6860150, 0, 652190, 6860020, 0));
+                local.addConstraintEdge(new DEdge(652010, 6860010, 0, 652190, 6860150, 0));
+                local.addConstraintEdge(new DEdge(652010, 6860150, 0, 652190, 6860020, 0));
+                world.forceConstraintIntegrity();
+                local.forceConstraintIntegrity();
+                world.processDelaunay();
+                local.processDelaunay();
+                assertEquals(world.getPoints().size(), local.getPoints().size());
+                assertEquals(world.getTriangleList().size(), local.getTriangleList().size());
+                for(DPoint pt : input){
+                        int index = local.listContainsPoint(pt);
+                        assertTrue(index >= 0);
+                        DPoint found = local.getPoints().get(index);
+                        assertEquals(pt.getX(), found.getX());
+                        assertEquals(pt.getY(), found.getY());
+                }
+                //The circumcenters have been computed in the local frame.
+                for(DTriangle tri : local.getTriangleList()){
+                        assertTrue(world.getTriangleList().contains(tri));
+                        double cx = tri.getCircumCenter().x;
+                        double cy = tri.getCircumCenter().y;
+                        for(int i = 0; i < 3; i++){
+                                double dx = tri.getPoint(i).getX() - cx;
+                                double dy = tri.getPoint(i).getY() - cy;
+                                assertEquals(tri.getRadius(), Math.sqrt(dx * dx + dy * dy), 1e-6 * (1 + tri.getRadius()));
+                        }
+                }
+        }
 }
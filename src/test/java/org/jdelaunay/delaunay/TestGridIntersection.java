@@ -0,0 +1,157 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+
+/**
+ * Tests the constraint integrity enforcement made with GridIntersection.
+ * @author alexis
+ */
+public class TestGridIntersection extends BaseUtility {
+
+	/**
+	 * Build a mesh with the given constraints and points, and force the integrity
+	 * of the constraints with the given algorithm. The properties of the
+	 * constraints cycle through 1, 2 and 4.
+	 * @param constr
+	 * @param coords
+	 * @param weights
+	 * @param alg
+	 * @param threads
+	 * @return
+	 * @throws DelaunayError
+	 */
+	private ConstrainedMesh intersect(double[] constr, double[] coords, Map<Integer, Integer> weights,
+			IntersectionAlgorithm alg, int threads) throws DelaunayError {
+		int[] props = new int[constr.length / 6];
+		for(int i = 0; i < props.length; i++){
+			props[i] = 1 << (i % 3);
+		}
+		return intersect(constr, props, coords, weights, alg, threads);
+	}
+
+	/**
+	 * Random segments, and random points.
+	 * @param n
+	 * @param onGrid
+	 *      if true, the coordinates are integers, to get many degenerate cases.
+	 * @param rand
+	 * @return
+	 *      the constraints and the points.
+	 */
+	private double[][] getRandomInput(int n, boolean onGrid, Random rand) {
+		double[] constr = new double[6 * n];
+		for(int i = 0; i < n; i++){
+			do {
+				for(int j = 0; j < 6; j++){
+					constr[6 * i + j] = onGrid ? rand.nextInt(20) : rand.nextDouble() * 100;
+				}
+			} while(constr[6 * i] == constr[6 * i + 3] && constr[6 * i + 1] == constr[6 * i + 4]);
+		}
+		double[] coords = new double[3 * (n / 3)];
+		for(int i = 0; i < coords.length; i++){
+			coords[i] = onGrid ? rand.nextInt(20) : rand.nextDouble() * 100;
+		}
+		return new double[][]{constr, coords};
+	}
+
+	/**
+	 * Two edges that cross, and a point on one of them.
+	 * @throws DelaunayError
+	 */
+	public void testCross() throws DelaunayError {
+		double[] constr = new double[]{0, 0, 0, 4, 4, 4, 0, 4, 10, 4, 0, 20};
+		ConstrainedMesh mesh = intersect(constr, new double[]{1, 1, 1}, null, IntersectionAlgorithm.GRID, 2);
+		assertEquals(5, mesh.getConstraintEdges().size());
+		assertEquals(6, mesh.getPoints().size());
+		assertTrue(mesh.getConstraintEdges().contains(new DEdge(0, 0, 0, 1, 1, 1)));
+		assertTrue(mesh.getConstraintEdges().contains(new DEdge(1, 1, 1, 2, 2, 2)));
+		assertTrue(mesh.getConstraintEdges().contains(new DEdge(2, 2, 2, 4, 0, 20)));
+		for(DEdge ed : mesh.getConstraintEdges()){
+			assertTrue(ed.isLocked());
+		}
+	}
+
+	/**
+	 * The z of an intersection point comes from the edge with the greatest weight.
+	 * @throws DelaunayError
+	 */
+	public void testWeights() throws DelaunayError {
+		setWeightedProperties(WALL, SEWER);
+		double[] constr = new double[]{0, 0, 0, 4, 4, 4, 0, 4, 10, 4, 0, 20};
+		Map<Integer, Integer> weights = new HashMap<Integer, Integer>();
+		weights.put(1, 5);
+		weights.put(2, 10);
+		ConstrainedMesh mesh = intersect(constr, new double[0], weights, IntersectionAlgorithm.GRID, 1);
+		assertEquals(getKeys(intersect(constr, new double[0], weights, IntersectionAlgorithm.BENTLEY_OTTMANN, 1), true),
+			getKeys(mesh, true));
+		assertTrue(getKeys(mesh, true).contains("(2.000000 2.000000 15.000000)"));
+	}
+
+	/**
+	 * Random segments in general position : the result must be the one of the
+	 * Bentley-Ottmann sweep, whatever the number of threads.
+	 * @throws DelaunayError
+	 */
+	public void testRandomSegments() throws DelaunayError {
+		Random rand = new Random(11);
+		for(int k = 0; k < 10; k++){
+			double[][] input = getRandomInput(50 + rand.nextInt(200), false, rand);
+			List<String> ref = getKeys(intersect(input[0], input[1], null, IntersectionAlgorithm.BENTLEY_OTTMANN, 1), true);
+			assertEquals(ref, getKeys(intersect(input[0], input[1], null, IntersectionAlgorithm.GRID, 1), true));
+			assertEquals(ref, getKeys(intersect(input[0], input[1], null, IntersectionAlgorithm.GRID, 4), true));
+		}
+	}
+
+	/**
+	 * Random segments on a grid : many edges overlap, or pass through points. The
+	 * z of the points that are on several edges depends on the order the
+	 * intersections are computed, so it is only compared between different
+	 * numbers of threads.
+	 * @throws DelaunayError
+	 */
+	public void testDegenerateSegments() throws DelaunayError {
+		Random rand = new Random(12);
+		for(int k = 0; k < 20; k++){
+			double[][] input = getRandomInput(10 + rand.nextInt(60), true, rand);
+			List<String> ref = getKeys(intersect(input[0], input[1], null, IntersectionAlgorithm.BENTLEY_OTTMANN, 1), false);
+			List<String> grid = getKeys(intersect(input[0], input[1], null, IntersectionAlgorithm.GRID, 1), true);
+			assertEquals(ref, getKeys(intersect(input[0], input[1], null, IntersectionAlgorithm.GRID, 1), false));
+			assertEquals(grid, getKeys(intersect(input[0], input[1], null, IntersectionAlgorithm.GRID, 3), true));
+		}
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.tools.Tools;
+
+/**
+ * Tests GridPointIndex, and its use in ConstrainedMesh.
+ * @author alexis
+ */
+public class TestGridPointIndex extends BaseUtility {
+
+	/**
+	 * Checks the search of points, including across the borders of the cells.
+	 * @throws DelaunayError
+	 */
+	public void testAddAndGet() throws DelaunayError {
+		GridPointIndex index = new GridPointIndex(1);
+		DPoint p1 = new DPoint(0, 0, 0);
+		DPoint p2 = new DPoint(2.5, 3, 0);
+		DPoint p3 = new DPoint(-3, 0.9999999999, 0);
+		assertTrue(index.add(p1));
+		assertTrue(index.add(p2));
+		assertTrue(index.add(p3));
+		assertFalse(index.add(new DPoint(2.5, 3, 8)));
+		assertEquals(3, index.size());
+		assertTrue(index.get(-Tools.EPSILON / 2, Tools.EPSILON / 2) == p1);
+		assertTrue(index.get(2.5, 3) == p2);
+		//p3 is in another cell, but is equal to (-3, 1).
+		assertTrue(index.get(-3, 1) == p3);
+		assertNull(index.get(1, 1));
+		assertNull(index.get(0, 2 * Tools.EPSILON));
+		assertFalse(index.remove(new DPoint(0, 0, 0)));
+		assertTrue(index.remove(p1));
+		assertNull(index.get(0, 0));
+		assertEquals(2, index.size());
+		index.clear();
+		assertEquals(0, index.size());
+		assertNull(index.get(2.5, 3));
+	}
+
+	/**
+	 * Cells smaller than Tools.EPSILON are forbidden.
+	 */
+	public void testCellSize() {
+		assertEquals(GridPointIndex.DEFAULT_CELL_SIZE, new GridPointIndex().getCellSize());
+		try{
+			new GridPointIndex(Tools.EPSILON / 2);
+			fail();
+		} catch (IllegalArgumentException e){
+			assertTrue(true);
+		}
+	}
+
+	/**
+	 * Points added one by one in a mesh with an index are retrieved, without
+	 * duplicates, and sorted when the mesh is triangulated.
+	 * @throws DelaunayError
+	 */
+	public void testMeshWithIndex() throws DelaunayError {
+		Random rand = new Random(7);
+		ConstrainedMesh withIndex = new ConstrainedMesh();
+		withIndex.setPointIndex(new GridPointIndex(1));
+		ConstrainedMesh sorted = new ConstrainedMesh();
+		List<DPoint> added = new ArrayList<DPoint>();
+		for(int i = 0; i < 500; i++){
+			double x = rand.nextInt(30) + rand.nextInt(4) * 0.25;
+			double y = rand.nextInt(30);
+			DPoint pt = new DPoint(x, y, i);
+			withIndex.addPoint(pt);
+			sorted.addPoint(new DPoint(x, y, i));
+			added.add(pt);
+		}
+		assertEquals(sorted.getPoints().size(), withIndex.getPointIndex().size());
+		for(DPoint pt : added){
+			DPoint found = withIndex.getPoint(pt.getX(), pt.getY(), 0);
+			assertNotNull(found);
+			assertTrue(found.equals2D(pt));
+			assertTrue(withIndex.listContainsPoint(pt) >= 0);
+		}
+		assertNull(withIndex.getPoint(0.1, 0.1, 0));
+		assertEquals(-1, withIndex.listContainsPoint(new DPoint(0.1, 0.1, 0)));
+		assertEquals(sorted.getPoints(), withIndex.getPoints());
+		withIndex.processDelaunay();
+		sorted.processDelaunay();
+		assertEquals(sorted.getTriangleList().size(), withIndex.getTriangleList().size());
+		assertCoherence(withIndex);
+		assertGIDUnicity(withIndex);
+	}
+
+	/**
+	 * The intersections found by forceConstraintIntegrity are put in the index.
+	 * @throws DelaunayError
+	 */
+	public void testConstraintsWithIndex() throws DelaunayError {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setPointIndex(new GridPointIndex());
+		mesh.addConstraintEdge(new DEdge(0, 0, 0, 10, 10, 0));
+		mesh.addConstraintEdge(new DEdge(0, 10, 0, 10, 0, 0));
+		mesh.addConstraintEdge(new DEdge(10, 10, 0, 20, 0, 0));
+		mesh.addPoint(new DPoint(5, 2, 0));
+		assertEquals(6, mesh.getPointIndex().size());
+		mesh.forceConstraintIntegrity();
+		assertEquals(7, mesh.getPointIndex().size());
+		DPoint inter = mesh.getPoint(5, 5, 0);
+		assertNotNull(inter);
+		assertTrue(mesh.getPoints().contains(inter));
+		mesh.processDelaunay();
+		assertEquals(7, mesh.getPoints().size());
+		assertConstraintsAreLocked(mesh);
+		assertCoherence(mesh);
+	}
+}
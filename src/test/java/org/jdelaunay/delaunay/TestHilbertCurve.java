@@ -0,0 +1,93 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the ordering of points along a Hilbert curve.
+ * @author alexis
+ */
+public class TestHilbertCurve extends TestCase {
+
+	/**
+	 * The keys of a grid are a permutation, and two consecutive cells along
+	 * the curve are neighbours.
+	 */
+	public void testKeys() {
+		int order = 4;
+		int n = 1 << order;
+		int[] x = new int[n * n];
+		int[] y = new int[n * n];
+		boolean[] seen = new boolean[n * n];
+		for(int i = 0; i < n; i++){
+			for(int j = 0; j < n; j++){
+				int d = (int) HilbertCurve.getKey(i, j, order);
+				assertFalse(seen[d]);
+				seen[d] = true;
+				x[d] = i;
+				y[d] = j;
+			}
+		}
+		for(int d = 1; d < n * n; d++){
+			assertEquals(1, Math.abs(x[d] - x[d - 1]) + Math.abs(y[d] - y[d - 1]));
+		}
+	}
+
+	/**
+	 * The keys of the full order fit in 30 bits, so that they can be packed
+	 * with an index in a positive long.
+	 */
+	public void testFullOrder() {
+		int max = (1 << HilbertCurve.ORDER) - 1;
+		assertEquals(0, HilbertCurve.getKey(0, 0, HilbertCurve.ORDER));
+		assertEquals((1L << 2 * HilbertCurve.ORDER) - 1, HilbertCurve.getKey(max, 0, HilbertCurve.ORDER));
+		assertTrue(HilbertCurve.getKey(max, max, HilbertCurve.ORDER) > 0);
+	}
+
+	/**
+	 * The points of a grid, given row by row, are sorted along the curve.
+	 */
+	public void testOrder() {
+		double[] x = new double[]{0, 1, 0, 1, 5, 5};
+		double[] y = new double[]{0, 0, 1, 1, 5, 5};
+		int[] order = HilbertCurve.getOrder(x, y);
+		assertEquals(6, order.length);
+		assertEquals(0, order[0]);
+		assertEquals(2, order[1]);
+		assertEquals(3, order[2]);
+		assertEquals(1, order[3]);
+		//The points in the same cell keep their order.
+		assertEquals(4, order[4]);
+		assertEquals(5, order[5]);
+		assertEquals(0, HilbertCurve.getOrder(new double[0], new double[0]).length);
+	}
+}
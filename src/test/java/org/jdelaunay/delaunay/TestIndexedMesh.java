@@ -0,0 +1,409 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.evaluator.SkinnyEvaluator;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Tests the IndexedMesh class, and its conversion from and to ConstrainedMesh.
+ * @author alexis
+ */
+public class TestIndexedMesh extends BaseUtility {
+
+	/**
+	 * Build a mesh with a few crossing constraints.
+	 * @return
+	 * @throws DelaunayError
+	 */
+	private ConstrainedMesh buildMesh() throws DelaunayError {
+		return buildMesh(false, false);
+	}
+
+	/**
+	 * Build a mesh with a few crossing constraints.
+	 * @param hilbert
+	 *      if true, the mesh is sorted along a Hilbert curve.
+	 * @param indexed
+	 *      if true, the mesh is computed in the indexed output mode.
+	 * @return
+	 * @throws DelaunayError
+	 */
+	private ConstrainedMesh buildMesh(boolean hilbert, boolean indexed) throws DelaunayError {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setHilbertOrdered(hilbert);
+		mesh.setIndexedOutput(indexed);
+		mesh.addConstraintEdge(new DEdge(0,3,0,8,3,0));
+		mesh.addConstraintEdge(new DEdge(9,0,0,9,6,0));
+		mesh.addConstraintEdge(new DEdge(12,6,0,8,7,0));
+		mesh.addConstraintEdge(new DEdge(5,4,0,8,7,0));
+		mesh.addConstraintEdge(new DEdge(12,6,0,12,7,0));
+		mesh.addConstraintEdge(new DEdge(8,3,0,9,6,0));
+		mesh.addConstraintEdge(new DEdge(8,7,0,12,12,0));
+		mesh.addPoint(new DPoint(4,5,0));
+		mesh.addPoint(new DPoint(4,1,0));
+		mesh.addPoint(new DPoint(10,3,0));
+		mesh.addPoint(new DPoint(11,9,0));
+		mesh.processDelaunay();
+		return mesh;
+	}
+
+	/**
+	 * Build a mesh of random points and constraints.
+	 * @param indexed
+	 *      if true, the mesh is computed in the indexed output mode.
+	 * @return
+	 * @throws DelaunayError
+	 */
+	private ConstrainedMesh buildRandomMesh(boolean indexed) throws DelaunayError {
+		Random rand = new Random(17);
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setIndexedOutput(indexed);
+		for(int i = 0; i < 2000; i++){
+			mesh.addPoint(new DPoint(rand.nextDouble() * 100, rand.nextDouble() * 100, rand.nextDouble()));
+		}
+		for(int i = 0; i < 40; i++){
+			double x = rand.nextDouble() * 90;
+			double y = rand.nextDouble() * 90;
+			DEdge ed = new DEdge(x, y, 0, x + rand.nextDouble() * 10, y + rand.nextDouble() * 10, 0);
+			ed.setProperty(1 + i % 3);
+			mesh.addConstraintEdge(ed);
+		}
+		mesh.forceConstraintIntegrity();
+		mesh.processDelaunay();
+		return mesh;
+	}
+
+	/**
+	 * Get a sorted description of the triangles of im : their vertices, and
+	 * the constraints and properties of their edges.
+	 * @param im
+	 * @return
+	 */
+	private List<String> getTriangleKeys(IndexedMesh im) {
+		List<String> ret = new ArrayList<String>();
+		for(int t = 0; t < im.getTriangleCount(); t++){
+			int first = 0;
+			for(int k = 1; k < 3; k++){
+				if(im.getVertex(t, k) < im.getVertex(t, first)){
+					first = k;
+				}
+			}
+			StringBuilder sb = new StringBuilder();
+			for(int k = first; k < first + 3; k++){
+				sb.append(im.getVertex(t, k % 3)).append(im.isConstrained(t, k % 3) ? "c" : "")
+					.append(im.getEdgeProperty(t, k % 3)).append(' ');
+			}
+			ret.add(sb.toString());
+		}
+		Collections.sort(ret);
+		return ret;
+	}
+
+	/**
+	 * Checks the orientation of the triangles, and the symmetry of the neighbourhood.
+	 * @param im
+	 */
+	private void assertIndexedTopology(IndexedMesh im) {
+		for(int t = 0; t < im.getTriangleCount(); t++){
+			int a = im.getVertex(t, 0);
+			int b = im.getVertex(t, 1);
+			int c = im.getVertex(t, 2);
+			double cross = (im.getX(b) - im.getX(a)) * (im.getY(c) - im.getY(a))
+				- (im.getY(b) - im.getY(a)) * (im.getX(c) - im.getX(a));
+			assertTrue(cross > 0);
+			for(int k = 0; k < 3; k++){
+				int n = im.getNeighbour(t, k);
+				if(n >= 0){
+					int back = 0;
+					for(int j = 0; j < 3; j++){
+						if(im.getNeighbour(n, j) == t){
+							back++;
+							assertEquals(im.isConstrained(t, k), im.isConstrained(n, j));
+						}
+					}
+					assertEquals(1, back);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Converts a computed mesh and checks the result.
+	 * @throws DelaunayError
+	 */
+	public void testFromTriangles() throws DelaunayError {
+		ConstrainedMesh mesh = buildMesh();
+		IndexedMesh im = mesh.getIndexedMesh();
+		assertEquals(mesh.getPoints().size(), im.getVertexCount());
+		assertEquals(mesh.getTriangleList().size(), im.getTriangleCount());
+		assertEquals(mesh.getEdges().size(), im.getEdgeCount());
+		assertIndexedTopology(im);
+		int locked = 0;
+		for(DEdge ed : mesh.getEdges()){
+			if(ed.isLocked()){
+				locked += ed.getLeft() == null || ed.getRight() == null ? 1 : 2;
+			}
+		}
+		int constrained = 0;
+		for(int t = 0; t < im.getTriangleCount(); t++){
+			for(int k = 0; k < 3; k++){
+				if(im.isConstrained(t, k)){
+					constrained++;
+				}
+			}
+		}
+		assertEquals(locked, constrained);
+		for(int i = 0; i < im.getVertexCount(); i++){
+			assertEquals(mesh.getPoints().get(i).getX(), im.getX(i));
+			assertEquals(mesh.getPoints().get(i).getY(), im.getY(i));
+		}
+	}
+
+	/**
+	 * The points inserted after processDelaunay are appended to the list of
+	 * points : vertex i must still be getPoints().get(i).
+	 * @throws DelaunayError
+	 */
+	public void testVerticesAfterInsertion() throws DelaunayError {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setPoints(getRandomPoints(50));
+		mesh.processDelaunay();
+		mesh.insertPoint(new DPoint(0.5, 0.5, 0));
+		mesh.insertPoint(new DPoint(50.5, 49.5, 0));
+		IndexedMesh im = mesh.getIndexedMesh();
+		List<DPoint> pts = mesh.getPoints();
+		assertEquals(52, im.getVertexCount());
+		for(int i = 0; i < im.getVertexCount(); i++){
+			assertEquals(pts.get(i).getX(), im.getX(i));
+			assertEquals(pts.get(i).getY(), im.getY(i));
+		}
+		assertIndexedTopology(im);
+	}
+
+	/**
+	 * The IndexedMesh follows the triangles added by a refinement.
+	 * @throws DelaunayError
+	 */
+	public void testRefinement() throws DelaunayError {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setPoints(getRandomPoints(500));
+		mesh.processDelaunay();
+		assertIndexedTopology(mesh.getIndexedMesh());
+		int size = mesh.getIndexedMesh().getTriangleCount();
+		mesh.refineTriangles(0.5, new SkinnyEvaluator(15));
+		assertTrue(mesh.getTriangleList().size() >= size);
+		assertCoherence(mesh);
+		assertTrianglesTopology(mesh);
+		IndexedMesh im = mesh.getIndexedMesh();
+		assertEquals(mesh.getTriangleList().size(), im.getTriangleCount());
+		assertIndexedTopology(im);
+	}
+
+	/**
+	 * The sweep writes the same triangles in the indexed output mode, without
+	 * building the DTriangle instances of the mesh.
+	 * @throws DelaunayError
+	 */
+	public void testIndexedOutput() throws DelaunayError {
+		ConstrainedMesh ref = buildMesh();
+		ConstrainedMesh mesh = buildMesh(false, true);
+		assertTrue(mesh.isIndexedOutput());
+		IndexedMesh im = mesh.getIndexedMesh();
+		assertSame(im, mesh.getIndexedMesh());
+		assertIndexedTopology(im);
+		assertEquals(getTriangleKeys(ref.getIndexedMesh()), getTriangleKeys(im));
+		assertEquals(ref.getEdges().size(), im.getEdgeCount());
+		ref = buildRandomMesh(false);
+		mesh = buildRandomMesh(true);
+		im = mesh.getIndexedMesh();
+		assertIndexedTopology(im);
+		assertEquals(getTriangleKeys(ref.getIndexedMesh()), getTriangleKeys(im));
+		assertEquals(ref.getEdges().size(), im.getEdgeCount());
+	}
+
+	/**
+	 * The DTriangle and DEdge instances are built when they are asked for, and
+	 * the constraints are not duplicated.
+	 * @throws DelaunayError
+	 */
+	public void testIndexedOutputMaterialize() throws DelaunayError {
+		ConstrainedMesh ref = buildRandomMesh(false);
+		ConstrainedMesh mesh = buildRandomMesh(true);
+		int constraints = mesh.getConstraintEdges().size();
+		assertEquals(ref.getTriangleList().size(), mesh.getTriangleList().size());
+		assertEquals(ref.getEdges().size(), mesh.getEdges().size());
+		assertEquals(constraints, mesh.getConstraintEdges().size());
+		assertCoherence(mesh);
+		assertTrianglesTopology(mesh);
+		assertConstraintsAreLocked(mesh);
+		for(DEdge ed : mesh.getConstraintEdges()){
+			assertTrue(mesh.getEdges().contains(ed));
+			assertTrue(ed.getLeft() != null || ed.getRight() != null);
+		}
+		mesh.refineMesh(0.5, new SkinnyEvaluator(20));
+		assertCoherence(mesh);
+		assertTrianglesTopology(mesh);
+	}
+
+	/**
+	 * Builds independent triangles from an IndexedMesh.
+	 * @throws DelaunayError
+	 */
+	public void testGetTriangles() throws DelaunayError {
+		ConstrainedMesh mesh = buildMesh();
+		List<DTriangle> tris = mesh.getIndexedMesh().getTriangles();
+		List<DTriangle> ref = new ArrayList<DTriangle>(buildMesh().getTriangleList());
+		assertEquals(ref.size(), tris.size());
+		for(DTriangle tri : tris){
+			assertTrue(tri.checkTopology());
+			assertTrue(ref.contains(tri));
+		}
+	}
+
+	/**
+	 * The Hilbert layout renumbers the vertices and the triangles, and keeps the
+	 * topology of the mesh.
+	 * @throws DelaunayError
+	 */
+	public void testHilbertLayout() throws DelaunayError {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setPoints(getRandomPoints(1000));
+		mesh.addConstraintEdge(new DEdge(10, 10, 0, 90, 80, 0));
+		mesh.forceConstraintIntegrity();
+		mesh.processDelaunay();
+		IndexedMesh im = mesh.getIndexedMesh();
+		IndexedMesh sorted = mesh.getIndexedMesh(true);
+		assertEquals(im.getVertexCount(), sorted.getVertexCount());
+		assertEquals(im.getTriangleCount(), sorted.getTriangleCount());
+		assertEquals(im.getEdgeCount(), sorted.getEdgeCount());
+		assertIndexedTopology(sorted);
+		int constrained = 0;
+		for(int t = 0; t < sorted.getTriangleCount(); t++){
+			for(int k = 0; k < 3; k++){
+				constrained += sorted.isConstrained(t, k) ? 1 : 0;
+				constrained -= im.isConstrained(t, k) ? 1 : 0;
+			}
+		}
+		assertEquals(0, constrained);
+		List<DTriangle> tris = sorted.getTriangles();
+		for(DTriangle tri : mesh.getTriangleList()){
+			assertTrue(tris.contains(tri));
+		}
+		//Once the mesh is sorted, vertex i is the point whose GID is i + 1.
+		mesh.sortAlongHilbertCurve();
+		for(DPoint pt : mesh.getPoints()){
+			assertEquals(pt.getX(), sorted.getX(pt.getGID() - 1));
+			assertEquals(pt.getY(), sorted.getY(pt.getGID() - 1));
+		}
+		//The neighbours are closer in the sorted mesh. The mean gap is not
+		//used : the few long jumps of the curve make it too close to the one
+		//of the sweep order.
+		assertTrue(getNeighbourGap(sorted) < getNeighbourGap(im));
+	}
+
+	/**
+	 * The median distance between the indices of neighbour triangles.
+	 */
+	private int getNeighbourGap(IndexedMesh im) {
+		List<Integer> gaps = new ArrayList<Integer>();
+		for(int t = 0; t < im.getTriangleCount(); t++){
+			for(int k = 0; k < 3; k++){
+				if(im.getNeighbour(t, k) >= 0){
+					gaps.add(Math.abs(im.getNeighbour(t, k) - t));
+				}
+			}
+		}
+		Collections.sort(gaps);
+		return gaps.get(gaps.size() / 2);
+	}
+
+	/**
+	 * sortAlongHilbertCurve renumbers the triangles and the edges of the mesh.
+	 * @throws DelaunayError
+	 */
+	public void testSortAlongHilbertCurve() throws DelaunayError {
+		ConstrainedMesh mesh = buildMesh(true, false);
+		ConstrainedMesh ref = buildMesh();
+		assertTrue(mesh.isHilbertOrdered());
+		assertEquals(ref.getTriangleList().size(), mesh.getTriangleList().size());
+		for(DTriangle tri : ref.getTriangleList()){
+			assertTrue(mesh.getTriangleList().contains(tri));
+		}
+		assertCoherence(mesh);
+		assertTrianglesTopology(mesh);
+		assertUseEachPoint(mesh);
+		assertGIDUnicity(mesh);
+		assertConstraintsAreLocked(mesh);
+		for(int t = 0; t < mesh.getTriangleList().size(); t++){
+			assertEquals(t + 1, mesh.getTriangleList().get(t).getGID());
+		}
+	}
+
+	/**
+	 * permute checks its arguments.
+	 * @throws DelaunayError
+	 */
+	public void testPermuteErrors() throws DelaunayError {
+		IndexedMesh im = buildMesh().getIndexedMesh();
+		int[] tris = im.getHilbertTriangleOrder();
+		try {
+			im.permute(new int[im.getVertexCount() - 1], tris);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			im.permute(new int[im.getVertexCount()], tris);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	/**
+	 * An IndexedMesh can't be retrieved before the triangulation.
+	 */
+	public void testNotComputed() {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		try {
+			mesh.getIndexedMesh();
+			assertTrue(false);
+		} catch (DelaunayError d) {
+			assertTrue(true);
+		}
+	}
+}
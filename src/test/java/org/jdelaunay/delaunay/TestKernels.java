@@ -0,0 +1,73 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.tools.Kernels;
+
+/**
+ * Tests the geometric kernels that work on raw coordinates.
+ * @author alexis
+ */
+public class TestKernels extends BaseUtility {
+
+	/**
+	 * The distances must be the ones computed by DPoint.
+	 */
+	public void testSquareDistance() throws DelaunayError {
+		assertEquals(25.0, Kernels.squareDistance2D(1, 1, 4, 5));
+		assertEquals(25.0, Kernels.squareDistance2D(4, 5, 1, 1));
+		assertEquals(29.0, Kernels.squareDistance(1, 1, 1, 4, 5, 3));
+		DPoint p1 = new DPoint(0.3, 7.1, 2);
+		DPoint p2 = new DPoint(-4.7, 1.3, 8);
+		assertEquals(p1.squareDistance(p2), Kernels.squareDistance(p1.getX(), p1.getY(),
+			p1.getZ(), p2.getX(), p2.getY(), p2.getZ()));
+	}
+
+	/**
+	 * The z component of the vector product.
+	 */
+	public void testCrossZ() {
+		assertEquals(1.0, Kernels.crossZ(1, 0, 0, 1));
+		assertEquals(-1.0, Kernels.crossZ(0, 1, 1, 0));
+		assertEquals(0.0, Kernels.crossZ(2, 2, 3, 3));
+	}
+
+	/**
+	 * The ordinate of a point on a line, from its absciss.
+	 */
+	public void testYFromX() {
+		assertEquals(3.0, Kernels.yFromX(0, 1, 2, 5, 1));
+		assertEquals(1.0, Kernels.yFromX(0, 1, 2, 5, 0));
+		assertEquals(-1.0, Kernels.yFromX(0, 1, 2, 5, -1));
+	}
+}
@@ -0,0 +1,280 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.evaluator.SkinnyEvaluator;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Tests the writing and the reading of mesh files.
+ * @author alexis
+ */
+public class TestMeshFile extends BaseUtility {
+
+	/**
+	 * Build a mesh with a few crossing constraints, some of them having
+	 * a property.
+	 * @return
+	 * @throws DelaunayError
+	 */
+	private ConstrainedMesh buildMesh() throws DelaunayError {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		Map<Integer, Integer> weights = new HashMap<Integer, Integer>();
+		weights.put(1, 5);
+		weights.put(2, 10);
+		mesh.setWeights(weights);
+		mesh.setPrecision(0.5);
+		DEdge ed = new DEdge(0,3,0,8,3,0);
+		ed.setProperty(1);
+		mesh.addConstraintEdge(ed);
+		ed = new DEdge(9,0,0,9,6,0);
+		ed.setProperty(2);
+		mesh.addConstraintEdge(ed);
+		mesh.addConstraintEdge(new DEdge(12,6,0,8,7,0));
+		mesh.addConstraintEdge(new DEdge(5,4,0,8,7,0));
+		mesh.addConstraintEdge(new DEdge(8,3,0,9,6,0));
+		DPoint pt = new DPoint(4,5,2);
+		pt.setProperty(4);
+		mesh.addPoint(pt);
+		mesh.addPoint(new DPoint(4,1,0));
+		mesh.addPoint(new DPoint(10,3,1));
+		mesh.addPoint(new DPoint(11,9,0));
+		mesh.forceConstraintIntegrity();
+		mesh.processDelaunay();
+		mesh.getTriangleList().get(0).setProperty(8);
+		return mesh;
+	}
+
+	/**
+	 * @return a temporary file, deleted when the tests end.
+	 * @throws IOException
+	 */
+	private File getTempFile() throws IOException {
+		File f = File.createTempFile("jdelaunay", ".mesh");
+		f.deleteOnExit();
+		return f;
+	}
+
+	/**
+	 * Checks that the file holds the same arrays as im.
+	 * @param im
+	 * @param mf
+	 */
+	private void assertSameMesh(IndexedMesh im, MeshFile mf) {
+		assertEquals(im.getVertexCount(), mf.getVertexCount());
+		assertEquals(im.getTriangleCount(), mf.getTriangleCount());
+		for(int i = 0; i < im.getVertexCount(); i++){
+			assertEquals(im.getX(i), mf.getX(i));
+			assertEquals(im.getY(i), mf.getY(i));
+			assertEquals(im.getZ(i), mf.getZ(i));
+		}
+		for(int t = 0; t < im.getTriangleCount(); t++){
+			assertEquals(im.getTriangleProperty(t), mf.getTriangleProperty(t));
+			for(int k = 0; k < 3; k++){
+				assertEquals(im.getVertex(t, k), mf.getVertex(t, k));
+				assertEquals(im.getNeighbour(t, k), mf.getNeighbour(t, k));
+				assertEquals(im.isConstrained(t, k), mf.isConstrained(t, k));
+				assertEquals(im.getEdgeProperty(t, k), mf.getEdgeProperty(t, k));
+			}
+		}
+	}
+
+	/**
+	 * The points of tri, sorted.
+	 * @param tri
+	 * @return
+	 */
+	private List<DPoint> getTriangleKey(DTriangle tri) {
+		DPoint[] pts = new DPoint[]{tri.getPoint(0), tri.getPoint(1), tri.getPoint(2)};
+		Arrays.sort(pts);
+		return Arrays.asList(pts);
+	}
+
+	/**
+	 * Checks that the two meshes have the same points, edges and triangles.
+	 * @param expected
+	 * @param mesh
+	 */
+	private void assertSameMesh(ConstrainedMesh expected, ConstrainedMesh mesh) {
+		assertTrue(mesh.isMeshComputed());
+		List<DPoint> pts = mesh.getPoints();
+		assertEquals(expected.getPoints(), pts);
+		for(int i = 0; i < pts.size(); i++){
+			assertEquals(expected.getPoints().get(i).getProperty(), pts.get(i).getProperty());
+			assertEquals(i + 1, pts.get(i).getGID());
+		}
+		assertEquals(expected.getConstraintEdges(), mesh.getConstraintEdges());
+		Set<DEdge> edges = new HashSet<DEdge>(mesh.getEdges());
+		for(int i = 0; i < mesh.getConstraintEdges().size(); i++){
+			DEdge ed = mesh.getConstraintEdges().get(i);
+			assertTrue(ed.isLocked());
+			assertEquals(expected.getConstraintEdges().get(i).getProperty(), ed.getProperty());
+			assertTrue(edges.contains(ed));
+		}
+		assertEquals(expected.getEdges().size(), mesh.getEdges().size());
+		assertEquals(expected.getTriangleList().size(), mesh.getTriangleList().size());
+		//DTriangle.hashCode depends on the order of the edges : the triangles
+		//are found with their sorted points.
+		Map<List<DPoint>, DTriangle> triangles = new HashMap<List<DPoint>, DTriangle>();
+		for(DTriangle tri : expected.getTriangleList()){
+			triangles.put(getTriangleKey(tri), tri);
+		}
+		for(DTriangle tri : mesh.getTriangleList()){
+			DTriangle other = triangles.get(getTriangleKey(tri));
+			assertNotNull(other);
+			assertEquals(other.getProperty(), tri.getProperty());
+		}
+		assertEquals(expected.getWeights(), mesh.getWeights());
+		assertEquals(expected.getPrecision(), mesh.getPrecision());
+		assertEquals(expected.getTolerance(), mesh.getTolerance());
+	}
+
+	/**
+	 * Write a mesh, read it back and rebuild it.
+	 * @throws Exception
+	 */
+	public void testRoundTrip() throws Exception {
+		ConstrainedMesh mesh = buildMesh();
+		File f = getTempFile();
+		MeshFile.write(mesh, f);
+		MeshFile mf = MeshFile.open(f);
+		assertSameMesh(mesh.getIndexedMesh(), mf);
+		assertEquals(4, mf.getVertexProperty(mesh.getPoints().indexOf(new DPoint(4,5,2))));
+		assertEquals(8, mf.getTriangleProperty(0));
+		ConstrainedMesh read = mf.getConstrainedMesh();
+		assertSameMesh(mesh, read);
+		assertTrue(read.getPointLocator() != null);
+		//The rebuilt mesh can be refined, as any computed mesh.
+		read.refineTriangles(0.1, new SkinnyEvaluator(30));
+		mesh.refineTriangles(0.1, new SkinnyEvaluator(30));
+		assertEquals(mesh.getPoints(), read.getPoints());
+		assertEquals(mesh.getTriangleList().size(), read.getTriangleList().size());
+	}
+
+	/**
+	 * Read a mesh lazily : it is kept as an IndexedMesh, written again as it
+	 * is, and its triangles are built when they are asked for.
+	 * @throws Exception
+	 */
+	public void testLazyRead() throws Exception {
+		ConstrainedMesh mesh = buildMesh();
+		File f = getTempFile();
+		MeshFile.write(mesh, f);
+		MeshFile mf = MeshFile.open(f);
+		ConstrainedMesh read = mf.getConstrainedMesh(true);
+		IndexedMesh im = read.getIndexedMesh();
+		assertTrue(im == read.getIndexedMesh());
+		assertSameMesh(im, mf);
+		File copy = getTempFile();
+		MeshFile.write(read, copy);
+		assertSameMesh(im, MeshFile.open(copy));
+		assertSameMesh(mesh, read);
+	}
+
+	/**
+	 * Write an IndexedMesh whose vertices are not sorted : they are sorted
+	 * when the ConstrainedMesh is rebuilt.
+	 * @throws Exception
+	 */
+	public void testHilbertLayout() throws Exception {
+		ConstrainedMesh mesh = buildMesh();
+		IndexedMesh im = mesh.getIndexedMesh(true);
+		File f = getTempFile();
+		MeshFile.write(im, f);
+		MeshFile mf = MeshFile.open(f);
+		assertSameMesh(im, mf);
+		assertTrue(mf.getWeights().isEmpty());
+		ConstrainedMesh read = mf.getConstrainedMesh();
+		assertEquals(mesh.getPoints(), read.getPoints());
+		assertEquals(mesh.getConstraintEdges(), read.getConstraintEdges());
+		assertEquals(mesh.getTriangleList().size(), read.getTriangleList().size());
+		for(DTriangle tri : read.getTriangleList()){
+			assertTrue(mesh.getTriangleList().contains(tri));
+		}
+	}
+
+	/**
+	 * A random mesh, large enough to use several words of constraints and
+	 * several buffers while writing.
+	 * @throws Exception
+	 */
+	public void testLargeMesh() throws Exception {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setPoints(getRandomPoints(20000));
+		for(int i = 0; i < 50; i++){
+			mesh.addConstraintEdge(new DEdge(i * 10, 0, 0, i * 10 + 5, 50, 0));
+		}
+		mesh.processDelaunay();
+		File f = getTempFile();
+		MeshFile.write(mesh, f);
+		MeshFile mf = MeshFile.open(f);
+		assertSameMesh(mesh.getIndexedMesh(), mf);
+		assertSameMesh(mesh, mf.getConstrainedMesh());
+	}
+
+	/**
+	 * Files that are not mesh files, or that are truncated, are rejected.
+	 * @throws Exception
+	 */
+	public void testInvalidFiles() throws Exception {
+		File f = getTempFile();
+		FileOutputStream fos = new FileOutputStream(f);
+		fos.write(new byte[100]);
+		fos.close();
+		try {
+			MeshFile.open(f);
+			fail();
+		} catch (IOException e) {
+		}
+		MeshFile.write(buildMesh(), f);
+		RandomAccessFile raf = new RandomAccessFile(f, "rw");
+		raf.setLength(raf.length() - 8);
+		raf.close();
+		try {
+			MeshFile.open(f);
+			fail();
+		} catch (IOException e) {
+		}
+	}
+}
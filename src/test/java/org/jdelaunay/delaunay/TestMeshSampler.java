@@ -0,0 +1,160 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * Tests the batch interpolation of the z values of a mesh, on a grid or on
+ * arrays of points.
+ * @author alexis
+ */
+public class TestMeshSampler extends BaseUtility {
+
+	private static double plane(double x, double y) {
+		return 2 * x - 3 * y + 1;
+	}
+
+	/**
+	 * A mesh of the square [0, 100]x[0, 100], whose points are on a plane.
+	 */
+	private static ConstrainedMesh planeMesh(Random rand, int size) throws DelaunayError {
+		List<DPoint> pts = new ArrayList<DPoint>();
+		pts.add(new DPoint(0, 0, plane(0, 0)));
+		pts.add(new DPoint(100, 0, plane(100, 0)));
+		pts.add(new DPoint(100, 100, plane(100, 100)));
+		pts.add(new DPoint(0, 100, plane(0, 100)));
+		for(int i = 0; i < size; i++){
+			double x = rand.nextDouble() * 100;
+			double y = rand.nextDouble() * 100;
+			pts.add(new DPoint(x, y, plane(x, y)));
+		}
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setPoints(pts);
+		mesh.addConstraintEdge(new DEdge(10, 10, plane(10, 10), 90, 80, plane(90, 80)));
+		mesh.forceConstraintIntegrity();
+		return mesh;
+	}
+
+	/**
+	 * Each cell inside the mesh gets the z value of the plane, the others get
+	 * noData.
+	 * @throws DelaunayError
+	 */
+	public void testRasterize() throws DelaunayError {
+		ConstrainedMesh mesh = planeMesh(new Random(11), 3000);
+		mesh.processDelaunay();
+		RasterGrid grid = new RasterGrid(-10.25, -10.25, 0.5, 241, 240);
+		double[] z = new double[grid.getCellCount()];
+		mesh.interpolateZ(grid, z, Double.NaN);
+		for(int r = 0; r < grid.getRows(); r++){
+			double y = grid.getCellY(r);
+			for(int c = 0; c < grid.getColumns(); c++){
+				double x = grid.getCellX(c);
+				double v = z[r * grid.getColumns() + c];
+				if(x < 0 || x > 100 || y < 0 || y > 100){
+					assertTrue(Double.isNaN(v));
+				} else {
+					assertEquals(plane(x, y), v, 1e-9);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The result doesn't depend on the number of threads, nor on the kind of
+	 * output.
+	 * @throws DelaunayError
+	 */
+	public void testRasterizeThreads() throws DelaunayError {
+		ConstrainedMesh mesh = planeMesh(new Random(12), 2000);
+		mesh.processDelaunay();
+		RasterGrid grid = new RasterGrid(0, 0, 0.7, 150, 143);
+		double[] single = new double[grid.getCellCount()];
+		mesh.interpolateZ(grid, single, -1);
+		mesh.setThreadCount(4);
+		double[] multi = new double[grid.getCellCount()];
+		mesh.interpolateZ(grid, multi, -1);
+		FloatBuffer buf = FloatBuffer.allocate(grid.getCellCount() + 3);
+		buf.position(3);
+		mesh.interpolateZ(grid, buf, -1f);
+		assertEquals(3, buf.position());
+		for(int i = 0; i < single.length; i++){
+			assertEquals(single[i], multi[i], 1e-12);
+			assertEquals((float) single[i], buf.get(3 + i));
+		}
+		try{
+			mesh.interpolateZ(grid, new double[10], 0);
+			fail();
+		} catch (IllegalArgumentException e){
+		}
+	}
+
+	/**
+	 * The points are sampled on the plane, the ones outside the mesh get noData.
+	 * @throws DelaunayError
+	 */
+	public void testSamplePoints() throws DelaunayError {
+		Random rand = new Random(13);
+		ConstrainedMesh mesh = planeMesh(rand, 2000);
+		try{
+			mesh.interpolateZ(new double[1], new double[1], new double[1], 0);
+			fail();
+		} catch (DelaunayError d){
+		}
+		mesh.processDelaunay();
+		int n = 20000;
+		double[] x = new double[n];
+		double[] y = new double[n];
+		for(int i = 0; i < n; i++){
+			x[i] = rand.nextDouble() * 120 - 10;
+			y[i] = rand.nextDouble() * 120 - 10;
+		}
+		for(int threads = 1; threads <= 3; threads += 2){
+			mesh.setThreadCount(threads);
+			double[] z = new double[n];
+			mesh.interpolateZ(x, y, z, Double.NaN);
+			for(int i = 0; i < n; i++){
+				if(x[i] < 0 || x[i] > 100 || y[i] < 0 || y[i] > 100){
+					assertTrue(Double.isNaN(z[i]));
+				} else {
+					assertEquals(plane(x[i], y[i]), z[i], 1e-9);
+				}
+			}
+		}
+	}
+}
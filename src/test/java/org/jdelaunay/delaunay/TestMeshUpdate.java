@@ -0,0 +1,248 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Tests the incremental insertion of points and constraints in a computed
+ * ConstrainedMesh.
+ * @author alexis
+ */
+public class TestMeshUpdate extends BaseUtility {
+
+	/**
+	 * Get the key of a triangle, that depends only on the coordinates of its
+	 * vertices.
+	 */
+	private static List<String> key(DTriangle tri) {
+		String[] pts = new String[3];
+		for(int i = 0; i < 3; i++){
+			pts[i] = tri.getPoint(i).getX() + " " + tri.getPoint(i).getY();
+		}
+		Arrays.sort(pts);
+		return Arrays.asList(pts);
+	}
+
+	private static Set<List<String>> keys(List<DTriangle> tris) {
+		Set<List<String>> ret = new HashSet<List<String>>();
+		for(DTriangle tri : tris){
+			assertTrue(ret.add(key(tri)));
+		}
+		return ret;
+	}
+
+	private static List<DPoint> randomPoints(Random rand, int number, double min, double max)
+			throws DelaunayError {
+		List<DPoint> ret = new ArrayList<DPoint>();
+		for(int i = 0; i < number; i++){
+			ret.add(new DPoint(min + rand.nextDouble() * (max - min),
+				min + rand.nextDouble() * (max - min), rand.nextDouble()));
+		}
+		return ret;
+	}
+
+	private void assertValid(ConstrainedMesh mesh) {
+		assertCoherence(mesh);
+		assertTrianglesTopology(mesh);
+		assertGIDUnicity(mesh);
+		assertConstraintsAreLocked(mesh);
+	}
+
+	/**
+	 * Inserting points one after the other, inside and outside the mesh, must
+	 * give the same triangulation as a full computation.
+	 * @throws DelaunayError
+	 */
+	public void testInsertPointsAsFullTriangulation() throws DelaunayError {
+		Random rand = new Random(42);
+		List<DPoint> first = randomPoints(rand, 300, 20, 80);
+		List<DPoint> second = randomPoints(rand, 200, 0, 100);
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setPoints(first);
+		mesh.processDelaunay();
+		Set<List<String>> before = keys(mesh.getTriangleList());
+		MeshUpdate up = mesh.insertPoints(second);
+		assertEquals(200, up.getInsertedPoints().size());
+		assertValid(mesh);
+		assertEquals(500, mesh.getPoints().size());
+		List<DPoint> all = new ArrayList<DPoint>(first);
+		all.addAll(second);
+		ConstrainedMesh full = new ConstrainedMesh();
+		full.setPoints(all);
+		full.processDelaunay();
+		Set<List<String>> after = keys(mesh.getTriangleList());
+		assertEquals(keys(full.getTriangleList()), after);
+		//The update must describe the differences between the two meshes.
+		before.removeAll(keys(up.getRemovedTriangles()));
+		before.addAll(keys(up.getCreatedTriangles()));
+		assertEquals(after, before);
+	}
+
+	/**
+	 * Tests the triangles given by the MeshUpdate after a single insertion.
+	 * @throws DelaunayError
+	 */
+	public void testInsertPoint() throws DelaunayError {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.addPoint(new DPoint(0, 0, 0));
+		mesh.addPoint(new DPoint(10, 0, 0));
+		mesh.addPoint(new DPoint(5, 8, 0));
+		mesh.processDelaunay();
+		DTriangle tri = mesh.getTriangleList().get(0);
+		MeshUpdate up = mesh.insertPoint(new DPoint(5, 3, 1));
+		assertEquals(3, mesh.getTriangleList().size());
+		assertEquals(1, up.getRemovedTriangles().size());
+		assertEquals(tri.getGID(), up.getRemovedTriangles().get(0).getGID());
+		assertEquals(3, up.getCreatedTriangles().size());
+		assertTrue(up.getCreatedTriangles().contains(tri));
+		//Inserting an existing vertex does nothing.
+		up = mesh.insertPoint(new DPoint(5, 3, 4));
+		assertTrue(up.isEmpty());
+		assertTrue(up.getInsertedPoints().isEmpty());
+		assertEquals(4, mesh.getPoints().size());
+		//A point outside the mesh is linked to the edges it can see.
+		up = mesh.insertPoint(new DPoint(5, -4, 0));
+		assertEquals(1, up.getInsertedPoints().size());
+		assertEquals(4, mesh.getTriangleList().size());
+		assertValid(mesh);
+	}
+
+	/**
+	 * The incremental API can't be used before processDelaunay.
+	 */
+	public void testNotComputed() throws DelaunayError {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setPoints(getRandomPoints(10));
+		try{
+			mesh.insertPoint(new DPoint(1, 1, 1));
+			fail();
+		} catch (DelaunayError d){
+		}
+	}
+
+	/**
+	 * An inserted constraint must give the same triangulation as a full
+	 * computation made with it.
+	 * @throws DelaunayError
+	 */
+	public void testInsertConstraintAsFullTriangulation() throws DelaunayError {
+		Random rand = new Random(7);
+		List<DPoint> pts = randomPoints(rand, 400, 0, 100);
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setPoints(pts);
+		mesh.processDelaunay();
+		mesh.insertConstraintEdge(new DEdge(3.5, 12.25, 0, 91.75, 83.5, 0));
+		assertValid(mesh);
+		assertEquals(1, mesh.getConstraintEdges().size());
+		ConstrainedMesh full = new ConstrainedMesh();
+		full.setPoints(pts);
+		full.addConstraintEdge(new DEdge(3.5, 12.25, 0, 91.75, 83.5, 0));
+		full.processDelaunay();
+		assertEquals(keys(full.getTriangleList()), keys(mesh.getTriangleList()));
+	}
+
+	/**
+	 * Two crossing constraints are split on their intersection, and the
+	 * points inserted on a constraint split it.
+	 * @throws DelaunayError
+	 */
+	public void testCrossingConstraints() throws DelaunayError {
+		Random rand = new Random(3);
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setPoints(randomPoints(rand, 200, 0, 100));
+		mesh.processDelaunay();
+		DEdge first = new DEdge(new DPoint(10.5, 50.5, 0), new DPoint(90.5, 50.5, 10));
+		first.setProperty(WALL);
+		mesh.insertConstraintEdge(first);
+		DEdge second = new DEdge(new DPoint(40.25, 10.5, 0), new DPoint(40.25, 90.5, 0));
+		second.setProperty(ROAD);
+		MeshUpdate up = mesh.insertConstraintEdge(second);
+		assertEquals(3, up.getInsertedPoints().size());
+		DPoint inter = up.getInsertedPoints().get(2);
+		assertEquals(40.25, inter.getX(), 1e-9);
+		assertEquals(50.5, inter.getY(), 1e-9);
+		assertEquals(3.71875, inter.getZ(), 1e-9);
+		assertEquals(4, mesh.getConstraintEdges().size());
+		for(DEdge ed : mesh.getConstraintEdges()){
+			assertTrue(ed.isExtremity(inter));
+		}
+		mesh.insertPoint(new DPoint(20.5, 50.5, 0));
+		assertEquals(5, mesh.getConstraintEdges().size());
+		double wall = 0;
+		for(DEdge ed : mesh.getConstraintEdges()){
+			if(ed.hasProperty(WALL)){
+				wall += ed.get2DLength();
+			}
+		}
+		assertEquals(80, wall, 1e-9);
+		assertValid(mesh);
+	}
+
+	/**
+	 * A regular grid is made of cocircular points : the flip-flaps of the
+	 * incremental insertion must stop, and give a valid triangulation.
+	 * @throws DelaunayError
+	 */
+	public void testInsertCocircularPoints() throws DelaunayError {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.addPoint(new DPoint(0, 0, 0));
+		mesh.addPoint(new DPoint(20, 0, 0));
+		mesh.addPoint(new DPoint(20, 20, 0));
+		mesh.addPoint(new DPoint(0, 20, 0));
+		mesh.processDelaunay();
+		List<DPoint> grid = new ArrayList<DPoint>();
+		for(int i = 1; i < 20; i++){
+			for(int j = 1; j < 20; j++){
+				grid.add(new DPoint(i, j, 0));
+			}
+		}
+		mesh.insertPoints(grid);
+		assertEquals(4 + 19 * 19, mesh.getPoints().size());
+		//2n - 2 - h triangles, with a hull of 4 points.
+		assertEquals(2 * (4 + 19 * 19) - 2 - 4, mesh.getTriangleList().size());
+		for(DEdge ed : mesh.getEdges()){
+			if(ed.getLeft() != null && ed.getRight() != null){
+				assertTrue(ed.getLeft().inCircle(ed.getRight().getOppositePoint(ed)) != 1);
+			}
+		}
+		assertTrianglesTopology(mesh);
+	}
+}
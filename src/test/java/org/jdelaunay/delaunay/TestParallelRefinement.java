@@ -0,0 +1,255 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.evaluator.InsertionEvaluator;
+import org.jdelaunay.delaunay.evaluator.SkinnyEvaluator;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Tests the concurrent refinement of ConstrainedMesh, performed with ParallelRefinement.
+ * @author alexis
+ */
+public class TestParallelRefinement extends BaseUtility {
+
+	/**
+	 * Random points in [0, 100[, and short constraints that are made
+	 * coherent with forceConstraintIntegrity.
+	 * @param n
+	 * @param constraints
+	 * @param seed
+	 * @return
+	 * @throws DelaunayError
+	 */
+	private ConstrainedMesh buildMesh(int n, int constraints, long seed) throws DelaunayError {
+		Random rand = new Random(seed);
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		List<DPoint> pts = new ArrayList<DPoint>();
+		for(int i = 0; i < n; i++){
+			pts.add(new DPoint(rand.nextDouble() * 100, rand.nextDouble() * 100, rand.nextDouble() * 10));
+		}
+		mesh.setPoints(pts);
+		for(int i = 0; i < constraints; i++){
+			double x = rand.nextDouble() * 90;
+			double y = rand.nextDouble() * 100;
+			mesh.addConstraintEdge(new DEdge(x, y, 0, x + rand.nextDouble() * 10, y + rand.nextDouble(), 0));
+		}
+		mesh.forceConstraintIntegrity();
+		mesh.processDelaunay();
+		return mesh;
+	}
+
+	/**
+	 * Checks that no edge can be flipped, unless it is locked.
+	 * @param mesh
+	 */
+	private void assertConstrainedDelaunay(ConstrainedMesh mesh) {
+		for(DEdge ed : mesh.getEdges()){
+			if(!ed.isLocked() && ed.getLeft() != null && ed.getRight() != null){
+				DPoint op = ed.getRight().getOppositePoint(ed);
+				assertTrue(ed.getLeft().inCircle(op) != 1);
+			}
+		}
+	}
+
+	/**
+	 * Sum of the 2D lengths of the constraints.
+	 * @param mesh
+	 * @return
+	 */
+	private double getConstraintLength(ConstrainedMesh mesh) {
+		double ret = 0;
+		for(DEdge ed : mesh.getConstraintEdges()){
+			ret += ed.get2DLength();
+		}
+		return ret;
+	}
+
+	/**
+	 * The number of triangles whose minimum angle is lower than angle.
+	 * @param mesh
+	 * @param angle
+	 * @return
+	 */
+	private int countSkinny(ConstrainedMesh mesh, double angle) {
+		int ret = 0;
+		for(DTriangle tri : mesh.getTriangleList()){
+			if(tri.getMinAngle() < angle){
+				ret++;
+			}
+		}
+		return ret;
+	}
+
+	private void assertValid(ConstrainedMesh mesh) {
+		assertCoherence(mesh);
+		assertTrianglesTopology(mesh);
+		assertGIDUnicity(mesh);
+		assertConstraintsAreLocked(mesh);
+		assertConstrainedDelaunay(mesh);
+	}
+
+	/**
+	 * refineMesh with several threads gives a valid mesh, where the constraints
+	 * have been split but not moved, with less skinny triangles.
+	 * @throws DelaunayError
+	 */
+	public void testRefineMesh() throws DelaunayError {
+		ConstrainedMesh mesh = buildMesh(300, 20, 1);
+		double length = getConstraintLength(mesh);
+		int constraints = mesh.getConstraintEdges().size();
+		int skinny = countSkinny(mesh, 25);
+		int points = mesh.getPoints().size();
+		mesh.setRefinementThreadCount(4);
+		mesh.refineMesh(0.1, new SkinnyEvaluator(25));
+		assertValid(mesh);
+		assertTrue(mesh.getPoints().size() > points);
+		assertTrue(mesh.getConstraintEdges().size() > constraints);
+		assertEquals(length, getConstraintLength(mesh), 1e-9);
+		assertTrue(countSkinny(mesh, 25) < skinny / 10);
+		//The mesh still covers the convex hull of the input.
+		assertEquals(1, mesh.getPoints().size() - mesh.getEdges().size() + mesh.getTriangleList().size());
+	}
+
+	/**
+	 * refineTriangles with several threads does not split the constraints.
+	 * @throws DelaunayError
+	 */
+	public void testRefineTriangles() throws DelaunayError {
+		ConstrainedMesh mesh = buildMesh(300, 20, 2);
+		List<DEdge> constraints = new ArrayList<DEdge>(mesh.getConstraintEdges());
+		int skinny = countSkinny(mesh, 25);
+		mesh.setRefinementThreadCount(3);
+		mesh.refineTriangles(0.1, new SkinnyEvaluator(25));
+		assertValid(mesh);
+		assertEquals(constraints, mesh.getConstraintEdges());
+		assertTrue(countSkinny(mesh, 25) < skinny);
+		assertEquals(1, mesh.getPoints().size() - mesh.getEdges().size() + mesh.getTriangleList().size());
+	}
+
+	/**
+	 * The result does not depend on the number of threads : the points are
+	 * inserted in the same order, with the same GIDs.
+	 * @throws DelaunayError
+	 */
+	public void testSameResultForAnyThreadCount() throws DelaunayError {
+		//Enough triangles for the rounds to be processed in the thread pool.
+		List<DPoint> reference = null;
+		int triangles = 0;
+		for(int threads : new int[]{1, 2, 5, 8}){
+			ConstrainedMesh mesh = buildMesh(3000, 100, 3);
+			ParallelRefinement pr = new ParallelRefinement(mesh, 0.1, new SkinnyEvaluator(25), true, threads);
+			pr.refine();
+			assertTrue(pr.getRounds() > 1);
+			List<DPoint> pts = mesh.getPoints();
+			if(reference == null){
+				reference = pts;
+				triangles = mesh.getTriangleList().size();
+			} else {
+				assertEquals(reference.size(), pts.size());
+				assertEquals(triangles, mesh.getTriangleList().size());
+				for(int i = 0; i < pts.size(); i++){
+					DPoint a = reference.get(i);
+					DPoint b = pts.get(i);
+					assertEquals(a.getGID(), b.getGID());
+					assertEquals(a.getX(), b.getX());
+					assertEquals(a.getY(), b.getY());
+					assertEquals(a.getZ(), b.getZ());
+				}
+			}
+		}
+	}
+
+	/**
+	 * The thread count of the triangulation does not change the refinement :
+	 * it stays sequential until setRefinementThreadCount is called.
+	 * @throws DelaunayError
+	 */
+	public void testRefinementThreadCount() throws DelaunayError {
+		ConstrainedMesh ref = buildMesh(300, 20, 4);
+		ref.refineMesh(0.1, new SkinnyEvaluator(25));
+		ConstrainedMesh mesh = buildMesh(300, 20, 4);
+		mesh.setThreadCount(4);
+		assertEquals(1, mesh.getRefinementThreadCount());
+		mesh.refineMesh(0.1, new SkinnyEvaluator(25));
+		List<DPoint> expected = ref.getPoints();
+		List<DPoint> pts = mesh.getPoints();
+		assertEquals(expected.size(), pts.size());
+		for(int i = 0; i < pts.size(); i++){
+			assertEquals(expected.get(i).getX(), pts.get(i).getX());
+			assertEquals(expected.get(i).getY(), pts.get(i).getY());
+		}
+		mesh.setRefinementThreadCount(2);
+		assertEquals(2, mesh.getRefinementThreadCount());
+		try{
+			mesh.setRefinementThreadCount(0);
+			fail();
+		} catch (IllegalArgumentException e){
+			assertEquals(2, mesh.getRefinementThreadCount());
+		}
+	}
+
+	/**
+	 * The evaluator is only called from the thread that refines the mesh,
+	 * even when the rounds are processed in the thread pool.
+	 * @throws DelaunayError
+	 */
+	public void testEvaluatorThread() throws DelaunayError {
+		ConstrainedMesh mesh = buildMesh(3000, 100, 5);
+		final SkinnyEvaluator skinny = new SkinnyEvaluator(25);
+		//Neither the set nor the counter are thread safe.
+		final Set<Thread> threads = new HashSet<Thread>();
+		final int[] calls = new int[1];
+		InsertionEvaluator ev = new InsertionEvaluator() {
+			@Override
+			public boolean evaluate(DTriangle dt) {
+				threads.add(Thread.currentThread());
+				calls[0]++;
+				return skinny.evaluate(dt);
+			}
+		};
+		ParallelRefinement pr = new ParallelRefinement(mesh, 0.1, ev, true, 4);
+		pr.refine();
+		assertTrue(pr.getRounds() > 1);
+		assertTrue(calls[0] > ParallelRefinement.MIN_PARALLEL_WORK);
+		assertEquals(1, threads.size());
+		assertTrue(threads.contains(Thread.currentThread()));
+		assertValid(mesh);
+	}
+}
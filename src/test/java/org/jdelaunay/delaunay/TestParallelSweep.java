@@ -0,0 +1,281 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Tests the parallel triangulation of ConstrainedMesh, performed with ParallelSweep.
+ * @author alexis
+ */
+public class TestParallelSweep extends BaseUtility {
+
+	/**
+	 * Build a mesh from a copy of the given coordinates, and triangulate it.
+	 * @param coords
+	 *      x, y, z for each point.
+	 * @param constr
+	 *      x1, y1, z1, x2, y2, z2 for each constraint.
+	 * @param threads
+	 * @return
+	 * @throws DelaunayError
+	 */
+	private ConstrainedMesh triangulate(double[] coords, double[] constr, int threads) throws DelaunayError {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		List<DPoint> pts = new ArrayList<DPoint>();
+		for(int i = 0; i < coords.length; i += 3){
+			pts.add(new DPoint(coords[i], coords[i+1], coords[i+2]));
+		}
+		mesh.setPoints(pts);
+		for(int i = 0; i < constr.length; i += 6){
+			mesh.addConstraintEdge(new DEdge(constr[i], constr[i+1], constr[i+2],
+				constr[i+3], constr[i+4], constr[i+5]));
+		}
+		mesh.setThreadCount(threads);
+		mesh.processDelaunay();
+		return mesh;
+	}
+
+	/**
+	 * Get the triangles of the mesh, as sorted triples of point GIDs.
+	 * @param mesh
+	 * @return
+	 */
+	private Set<List<Integer>> getTriangleKeys(ConstrainedMesh mesh) {
+		Set<List<Integer>> ret = new HashSet<List<Integer>>();
+		for(DTriangle tri : mesh.getTriangleList()){
+			Integer[] gids = new Integer[]{tri.getPoint(0).getGID(), tri.getPoint(1).getGID(),
+				tri.getPoint(2).getGID()};
+			Arrays.sort(gids);
+			ret.add(Arrays.asList(gids));
+		}
+		return ret;
+	}
+
+	/**
+	 * Checks that the parallel triangulation gives the same triangles as the
+	 * sequential one.
+	 * @param coords
+	 * @param constr
+	 * @param threads
+	 * @throws DelaunayError
+	 */
+	private void assertSameAsSequential(double[] coords, double[] constr, int threads) throws DelaunayError {
+		ConstrainedMesh seq = triangulate(coords, constr, 1);
+		ConstrainedMesh par = triangulate(coords, constr, threads);
+		assertEquals(threads, par.getThreadCount());
+		assertEquals(seq.getTriangleList().size(), par.getTriangleList().size());
+		assertEquals(seq.getEdges().size(), par.getEdges().size());
+		assertEquals(getTriangleKeys(seq), getTriangleKeys(par));
+		assertCoherence(par);
+		assertTrianglesTopology(par);
+		assertGIDUnicity(par);
+		assertConstraintsAreLocked(par);
+	}
+
+	/**
+	 * Random coordinates in [0, 100[.
+	 * @param n
+	 * @param seed
+	 * @return
+	 */
+	private double[] getRandomCoordinates(int n, long seed) {
+		Random rand = new Random(seed);
+		double[] ret = new double[3 * n];
+		for(int i = 0; i < ret.length; i += 3){
+			ret[i] = rand.nextDouble() * 100;
+			ret[i+1] = rand.nextDouble() * 100;
+			ret[i+2] = rand.nextDouble() * 10;
+		}
+		return ret;
+	}
+
+	/**
+	 * Random points, no constraint.
+	 * @throws DelaunayError
+	 */
+	public void testRandomPoints() throws DelaunayError {
+		assertSameAsSequential(getRandomCoordinates(2000, 1), new double[0], 4);
+		assertSameAsSequential(getRandomCoordinates(3000, 2), new double[0], 7);
+	}
+
+	/**
+	 * Many thin slabs : the flip-flaps started on the seams spread far from
+	 * them, and must all be done.
+	 * @throws DelaunayError
+	 */
+	public void testManySlabs() throws DelaunayError {
+		assertSameAsSequential(getRandomCoordinates(20000, 4), new double[0], 32);
+	}
+
+	/**
+	 * Random points, and short horizontal constraints that does not intersect.
+	 * @throws DelaunayError
+	 */
+	public void testRandomPointsAndConstraints() throws DelaunayError {
+		double[] constr = new double[6 * 40];
+		for(int i = 0; i < 40; i++){
+			double x = 2.3 * i + 0.1;
+			double y = 2.5 * i + 0.7;
+			constr[6 * i] = x;
+			constr[6 * i + 1] = y;
+			constr[6 * i + 3] = x + 3;
+			constr[6 * i + 4] = y + 0.3;
+		}
+		assertSameAsSequential(getRandomCoordinates(2000, 3), constr, 4);
+	}
+
+	/**
+	 * A constraint that crosses the whole input does not prevent the cuts : it
+	 * is forced in the merged mesh.
+	 * @throws DelaunayError
+	 */
+	public void testCrossingConstraint() throws DelaunayError {
+		double[] constr = new double[]{-1, 50, 0, 101, 50.5, 0};
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setPoints(getRandomPoints(500));
+		mesh.addConstraintEdge(new DEdge(constr[0], constr[1], constr[2], constr[3], constr[4], constr[5]));
+		ParallelSweep ps = new ParallelSweep(mesh.getPoints(), mesh.getConstraintEdges(), 4);
+		assertTrue(ps.compute());
+		assertEquals(mesh.getConstraintEdges(), ps.getCrossingConstraints());
+		assertSameAsSequential(getRandomCoordinates(500, 4), constr, 4);
+		ConstrainedMesh par = triangulate(getRandomCoordinates(500, 4), constr, 4);
+		DEdge ed = par.getConstraintEdges().get(0);
+		assertTrue(ed.getLeft() != null && ed.getRight() != null);
+		assertTrue(par.getEdges().contains(ed));
+	}
+
+	/**
+	 * Contour lines that cross all the slabs, made of many constraints : most
+	 * of them stay in their slab, the other ones are forced after the merge.
+	 * @throws DelaunayError
+	 */
+	public void testContours() throws DelaunayError {
+		int lines = 20;
+		int steps = 50;
+		double[] constr = new double[6 * lines * steps];
+		int k = 0;
+		for(int i = 0; i < lines; i++){
+			for(int j = 0; j < steps; j++){
+				double x = 2.0 * j;
+				constr[k++] = x;
+				constr[k++] = 5 * i + 2 + Math.sin(x / 7);
+				constr[k++] = i;
+				constr[k++] = x + 2;
+				constr[k++] = 5 * i + 2 + Math.sin((x + 2) / 7);
+				constr[k++] = i;
+			}
+		}
+		double[] coords = getRandomCoordinates(5000, 5);
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		for(int i = 0; i < constr.length; i += 6){
+			mesh.addConstraintEdge(new DEdge(constr[i], constr[i+1], constr[i+2],
+				constr[i+3], constr[i+4], constr[i+5]));
+		}
+		for(int i = 0; i < coords.length; i += 3){
+			mesh.addPoint(new DPoint(coords[i], coords[i+1], coords[i+2]));
+		}
+		ParallelSweep ps = new ParallelSweep(mesh.getPoints(), mesh.getConstraintEdges(), 8);
+		assertTrue(ps.compute());
+		assertFalse(ps.getCrossingConstraints().isEmpty());
+		assertTrue(ps.getCrossingConstraints().size() < mesh.getConstraintEdges().size());
+		assertSameAsSequential(coords, constr, 8);
+	}
+
+	/**
+	 * The slabs are not cut between points with the same abscissa.
+	 * @throws DelaunayError
+	 */
+	public void testBounds() throws DelaunayError {
+		List<DPoint> pts = new ArrayList<DPoint>();
+		for(int i = 0; i < 20; i++){
+			for(int j = 0; j < 20; j++){
+				pts.add(new DPoint(i, j, 0));
+			}
+		}
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setPoints(pts);
+		int[] bounds = ParallelSweep.computeBounds(mesh.getPoints(), 3);
+		assertTrue(bounds.length > 2);
+		for(int i = 1; i < bounds.length - 1; i++){
+			assertEquals(0, bounds[i] % 20);
+			assertTrue(bounds[i] - bounds[i-1] >= ParallelSweep.MIN_SLAB_SIZE);
+		}
+		assertEquals(pts.size(), bounds[bounds.length - 1]);
+	}
+
+	/**
+	 * A regular grid : many points are aligned on the hulls of the slabs, and
+	 * cocircular. We only check the validity of the mesh.
+	 * @throws DelaunayError
+	 */
+	public void testGrid() throws DelaunayError {
+		double[] coords = new double[3 * 40 * 40];
+		int k = 0;
+		for(int i = 0; i < 40; i++){
+			for(int j = 0; j < 40; j++){
+				coords[k++] = i;
+				coords[k++] = j;
+				coords[k++] = 0;
+			}
+		}
+		ConstrainedMesh seq = triangulate(coords, new double[0], 1);
+		ConstrainedMesh par = triangulate(coords, new double[0], 4);
+		assertEquals(seq.getTriangleList().size(), par.getTriangleList().size());
+		assertCoherence(par);
+		assertTrianglesTopology(par);
+		assertUseEachPoint(par);
+		assertGIDUnicity(par);
+	}
+
+	/**
+	 * The thread count must be positive.
+	 */
+	public void testThreadCount() {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		assertEquals(1, mesh.getThreadCount());
+		try {
+			mesh.setThreadCount(0);
+			assertTrue(false);
+		} catch (IllegalArgumentException e) {
+			assertTrue(true);
+		}
+	}
+}
@@ -0,0 +1,243 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import junit.framework.TestCase;
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * Tests the readers of XYZ and LAS files.
+ * @author alexis
+ */
+public class TestPointFileReader extends TestCase {
+
+	/**
+	 * Write content in a temporary file, deleted when the tests end.
+	 * @param content
+	 * @return
+	 * @throws IOException
+	 */
+	private File write(String content) throws IOException {
+		File f = File.createTempFile("jdelaunay", ".xyz");
+		f.deleteOnExit();
+		FileWriter fw = new FileWriter(f);
+		fw.write(content);
+		fw.close();
+		return f;
+	}
+
+	/**
+	 * Write a LAS 1.2 file, with records of format 1.
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param scale
+	 * @param offset
+	 * @return
+	 * @throws IOException
+	 */
+	private File writeLAS(int[] x, int[] y, int[] z, double scale, double offset) throws IOException {
+		int headerSize = 227;
+		int recordLength = 28;
+		ByteBuffer bb = ByteBuffer.allocate(headerSize + recordLength * x.length).order(ByteOrder.LITTLE_ENDIAN);
+		bb.put(new byte[]{'L', 'A', 'S', 'F'});
+		bb.put(24, (byte) 1);
+		bb.put(25, (byte) 2);
+		bb.putShort(94, (short) headerSize);
+		bb.putInt(96, headerSize);
+		bb.put(104, (byte) 1);
+		bb.putShort(105, (short) recordLength);
+		bb.putInt(107, x.length);
+		for(int k = 0; k < 3; k++){
+			bb.putDouble(131 + 8 * k, scale);
+			bb.putDouble(155 + 8 * k, offset);
+		}
+		for(int i = 0; i < x.length; i++){
+			int pos = headerSize + recordLength * i;
+			bb.putInt(pos, x[i]);
+			bb.putInt(pos + 4, y[i]);
+			bb.putInt(pos + 8, z[i]);
+			bb.putShort(pos + 12, (short) 77);
+		}
+		File f = File.createTempFile("jdelaunay", ".las");
+		f.deleteOnExit();
+		FileOutputStream fos = new FileOutputStream(f);
+		fos.write(bb.array());
+		fos.close();
+		return f;
+	}
+
+	/**
+	 * Headers, comments, separators and number formats.
+	 * @throws IOException
+	 */
+	public void testFormats() throws IOException {
+		File f = write("x y z\n# a comment\n1 2 3\n\n-1.5,2.25,-3e2\r\n"
+			+ "+.5;0.125;1E-3 extra 12\n\t 7  8\t9\n123456789.123456789 1e-30 0.1");
+		double[][] c = PointFileReader.readXYZ(f, 0);
+		assertEquals(5, c[0].length);
+		assertEquals(1.0, c[0][0]);
+		assertEquals(2.0, c[1][0]);
+		assertEquals(3.0, c[2][0]);
+		assertEquals(-1.5, c[0][1]);
+		assertEquals(2.25, c[1][1]);
+		assertEquals(-300.0, c[2][1]);
+		assertEquals(0.5, c[0][2]);
+		assertEquals(0.125, c[1][2]);
+		assertEquals(1e-3, c[2][2]);
+		assertEquals(7.0, c[0][3]);
+		assertEquals(9.0, c[2][3]);
+		assertEquals(123456789.123456789, c[0][4]);
+		assertEquals(1e-30, c[1][4]);
+		assertEquals(0.1, c[2][4]);
+	}
+
+	/**
+	 * Lines that start with a number must hold three coordinates.
+	 * @throws IOException
+	 */
+	public void testInvalidLines() throws IOException {
+		try {
+			PointFileReader.readXYZ(write("1 2 3\n4 5\n"), 0);
+			fail();
+		} catch (IOException e) {
+		}
+		try {
+			PointFileReader.readXYZ(write("1 2 3\n4 5 z\n"), 0);
+			fail();
+		} catch (IOException e) {
+		}
+	}
+
+	/**
+	 * A file larger than the read buffer, whose values must match the ones
+	 * parsed by Double.parseDouble.
+	 * @throws IOException
+	 */
+	public void testLargeFile() throws IOException {
+		Random r = new Random(12);
+		int n = 100000;
+		String[][] values = new String[n][3];
+		File f = File.createTempFile("jdelaunay", ".xyz");
+		f.deleteOnExit();
+		BufferedWriter bw = new BufferedWriter(new FileWriter(f));
+		for(int i = 0; i < n; i++){
+			for(int k = 0; k < 3; k++){
+				double v = (r.nextDouble() - 0.5) * Math.pow(10, r.nextInt(12) - 4);
+				values[i][k] = r.nextBoolean() ? Double.toString(v) : String.format("%.3f", v);
+				bw.write(values[i][k]);
+				bw.write(k < 2 ? " " : "\n");
+			}
+		}
+		bw.close();
+		double[][] c = PointFileReader.readXYZ(f, 0);
+		assertEquals(n, c[0].length);
+		for(int i = 0; i < n; i++){
+			for(int k = 0; k < 3; k++){
+				assertEquals(Double.parseDouble(values[i][k]), c[k][i]);
+			}
+		}
+	}
+
+	/**
+	 * Only the first point of each cell is kept.
+	 * @throws IOException
+	 */
+	public void testThinning() throws IOException {
+		Random r = new Random(3);
+		StringBuilder sb = new StringBuilder();
+		Set<Long> cells = new HashSet<Long>();
+		int n = 200000;
+		for(int i = 0; i < n; i++){
+			double x = r.nextDouble() * 1000 - 500;
+			double y = r.nextDouble() * 1000 - 500;
+			sb.append(x).append(' ').append(y).append(" 0\n");
+			cells.add((long) Math.floor(x / 10) * 1000 + (long) Math.floor(y / 10));
+		}
+		double[][] c = PointFileReader.readXYZ(write(sb.toString()), 10);
+		assertEquals(cells.size(), c[0].length);
+		Set<Long> found = new HashSet<Long>();
+		for(int i = 0; i < c[0].length; i++){
+			assertTrue(found.add((long) Math.floor(c[0][i] / 10) * 1000 + (long) Math.floor(c[1][i] / 10)));
+		}
+		assertEquals(n, PointFileReader.readXYZ(write(sb.toString()), 0)[0].length);
+	}
+
+	/**
+	 * Read the coordinates of a LAS file.
+	 * @throws IOException
+	 */
+	public void testLAS() throws IOException {
+		int[] x = {0, 1000, -2500, 70000};
+		int[] y = {10, 20, 30, 40};
+		int[] z = {5, -5, 0, 12};
+		double[][] c = PointFileReader.readLAS(writeLAS(x, y, z, 0.01, 100), 0);
+		assertEquals(4, c[0].length);
+		for(int i = 0; i < 4; i++){
+			assertEquals(x[i] * 0.01 + 100, c[0][i]);
+			assertEquals(y[i] * 0.01 + 100, c[1][i]);
+			assertEquals(z[i] * 0.01 + 100, c[2][i]);
+		}
+		c = PointFileReader.readLAS(writeLAS(x, y, z, 0.01, 100), 20);
+		assertEquals(3, c[0].length);
+		try {
+			PointFileReader.readLAS(write("1 2 3\n"), 0);
+			fail();
+		} catch (IOException e) {
+		}
+	}
+
+	/**
+	 * Load the points of a file in a mesh.
+	 * @throws Exception
+	 */
+	public void testLoadInMesh() throws Exception {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.loadXYZ(write("0 0 1\n10 0 2\n0 10 3\n10 10 4\n5 5 5\n0 0 6\n"), 0);
+		assertEquals(5, mesh.getPoints().size());
+		assertEquals(new DPoint(0, 0, 1), mesh.getPoints().get(0));
+		mesh.processDelaunay();
+		assertEquals(4, mesh.getTriangleList().size());
+		mesh = new ConstrainedMesh();
+		mesh.loadLAS(writeLAS(new int[]{0, 10, 0, 10}, new int[]{0, 0, 10, 10}, new int[]{0, 0, 0, 0}, 1, 0), 0);
+		assertEquals(4, mesh.getPoints().size());
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+import org.jdelaunay.delaunay.geometries.Element;
+import org.jdelaunay.delaunay.tools.Predicates;
+
+/**
+ * Tests the point location service of ConstrainedMesh.
+ * @author alexis
+ */
+public class TestPointLocator extends BaseUtility {
+
+	private static ConstrainedMesh randomMesh(Random rand, int size) throws DelaunayError {
+		List<DPoint> pts = new ArrayList<DPoint>();
+		for(int i = 0; i < size; i++){
+			pts.add(new DPoint(rand.nextDouble() * 100, rand.nextDouble() * 100, 0));
+		}
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setPoints(pts);
+		return mesh;
+	}
+
+	/**
+	 * The triangle found must contain the point.
+	 * @throws DelaunayError
+	 */
+	public void testLocateInside() throws DelaunayError {
+		Random rand = new Random(5);
+		ConstrainedMesh mesh = randomMesh(rand, 2000);
+		mesh.addConstraintEdge(new DEdge(1, 1, 0, 99, 98, 0));
+		mesh.addConstraintEdge(new DEdge(2, 97, 0, 98, 3, 0));
+		mesh.forceConstraintIntegrity();
+		mesh.processDelaunay();
+		PointLocator locator = mesh.getPointLocator();
+		for(int i = 0; i < 5000; i++){
+			DPoint pt = new DPoint(5 + rand.nextDouble() * 90, 5 + rand.nextDouble() * 90, 0);
+			DTriangle tri = locator.getTriangle(pt);
+			assertNotNull(tri);
+			assertTrue(tri.contains(pt));
+		}
+		//The vertices of the mesh are found too.
+		for(DPoint pt : mesh.getPoints()){
+			assertTrue(locator.getTriangle(pt).belongsTo(pt));
+		}
+	}
+
+	/**
+	 * A point outside the mesh is separated from it by the returned edge.
+	 * @throws DelaunayError
+	 */
+	public void testLocateOutside() throws DelaunayError {
+		Random rand = new Random(6);
+		ConstrainedMesh mesh = randomMesh(rand, 500);
+		mesh.processDelaunay();
+		PointLocator locator = mesh.getPointLocator();
+		DPoint[] outside = new DPoint[]{new DPoint(-10, 50, 0), new DPoint(150, 150, 0),
+			new DPoint(50, -0.5, 0), new DPoint(101, 20, 0)};
+		for(DPoint pt : outside){
+			Element found = locator.locate(pt);
+			assertTrue(found instanceof DEdge);
+			DEdge ed = (DEdge) found;
+			if(ed.getLeft() == null){
+				assertTrue(ed.isLeft(pt));
+			} else {
+				assertNull(ed.getRight());
+				assertTrue(ed.isRight(pt));
+			}
+			assertNull(locator.getTriangle(pt));
+		}
+	}
+
+	/**
+	 * The locator follows the changes of the mesh, and is rebuilt when it is
+	 * computed again.
+	 * @throws DelaunayError
+	 */
+	public void testLocatorLifecycle() throws DelaunayError {
+		Random rand = new Random(7);
+		ConstrainedMesh mesh = randomMesh(rand, 300);
+		try{
+			mesh.getPointLocator();
+			fail();
+		} catch (DelaunayError d){
+		}
+		mesh.processDelaunay();
+		PointLocator locator = mesh.getPointLocator();
+		assertSame(locator, mesh.getPointLocator());
+		List<DPoint> more = new ArrayList<DPoint>();
+		for(int i = 0; i < 3000; i++){
+			more.add(new DPoint(rand.nextDouble() * 100, rand.nextDouble() * 100, 0));
+		}
+		mesh.insertPoints(more);
+		assertSame(locator, mesh.getPointLocator());
+		for(DPoint pt : more){
+			assertTrue(locator.getTriangle(pt).belongsTo(pt));
+		}
+		mesh.removeFlatTriangles();
+		assertNotSame(locator, mesh.getPointLocator());
+	}
+
+	/**
+	 * A long walk must not overflow the stack. The walk is made in a thread
+	 * with a small stack, so that a short strip is enough : a recursive walk
+	 * overflows it on this input.
+	 * @throws Exception
+	 */
+	public void testLongWalk() throws Exception {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		int length = 3000;
+		double[] x = new double[2 * length];
+		double[] y = new double[2 * length];
+		double[] z = new double[2 * length];
+		for(int i = 0; i < length; i++){
+			x[2 * i] = i;
+			x[2 * i + 1] = i + 0.5;
+			y[2 * i + 1] = 1;
+		}
+		mesh.setPoints(x, y, z);
+		mesh.processDelaunay();
+		final DPoint far = new DPoint(length - 2, 0.5, 0);
+		DTriangle start = null;
+		for(DTriangle tri : mesh.getTriangleList()){
+			if(tri.contains(new DPoint(0.5, 0.5, 0))){
+				start = tri;
+			}
+		}
+		final DTriangle first = start;
+		final Element[] found = new Element[1];
+		final Throwable[] error = new Throwable[1];
+		Thread walk = new Thread(null, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					found[0] = first.searchPointContainer(far);
+				} catch (Throwable t) {
+					error[0] = t;
+				}
+			}
+		}, "walk", 128 * 1024);
+		walk.start();
+		walk.join();
+		assertNull(error[0]);
+		assertTrue(((DTriangle) found[0]).contains(far));
+		assertTrue(mesh.getPointLocator().getTriangle(far).contains(far));
+	}
+
+	/**
+	 * In a mesh that is not Delaunay, a walk that always leaves its triangle
+	 * through the first crossed edge can turn around the searched point forever.
+	 * This mesh, made of random points and random flip-flaps, has such a cycle.
+	 * @throws Exception
+	 */
+	public void testWalkInNonDelaunayMesh() throws Exception {
+		final Random rand = new Random(63);
+		int size = 8 + rand.nextInt(10);
+		final ConstrainedMesh mesh = new ConstrainedMesh();
+		for(int i = 0; i < size; i++){
+			mesh.addPoint(new DPoint(rand.nextInt(100), rand.nextInt(100), 0));
+		}
+		mesh.processDelaunay();
+		for(int k = 0; k < 200; k++){
+			DEdge ed = mesh.getEdges().get(rand.nextInt(mesh.getEdges().size()));
+			if(ed.getLeft() != null && ed.getRight() != null){
+				DPoint p3 = ed.getLeft().getOppositePoint(ed);
+				DPoint p4 = ed.getRight().getOppositePoint(ed);
+				if(Predicates.orient2d(p3, p4, ed.getStartPoint())
+						* Predicates.orient2d(p3, p4, ed.getEndPoint()) < 0){
+					mesh.flipFlap(ed);
+				}
+			}
+		}
+		final Throwable[] error = new Throwable[1];
+		Thread walk = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for(DTriangle tri : mesh.getTriangleList()){
+						for(int q = 0; q < 30; q++){
+							DPoint pt = new DPoint(rand.nextDouble() * 100, rand.nextDouble() * 100, 0);
+							Element found = tri.searchPointContainer(pt);
+							if(found instanceof DTriangle){
+								assertTrue(((DTriangle) found).contains(pt));
+							} else {
+								DEdge ed = (DEdge) found;
+								assertTrue(ed.getLeft() == null || ed.getRight() == null);
+							}
+						}
+					}
+				} catch (Throwable t) {
+					error[0] = t;
+				}
+			}
+		}, "walk");
+		walk.setDaemon(true);
+		walk.start();
+		walk.join(60000);
+		assertFalse(walk.isAlive());
+		assertNull(error[0]);
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.tools.Tools;
+
+/**
+ * Tests PointSorter, and the bulk loading of the points in ConstrainedMesh.
+ * @author alexis
+ */
+public class TestPointSorter extends BaseUtility {
+
+	/**
+	 * Random coordinates, with negative values, duplicates and points sharing
+	 * their x-coordinate.
+	 * @param n
+	 * @param seed
+	 * @return
+	 *      x, y and z arrays.
+	 */
+	private double[][] getCoordinates(int n, long seed) {
+		Random rand = new Random(seed);
+		double[][] ret = new double[3][n];
+		for(int i = 0; i < n; i++){
+			if(i > 0 && rand.nextInt(10) == 0){
+				int j = rand.nextInt(i);
+				ret[0][i] = ret[0][j];
+				ret[1][i] = ret[1][j];
+			} else {
+				ret[0][i] = rand.nextInt(50) - 25 + (rand.nextBoolean() ? rand.nextDouble() : 0);
+				ret[1][i] = rand.nextDouble() * 100 - 50;
+			}
+			ret[2][i] = i;
+		}
+		return ret;
+	}
+
+	/**
+	 * The permutation gives the same order as Collections.sort.
+	 * @throws DelaunayError
+	 */
+	public void testSortOrder() throws DelaunayError {
+		double[][] c = getCoordinates(5000, 3);
+		int[] order = PointSorter.sort(c[0], c[1]);
+		assertEquals(5000, order.length);
+		List<DPoint> expected = new ArrayList<DPoint>();
+		for(int i = 0; i < order.length; i++){
+			expected.add(new DPoint(c[0][i], c[1][i], 0));
+		}
+		Collections.sort(expected);
+		for(int k = 0; k < order.length; k++){
+			assertTrue(expected.get(k).equals2D(new DPoint(c[0][order[k]], c[1][order[k]], 0)));
+		}
+		assertEquals(0, PointSorter.sort(new double[0], new double[0]).length);
+	}
+
+	/**
+	 * The points loaded from arrays are the same as the ones given with a list.
+	 * @throws DelaunayError
+	 */
+	public void testSetPointsFromArrays() throws DelaunayError {
+		double[][] c = getCoordinates(2000, 11);
+		ConstrainedMesh bulk = new ConstrainedMesh();
+		bulk.setPoints(c[0], c[1], c[2]);
+		ConstrainedMesh ref = new ConstrainedMesh();
+		for(int i = 0; i < c[0].length; i++){
+			ref.addPoint(new DPoint(c[0][i], c[1][i], c[2][i]));
+		}
+		assertEquals(ref.getPoints(), bulk.getPoints());
+		assertEquals(ref.getExtensionPoints(), bulk.getExtensionPoints());
+		bulk.processDelaunay();
+		ref.processDelaunay();
+		assertEquals(ref.getTriangleList().size(), bulk.getTriangleList().size());
+		assertCoherence(bulk);
+		assertGIDUnicity(bulk);
+	}
+
+	/**
+	 * The points can be read from a DoubleBuffer.
+	 * @throws DelaunayError
+	 */
+	public void testSetPointsFromBuffer() throws DelaunayError {
+		DoubleBuffer buf = DoubleBuffer.allocate(13);
+		buf.put(42);
+		buf.put(new double[]{0, 0, 1, 5, 5, 2, 0, 5, 3, 5, 0, 4});
+		buf.flip();
+		buf.position(1);
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.loadPoints(buf);
+		assertEquals(1, buf.position());
+		assertEquals(4, mesh.getPoints().size());
+		assertEquals(new DPoint(0, 0, 1), mesh.getPoints().get(0));
+		assertEquals(new DPoint(0, 5, 3), mesh.getPoints().get(1));
+		assertEquals(new DPoint(5, 5, 2), mesh.getPoints().get(3));
+		buf.position(2);
+		try{
+			mesh.loadPoints(buf);
+			fail();
+		} catch (IllegalArgumentException e){
+			assertTrue(true);
+		}
+		try{
+			mesh.setPoints(new double[2], new double[2], new double[1]);
+			fail();
+		} catch (IllegalArgumentException e){
+			assertTrue(true);
+		}
+	}
+
+	/**
+	 * The duplicates of a list of points are removed.
+	 * @throws DelaunayError
+	 */
+	public void testSetPointsDuplicates() throws DelaunayError {
+		List<DPoint> pts = new ArrayList<DPoint>();
+		pts.add(new DPoint(1, 1, 0));
+		pts.add(new DPoint(0, 0, 0));
+		pts.add(new DPoint(1, 1, 0));
+		pts.add(new DPoint(2, 0, 0));
+		pts.add(new DPoint(0, 0, 0));
+		pts.add(new DPoint(1, 1, 0));
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setPoints(pts);
+		assertEquals(3, mesh.getPoints().size());
+		assertEquals(new DPoint(0, 0, 0), mesh.getPoints().get(0));
+		assertEquals(new DPoint(1, 1, 0), mesh.getPoints().get(1));
+		assertEquals(new DPoint(2, 0, 0), mesh.getPoints().get(2));
+	}
+
+	/**
+	 * Long columns whose abscissas only differ by a noise far below
+	 * Tools.EPSILON, with decreasing ordinates : each column is one run, that
+	 * must be sorted on y without a quadratic insertion sort.
+	 * @throws DelaunayError
+	 */
+	public void testJitteredColumn() throws DelaunayError {
+		Random rand = new Random(5);
+		int columns = 3;
+		int size = 100000;
+		double[] x = new double[columns * size];
+		double[] y = new double[x.length];
+		for(int i = 0; i < x.length; i++){
+			x[i] = 1000 * (i / size) + 1e5 + (rand.nextDouble() - 0.5) * 1e-9;
+			y[i] = size - i % size;
+		}
+		int[] order = PointSorter.sort(x, y);
+		assertEquals(x.length, order.length);
+		for(int k = 0; k < order.length; k++){
+			assertEquals(1000 * (k / size) + 1e5, x[order[k]], 1e-8);
+			assertEquals(k % size + 1, y[order[k]], 0);
+		}
+	}
+
+	/**
+	 * Points whose successive abscissas are closer than Tools.EPSILON, but
+	 * that spread over much more : compareTo2D is not transitive there, and
+	 * each point must only be well placed relative to its neighbours.
+	 * @throws DelaunayError
+	 */
+	public void testChainedRun() throws DelaunayError {
+		Random rand = new Random(6);
+		double[] x = new double[3000];
+		double[] y = new double[x.length];
+		for(int i = 0; i < x.length; i++){
+			x[i] = 10 + i * 0.3 * Tools.EPSILON;
+			y[i] = rand.nextInt(20);
+		}
+		int[] order = PointSorter.sort(x, y);
+		for(int k = 1; k < order.length; k++){
+			assertTrue(PointSorter.compare(x, y, order[k - 1], order[k]) <= 0);
+		}
+		for(int k = 0; k < order.length; k++){
+			//A point can't move farther than the points closer than Tools.EPSILON.
+			assertTrue(Math.abs(x[order[k]] - x[k]) < 5 * Tools.EPSILON);
+		}
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+import org.jdelaunay.delaunay.tools.Predicates;
+
+/**
+ * Tests the robust orientation and in-circle predicates.
+ * @author alexis
+ */
+public class TestPredicates extends BaseUtility {
+
+	/**
+	 * The sign of the orientation of well separated points.
+	 */
+	public void testOrientation() {
+		assertTrue(Predicates.orient2d(0, 0, 1, 0, 0, 1) > 0);
+		assertTrue(Predicates.orient2d(0, 0, 0, 1, 1, 0) < 0);
+		assertEquals(0.0, Predicates.orient2d(0, 0, 1, 1, 3, 3));
+		assertEquals(0.0, Predicates.orient2d(0.1, 0.1, 0.2, 0.2, 0.3, 0.3));
+	}
+
+	/**
+	 * Points on a line of slope 1, with huge coordinates : the naive computation
+	 * gives random signs, the exact one says they are aligned, or on the right side
+	 * when they are moved by one ulp.
+	 */
+	public void testOrientationNearlyAligned() {
+		double base = 6000000.5;
+		double ulp = Math.ulp(base);
+		for(int i = 1; i < 200; i++){
+			double t = base + i * 0.37;
+			t = Math.rint(t / ulp) * ulp;
+			assertEquals(0.0, Predicates.orient2d(base, base, base + 1000, base + 1000, t, t));
+			assertTrue(Predicates.orient2d(base, base, base + 1000, base + 1000, t, t + ulp) > 0);
+			assertTrue(Predicates.orient2d(base, base, base + 1000, base + 1000, t + ulp, t) < 0);
+		}
+	}
+
+	/**
+	 * Cocircular points, and points moved by one ulp around the circle.
+	 */
+	public void testInCircle() {
+		assertTrue(Predicates.inCircle(0, 0, 1, 0, 0, 1, 0.5, 0.5) > 0);
+		assertTrue(Predicates.inCircle(0, 0, 1, 0, 0, 1, 2, 2) < 0);
+		double x = 6500000;
+		double y = 5300000;
+		//The four corners of a square are cocircular.
+		assertEquals(0.0, Predicates.inCircle(x, y, x + 3, y, x + 3, y + 3, x, y + 3));
+		double u = Math.ulp(y);
+		assertTrue(Predicates.inCircle(x, y, x + 3, y, x + 3, y + 3, x, y + 3 - u) > 0);
+		assertTrue(Predicates.inCircle(x, y, x + 3, y, x + 3, y + 3, x, y + 3 + u) < 0);
+	}
+
+	/**
+	 * The orientation with a tolerance gives the same answer whatever the order
+	 * of the points, even when the naive cross products disagree.
+	 * @throws DelaunayError
+	 */
+	public void testOrientationTolerance() throws DelaunayError {
+		Random rand = new Random(8);
+		for(int i = 0; i < 10000; i++){
+			DPoint a = new DPoint(6000000 + rand.nextDouble(), 2000000 + rand.nextDouble(), 0);
+			DPoint b = new DPoint(6000000 + rand.nextDouble(), 2000000 + rand.nextDouble(), 0);
+			double t = rand.nextDouble();
+			//c is on [a b], up to the rounding of its coordinates.
+			DPoint c = new DPoint(a.getX() + t * (b.getX() - a.getX()) + rand.nextGaussian() * 1e-7,
+				a.getY() + t * (b.getY() - a.getY()), 0);
+			int o = Predicates.orientation(a, b, c, 1e-7);
+			assertEquals(o, Predicates.orientation(b, c, a, 1e-7));
+			assertEquals(o, Predicates.orientation(c, a, b, 1e-7));
+			assertEquals(-o, Predicates.orientation(b, a, c, 1e-7));
+			assertEquals(-o, Predicates.orientation(a, c, b, 1e-7));
+			assertEquals(Math.signum(Predicates.orient2d(a, b, c)), Math.signum(-Predicates.orient2d(b, a, c)));
+		}
+		DPoint a = new DPoint(0, 0, 0);
+		DPoint b = new DPoint(1, 0, 0);
+		assertEquals(0, Predicates.orientation(a, b, new DPoint(0.5, 1e-8, 0), 1e-7));
+		assertEquals(1, Predicates.orientation(a, b, new DPoint(0.5, 1e-6, 0), 1e-7));
+		assertEquals(-1, Predicates.orientation(a, b, new DPoint(0.5, -1e-6, 0), 1e-7));
+	}
+
+	/**
+	 * The side of a point relatively to an edge.
+	 * @throws DelaunayError
+	 */
+	public void testEdgeSide() throws DelaunayError {
+		DEdge ed = new DEdge(6000000, 6000000, 0, 6000001, 6000001, 0);
+		assertEquals(1, ed.getSide(new DPoint(6000000, 6000001, 0)));
+		assertEquals(-1, ed.getSide(new DPoint(6000001, 6000000, 0)));
+		assertEquals(0, ed.getSide(new DPoint(6000002, 6000002, 0)));
+		DTriangle tri = new DTriangle(new DPoint(0, 0, 0), new DPoint(4, 0, 0), new DPoint(0, 4, 0));
+		assertEquals(2, tri.inCircle(new DPoint(4, 4, 0)));
+		assertEquals(1, tri.inCircle(new DPoint(1, 1, 0)));
+		assertEquals(0, tri.inCircle(new DPoint(5, 5, 0)));
+	}
+
+	/**
+	 * A grid of points with UTM coordinates, that is full of cocircular
+	 * configurations, is triangulated as the same grid close to the origin,
+	 * and the result is Delaunay.
+	 * @throws DelaunayError
+	 */
+	public void testUtmGrid() throws DelaunayError {
+		ConstrainedMesh local = gridMesh(0.25, 0.75);
+		ConstrainedMesh utm = gridMesh(652000.25, 6860000.75);
+		assertEquals(local.getTriangleList().size(), utm.getTriangleList().size());
+		for(DEdge ed : utm.getEdges()){
+			if(ed.getLeft() != null && ed.getRight() != null && !ed.isLocked()){
+				DPoint p3 = ed.getLeft().getOppositePoint(ed);
+				DPoint p4 = ed.getRight().getOppositePoint(ed);
+				assertFalse(Predicates.inCircle(ed.getStartPoint(), ed.getEndPoint(), p3, p4) > 0);
+			}
+		}
+	}
+
+	private static ConstrainedMesh gridMesh(double x, double y) throws DelaunayError {
+		Random rand = new Random(3);
+		List<DPoint> pts = new ArrayList<DPoint>();
+		for(int i = 0; i < 40; i++){
+			for(int j = 0; j < 40; j++){
+				pts.add(new DPoint(x + i * 0.5, y + j * 0.5, rand.nextDouble()));
+			}
+		}
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setPoints(pts);
+		mesh.addConstraintEdge(new DEdge(x + 1, y + 1, 0, x + 15, y + 12.5, 0));
+		mesh.forceConstraintIntegrity();
+		mesh.processDelaunay();
+		return mesh;
+	}
+}
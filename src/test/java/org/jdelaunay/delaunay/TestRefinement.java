@@ -35,6 +35,9 @@ import java.util.List;
 import org.jdelaunay.delaunay.evaluator.SkinnyEvaluator;
 import org.jdelaunay.delaunay.error.DelaunayError;
 import org.jdelaunay.delaunay.evaluator.InsertionEvaluator;
+import org.jdelaunay.delaunay.evaluator.MaxAreaEvaluator;
+import org.jdelaunay.delaunay.evaluator.SizingField;
+import org.jdelaunay.delaunay.evaluator.UniformSizingField;
 import org.jdelaunay.delaunay.geometries.DEdge;
 import org.jdelaunay.delaunay.geometries.DPoint;
 import org.jdelaunay.delaunay.geometries.DTriangle;
@@ -372,5 +375,162 @@ public class TestRefinement extends BaseUtility {
                 assertTrue(mesh.getTriangleList().contains(new DTriangle(new DPoint(11,-1,0),cc,new DPoint(3,0,0))));
                 
         }
+
+        /**
+         * A square of side 20, without constraint.
+         */
+        private ConstrainedMesh getSquare() throws DelaunayError {
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                mesh.addPoint(new DPoint(0,0,0));
+                mesh.addPoint(new DPoint(20,0,0));
+                mesh.addPoint(new DPoint(20,20,0));
+                mesh.addPoint(new DPoint(0,20,0));
+                mesh.addPoint(new DPoint(9,11,0));
+                mesh.processDelaunay();
+                return mesh;
+        }
+
+        public void testRefineMaxArea() throws DelaunayError {
+                ConstrainedMesh uniform = getSquare();
+                uniform.refineMesh(0.01, ConstrainedMesh.REFINEMENT_MAX_AREA, 0, new UniformSizingField(1));
+                MaxAreaEvaluator ev = new MaxAreaEvaluator(new UniformSizingField(1));
+                for(DTriangle dt : uniform.getTriangleList()){
+                        assertFalse(ev.evaluate(dt));
+                }
+                //The graded field is as fine as the uniform one on the left border only.
+                SizingField graded = new SizingField() {
+                        @Override
+                        public double getSize(double x, double y) {
+                                return 1 + x / 4;
+                        }
+                };
+                ConstrainedMesh mesh = getSquare();
+                mesh.refineMesh(0.01, ConstrainedMesh.REFINEMENT_MAX_AREA, 0, graded);
+                ev = new MaxAreaEvaluator(graded);
+                for(DTriangle dt : mesh.getTriangleList()){
+                        assertFalse(ev.evaluate(dt));
+                }
+                assertTrue(mesh.getTriangleList().size() < uniform.getTriangleList().size() / 2);
+                assertTrue(mesh.getTriangleList().size() > 4);
+        }
+
+        public void testRefineQualitySize() throws DelaunayError {
+                ConstrainedMesh mesh = getSquare();
+                mesh.refineMesh(0.01, ConstrainedMesh.REFINEMENT_MAX_AREA | ConstrainedMesh.REFINEMENT_MIN_ANGLE,
+                        20, new UniformSizingField(3));
+                MaxAreaEvaluator ev = new MaxAreaEvaluator(new UniformSizingField(3));
+                SkinnyEvaluator se = new SkinnyEvaluator(20);
+                for(DTriangle dt : mesh.getTriangleList()){
+                        assertFalse(ev.evaluate(dt));
+                        assertFalse(se.evaluate(dt));
+                }
+        }
+
+        public void testRefineFlagsException() throws DelaunayError {
+                ConstrainedMesh mesh = getSquare();
+                try{
+                        mesh.refineMesh(0.01, ConstrainedMesh.REFINEMENT_MIN_ANGLE
+                                | ConstrainedMesh.REFINEMENT_OBTUSE_ANGLE, 20, null);
+                        fail();
+                } catch (IllegalArgumentException e){
+                }
+                try{
+                        mesh.refineMesh(0.01, ConstrainedMesh.REFINEMENT_SOFT_INTERPOLATE, 20, null);
+                        fail();
+                } catch (IllegalArgumentException e){
+                }
+                try{
+                        mesh.refineMesh(0.01, ConstrainedMesh.REFINEMENT_MAX_AREA, 20, null);
+                        fail();
+                } catch (IllegalArgumentException e){
+                }
+                assertEquals(4, mesh.getTriangleList().size());
+        }
+
+        public void testOffCenter() throws DelaunayError {
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                DTriangle skinny = new DTriangle(new DPoint(0,0,0), new DPoint(1,0,0), new DPoint(0.5,10,0));
+                SkinnyEvaluator se = new SkinnyEvaluator(30);
+                //The circumcenter is used by default.
+                DPoint pt = mesh.getSteinerPoint(skinny, se);
+                assertEquals(skinny.getCircumCenterX(), pt.getX(), 1e-12);
+                assertEquals(skinny.getCircumCenterY(), pt.getY(), 1e-12);
+                //The off-center makes an angle of 30 degrees with the shortest edge.
+                mesh.setSteinerPlacement(SteinerPlacement.OFF_CENTER);
+                pt = mesh.getSteinerPoint(skinny, se);
+                assertEquals(0.5, pt.getX(), 1e-12);
+                assertEquals(0.5 / Math.tan(Math.toRadians(15)), pt.getY(), 1e-12);
+                //It is not used when it is farther than the circumcenter.
+                DTriangle fat = new DTriangle(new DPoint(0,0,0), new DPoint(1,0,0), new DPoint(0.5,1.2,0));
+                pt = mesh.getSteinerPoint(fat, se);
+                assertEquals(fat.getCircumCenterY(), pt.getY(), 1e-12);
+                //nor when the evaluator does not give any angle.
+                pt = mesh.getSteinerPoint(skinny, new MaxAreaEvaluator(1));
+                assertEquals(skinny.getCircumCenterY(), pt.getY(), 1e-12);
+                try{
+                        mesh.setSteinerPlacement(null);
+                        fail();
+                } catch (IllegalArgumentException e){
+                }
+        }
+
+        public void testTerminatorSplitPoint() throws DelaunayError {
+                //Two constraints that make an angle of about 11 degrees at (0,0).
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                mesh.addConstraintEdge(new DEdge(0,0,0,10,0,0));
+                mesh.addConstraintEdge(new DEdge(0,0,0,10,2,0));
+                mesh.addPoint(new DPoint(5,-4,0));
+                mesh.addPoint(new DPoint(5,6,0));
+                mesh.processDelaunay();
+                DEdge ed = null;
+                for(DEdge e : mesh.getConstraintEdges()){
+                        if(e.getPointRight().getY() == 0){
+                                ed = e;
+                        }
+                }
+                DPoint mid = mesh.getSplitPoint(ed, 0.01);
+                assertEquals(5, mid.getX(), 1e-12);
+                mesh.setSteinerPlacement(SteinerPlacement.TERMINATOR);
+                //The split is made on the circle of radius 4 centered on (0,0).
+                DPoint split = mesh.getSplitPoint(ed, 0.01);
+                assertEquals(4, split.getX(), 1e-12);
+                assertEquals(0, split.getY(), 1e-12);
+                //The middle is used if a part would be too short.
+                split = mesh.getSplitPoint(ed, 4.5);
+                assertEquals(5, split.getX(), 1e-12);
+                //The edge is not split for a triangle whose shortest edge is longer
+                //than the parts.
+                DTriangle small = new DTriangle(new DPoint(0,0,0), new DPoint(1,0,0), new DPoint(0.5,10,0));
+                DTriangle large = new DTriangle(new DPoint(0,0,0), new DPoint(5,0,0), new DPoint(2.5,50,0));
+                assertFalse(mesh.isSplitTerminated(ed, small, 0.01));
+                assertTrue(mesh.isSplitTerminated(ed, large, 0.01));
+        }
+
+        public void testRefineWithPlacements() throws DelaunayError {
+                //Two constraints make an angle of about 5 degrees at (0,0).
+                int previous = Integer.MAX_VALUE;
+                for(SteinerPlacement sp : SteinerPlacement.values()){
+                        ConstrainedMesh mesh = new ConstrainedMesh();
+                        mesh.addPoint(new DPoint(20,0,0));
+                        mesh.addPoint(new DPoint(0,20,0));
+                        mesh.addConstraintEdge(new DEdge(0,0,0,20,20,0));
+                        mesh.addConstraintEdge(new DEdge(0,0,0,20,17,0));
+                        mesh.processDelaunay();
+                        mesh.setSteinerPlacement(sp);
+                        mesh.refineMesh(0.01, new SkinnyEvaluator(25));
+                        SkinnyEvaluator se = new SkinnyEvaluator(25);
+                        int skinny = 0;
+                        for(DTriangle dt : mesh.getTriangleList()){
+                                if(se.evaluate(dt)){
+                                        skinny++;
+                                }
+                        }
+                        //Only the triangles in the small angle can stay skinny.
+                        assertTrue(skinny < mesh.getTriangleList().size() / 10);
+                        //Each placement inserts fewer points than the previous one here.
+                        assertTrue(mesh.getPoints().size() < previous);
+                        previous = mesh.getPoints().size();
+                }
+        }
         
 }
@@ -0,0 +1,117 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.Arrays;
+import junit.framework.TestCase;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.evaluator.InsertionEvaluator;
+import org.jdelaunay.delaunay.evaluator.SkinnyEvaluator;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Tests the order in which RefinementQueue gives the triangles.
+ * @author alexis
+ */
+public class TestRefinementQueue extends TestCase {
+
+	/**
+	 * A triangle whose smallest angle is close to angle, in degrees.
+	 */
+	private DTriangle getTriangle(double angle) throws DelaunayError {
+		double h = Math.tan(Math.toRadians(angle));
+		return new DTriangle(new DPoint(0, 0, 0), new DPoint(1, 0, 0), new DPoint(0.5, h / 2, 0));
+	}
+
+	/**
+	 * With a ScoredEvaluator, the worst triangles are given first, and only
+	 * the triangles the evaluator accepts are queued.
+	 * @throws DelaunayError
+	 */
+	public void testWorstFirst() throws DelaunayError {
+		DTriangle t10 = getTriangle(10);
+		DTriangle t5 = getTriangle(5);
+		DTriangle t40 = getTriangle(40);
+		DTriangle t20 = getTriangle(20);
+		RefinementQueue queue = new RefinementQueue(new SkinnyEvaluator(25), 4);
+		queue.addAll(Arrays.asList(t10, t5, t40, t20));
+		assertSame(t5, queue.poll());
+		assertSame(t10, queue.poll());
+		assertSame(t20, queue.poll());
+		assertNull(queue.poll());
+		assertTrue(queue.isEmpty());
+	}
+
+	/**
+	 * Without score, the triangles are given in the order they are queued,
+	 * and a triangle that is queued twice keeps its place.
+	 * @throws DelaunayError
+	 */
+	public void testQueueOrder() throws DelaunayError {
+		DTriangle t10 = getTriangle(10);
+		DTriangle t5 = getTriangle(5);
+		DTriangle t20 = getTriangle(20);
+		final SkinnyEvaluator se = new SkinnyEvaluator(25);
+		RefinementQueue queue = new RefinementQueue(new InsertionEvaluator() {
+			@Override
+			public boolean evaluate(DTriangle dt) {
+				return se.evaluate(dt);
+			}
+		}, 4);
+		queue.addAll(Arrays.asList(t10, t5, t20, t10));
+		assertSame(t10, queue.poll());
+		assertSame(t5, queue.poll());
+		assertSame(t20, queue.poll());
+		assertNull(queue.poll());
+	}
+
+	/**
+	 * A triangle that is queued again takes the place given by its new score,
+	 * or leaves the queue if it is not accepted anymore.
+	 * @throws DelaunayError
+	 */
+	public void testQueueAgain() throws DelaunayError {
+		DTriangle t10 = getTriangle(10);
+		DTriangle t5 = getTriangle(5);
+		DTriangle t20 = getTriangle(20);
+		SkinnyEvaluator se = new SkinnyEvaluator(25);
+		RefinementQueue queue = new RefinementQueue(se, 4);
+		queue.addAll(Arrays.asList(t10, t5, t20));
+		se.setMinAngle(15);
+		queue.add(t20);
+		queue.add(t10);
+		queue.add(t5);
+		assertSame(t5, queue.poll());
+		assertSame(t10, queue.poll());
+		assertNull(queue.poll());
+	}
+}
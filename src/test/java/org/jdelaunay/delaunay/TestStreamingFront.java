@@ -0,0 +1,202 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Tests the streaming triangulation of ConstrainedMesh, and its StreamingFront.
+ * @author alexis
+ */
+public class TestStreamingFront extends BaseUtility {
+
+	/**
+	 * A sink that stores the triangles as sorted triples of point GIDs.
+	 */
+	private static final class KeySink implements TriangleSink {
+		private final Set<List<Integer>> keys = new HashSet<List<Integer>>();
+		private final CountingIterator source;
+		private int beforeEnd = 0;
+
+		KeySink(CountingIterator source) {
+			this.source = source;
+		}
+
+		@Override
+		public void processTriangle(DTriangle tri) throws DelaunayError {
+			Integer[] gids = new Integer[]{tri.getPoint(0).getGID(), tri.getPoint(1).getGID(),
+				tri.getPoint(2).getGID()};
+			Arrays.sort(gids);
+			assertTrue(keys.add(Arrays.asList(gids)));
+			if(source != null && source.hasNext()){
+				beforeEnd++;
+			}
+		}
+	}
+
+	/**
+	 * An iterator that counts the points it gives.
+	 */
+	private static final class CountingIterator implements Iterator<DPoint> {
+		private final Iterator<DPoint> it;
+
+		CountingIterator(List<DPoint> pts) {
+			it = pts.iterator();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return it.hasNext();
+		}
+
+		@Override
+		public DPoint next() {
+			return it.next();
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Random points, sorted.
+	 */
+	private List<DPoint> getRandomPoints(int n, long seed, double width, double height) throws DelaunayError {
+		Random rand = new Random(seed);
+		List<DPoint> pts = new ArrayList<DPoint>();
+		for(int i = 0; i < n; i++){
+			pts.add(new DPoint(rand.nextDouble() * width, rand.nextDouble() * height, rand.nextDouble()));
+		}
+		Collections.sort(pts);
+		return pts;
+	}
+
+	/**
+	 * Get the triangles of the mesh, as sorted triples of point GIDs.
+	 */
+	private Set<List<Integer>> getTriangleKeys(ConstrainedMesh mesh) {
+		Set<List<Integer>> ret = new HashSet<List<Integer>>();
+		for(DTriangle tri : mesh.getTriangleList()){
+			Integer[] gids = new Integer[]{tri.getPoint(0).getGID(), tri.getPoint(1).getGID(),
+				tri.getPoint(2).getGID()};
+			Arrays.sort(gids);
+			ret.add(Arrays.asList(gids));
+		}
+		return ret;
+	}
+
+	/**
+	 * The streamed triangles are the ones computed by processDelaunay, and
+	 * most of them are released before the end of the input.
+	 * @throws DelaunayError
+	 */
+	public void testSameAsProcessDelaunay() throws DelaunayError {
+		List<DPoint> pts = getRandomPoints(3000, 5, 300, 30);
+		CountingIterator source = new CountingIterator(pts);
+		KeySink sink = new KeySink(source);
+		new ConstrainedMesh().processDelaunayStreaming(source, sink);
+		List<DPoint> copy = new ArrayList<DPoint>();
+		for(DPoint pt : pts){
+			copy.add(new DPoint(pt));
+		}
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setPoints(copy);
+		mesh.processDelaunay();
+		assertEquals(getTriangleKeys(mesh), sink.keys);
+		assertTrue(sink.beforeEnd > sink.keys.size() / 2);
+	}
+
+	/**
+	 * The points can be read from a buffer. Duplicates are skipped.
+	 * @throws DelaunayError
+	 */
+	public void testBufferAndDuplicates() throws DelaunayError {
+		DoubleBuffer buf = DoubleBuffer.wrap(new double[]{
+			0, 0, 0,
+			0, 0, 1,
+			0, 4, 0,
+			2, 1, 0,
+			4, 0, 0,
+			4, 4, 0});
+		KeySink sink = new KeySink(null);
+		new ConstrainedMesh().processDelaunayStreaming(buf, sink);
+		assertEquals(0, buf.position());
+		assertEquals(4, sink.keys.size());
+		assertTrue(sink.keys.contains(Arrays.asList(1, 2, 3)));
+		assertTrue(sink.keys.contains(Arrays.asList(3, 4, 5)));
+	}
+
+	/**
+	 * Unsorted points, constraints and too small inputs are rejected.
+	 * @throws DelaunayError
+	 */
+	public void testErrors() throws DelaunayError {
+		List<DPoint> pts = new ArrayList<DPoint>();
+		pts.add(new DPoint(0, 0, 0));
+		pts.add(new DPoint(2, 0, 0));
+		pts.add(new DPoint(1, 1, 0));
+		try{
+			new ConstrainedMesh().processDelaunayStreaming(pts.iterator(), new KeySink(null));
+			fail();
+		} catch (DelaunayError d){
+			assertTrue(true);
+		}
+		try{
+			new ConstrainedMesh().processDelaunayStreaming(pts.subList(0, 2).iterator(), new KeySink(null));
+			fail();
+		} catch (DelaunayError d){
+			assertTrue(true);
+		}
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.addConstraintEdge(new DEdge(0, 0, 0, 1, 1, 0));
+		Collections.sort(pts);
+		try{
+			mesh.processDelaunayStreaming(pts.iterator(), new KeySink(null));
+			fail();
+		} catch (DelaunayError d){
+			assertTrue(true);
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.evaluator.SkinnyEvaluator;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Tests the spatial index of the triangles of ConstrainedMesh.
+ * @author alexis
+ */
+public class TestTriangleIndex extends BaseUtility {
+
+	private static ConstrainedMesh randomMesh(Random rand, int size) throws DelaunayError {
+		List<DPoint> pts = new ArrayList<DPoint>();
+		for(int i = 0; i < size; i++){
+			pts.add(new DPoint(rand.nextDouble() * 100, rand.nextDouble() * 100, 0));
+		}
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setPoints(pts);
+		mesh.addConstraintEdge(new DEdge(1, 1, 0, 99, 98, 0));
+		mesh.forceConstraintIntegrity();
+		return mesh;
+	}
+
+	private static boolean intersects(DTriangle tri, double minX, double minY, double maxX, double maxY) {
+		double tMinX = Double.POSITIVE_INFINITY;
+		double tMinY = Double.POSITIVE_INFINITY;
+		double tMaxX = Double.NEGATIVE_INFINITY;
+		double tMaxY = Double.NEGATIVE_INFINITY;
+		for(int k = 0; k < 3; k++){
+			tMinX = Math.min(tMinX, tri.getPoint(k).getX());
+			tMinY = Math.min(tMinY, tri.getPoint(k).getY());
+			tMaxX = Math.max(tMaxX, tri.getPoint(k).getX());
+			tMaxY = Math.max(tMaxY, tri.getPoint(k).getY());
+		}
+		return tMinX <= maxX && tMaxX >= minX && tMinY <= maxY && tMaxY >= minY;
+	}
+
+	/**
+	 * The envelope queries must give the triangles found by a linear scan.
+	 * @throws DelaunayError
+	 */
+	public void testQuery() throws DelaunayError {
+		Random rand = new Random(3);
+		ConstrainedMesh mesh = randomMesh(rand, 3000);
+		mesh.processDelaunay();
+		TriangleIndex index = mesh.getTriangleIndex();
+		assertEquals(mesh.getTriangleList().size(), index.size());
+		for(int i = 0; i < 200; i++){
+			double minX = rand.nextDouble() * 110 - 5;
+			double minY = rand.nextDouble() * 110 - 5;
+			double maxX = minX + rand.nextDouble() * 20;
+			double maxY = minY + rand.nextDouble() * 20;
+			Set<DTriangle> expected = new HashSet<DTriangle>();
+			for(DTriangle tri : mesh.getTriangleList()){
+				if(intersects(tri, minX, minY, maxX, maxY)){
+					expected.add(tri);
+				}
+			}
+			List<DTriangle> found = index.query(minX, minY, maxX, maxY);
+			assertEquals(expected.size(), found.size());
+			assertEquals(expected, new HashSet<DTriangle>(found));
+		}
+		assertEquals(mesh.getTriangleList().size(), index.query(-1, -1, 101, 101).size());
+		assertTrue(index.query(200, 200, 300, 300).isEmpty());
+	}
+
+	/**
+	 * The triangle found must contain the point, and the points outside the mesh
+	 * are not found.
+	 * @throws DelaunayError
+	 */
+	public void testContainingTriangle() throws DelaunayError {
+		Random rand = new Random(4);
+		ConstrainedMesh mesh = randomMesh(rand, 2000);
+		mesh.processDelaunay();
+		TriangleIndex index = mesh.getTriangleIndex();
+		for(int i = 0; i < 2000; i++){
+			DPoint pt = new DPoint(5 + rand.nextDouble() * 90, 5 + rand.nextDouble() * 90, 0);
+			DTriangle tri = index.getContainingTriangle(pt.getX(), pt.getY());
+			assertNotNull(tri);
+			assertTrue(tri.contains(pt));
+		}
+		for(DPoint pt : mesh.getPoints()){
+			assertTrue(index.getContainingTriangle(pt.getX(), pt.getY()).belongsTo(pt));
+		}
+		assertNull(index.getContainingTriangle(-10, 50));
+		assertNull(index.getContainingTriangle(50, 110));
+	}
+
+	/**
+	 * The nearest vertex must be the one found by a linear scan.
+	 * @throws DelaunayError
+	 */
+	public void testNearestVertex() throws DelaunayError {
+		Random rand = new Random(5);
+		ConstrainedMesh mesh = randomMesh(rand, 2000);
+		mesh.processDelaunay();
+		TriangleIndex index = mesh.getTriangleIndex();
+		for(int i = 0; i < 500; i++){
+			double x = rand.nextDouble() * 140 - 20;
+			double y = rand.nextDouble() * 140 - 20;
+			double best = Double.POSITIVE_INFINITY;
+			for(DPoint pt : mesh.getPoints()){
+				best = Math.min(best, (pt.getX() - x) * (pt.getX() - x) + (pt.getY() - y) * (pt.getY() - y));
+			}
+			DPoint found = index.getNearestVertex(x, y);
+			double d = (found.getX() - x) * (found.getX() - x) + (found.getY() - y) * (found.getY() - y);
+			assertEquals(best, d, 0);
+		}
+	}
+
+	/**
+	 * The index is built with the mesh only when asked for, and built again
+	 * when the mesh is changed.
+	 * @throws DelaunayError
+	 */
+	public void testLifeCycle() throws DelaunayError {
+		ConstrainedMesh mesh = randomMesh(new Random(6), 300);
+		assertFalse(mesh.isTriangleIndexed());
+		try{
+			mesh.getTriangleIndex();
+			fail();
+		} catch (DelaunayError d){
+		}
+		mesh.setTriangleIndexed(true);
+		assertTrue(mesh.isTriangleIndexed());
+		mesh.processDelaunay();
+		TriangleIndex index = mesh.getTriangleIndex();
+		assertSame(index, mesh.getTriangleIndex());
+		mesh.refineTriangles(0.5, new SkinnyEvaluator(20));
+		TriangleIndex refined = mesh.getTriangleIndex();
+		assertNotSame(index, refined);
+		assertEquals(mesh.getTriangleList().size(), refined.size());
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained 
+ * Delaunay triangulations from PSLG inputs.
+ * 
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project, 
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract 
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ * 
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.cnrs.fr/> CNRS FR 2488.
+ * 
+ * Copyright (C) 2010 Erwan BOCHER, Alexis GUEGANNO, Adelin PIAU, Jean-Yves MARTIN
+ * Copyright (C) 2011 Alexis GUEGANNO, Jean-Yves MARTIN
+ * 
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * For more information, please consult: <http://trac.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.evaluator;
+
+import junit.framework.TestCase;
+import org.jdelaunay.delaunay.RasterGrid;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Tests the sizing fields, and the evaluators that use them.
+ * @author alexis
+ */
+public class TestSizeEvaluators extends TestCase {
+
+        /**
+         * A field whose value is x.
+         */
+        private static final SizingField LINEAR = new SizingField() {
+                @Override
+                public double getSize(double x, double y) {
+                        return x;
+                }
+        };
+
+        /**
+         * Right triangle with sides of length a, whose barycenter is at (x + a/3, a/3).
+         */
+        private DTriangle getTriangle(double x, double a) throws DelaunayError {
+                return new DTriangle(new DPoint(x, 0, 0), new DPoint(x + a, 0, 0), new DPoint(x, a, 0));
+        }
+
+        public void testMaxArea() throws DelaunayError {
+                MaxAreaEvaluator ev = new MaxAreaEvaluator(2);
+                assertFalse(ev.evaluate(getTriangle(0, 2)));
+                assertTrue(ev.evaluate(getTriangle(0, 3)));
+                assertEquals(2.25, ev.score(getTriangle(0, 3)), 1e-12);
+                ev = new MaxAreaEvaluator(LINEAR);
+                DTriangle dt = getTriangle(8, 3);
+                assertEquals(Math.sqrt(3) / 4 * 81, ev.getMaxArea(dt), 1e-9);
+                assertFalse(ev.evaluate(dt));
+                dt = getTriangle(0.5, 3);
+                assertEquals(Math.sqrt(3) / 4 * 2.25, ev.getMaxArea(dt), 1e-9);
+                assertTrue(ev.evaluate(dt));
+                try {
+                        new MaxAreaEvaluator(0);
+                        fail();
+                } catch (IllegalArgumentException e) {
+                }
+        }
+
+        public void testMaxEdgeLength() throws DelaunayError {
+                MaxEdgeLengthEvaluator ev = new MaxEdgeLengthEvaluator(4);
+                assertFalse(ev.evaluate(getTriangle(0, 2)));
+                assertTrue(ev.evaluate(getTriangle(0, 3)));
+                assertEquals(3 * Math.sqrt(2) / 4, ev.score(getTriangle(0, 3)), 1e-12);
+                ev = new MaxEdgeLengthEvaluator(LINEAR);
+                assertEquals(9, ev.getMaxLength(getTriangle(8, 3)), 1e-12);
+                assertFalse(ev.evaluate(getTriangle(8, 3)));
+                assertTrue(ev.evaluate(getTriangle(1, 3)));
+        }
+
+        public void testQualitySize() throws DelaunayError {
+                QualitySizeEvaluator ev = new QualitySizeEvaluator(30, new UniformSizingField(5));
+                //Right isoceles triangles have no angle under 45°.
+                assertFalse(ev.evaluate(getTriangle(0, 3)));
+                assertTrue(ev.evaluate(getTriangle(0, 4)));
+                assertEquals(4 * Math.sqrt(2) / 5 - 1, ev.score(getTriangle(0, 4)), 1e-12);
+                DTriangle skinny = new DTriangle(new DPoint(0, 0, 0), new DPoint(1, 0, 0), new DPoint(0, 0.1, 0));
+                assertTrue(ev.evaluate(skinny));
+                assertEquals((30 - skinny.getMinAngle()) / 30, ev.score(skinny), 1e-12);
+        }
+
+        public void testRasterField() {
+                //Two columns, two rows : the centers are at (0.5, 1.5), (1.5, 1.5), (0.5, 0.5), (1.5, 0.5).
+                RasterGrid grid = new RasterGrid(0, 0, 1, 2, 2);
+                RasterSizingField field = new RasterSizingField(grid, new double[]{1, 2, 3, 4});
+                assertEquals(1, field.getSize(0.5, 1.5), 1e-12);
+                assertEquals(4, field.getSize(1.5, 0.5), 1e-12);
+                assertEquals(2.5, field.getSize(1, 1), 1e-12);
+                assertEquals(1.5, field.getSize(1, 1.5), 1e-12);
+                //Outside the centers, the closest border is used.
+                assertEquals(1, field.getSize(-10, 10), 1e-12);
+                assertEquals(3.5, field.getSize(1, -3), 1e-12);
+                try {
+                        new RasterSizingField(grid, new double[]{1, 2, 0, 4});
+                        fail();
+                } catch (IllegalArgumentException e) {
+                }
+        }
+
+        public void testPointField() throws DelaunayError {
+                //The samples are on the plane size = 1 + x + y.
+                double[] x = {0, 10, 0, 10, 5};
+                double[] y = {0, 0, 10, 10, 5};
+                double[] s = new double[5];
+                for(int i = 0; i < 5; i++){
+                        s[i] = 1 + x[i] + y[i];
+                }
+                RasterSizingField field = RasterSizingField.fromPoints(x, y, s, 0.5);
+                assertEquals(1 + 3.25 + 7.75, field.getSize(3.25, 7.75), 1e-9);
+                assertEquals(1 + 5 + 5, field.getSize(5, 5), 1e-9);
+        }
+}
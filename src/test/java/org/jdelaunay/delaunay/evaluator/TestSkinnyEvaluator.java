@@ -91,4 +91,12 @@ public class TestSkinnyEvaluator extends TestCase{
                 dt = new DTriangle(new DEdge(0,0,0,0,1,0), new DEdge(0,1,0,10,0,0), new DEdge(10,0,0,0,0,0));
                 assertTrue(se.evaluate(dt));
         }
+
+        public void testScore() throws DelaunayError {
+                SkinnyEvaluator se = new SkinnyEvaluator(10);
+                DTriangle dt = new DTriangle(new DEdge(0,0,0,0,1,0), new DEdge(0,1,0,10,0,0), new DEdge(10,0,0,0,0,0));
+                DTriangle worse = new DTriangle(new DEdge(0,0,0,0,1,0), new DEdge(0,1,0,20,0,0), new DEdge(20,0,0,0,0,0));
+                assertEquals(10 - dt.getMinAngle(), se.score(dt), 1e-12);
+                assertTrue(se.score(worse) > se.score(dt));
+        }
 }
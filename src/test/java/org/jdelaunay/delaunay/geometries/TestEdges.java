@@ -112,6 +112,23 @@ public class TestEdges extends TestCase {
 		}
 	}
 
+	/**
+	 * getYFromItsX must return the ordinate of the point returned by
+	 * getPointFromItsX, or NaN when this point does not exist.
+	 */
+	public void testGetYFromItsX() throws DelaunayError {
+		DEdge e = new DEdge(0,0,0,1,1,1);
+		DEdge e2 = new DEdge(0,0,0,0,10,0);
+		DEdge e3 = new DEdge(3,7,0,-2,2,4);
+		double[] abs = {0.1, 0.5, 0.7, 0, 1, 1 + Tools.EPSILON / 2};
+		for(double x : abs){
+			assertEquals(e.getPointFromItsX(x).getY(), e.getYFromItsX(x));
+			assertEquals(e3.getPointFromItsX(x).getY(), e3.getYFromItsX(x));
+		}
+		assertTrue(Double.isNaN(e2.getYFromItsX(8)));
+		assertEquals(0.0, e2.getYFromItsX(0));
+	}
+
 	/**
 	 * This test checks the results returned by the method intersects of the class
 	 * DEdge.
@@ -190,6 +190,39 @@ public class TestTriangle extends TestCase {
 		assertTrue(center.equals(new Coordinate(1.5,1.5,0)));
 	}
 
+	/**
+	 * The circumcircle is computed lazily : it must follow the changes made
+	 * with setEdge and with recomputeCenter.
+	 * @throws DelaunayError
+	 */
+	public void testLazyCenter() throws DelaunayError{
+		DPoint p1 = new DPoint(0,0,0);
+		DPoint p2 = new DPoint(0,4,4);
+		DPoint p3 = new DPoint(4,0,4);
+		DTriangle t = new DTriangle(new DEdge(p1,p2), new DEdge(p2,p3), new DEdge(p3,p1));
+		assertEquals(2, t.getCircumCenterX(), Tools.EPSILON);
+		assertEquals(2, t.getCircumCenterY(), Tools.EPSILON);
+		assertEquals(Math.sqrt(8), t.getRadius(), Tools.EPSILON);
+		assertEquals(4, t.getCircumCenter().z, Tools.EPSILON);
+		//We replace p2 with p4 with setEdge.
+		DPoint p4 = new DPoint(0,2,2);
+		t.setEdge(0, new DEdge(p1,p4));
+		t.setEdge(1, new DEdge(p4,p3));
+		Coordinate center = t.getCircumCenter();
+		assertEquals(2, center.x, Tools.EPSILON);
+		assertEquals(1, center.y, Tools.EPSILON);
+		assertEquals(3, center.z, Tools.EPSILON);
+		assertEquals(Math.sqrt(5), t.getRadius(), Tools.EPSILON);
+		//We move p3, and ask for a new computation.
+		p3.setX(2);
+		t.recomputeCenter();
+		assertEquals(1, t.getCircumCenterX(), Tools.EPSILON);
+		assertEquals(1, t.getCircumCenterY(), Tools.EPSILON);
+		assertEquals(Math.sqrt(2), t.getRadius(), Tools.EPSILON);
+		assertEquals(1, t.inCircle(new DPoint(1,1.5,0)));
+		assertEquals(0, t.inCircle(new DPoint(3,3,0)));
+	}
+
 	/**
 	 * Test the sort used to classify the triangles, which is based on the center
 	 * of their bounding box